@@ -64,12 +64,21 @@ public class CompatibilityConversion {
         TRACING_SKIP = new HashSet<>();
         TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_ENABLED);
         TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_SAMPLED_BY_QPS);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_SAMPLED_RATE);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_SAMPLED_TYPE);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_TAIL_SAMPLING);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_ASYNC_HANDOFF);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_AGGREGATION);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_RECENT);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_SPAN_METRICS);
+        TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_PROPAGATION);
         TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_OUTPUT);
         TRACING_SKIP.add(ConfigConst.Observability.KEY_COMM_TAG);
 
         METRIC_SKIP = new HashSet<>();
         METRIC_SKIP.add(ConfigConst.Observability.KEY_METRICS_JVM_GC);
         METRIC_SKIP.add(ConfigConst.Observability.KEY_METRICS_JVM_MEMORY);
+        METRIC_SKIP.add(ConfigConst.Observability.KEY_METRICS_EXEMPLARS);
     }
 
     public static Map<String, String> transform(Map<String, String> oldConfigs) {
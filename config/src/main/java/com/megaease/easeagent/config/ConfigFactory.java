@@ -36,6 +36,7 @@ public class ConfigFactory {
 
     private static final String AGENT_SERVER_PORT_KEY = "easeagent.server.port";
     private static final String AGENT_SERVER_ENABLED_KEY = "easeagent.server.enabled";
+    private static final String AGENT_BOOTSTRAP_PARALLEL_KEY = "easeagent.bootstrap.parallel.enabled";
 
     public static final String EASEAGENT_ENV_CONFIG = "EASEAGENT_ENV_CONFIG";
 
@@ -47,6 +48,7 @@ public class ConfigFactory {
         subEnvKeys.add(AGENT_SYSTEM_NAME);
         envKeys.add(AGENT_SERVER_ENABLED_KEY);
         envKeys.add(AGENT_SERVER_PORT_KEY);
+        envKeys.add(AGENT_BOOTSTRAP_PARALLEL_KEY);
     }
 
     static Map<String, String> updateEnvCfg() {
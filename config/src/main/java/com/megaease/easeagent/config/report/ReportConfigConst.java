@@ -25,6 +25,7 @@ public class ReportConfigConst {
     public static final String METRIC_KAFKA_SENDER_NAME = "metricKafka";
     public static final String CONSOLE_SENDER_NAME = "console";
     public static final String ZIPKIN_SENDER_NAME = "http";
+    public static final String OTLP_SENDER_NAME = "otlp";
 
     public static final String NOOP_SENDER_NAME = "noop";
 
@@ -34,6 +35,10 @@ public class ReportConfigConst {
     public static final String ACCESS_LOG_JSON_ENCODER_NAME = "AccessLogJsonEncoder";
 
     public static final String HTTP_SPAN_JSON_ENCODER_NAME = "HttpSpanJsonEncoder";
+    public static final String SPAN_PROTOBUF_ENCODER_NAME = "SpanProtobufEncoder";
+    public static final String OTLP_SPAN_ENCODER_NAME = "OtlpSpanEncoder";
+    public static final String OTLP_METRIC_ENCODER_NAME = "OtlpMetricEncoder";
+    public static final String OTLP_LOG_ENCODER_NAME = "OtlpLogEncoder";
 
     public static final String LOG_ENCODER_NAME = "StringEncoder";
 
@@ -44,6 +49,7 @@ public class ReportConfigConst {
     public static final String ENABLED_KEY = "enabled";
     public static final String SENDER_KEY = "sender";
     public static final String ENCODER_KEY = "encoder";
+    public static final String ENVELOPE_KEY = "envelope";
     public static final String ASYNC_KEY = "output";
     public static final String APPEND_TYPE_KEY = "appendType";
     public static final String INTERVAL_KEY = "interval";
@@ -54,6 +60,7 @@ public class ReportConfigConst {
     public static final String ASYNC_QUEUE_MAX_SIZE_KEY = "queuedMaxSize";
     public static final String ASYNC_QUEUE_MAX_LOGS_KEY = "queuedMaxLogs";
     public static final String ASYNC_QUEUE_MAX_ITEMS_KEY = "queuedMaxItems";
+    public static final String ASYNC_PRIORITY_RESERVED_KEY = "priorityReserved";
 
     /**
      * Reporter v2 configuration
@@ -66,10 +73,13 @@ public class ReportConfigConst {
     public static final String LOGS = join(REPORT, "log");
     public static final String METRIC_V2 = join(REPORT, "metric");
     public static final String GENERAL = join(REPORT, "general");
+    public static final String MEMORY_BUDGET = join(REPORT, "memoryBudget");
     // ------ lv3 ------
     public static final String BOOTSTRAP_SERVERS = join(OUTPUT_SERVER_V2, "bootstrapServer");
     public static final String OUTPUT_SERVERS_ENABLE = join(OUTPUT_SERVER_V2, ENABLED_KEY);
     public static final String OUTPUT_SERVERS_TIMEOUT = join(OUTPUT_SERVER_V2, "timeout");
+    public static final String MEMORY_BUDGET_MAX_SIZE = join(MEMORY_BUDGET, "maxSize");
+    public static final String MEMORY_BUDGET_WEIGHT = join(MEMORY_BUDGET, "weight");
 
     public static final String OUTPUT_SECURITY_PROTOCOL_V2 = join(OUTPUT_SERVER_V2, "security.protocol");
     public static final String OUTPUT_SERVERS_SSL = join(OUTPUT_SERVER_V2, "ssl");
@@ -104,6 +114,7 @@ public class ReportConfigConst {
     public static final String LOG_ASYNC_MESSAGE_TIMEOUT = join(LOG_ASYNC, ASYNC_MSG_TIMEOUT_KEY);
     public static final String LOG_ASYNC_QUEUED_MAX_LOGS = join(LOG_ASYNC, ASYNC_QUEUE_MAX_LOGS_KEY);
     public static final String LOG_ASYNC_QUEUED_MAX_SIZE = join(LOG_ASYNC, ASYNC_QUEUE_MAX_SIZE_KEY);
+    public static final String LOG_ASYNC_PRIORITY_RESERVED = join(LOG_ASYNC, ASYNC_PRIORITY_RESERVED_KEY);
 
     public static final String TRACE_SENDER_NAME = join(TRACE_SENDER, APPEND_TYPE_KEY);
     public static final String TRACE_SENDER_ENABLED_V2 = join(TRACE_SENDER, ENABLED_KEY);
@@ -114,6 +125,7 @@ public class ReportConfigConst {
     public static final String TRACE_ASYNC_MESSAGE_TIMEOUT_V2 = join(TRACE_ASYNC, ASYNC_MSG_TIMEOUT_KEY);
     public static final String TRACE_ASYNC_QUEUED_MAX_SPANS_V2 = join(TRACE_ASYNC, "queuedMaxSpans");
     public static final String TRACE_ASYNC_QUEUED_MAX_SIZE_V2 = join(TRACE_ASYNC, ASYNC_QUEUE_MAX_SIZE_KEY);
+    public static final String TRACE_ASYNC_PRIORITY_RESERVED_V2 = join(TRACE_ASYNC, ASYNC_PRIORITY_RESERVED_KEY);
 
     public static final String METRIC_SENDER_NAME = join(METRIC_SENDER, APPEND_TYPE_KEY);
     public static final String METRIC_SENDER_ENABLED = join(METRIC_SENDER, ENABLED_KEY);
@@ -24,6 +24,9 @@ import com.megaease.easeagent.core.info.AgentInfoFactory;
 import com.megaease.easeagent.core.plugin.BaseLoader;
 import com.megaease.easeagent.core.plugin.BridgeDispatcher;
 import com.megaease.easeagent.core.plugin.PluginLoader;
+import com.megaease.easeagent.core.plugin.registry.PluginRegistry;
+import com.megaease.easeagent.core.plugin.transformer.ForAdviceTransformer;
+import com.megaease.easeagent.core.profile.AgentProfiler;
 import com.megaease.easeagent.httpserver.nano.AgentHttpHandlerProvider;
 import com.megaease.easeagent.httpserver.nano.AgentHttpServer;
 import com.megaease.easeagent.log4j2.Logger;
@@ -56,7 +59,11 @@ import java.lang.management.ManagementFactory;
 import java.net.URLClassLoader;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.bytebuddy.matcher.ElementMatchers.*;
 
@@ -69,6 +76,8 @@ public class Bootstrap {
     private static final String AGENT_SERVER_ENABLED_KEY = "easeagent.server.enabled";
 
     private static final String AGENT_MIDDLEWARE_UPDATE = "easeagent.middleware.update";
+    private static final String AGENT_BOOTSTRAP_PARALLEL_KEY = "easeagent.bootstrap.parallel.enabled";
+    private static final String AGENT_DISPATCH_INDY_KEY = "easeagent.dispatch.indy.enabled";
 
     private static final int DEF_AGENT_SERVER_PORT = 9900;
 
@@ -100,7 +109,9 @@ public class Bootstrap {
         final AgentInfo agentInfo = AgentInfoFactory.loadAgentInfo(classLoader);
         EaseAgent.agentInfo = agentInfo;
         final GlobalConfigs conf = ConfigFactory.loadConfigs(configPath, classLoader);
-        wrapConfig(conf);
+        boolean parallel = conf.getBoolean(AGENT_BOOTSTRAP_PARALLEL_KEY, false);
+        ExecutorService executor = parallel ? newBootstrapExecutor() : null;
+        wrapConfig(conf, executor);
 
         // loader check
         GlobalAgentHolder.setAgentClassLoader((URLClassLoader) Bootstrap.class.getClassLoader());
@@ -111,19 +122,31 @@ public class Bootstrap {
         EaseAgent.dispatcher = new BridgeDispatcher();
 
         // initInnerHttpServer
-        initHttpServer(conf);
+        initHttpServer(conf, executor);
 
         // redirection
         RedirectProcessor.INSTANCE.init();
 
-        // reporter
-        final AgentReport agentReport = DefaultAgentReport.create(conf);
-        GlobalAgentHolder.setAgentReport(agentReport);
-        EaseAgent.agentReport = agentReport;
+        if (conf.getBoolean(AgentProfiler.PROFILING_ENABLED_KEY, false)) {
+            AgentProfiler.enable();
+        }
+        ForAdviceTransformer.setIndyDispatch(conf.getBoolean(AGENT_DISPATCH_INDY_KEY, false));
 
-        // load plugins
+        // reporter & load plugins
+        final AgentReport agentReport;
         AgentBuilder builder = getAgentBuilder(conf, false);
-        builder = PluginLoader.load(builder, conf);
+        if (parallel) {
+            // reporter is created while plugins are being discovered
+            CompletableFuture<AgentReport> reportFuture = CompletableFuture
+                .supplyAsync(() -> DefaultAgentReport.create(conf), executor);
+            builder = PluginLoader.parallelLoad(builder, conf, executor);
+            agentReport = reportFuture.join();
+        } else {
+            agentReport = DefaultAgentReport.create(conf);
+            builder = PluginLoader.load(builder, conf);
+        }
+        GlobalAgentHolder.setAgentReport(agentReport);
+        EaseAgent.agentReport = agentReport;
 
         // provider & beans
         loadProvider(conf, agentReport);
@@ -132,10 +155,39 @@ public class Bootstrap {
         builder.installOn(inst);
         LOGGER.info("installBegin use time: {}ms", (System.currentTimeMillis() - installBegin));
 
-        LOGGER.info("Initialization has took {}ns", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        if (executor != null) {
+            // let the off-critical-path tasks finish, the threads are daemon
+            executor.shutdown();
+        }
+        LOGGER.info("Initialization has took {}ms, parallel bootstrap: {}",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin), parallel);
     }
 
-    private static void initHttpServer(Configs conf) {
+    private static ExecutorService newBootstrapExecutor() {
+        // ServiceLoader lookups rely on the context classloader which is the agent loader here
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final AtomicInteger threadIndex = new AtomicInteger();
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "easeagent-bootstrap-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        });
+    }
+
+    private static void runAsync(ExecutorService executor, Runnable task, String name) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        CompletableFuture.runAsync(task, executor).exceptionally(e -> {
+            LOGGER.error("Bootstrap task {} fail: {}", name, e.getMessage());
+            return null;
+        });
+    }
+
+    private static void initHttpServer(Configs conf, ExecutorService executor) {
         // inner httpserver
         Integer port = conf.getInt(AGENT_SERVER_PORT_KEY);
         if (port == null) {
@@ -148,8 +200,11 @@ public class Bootstrap {
 
         boolean httpServerEnabled = conf.getBoolean(AGENT_SERVER_ENABLED_KEY);
         if (httpServerEnabled) {
-            agentHttpServer.startServer();
-            LOGGER.info("start agent http server on port:{}", port);
+            final int serverPort = port;
+            runAsync(executor, () -> {
+                agentHttpServer.startServer();
+                LOGGER.info("start agent http server on port:{}", serverPort);
+            }, "http-server");
         }
         GlobalAgentHolder.setAgentHttpServer(agentHttpServer);
 
@@ -243,20 +298,22 @@ public class Bootstrap {
         return isBootstrapClassLoader().or(is(Bootstrap.class.getClassLoader()));
     }
 
-    private static void wrapConfig(GlobalConfigs configs) {
+    private static void wrapConfig(GlobalConfigs configs, ExecutorService executor) {
         WrappedConfigManager wrappedConfigManager = new WrappedConfigManager(Bootstrap.class.getClassLoader(), configs);
-        registerMBeans(wrappedConfigManager);
+        runAsync(executor, () -> registerMBeans(wrappedConfigManager), "mbean-register");
         GlobalAgentHolder.setWrappedConfigManager(wrappedConfigManager);
     }
 
     private static final AgentBuilder.Listener LISTENER = new AgentBuilder.Listener() {
         @Override
         public void onDiscovery(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
-            // ignored
+            PluginRegistry.onClassDiscovery(typeName);
+            AgentProfiler.onDiscovery();
         }
 
         @Override
         public void onTransformation(TypeDescription td, ClassLoader ld, JavaModule m, boolean loaded, DynamicType dt) {
+            AgentProfiler.onTransformation();
             LOGGER.debug("onTransformation: {} loaded: {} from classLoader {}", td, loaded, ld);
         }
 
@@ -274,7 +331,7 @@ public class Bootstrap {
 
         @Override
         public void onComplete(String name, ClassLoader ld, JavaModule m, boolean loaded) {
-            // ignored
+            AgentProfiler.onComplete();
         }
     };
 }
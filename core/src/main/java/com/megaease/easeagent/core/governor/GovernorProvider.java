@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.governor;
+
+import com.megaease.easeagent.config.ConfigAware;
+import com.megaease.easeagent.config.WrappedConfigManager;
+import com.megaease.easeagent.core.GlobalAgentHolder;
+import com.megaease.easeagent.core.utils.JsonUtil;
+import com.megaease.easeagent.httpserver.nano.AgentHttpHandler;
+import com.megaease.easeagent.httpserver.nano.AgentHttpHandlerProvider;
+import com.megaease.easeagent.httpserver.nano.AgentHttpServer;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.IHTTPSession;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Response;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Status;
+import com.megaease.easeagent.httpserver.nanohttpd.router.RouterNanoHTTPD;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.bean.AgentInitializingBean;
+import com.megaease.easeagent.plugin.bean.BeanProvider;
+
+import java.util.*;
+
+public class GovernorProvider implements AgentHttpHandlerProvider, ConfigAware, AgentInitializingBean, BeanProvider {
+    private static volatile OverheadGovernor governor;
+
+    private Config config;
+
+    @Override
+    public void setConfig(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!this.config.getBoolean(OverheadGovernor.ENABLED_KEY, false)) {
+            return;
+        }
+        final Config conf = this.config;
+        OverheadGovernor newGovernor = new OverheadGovernor(conf, changes -> {
+            WrappedConfigManager manager = GlobalAgentHolder.getWrappedConfigManager();
+            if (manager != null) {
+                manager.updateConfigs(changes);
+            } else {
+                conf.updateConfigs(changes);
+            }
+        });
+        newGovernor.start();
+        governor = newGovernor;
+    }
+
+    @Override
+    public List<AgentHttpHandler> getAgentHttpHandlers() {
+        List<AgentHttpHandler> list = new ArrayList<>();
+        list.add(new GovernorHttpHandler());
+        return list;
+    }
+
+    public static OverheadGovernor getGovernor() {
+        return governor;
+    }
+
+    public static class GovernorHttpHandler extends AgentHttpHandler {
+
+        @Override
+        public String getPath() {
+            return "/governor";
+        }
+
+        @Override
+        public Response process(RouterNanoHTTPD.UriResource uriResource, Map<String, String> urlParams, IHTTPSession session) {
+            OverheadGovernor current = governor;
+            Map<String, Object> result = current == null ? Collections.singletonMap("enabled", false) : current.status();
+            return Response.newFixedLengthResponse(Status.OK, AgentHttpServer.JSON_TYPE, JsonUtil.toJson(result));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.governor;
+
+/**
+ * Stages of instrumentation shedding, ordered from the cheapest to the most expensive
+ * in terms of lost observability. The governor moves one stage at a time.
+ */
+public enum GovernorStage {
+    NORMAL,
+    SAMPLING_REDUCED,
+    ACCESS_LOG_DISABLED,
+    LOW_PRIORITY_DISABLED,
+    TRACING_DISABLED;
+
+    public GovernorStage next() {
+        GovernorStage[] stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+
+    public GovernorStage previous() {
+        return ordinal() > 0 ? values()[ordinal() - 1] : null;
+    }
+}
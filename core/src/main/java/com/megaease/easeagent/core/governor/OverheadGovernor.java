@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.governor;
+
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.core.plugin.PointcutStats;
+import com.megaease.easeagent.core.profile.AgentProfiler;
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.report.async.zipkin.AgentByteBoundedQueue;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Shed instrumentation when the agent costs more than the configured budget.
+ * <p>
+ * The cost is evaluated every interval from the sampled interceptor time of all pointcuts,
+ * as a percentage of the cpu time of all processors, and from the usage of reporter queues.
+ * When over budget, the governor steps down one {@link GovernorStage} per interval by updating
+ * the related configs. A stage is restored only after both values stay under
+ * budget * recoverRatio for recoverIntervals intervals, so it does not flap around the budget.
+ * Configs changed by others while shedding are overridden when the stage is restored.
+ */
+public class OverheadGovernor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OverheadGovernor.class);
+
+    public static final String ENABLED_KEY = "easeagent.governor.enabled";
+    public static final String CPU_BUDGET_KEY = "easeagent.governor.cpu.budget";
+    public static final String QUEUE_BUDGET_KEY = "easeagent.governor.queue.budget";
+    public static final String INTERVAL_KEY = "easeagent.governor.interval";
+    public static final String RECOVER_RATIO_KEY = "easeagent.governor.recover.ratio";
+    public static final String RECOVER_INTERVALS_KEY = "easeagent.governor.recover.intervals";
+    public static final String SAMPLED_RATE_KEY = "easeagent.governor.sampled.rate";
+    public static final String LOW_PRIORITY_KEY = "easeagent.governor.lowPriority.namespaces";
+
+    static final String DEF_LOW_PRIORITY = "jdbc,jdbcStatement,jdbcConnection,redis,mongodb,elasticsearch,kafka,rabbitmq,async";
+
+    private final Config config;
+    private final Consumer<Map<String, String>> updater;
+    private final DoubleSupplier queueUsage;
+    private final double cpuBudget;
+    private final double queueBudget;
+    private final long intervalSeconds;
+    private final double recoverRatio;
+    private final int recoverIntervals;
+    private final double sampledRate;
+    private final List<String> lowPriority;
+    // original values of the configs changed by each applied stage
+    private final Deque<Map<String, String>> restores = new ArrayDeque<>();
+
+    private volatile GovernorStage stage = GovernorStage.NORMAL;
+    private volatile double lastCpuShare;
+    private volatile double lastQueueUsage;
+    private int calmIntervals;
+    private long lastTickNanos;
+    private long lastSampledNanos;
+    private ScheduledExecutorService scheduler;
+
+    public OverheadGovernor(Config config, Consumer<Map<String, String>> updater) {
+        this(config, updater, AgentByteBoundedQueue::maxUsage);
+    }
+
+    OverheadGovernor(Config config, Consumer<Map<String, String>> updater, DoubleSupplier queueUsage) {
+        this.config = config;
+        this.updater = updater;
+        this.queueUsage = queueUsage;
+        this.cpuBudget = config.getDouble(CPU_BUDGET_KEY, 5);
+        this.queueBudget = config.getDouble(QUEUE_BUDGET_KEY, 0.8);
+        this.intervalSeconds = Math.max(1, config.getLong(INTERVAL_KEY, 10));
+        this.recoverRatio = config.getDouble(RECOVER_RATIO_KEY, 0.5);
+        this.recoverIntervals = Math.max(1, config.getInt(RECOVER_INTERVALS_KEY, 3));
+        this.sampledRate = config.getDouble(SAMPLED_RATE_KEY, 0.1);
+        List<String> namespaces = config.getStringList(LOW_PRIORITY_KEY);
+        if (namespaces.isEmpty()) {
+            namespaces = Arrays.asList(DEF_LOW_PRIORITY.split(","));
+        }
+        this.lowPriority = namespaces;
+    }
+
+    public synchronized void start() {
+        if (this.scheduler != null) {
+            return;
+        }
+        // pointcut timing is the main input
+        Dispatcher.setProfiling(true);
+        this.lastTickNanos = System.nanoTime();
+        this.lastSampledNanos = sampledNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "easeagent-governor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::tick, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        LOGGER.info("overhead governor started, cpu budget: {}%, queue budget: {}", cpuBudget, queueBudget);
+    }
+
+    public synchronized void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+            // turned on by start, unless the user asked for profiling
+            if (!AgentProfiler.isEnabled()) {
+                Dispatcher.setProfiling(false);
+            }
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            long sampled = sampledNanos();
+            long wall = (now - lastTickNanos) * Runtime.getRuntime().availableProcessors();
+            double cpuShare = wall <= 0 ? 0 : (sampled - lastSampledNanos) * 100.0 / wall;
+            lastTickNanos = now;
+            lastSampledNanos = sampled;
+            evaluate(cpuShare, queueUsage.getAsDouble());
+        } catch (Throwable e) {
+            // an exception would cancel the scheduled task
+            LOGGER.warn("overhead governor evaluate fail: {}", e.getMessage());
+        }
+    }
+
+    private static long sampledNanos() {
+        long total = 0;
+        for (int index = 1; index < Dispatcher.statsSize(); index++) {
+            PointcutStats stats = Dispatcher.getStats(index);
+            if (stats != null) {
+                total += stats.getSampledScaledNanos();
+            }
+        }
+        return total;
+    }
+
+    synchronized void evaluate(double cpuShare, double queueUsage) {
+        this.lastCpuShare = cpuShare;
+        this.lastQueueUsage = queueUsage;
+        if (cpuShare > cpuBudget || queueUsage > queueBudget) {
+            calmIntervals = 0;
+            GovernorStage next = stage.next();
+            if (next != null) {
+                stepDown(next, cpuShare, queueUsage);
+            }
+            return;
+        }
+        if (stage == GovernorStage.NORMAL
+            || cpuShare >= cpuBudget * recoverRatio || queueUsage >= queueBudget * recoverRatio) {
+            calmIntervals = 0;
+            return;
+        }
+        if (++calmIntervals >= recoverIntervals) {
+            calmIntervals = 0;
+            stepUp(cpuShare, queueUsage);
+        }
+    }
+
+    private void stepDown(GovernorStage next, double cpuShare, double queueUsage) {
+        Map<String, String> changes = changesOf(next);
+        // nothing to shed at this stage, e.g. the sampling rate is already lower: go on to the next one
+        while (changes.isEmpty() && next.next() != null) {
+            restores.push(Collections.emptyMap());
+            next = next.next();
+            changes = changesOf(next);
+        }
+        Map<String, String> originals = new HashMap<>();
+        for (String key : changes.keySet()) {
+            originals.put(key, currentValue(key));
+        }
+        restores.push(originals);
+        stage = next;
+        LOGGER.warn("agent overhead cpu: {}%, queue usage: {}, over budget, step down to {}", cpuShare, queueUsage, next);
+        updater.accept(changes);
+    }
+
+    private void stepUp(double cpuShare, double queueUsage) {
+        Map<String, String> originals = restores.pop();
+        stage = stage.previous();
+        while (!restores.isEmpty() && restores.peek().isEmpty()) {
+            restores.pop();
+            stage = stage.previous();
+        }
+        LOGGER.info("agent overhead cpu: {}%, queue usage: {}, restore to {}", cpuShare, queueUsage, stage);
+        updater.accept(originals);
+    }
+
+    private Map<String, String> changesOf(GovernorStage target) {
+        Map<String, String> changes = new HashMap<>();
+        switch (target) {
+            case SAMPLING_REDUCED:
+                // only ever lower the rate, a higher one would add overhead
+                if (sampledRate < currentSampledRate()) {
+                    changes.put(ConfigConst.Observability.TRACE_SAMPLED_RATE, String.valueOf(sampledRate));
+                }
+                break;
+            case ACCESS_LOG_DISABLED:
+                changes.put(enabledKey(ConfigConst.Namespace.ACCESS, ConfigConst.PluginID.LOG), "false");
+                break;
+            case LOW_PRIORITY_DISABLED:
+                for (String namespace : lowPriority) {
+                    changes.put(enabledKey(namespace.trim(), ConfigConst.PluginID.TRACING), "false");
+                    changes.put(enabledKey(namespace.trim(), ConfigConst.PluginID.METRIC), "false");
+                }
+                break;
+            case TRACING_DISABLED:
+                changes.put(ConfigConst.Plugin.OBSERVABILITY_GLOBAL_TRACING_ENABLED, "false");
+                break;
+            default:
+                break;
+        }
+        return changes;
+    }
+
+    private double currentSampledRate() {
+        try {
+            return Double.parseDouble(currentValue(ConfigConst.Observability.TRACE_SAMPLED_RATE));
+        } catch (NumberFormatException e) {
+            return 1.0;
+        }
+    }
+
+    /**
+     * the value to restore, an unset plugin property falls back to the global one as the plugin config does
+     */
+    private String currentValue(String key) {
+        String value = config.getString(key);
+        if (value != null) {
+            return value;
+        }
+        if (key.equals(ConfigConst.Observability.TRACE_SAMPLED_RATE)) {
+            return "1.0";
+        }
+        String[] keys = ConfigConst.split(key);
+        if (keys.length == 5 && keys[0].equals(ConfigConst.PLUGIN)) {
+            String global = config.getString(ConfigConst.join(keys[0], keys[1], ConfigConst.PLUGIN_GLOBAL, keys[3], keys[4]));
+            if (global != null) {
+                return global;
+            }
+        }
+        return "true";
+    }
+
+    private static String enabledKey(String namespace, String id) {
+        return ConfigConst.join(ConfigConst.PLUGIN, ConfigConst.OBSERVABILITY, namespace, id, ConfigConst.SERVICE_ID_ENABLED_KEY);
+    }
+
+    public GovernorStage getStage() {
+        return this.stage;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", true);
+        result.put("stage", stage.name());
+        result.put("cpuShare", lastCpuShare);
+        result.put("cpuBudget", cpuBudget);
+        result.put("queueUsage", lastQueueUsage);
+        result.put("queueBudget", queueBudget);
+        result.put("lowPriorityNamespaces", lowPriority);
+        return result;
+    }
+}
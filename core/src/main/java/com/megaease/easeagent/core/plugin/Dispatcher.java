@@ -25,6 +25,11 @@ import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.api.InitializeContext;
 import com.megaease.easeagent.plugin.interceptor.AgentInterceptorChain;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
 @AutoService(AppendBootstrapLoader.class)
 public final class Dispatcher {
 
@@ -32,6 +37,9 @@ public final class Dispatcher {
     }
 
     static AgentArray<AgentInterceptorChain> chains = new AgentArray<>();
+    static AgentArray<PointcutStats> stats = new AgentArray<>();
+    static AgentArray<MutableCallSite> callSites = new AgentArray<>();
+    static volatile boolean profiling = false;
 
     /**
      * for chains only modified during related class loading process,
@@ -39,21 +47,72 @@ public final class Dispatcher {
      * otherwise, chain should store in context, avoiding changed during enter and exit
      */
     public static void enter(int index, MethodInfo info, InitializeContext ctx) {
-        AgentInterceptorChain chain = chains.getUncheck(index);
+        enter(chains.getUncheck(index), index, info, ctx);
+    }
+
+    public static Object exit(int index, MethodInfo info, InitializeContext ctx) {
+        return exit(chains.getUncheck(index), index, info, ctx);
+    }
+
+    /**
+     * for invokedynamic dispatch, the chain is a constant of the call site, see {@link #bootstrap}
+     */
+    public static void enter(AgentInterceptorChain chain, int index, MethodInfo info, InitializeContext ctx) {
         int pos = 0;
         ContextUtils.setBeginTime(ctx);
+        if (profiling) {
+            profilingEnter(index, chain, info, ctx);
+            return;
+        }
         chain.doBefore(info, pos, ctx);
     }
 
-    public static Object exit(int index, MethodInfo info, InitializeContext ctx) {
-        AgentInterceptorChain chain = chains.getUncheck(index);
+    public static Object exit(AgentInterceptorChain chain, int index, MethodInfo info, InitializeContext ctx) {
         int pos = chain.size() - 1;
         ContextUtils.setEndTime(ctx);
+        if (profiling) {
+            return profilingExit(index, chain, info, ctx);
+        }
         return chain.doAfter(info, pos, ctx);
     }
 
+    private static void profilingEnter(int index, AgentInterceptorChain chain, MethodInfo info, InitializeContext ctx) {
+        PointcutStats pointcutStats = getOrCreateStats(index);
+        pointcutStats.incrementInvocations();
+        if (!PointcutStats.sample()) {
+            chain.doBefore(info, 0, ctx);
+            return;
+        }
+        long begin = System.nanoTime();
+        chain.doBefore(info, 0, ctx);
+        pointcutStats.recordEnter(System.nanoTime() - begin);
+    }
+
+    private static Object profilingExit(int index, AgentInterceptorChain chain, MethodInfo info, InitializeContext ctx) {
+        if (!PointcutStats.sample()) {
+            return chain.doAfter(info, chain.size() - 1, ctx);
+        }
+        long begin = System.nanoTime();
+        Object ret = chain.doAfter(info, chain.size() - 1, ctx);
+        getOrCreateStats(index).recordExit(System.nanoTime() - begin);
+        return ret;
+    }
+
+    private static PointcutStats getOrCreateStats(int index) {
+        PointcutStats pointcutStats = stats.get(index);
+        if (pointcutStats == null) {
+            stats.putIfAbsent(index, new PointcutStats());
+            pointcutStats = stats.get(index);
+        }
+        return pointcutStats;
+    }
+
     public static AgentInterceptorChain register(int index, AgentInterceptorChain chain) {
-        return chains.putIfAbsent(index, chain);
+        AgentInterceptorChain previous = chains.putIfAbsent(index, chain);
+        if (previous == null) {
+            rebind(index);
+        }
+        return previous;
     }
 
     // for interceptor
@@ -62,6 +121,65 @@ public final class Dispatcher {
     }
 
     public static boolean updateChain(int index, AgentInterceptorChain chain) {
-        return chains.replace(index, chain) != null;
+        boolean updated = chains.replace(index, chain) != null;
+        if (updated) {
+            rebind(index);
+        }
+        return updated;
+    }
+
+    /**
+     * bootstrap method of the invokedynamic instructions woven by indy dispatch mode,
+     * all call sites of a pointcut share one MutableCallSite which always returns the current chain,
+     * so the JIT can treat the chain as a constant and inline it into the woven method.
+     */
+    public static synchronized CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, int index) {
+        MutableCallSite site = callSites.get(index);
+        if (site == null) {
+            site = new MutableCallSite(MethodHandles.constant(AgentInterceptorChain.class, chains.get(index)));
+            callSites.putIfAbsent(index, site);
+        }
+        return site;
+    }
+
+    /**
+     * point the call site to the current chain, the compiled code depending on the old one is deoptimized
+     */
+    private static synchronized void rebind(int index) {
+        MutableCallSite site = callSites.get(index);
+        if (site == null) {
+            return;
+        }
+        site.setTarget(MethodHandles.constant(AgentInterceptorChain.class, chains.get(index)));
+        MutableCallSite.syncAll(new MutableCallSite[]{site});
+    }
+
+    public static void setProfiling(boolean enabled) {
+        profiling = enabled;
+    }
+
+    public static boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * @return null when the pointcut has not been invoked since profiling enabled
+     */
+    public static PointcutStats getStats(int index) {
+        return stats.get(index);
+    }
+
+    public static int statsSize() {
+        return stats.size();
+    }
+
+    public static void resetStats() {
+        // the first slot of an AgentArray holds its lock
+        for (int i = 1; i < stats.size(); i++) {
+            PointcutStats pointcutStats = stats.get(i);
+            if (pointcutStats != null) {
+                pointcutStats.reset();
+            }
+        }
     }
 }
@@ -21,6 +21,7 @@ import com.megaease.easeagent.config.Configs;
 import com.megaease.easeagent.core.plugin.matcher.ClassTransformation;
 import com.megaease.easeagent.core.plugin.matcher.MethodTransformation;
 import com.megaease.easeagent.core.plugin.registry.PluginRegistry;
+import com.megaease.easeagent.core.profile.AgentProfiler;
 import com.megaease.easeagent.core.plugin.transformer.CompoundPluginTransformer;
 import com.megaease.easeagent.core.plugin.transformer.DynamicFieldTransformer;
 import com.megaease.easeagent.core.plugin.transformer.ForAdviceTransformer;
@@ -32,8 +33,12 @@ import com.megaease.easeagent.plugin.Ordered;
 import com.megaease.easeagent.plugin.Points;
 import com.megaease.easeagent.plugin.field.AgentDynamicFieldAccessor;
 import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -49,15 +54,56 @@ public class PluginLoader {
         providerLoad();
         Set<ClassTransformation> sortedTransformations = pointsLoad();
 
+        return transform(ab, sortedTransformations);
+    }
+
+    /**
+     * Discover plugins, providers and points concurrently on the executor.
+     * Plugins and providers are still registered in ServiceLoader order on the calling thread,
+     * so the pointcut index assignment is the same as {@link #load(AgentBuilder, Configs)}.
+     */
+    public static AgentBuilder parallelLoad(AgentBuilder ab, Configs conf, Executor executor) {
+        CompletableFuture<List<AgentPlugin>> plugins = CompletableFuture
+            .supplyAsync(() -> BaseLoader.loadOrdered(AgentPlugin.class), executor);
+        CompletableFuture<List<InterceptorProvider>> providers = CompletableFuture
+            .supplyAsync(() -> BaseLoader.load(InterceptorProvider.class), executor);
+        CompletableFuture<List<Points>> points = CompletableFuture
+            .supplyAsync(() -> BaseLoader.load(Points.class), executor);
+
+        pluginRegister(plugins.join());
+        providerRegister(providers.join());
+
+        // indexes are all assigned now, points can be converted concurrently
+        List<CompletableFuture<ClassTransformation>> transformations = points.join().stream()
+            .map(point -> CompletableFuture.supplyAsync(() -> pointsRegister(point), executor))
+            .collect(Collectors.toList());
+        Set<ClassTransformation> sortedTransformations = transformations.stream()
+            .map(CompletableFuture::join)
+            .filter(Objects::nonNull)
+            .sorted(Comparator.comparing(Ordered::order))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return transform(ab, sortedTransformations);
+    }
+
+    private static AgentBuilder transform(AgentBuilder ab, Set<ClassTransformation> sortedTransformations) {
         for (ClassTransformation transformation : sortedTransformations) {
-            ab = ab.type(transformation.getClassMatcher(), transformation.getClassloaderMatcher())
+            ElementMatcher.Junction<TypeDescription> classMatcher = transformation.getClassMatcher();
+            if (AgentProfiler.isEnabled()) {
+                classMatcher = AgentProfiler.register(transformation).timing(classMatcher);
+            }
+            ab = ab.type(classMatcher, transformation.getClassloaderMatcher())
                 .transform(compound(transformation.isHasDynamicField(), transformation.getMethodTransformations()));
         }
         return ab;
     }
 
     public static void providerLoad() {
-        for (InterceptorProvider provider : BaseLoader.load(InterceptorProvider.class)) {
+        providerRegister(BaseLoader.load(InterceptorProvider.class));
+    }
+
+    private static void providerRegister(List<InterceptorProvider> providers) {
+        for (InterceptorProvider provider : providers) {
             log.debug("loading provider:{}", provider.getClass().getName());
 
             try {
@@ -75,23 +121,30 @@ public class PluginLoader {
 
     public static Set<ClassTransformation> pointsLoad() {
         List<Points> points = BaseLoader.load(Points.class);
-        return points.stream().map(point -> {
-                try {
-                    return PluginRegistry.register(point);
-                } catch (Exception e) {
-                    log.error(
-                        "Unable to load points in [class {}]",
-                        point.getClass().getName(),
-                        e);
-                    return null;
-                }
-            }).filter(Objects::nonNull)
+        return points.stream().map(PluginLoader::pointsRegister)
+            .filter(Objects::nonNull)
             .sorted(Comparator.comparing(Ordered::order))
             .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
+    private static ClassTransformation pointsRegister(Points point) {
+        try {
+            return PluginRegistry.register(point);
+        } catch (Exception e) {
+            log.error(
+                "Unable to load points in [class {}]",
+                point.getClass().getName(),
+                e);
+            return null;
+        }
+    }
+
     public static void pluginLoad() {
-        for (AgentPlugin plugin : BaseLoader.loadOrdered(AgentPlugin.class)) {
+        pluginRegister(BaseLoader.loadOrdered(AgentPlugin.class));
+    }
+
+    private static void pluginRegister(List<AgentPlugin> plugins) {
+        for (AgentPlugin plugin : plugins) {
             log.info(
                 "Loading plugin {}:{} [class {}]",
                 plugin.getDomain(),
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.plugin;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.plugin.AppendBootstrapLoader;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * invocation count and sampled self-time of a pointcut's interceptor chain,
+ * only collected when the profiling of Dispatcher is enabled.
+ */
+@AutoService(AppendBootstrapLoader.class)
+public final class PointcutStats {
+    // sample 1/16 of invocations
+    private static final int SAMPLE_MASK = 0xF;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder enterSamples = new LongAdder();
+    private final LongAdder enterNanos = new LongAdder();
+    private final LongAdder exitSamples = new LongAdder();
+    private final LongAdder exitNanos = new LongAdder();
+
+    static boolean sample() {
+        return (ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) == 0;
+    }
+
+    void incrementInvocations() {
+        this.invocations.increment();
+    }
+
+    void recordEnter(long nanos) {
+        this.enterSamples.increment();
+        this.enterNanos.add(nanos);
+    }
+
+    void recordExit(long nanos) {
+        this.exitSamples.increment();
+        this.exitNanos.add(nanos);
+    }
+
+    public void reset() {
+        this.invocations.reset();
+        this.enterSamples.reset();
+        this.enterNanos.reset();
+        this.exitSamples.reset();
+        this.exitNanos.reset();
+    }
+
+    public long getInvocations() {
+        return this.invocations.sum();
+    }
+
+    public long getEnterAvgNanos() {
+        long samples = this.enterSamples.sum();
+        return samples == 0 ? 0 : this.enterNanos.sum() / samples;
+    }
+
+    public long getExitAvgNanos() {
+        long samples = this.exitSamples.sum();
+        return samples == 0 ? 0 : this.exitNanos.sum() / samples;
+    }
+
+    /**
+     * estimated self-time of the interceptor chain for all invocations
+     */
+    public long getEstimatedSelfNanos() {
+        return (getEnterAvgNanos() + getExitAvgNanos()) * getInvocations();
+    }
+
+    /**
+     * estimated self-time scaled up from the sampled time only, it is monotonic,
+     * so the difference between two calls estimates the time spent in between
+     */
+    public long getSampledScaledNanos() {
+        return (this.enterNanos.sum() + this.exitNanos.sum()) * (SAMPLE_MASK + 1);
+    }
+}
@@ -29,6 +29,7 @@ import static net.bytebuddy.matcher.ElementMatchers.any;
 
 @Data
 public class ClassTransformation implements Ordered {
+    private String name;
     private int order;
     private Junction<TypeDescription> classMatcher;
     private ElementMatcher<ClassLoader> classloaderMatcher;
@@ -61,6 +62,7 @@ public class ClassTransformation implements Ordered {
     }
 
     public static class Builder {
+        private String name;
         private int order;
         private Junction<TypeDescription> classMatcher;
         private ElementMatcher<ClassLoader> classloaderMatcher = null;
@@ -70,6 +72,11 @@ public class ClassTransformation implements Ordered {
         Builder() {
         }
 
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
         public Builder order(int order) {
             this.order = order;
             return this;
@@ -96,12 +103,14 @@ public class ClassTransformation implements Ordered {
         }
 
         public ClassTransformation build() {
-            return new ClassTransformation(order, classloaderMatcher, classMatcher,
+            ClassTransformation transformation = new ClassTransformation(order, classloaderMatcher, classMatcher,
                 methodTransformations, hasDynamicField);
+            transformation.setName(name);
+            return transformation;
         }
 
         public String toString() {
-            return "ClassTransformation.Builder(order=" + this.order + ", classMatcher=" + this.classMatcher + ", methodTransformations=" + this.methodTransformations + ", hasDynamicField=" + this.hasDynamicField + ")";
+            return "ClassTransformation.Builder(name=" + this.name + ", order=" + this.order + ", classMatcher=" + this.classMatcher + ", methodTransformations=" + this.methodTransformations + ", hasDynamicField=" + this.hasDynamicField + ")";
         }
     }
 }
@@ -23,6 +23,8 @@ import com.megaease.easeagent.core.plugin.interceptor.ProviderChain;
 import com.megaease.easeagent.log4j2.Logger;
 import com.megaease.easeagent.log4j2.LoggerFactory;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.api.config.Const;
+import com.megaease.easeagent.plugin.api.config.IPluginConfig;
 import com.megaease.easeagent.plugin.enums.Order;
 import com.megaease.easeagent.plugin.interceptor.Interceptor;
 import com.megaease.easeagent.plugin.Ordered;
@@ -62,6 +64,7 @@ public class MethodTransformation {
 
         List<Interceptor> interceptors = suppliers.stream()
             .map(Supplier::get)
+            .filter(i -> !isSpanDerived(i, type, method))
             .sorted(Comparator.comparing(Ordered::order))
             .collect(Collectors.toList());
 
@@ -80,4 +83,21 @@ public class MethodTransformation {
 
         return new AgentInterceptorChain(interceptors);
     }
+
+    /**
+     * the metric interceptors of a plugin whose metrics are derived from its spans are not installed,
+     * see plugin.observability.{namespace}.metric.spanDerived
+     */
+    private static boolean isSpanDerived(Interceptor i, String type, String method) {
+        if (!(i instanceof InterceptorPluginDecorator) || !Order.METRIC.getName().equals(i.getType())) {
+            return false;
+        }
+        IPluginConfig config = ((InterceptorPluginDecorator) i).getConfig();
+        if (config == null || !config.getBoolean(Const.SPAN_DERIVED_CONFIG, false)) {
+            return false;
+        }
+        log.info("skip metric interceptor of {}.{} on {}::{}, the metrics are derived from spans",
+            config.domain(), config.namespace(), type, method);
+        return true;
+    }
 }
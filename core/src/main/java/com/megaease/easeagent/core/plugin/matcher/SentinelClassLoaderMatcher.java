@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.plugin.matcher;
+
+import com.megaease.easeagent.plugin.utils.common.WeakConcurrentMap;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.util.Set;
+
+/**
+ * Gate a transformation on the presence of sentinel classes.
+ * The gate is closed until one of the sentinel classes is discovered by the agent listener,
+ * after that it matches any classloader and the only cost left is a volatile read.
+ * While closed, each classloader is probed once for the sentinel class files, so transformations of
+ * classes loaded before the sentinel itself, eg. subclasses of the sentinel, are not missed.
+ */
+public class SentinelClassLoaderMatcher extends ElementMatcher.Junction.AbstractBase<ClassLoader> {
+    private final String name;
+    private final Set<String> sentinels;
+    private final WeakConcurrentMap<ClassLoader, Boolean> probed = new WeakConcurrentMap<>();
+    private volatile boolean active = false;
+
+    public SentinelClassLoaderMatcher(String name, Set<String> sentinels) {
+        this.name = name;
+        this.sentinels = sentinels;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Set<String> getSentinels() {
+        return this.sentinels;
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    public void activate() {
+        this.active = true;
+    }
+
+    @Override
+    public boolean matches(ClassLoader target) {
+        if (this.active) {
+            return true;
+        }
+        ClassLoader loader = target == null ? ClassLoader.getSystemClassLoader() : target;
+        Boolean present = probed.getIfPresent(loader);
+        if (present == null) {
+            present = probe(loader);
+            probed.putIfProbablyAbsent(loader, present);
+        }
+        if (present) {
+            activate();
+        }
+        return present;
+    }
+
+    private boolean probe(ClassLoader loader) {
+        for (String sentinel : this.sentinels) {
+            if (loader.getResource(sentinel.replace('.', '/') + ".class") != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "sentinel(" + this.name + ":" + this.sentinels + ")";
+    }
+}
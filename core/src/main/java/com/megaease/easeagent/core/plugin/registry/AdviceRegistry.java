@@ -155,11 +155,10 @@ public class AdviceRegistry {
             AgentJavaConstantValue oldValue = (AgentJavaConstantValue) forStackManipulation.getStackManipulation();
             index = oldValue.getPointcutIndex();
 
+            // the index and the invokedynamic chain of indy dispatch mode are both bound to the identity
             MethodIdentityJavaConstant constant = new MethodIdentityJavaConstant(value);
-            StackManipulation stackManipulation = new AgentJavaConstantValue(constant, index);
+            StackManipulation stackManipulation = oldValue.withConstant(constant);
             enterMap.put(offset.getKey(), forStackManipulation.with(stackManipulation));
-
-            return index;
         }
         return index;
     }
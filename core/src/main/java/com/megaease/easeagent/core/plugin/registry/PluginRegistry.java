@@ -35,9 +35,12 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.matcher.ElementMatcher.Junction;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class PluginRegistry {
@@ -50,6 +53,7 @@ public class PluginRegistry {
     static final ConcurrentHashMap<String, Integer> QUALIFIER_TO_INDEX = new ConcurrentHashMap<>();
     static final ConcurrentHashMap<Integer, MethodTransformation> INDEX_TO_METHOD_TRANSFORMATION = new ConcurrentHashMap<>();
     static final AgentArray<Builder> INTERCEPTOR_PROVIDERS = new AgentArray<>();
+    static final ConcurrentHashMap<String, List<SentinelClassLoaderMatcher>> SENTINEL_TO_MATCHERS = new ConcurrentHashMap<>();
 
     private PluginRegistry() {}
 
@@ -91,7 +95,21 @@ public class PluginRegistry {
         AgentPlugin plugin = POINTS_TO_PLUGIN.get(pointsClassName);
         int order = plugin.order();
 
-        return ClassTransformation.builder().classMatcher(innerClassMatcher)
+        Set<String> sentinels = points.getSentinelClasses();
+        if (sentinels == null || sentinels.isEmpty()) {
+            sentinels = plugin.getSentinelClasses();
+        }
+        if (sentinels != null && !sentinels.isEmpty()) {
+            SentinelClassLoaderMatcher sentinelMatcher = new SentinelClassLoaderMatcher(pointsClassName, sentinels);
+            for (String sentinel : sentinels) {
+                SENTINEL_TO_MATCHERS.computeIfAbsent(sentinel, k -> new CopyOnWriteArrayList<>()).add(sentinelMatcher);
+            }
+            // the gate is checked first, so absent libraries cost no class matching
+            loaderMatcher = loaderMatcher == null ? sentinelMatcher : sentinelMatcher.and(loaderMatcher);
+        }
+
+        return ClassTransformation.builder().name(pointsClassName)
+            .classMatcher(innerClassMatcher)
             .hasDynamicField(hasDynamicField)
             .methodTransformations(mInfo)
             .classloaderMatcher(loaderMatcher)
@@ -140,6 +158,45 @@ public class PluginRegistry {
         return name.substring(0, index);
     }
 
+    /**
+     * called for every class discovered by the agent, activate the transformations gated by this class
+     */
+    public static void onClassDiscovery(String className) {
+        if (SENTINEL_TO_MATCHERS.isEmpty()) {
+            return;
+        }
+        List<SentinelClassLoaderMatcher> matchers = SENTINEL_TO_MATCHERS.get(className);
+        if (matchers == null) {
+            return;
+        }
+        for (SentinelClassLoaderMatcher matcher : matchers) {
+            if (!matcher.isActive()) {
+                log.info("sentinel class {} is discovered, activate transformations of {}", className, matcher.getName());
+                matcher.activate();
+            }
+        }
+    }
+
+    public static AgentPlugin getPointsPlugin(String pointsClassName) {
+        return POINTS_TO_PLUGIN.get(pointsClassName);
+    }
+
+    /**
+     * @return the qualifier of the pointcut, or null when the index is not assigned
+     */
+    public static String getQualifier(int pointcutIndex) {
+        for (Map.Entry<String, Integer> entry : QUALIFIER_TO_INDEX.entrySet()) {
+            if (entry.getValue() == pointcutIndex) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    public static AgentPlugin getQualifierPlugin(String qualifier) {
+        return QUALIFIER_TO_PLUGIN.get(qualifier);
+    }
+
     public static MethodTransformation getMethodTransformation(int pointcutIndex) {
         return INDEX_TO_METHOD_TRANSFORMATION.get(pointcutIndex);
     }
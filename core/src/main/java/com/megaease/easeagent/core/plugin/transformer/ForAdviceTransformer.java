@@ -18,15 +18,19 @@
 package com.megaease.easeagent.core.plugin.transformer;
 
 import com.megaease.easeagent.core.plugin.CommonInlineAdvice;
+import com.megaease.easeagent.core.plugin.IndyInlineAdvice;
+import com.megaease.easeagent.core.plugin.annotation.ChainCallSite;
 import com.megaease.easeagent.core.plugin.annotation.Index;
 import com.megaease.easeagent.core.plugin.matcher.MethodTransformation;
 import com.megaease.easeagent.core.plugin.registry.AdviceRegistry;
 import com.megaease.easeagent.core.plugin.transformer.advice.AgentAdvice;
 import com.megaease.easeagent.core.plugin.transformer.advice.AgentAdvice.OffsetMapping;
 import com.megaease.easeagent.core.plugin.transformer.advice.AgentForAdvice;
+import com.megaease.easeagent.core.plugin.transformer.advice.AgentIndyChainValue;
 import com.megaease.easeagent.core.plugin.transformer.advice.AgentJavaConstantValue;
 import com.megaease.easeagent.core.plugin.transformer.advice.MethodIdentityJavaConstant;
 import com.megaease.easeagent.core.plugin.transformer.classloader.CompoundClassloader;
+import com.megaease.easeagent.plugin.interceptor.AgentInterceptorChain;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
@@ -34,6 +38,7 @@ import net.bytebuddy.implementation.bytecode.StackManipulation;
 import net.bytebuddy.utility.JavaModule;
 
 public class ForAdviceTransformer implements AgentBuilder.Transformer {
+    private static volatile boolean indyDispatch = false;
 
     private final AgentForAdvice transformer;
     private final MethodTransformation methodTransformInfo;
@@ -49,11 +54,31 @@ public class ForAdviceTransformer implements AgentBuilder.Transformer {
             stackManipulation,
             typeDescription.asGenericType());
 
-        this.transformer = new AgentForAdvice(AgentAdvice.withCustomMapping()
-            .bind(factory))
+        AgentAdvice.WithCustomMapping mapping = AgentAdvice.withCustomMapping().bind(factory);
+        String adviceClass = CommonInlineAdvice.class.getCanonicalName();
+        if (indyDispatch) {
+            StackManipulation chainValue = new AgentIndyChainValue(value, methodTransformInfo.getIndex());
+            mapping = mapping.bind(new OffsetMapping.ForStackManipulation.Factory<>(ChainCallSite.class,
+                chainValue,
+                TypeDescription.ForLoadedType.of(AgentInterceptorChain.class).asGenericType()));
+            adviceClass = IndyInlineAdvice.class.getCanonicalName();
+        }
+
+        this.transformer = new AgentForAdvice(mapping)
             .include(getClass().getClassLoader())
-            .advice(methodTransformInfo.getMatcher(),
-                CommonInlineAdvice.class.getCanonicalName());
+            .advice(methodTransformInfo.getMatcher(), adviceClass);
+    }
+
+    /**
+     * weave an invokedynamic call site bound to the pointcut's chain into each method instead of
+     * looking up the chain by index, only affects the transformers created after
+     */
+    public static void setIndyDispatch(boolean enabled) {
+        indyDispatch = enabled;
+    }
+
+    public static boolean isIndyDispatch() {
+        return indyDispatch;
     }
 
     @Override
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.plugin.transformer.advice;
+
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.plugin.interceptor.AgentInterceptorChain;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.jar.asm.Handle;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Load the interceptor chain of a pointcut by an invokedynamic instruction bootstrapped by
+ * {@link Dispatcher#bootstrap}, classes older than java 7 can't carry invokedynamic,
+ * the chain is loaded by {@link Dispatcher#getChain(int)} for them.
+ */
+public class AgentIndyChainValue extends AgentJavaConstantValue {
+    private static final String DISPATCHER = Type.getInternalName(Dispatcher.class);
+    private static final String CHAIN_DESCRIPTOR = Type.getDescriptor(AgentInterceptorChain.class);
+    private static final Handle BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC, DISPATCHER, "bootstrap",
+        Type.getMethodDescriptor(Type.getType(CallSite.class), Type.getType(MethodHandles.Lookup.class),
+            Type.getType(String.class), Type.getType(MethodType.class), Type.INT_TYPE),
+        false);
+
+    public AgentIndyChainValue(MethodIdentityJavaConstant constant, int pointcutIndex) {
+        super(constant, pointcutIndex);
+    }
+
+    @Override
+    public Size apply(MethodVisitor methodVisitor, Implementation.Context implementationContext) {
+        Integer index = (Integer) getConstant().accept(Visitor.INSTANCE);
+        if (implementationContext.getClassFileVersion().isAtLeast(ClassFileVersion.JAVA_V7)) {
+            methodVisitor.visitInvokeDynamicInsn("chain", "()" + CHAIN_DESCRIPTOR, BOOTSTRAP, index);
+            return TypeDescription.ForLoadedType.of(AgentInterceptorChain.class).getStackSize().toIncreasingSize();
+        }
+        methodVisitor.visitLdcInsn(index);
+        methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, DISPATCHER, "getChain", "(I)" + CHAIN_DESCRIPTOR, false);
+        // the int argument is consumed by the call
+        return new Size(1, 1);
+    }
+
+    @Override
+    public AgentJavaConstantValue withConstant(MethodIdentityJavaConstant constant) {
+        return new AgentIndyChainValue(constant, getPointcutIndex());
+    }
+}
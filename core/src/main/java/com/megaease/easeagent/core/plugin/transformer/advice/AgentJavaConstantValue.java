@@ -47,6 +47,13 @@ public class AgentJavaConstantValue extends JavaConstantValue {
         return constant.getTypeDescription().getStackSize().toIncreasingSize();
     }
 
+    /**
+     * @return a value of the same kind for another method identity
+     */
+    public AgentJavaConstantValue withConstant(MethodIdentityJavaConstant constant) {
+        return new AgentJavaConstantValue(constant, this.pointcutIndex);
+    }
+
     public MethodIdentityJavaConstant getConstant() {
         return this.constant;
     }
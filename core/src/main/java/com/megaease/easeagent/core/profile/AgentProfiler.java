@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.profile;
+
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.core.plugin.PointcutStats;
+import com.megaease.easeagent.core.plugin.matcher.ClassTransformation;
+import com.megaease.easeagent.core.plugin.registry.PluginRegistry;
+import com.megaease.easeagent.plugin.AgentPlugin;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collect the overhead of plugins: matching and transforming time of every ClassTransformation,
+ * invocation count and sampled interceptor self-time of every pointcut.
+ * It is disabled by default, when disabled the matchers are not wrapped and the Dispatcher
+ * only reads a flag.
+ */
+public class AgentProfiler {
+    public static final String PROFILING_ENABLED_KEY = "easeagent.profiling.enabled";
+
+    private static final List<TransformationStats> TRANSFORMATIONS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<ClassProfile> CURRENT = ThreadLocal.withInitial(ClassProfile::new);
+    private static volatile boolean enabled = false;
+
+    private AgentProfiler() {
+    }
+
+    public static void enable() {
+        enabled = true;
+        Dispatcher.setProfiling(true);
+    }
+
+    public static void disable() {
+        enabled = false;
+        Dispatcher.setProfiling(false);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static TransformationStats register(ClassTransformation transformation) {
+        AgentPlugin plugin = PluginRegistry.getPointsPlugin(transformation.getName());
+        TransformationStats stats = new TransformationStats(transformation.getName(), pluginName(plugin));
+        TRANSFORMATIONS.add(stats);
+        return stats;
+    }
+
+    static void onMatched(TransformationStats stats, boolean result, long endNanos) {
+        ClassProfile profile = CURRENT.get();
+        profile.matchEnd = endNanos;
+        if (result) {
+            stats.recordMatched();
+            profile.matched.add(stats);
+        }
+    }
+
+    /**
+     * called by agent listener when a type is discovered
+     */
+    public static void onDiscovery() {
+        if (!enabled) {
+            return;
+        }
+        ClassProfile profile = CURRENT.get();
+        profile.matched.clear();
+        profile.matchEnd = System.nanoTime();
+    }
+
+    /**
+     * called by agent listener after a type is transformed, attribute the time after
+     * the last matcher to the matched transformations
+     */
+    public static void onTransformation() {
+        if (!enabled) {
+            return;
+        }
+        ClassProfile profile = CURRENT.get();
+        int size = profile.matched.size();
+        if (size == 0) {
+            return;
+        }
+        long share = (System.nanoTime() - profile.matchEnd) / size;
+        for (TransformationStats stats : profile.matched) {
+            stats.recordTransform(share);
+        }
+        profile.matched.clear();
+    }
+
+    public static void onComplete() {
+        if (!enabled) {
+            return;
+        }
+        CURRENT.get().matched.clear();
+    }
+
+    /**
+     * start a new measurement period, the registered transformations and pointcuts are kept
+     */
+    public static void reset() {
+        for (TransformationStats stats : TRANSFORMATIONS) {
+            stats.reset();
+        }
+        Dispatcher.resetStats();
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+
+        List<TransformationStats> transformations = new ArrayList<>(TRANSFORMATIONS);
+        transformations.sort(Comparator.comparingLong(TransformationStats::getTotalNanos).reversed());
+        List<Map<String, Object>> transformationList = new ArrayList<>();
+        for (TransformationStats stats : transformations) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", stats.getName());
+            item.put("plugin", stats.getPlugin());
+            item.put("matchCount", stats.getMatchCount());
+            item.put("matched", stats.getMatched());
+            item.put("matchTimeMs", toMillis(stats.getMatchNanos()));
+            item.put("transformCount", stats.getTransformCount());
+            item.put("transformTimeMs", toMillis(stats.getTransformNanos()));
+            transformationList.add(item);
+        }
+        result.put("transformations", transformationList);
+
+        List<Map<String, Object>> pointcutList = new ArrayList<>();
+        for (int index = 1; index < Dispatcher.statsSize(); index++) {
+            PointcutStats stats = Dispatcher.getStats(index);
+            if (stats == null) {
+                continue;
+            }
+            String qualifier = PluginRegistry.getQualifier(index);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("index", index);
+            item.put("qualifier", qualifier);
+            item.put("plugin", qualifier == null ? null : pluginName(PluginRegistry.getQualifierPlugin(qualifier)));
+            item.put("invocations", stats.getInvocations());
+            item.put("enterAvgNanos", stats.getEnterAvgNanos());
+            item.put("exitAvgNanos", stats.getExitAvgNanos());
+            item.put("estimatedSelfTimeMs", toMillis(stats.getEstimatedSelfNanos()));
+            pointcutList.add(item);
+        }
+        pointcutList.sort(Comparator.comparing(item -> -((Double) item.get("estimatedSelfTimeMs"))));
+        result.put("pointcuts", pointcutList);
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String pluginName(AgentPlugin plugin) {
+        if (plugin == null) {
+            return null;
+        }
+        return plugin.getDomain() + "." + plugin.getNamespace();
+    }
+
+    static class ClassProfile {
+        final List<TransformationStats> matched = new ArrayList<>();
+        long matchEnd;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.profile;
+
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * matching and transforming time of a ClassTransformation,
+ * transforming time includes the advice weaving which ByteBuddy does after all the matchers,
+ * it is shared by the transformations matched the same class.
+ */
+public class TransformationStats {
+    private final String name;
+    private final String plugin;
+    private final LongAdder matchCount = new LongAdder();
+    private final LongAdder matchNanos = new LongAdder();
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder transformCount = new LongAdder();
+    private final LongAdder transformNanos = new LongAdder();
+
+    TransformationStats(String name, String plugin) {
+        this.name = name;
+        this.plugin = plugin;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPlugin() {
+        return plugin;
+    }
+
+    public long getMatchCount() {
+        return matchCount.sum();
+    }
+
+    public long getMatchNanos() {
+        return matchNanos.sum();
+    }
+
+    public long getMatched() {
+        return matched.sum();
+    }
+
+    public long getTransformCount() {
+        return transformCount.sum();
+    }
+
+    public long getTransformNanos() {
+        return transformNanos.sum();
+    }
+
+    public long getTotalNanos() {
+        return getMatchNanos() + getTransformNanos();
+    }
+
+    void reset() {
+        matchCount.reset();
+        matchNanos.reset();
+        matched.reset();
+        transformCount.reset();
+        transformNanos.reset();
+    }
+
+    void recordMatched() {
+        matched.increment();
+    }
+
+    void recordTransform(long nanos) {
+        transformNanos.add(nanos);
+        transformCount.increment();
+    }
+
+    public ElementMatcher.Junction<TypeDescription> timing(ElementMatcher.Junction<TypeDescription> matcher) {
+        return new TimingMatcher(matcher, this);
+    }
+
+    static class TimingMatcher extends ElementMatcher.Junction.AbstractBase<TypeDescription> {
+        private final ElementMatcher.Junction<TypeDescription> delegate;
+        private final TransformationStats stats;
+
+        TimingMatcher(ElementMatcher.Junction<TypeDescription> delegate, TransformationStats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public boolean matches(TypeDescription target) {
+            long begin = System.nanoTime();
+            boolean result = delegate.matches(target);
+            long end = System.nanoTime();
+            stats.matchNanos.add(end - begin);
+            stats.matchCount.increment();
+            AgentProfiler.onMatched(stats, result, end);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
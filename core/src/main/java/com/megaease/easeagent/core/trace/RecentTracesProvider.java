@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.trace;
+
+import com.megaease.easeagent.core.GlobalAgentHolder;
+import com.megaease.easeagent.core.utils.JsonUtil;
+import com.megaease.easeagent.httpserver.nano.AgentHttpHandler;
+import com.megaease.easeagent.httpserver.nano.AgentHttpHandlerProvider;
+import com.megaease.easeagent.httpserver.nano.AgentHttpServer;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.IHTTPSession;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Response;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Status;
+import com.megaease.easeagent.httpserver.nanohttpd.router.RouterNanoHTTPD;
+import com.megaease.easeagent.plugin.bean.BeanProvider;
+import com.megaease.easeagent.plugin.report.AgentReport;
+import com.megaease.easeagent.report.DefaultAgentReport;
+import com.megaease.easeagent.report.trace.RecentTraces;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class RecentTracesProvider implements AgentHttpHandlerProvider, BeanProvider {
+
+    @Override
+    public List<AgentHttpHandler> getAgentHttpHandlers() {
+        List<AgentHttpHandler> list = new ArrayList<>();
+        list.add(new RecentTracesHttpHandler());
+        return list;
+    }
+
+    /**
+     * GET /traces?minDuration={ms}&error={true|false}&service={name}&limit={n}
+     */
+    public static class RecentTracesHttpHandler extends AgentHttpHandler {
+        private static final int DEFAULT_LIMIT = 100;
+
+        @Override
+        public String getPath() {
+            return "/traces";
+        }
+
+        @Override
+        public Response process(RouterNanoHTTPD.UriResource uriResource, Map<String, String> urlParams, IHTTPSession session) {
+            AgentReport report = GlobalAgentHolder.getAgentReport();
+            RecentTraces recent = report instanceof DefaultAgentReport ? ((DefaultAgentReport) report).getRecentTraces() : null;
+            if (recent == null) {
+                return Response.newFixedLengthResponse(Status.OK, AgentHttpServer.JSON_TYPE,
+                    JsonUtil.toJson(Collections.singletonMap("enabled", false)));
+            }
+            Map<String, String> params = session.getParams();
+            long minDuration;
+            int limit;
+            try {
+                minDuration = TimeUnit.MILLISECONDS.toMicros(Long.parseLong(params.getOrDefault("minDuration", "0")));
+                limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+            } catch (NumberFormatException e) {
+                return Response.newFixedLengthResponse(Status.BAD_REQUEST, AgentHttpServer.JSON_TYPE,
+                    JsonUtil.toJson(Collections.singletonMap("error", e.getMessage())));
+            }
+            String error = params.get("error");
+            Boolean withError = error == null || error.isEmpty() ? null : Boolean.valueOf(error);
+            Map<String, Object> result = recent.query(minDuration, withError, params.get("service"), Math.max(0, limit));
+            return Response.newFixedLengthResponse(Status.OK, AgentHttpServer.JSON_TYPE, JsonUtil.toJson(result));
+        }
+    }
+}
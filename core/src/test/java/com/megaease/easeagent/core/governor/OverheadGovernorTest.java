@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.governor;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OverheadGovernorTest {
+    private static final String ACCESS_LOG = "plugin.observability.access.log.enabled";
+    private static final String JDBC_TRACING = "plugin.observability.jdbc.tracing.enabled";
+
+    private Configs configs() {
+        Map<String, String> source = new HashMap<>();
+        source.put(OverheadGovernor.CPU_BUDGET_KEY, "5");
+        source.put(OverheadGovernor.QUEUE_BUDGET_KEY, "0.8");
+        source.put(OverheadGovernor.RECOVER_RATIO_KEY, "0.5");
+        source.put(OverheadGovernor.RECOVER_INTERVALS_KEY, "2");
+        source.put(OverheadGovernor.LOW_PRIORITY_KEY, "jdbc");
+        source.put(ConfigConst.Plugin.OBSERVABILITY_GLOBAL_TRACING_ENABLED, "true");
+        return new Configs(source);
+    }
+
+    @Test
+    public void test_step_down() {
+        Configs configs = configs();
+        OverheadGovernor governor = new OverheadGovernor(configs, configs::updateConfigs, () -> 0);
+        governor.evaluate(10, 0);
+        Assert.assertEquals(GovernorStage.SAMPLING_REDUCED, governor.getStage());
+        Assert.assertEquals("0.1", configs.getString(ConfigConst.Observability.TRACE_SAMPLED_RATE));
+
+        governor.evaluate(1, 0.9);
+        Assert.assertEquals(GovernorStage.ACCESS_LOG_DISABLED, governor.getStage());
+        Assert.assertEquals("false", configs.getString(ACCESS_LOG));
+
+        governor.evaluate(10, 0);
+        Assert.assertEquals(GovernorStage.LOW_PRIORITY_DISABLED, governor.getStage());
+        Assert.assertEquals("false", configs.getString(JDBC_TRACING));
+
+        governor.evaluate(10, 0);
+        governor.evaluate(10, 0);
+        Assert.assertEquals(GovernorStage.TRACING_DISABLED, governor.getStage());
+        Assert.assertEquals("false", configs.getString(ConfigConst.Plugin.OBSERVABILITY_GLOBAL_TRACING_ENABLED));
+    }
+
+    @Test
+    public void test_restore_with_hysteresis() {
+        Configs configs = configs();
+        OverheadGovernor governor = new OverheadGovernor(configs, configs::updateConfigs, () -> 0);
+        governor.evaluate(10, 0);
+        governor.evaluate(10, 0);
+        Assert.assertEquals(GovernorStage.ACCESS_LOG_DISABLED, governor.getStage());
+
+        // under budget but over budget * recoverRatio: keep the stage
+        for (int i = 0; i < 5; i++) {
+            governor.evaluate(4, 0);
+        }
+        Assert.assertEquals(GovernorStage.ACCESS_LOG_DISABLED, governor.getStage());
+
+        // calm intervals must be consecutive
+        governor.evaluate(1, 0);
+        governor.evaluate(4, 0);
+        governor.evaluate(1, 0);
+        Assert.assertEquals(GovernorStage.ACCESS_LOG_DISABLED, governor.getStage());
+        governor.evaluate(1, 0);
+        Assert.assertEquals(GovernorStage.SAMPLING_REDUCED, governor.getStage());
+        Assert.assertEquals("true", configs.getString(ACCESS_LOG));
+
+        governor.evaluate(1, 0);
+        governor.evaluate(1, 0);
+        Assert.assertEquals(GovernorStage.NORMAL, governor.getStage());
+        Assert.assertEquals("1.0", configs.getString(ConfigConst.Observability.TRACE_SAMPLED_RATE));
+    }
+
+    @Test
+    public void test_sampling_never_raised() {
+        Configs configs = configs();
+        configs.updateConfigs(Collections.singletonMap(ConfigConst.Observability.TRACE_SAMPLED_RATE, "0.05"));
+        OverheadGovernor governor = new OverheadGovernor(configs, configs::updateConfigs, () -> 0);
+
+        // the sampling stage has nothing to shed, so the access log goes at once
+        governor.evaluate(10, 0);
+        Assert.assertEquals(GovernorStage.ACCESS_LOG_DISABLED, governor.getStage());
+        Assert.assertEquals("0.05", configs.getString(ConfigConst.Observability.TRACE_SAMPLED_RATE));
+        Assert.assertEquals("false", configs.getString(ACCESS_LOG));
+
+        governor.evaluate(1, 0);
+        governor.evaluate(1, 0);
+        Assert.assertEquals(GovernorStage.NORMAL, governor.getStage());
+        Assert.assertEquals("true", configs.getString(ACCESS_LOG));
+        Assert.assertEquals("0.05", configs.getString(ConfigConst.Observability.TRACE_SAMPLED_RATE));
+    }
+
+    @Test
+    public void test_stop_turns_profiling_off() {
+        OverheadGovernor governor = new OverheadGovernor(configs(), changes -> {
+        }, () -> 0);
+        governor.start();
+        Assert.assertTrue(Dispatcher.isProfiling());
+        governor.stop();
+        Assert.assertFalse(Dispatcher.isProfiling());
+    }
+}
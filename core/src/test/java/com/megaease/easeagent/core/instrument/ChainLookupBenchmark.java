@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.instrument;
+
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.plugin.interceptor.AgentInterceptorChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The chain lookup alone, by index as the default dispatch does, or through the call site of indy dispatch.
+ * The handle is a static final, as the invokedynamic instruction is, so the JIT can fold the chain.
+ * Unlike {@link IndyDispatchBenchmark} it needs no instrumentation.
+ * <p>
+ * run: mvn -pl core test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.megaease.easeagent.core.instrument.ChainLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChainLookupBenchmark {
+    private static final int INDEX = 9000;
+    private static final MethodHandle CHAIN;
+
+    static {
+        Dispatcher.register(INDEX, new AgentInterceptorChain(Collections.emptyList()));
+        CHAIN = Dispatcher.bootstrap(MethodHandles.lookup(), "chain",
+            MethodType.methodType(AgentInterceptorChain.class), INDEX).dynamicInvoker();
+    }
+
+    @Benchmark
+    public int index() {
+        return Dispatcher.getChain(INDEX).size();
+    }
+
+    @Benchmark
+    public int indy() throws Throwable {
+        return ((AgentInterceptorChain) CHAIN.invokeExact()).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ChainLookupBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.instrument;
+
+import com.megaease.easeagent.core.Bootstrap;
+import com.megaease.easeagent.core.plugin.CommonInlineAdvice;
+import com.megaease.easeagent.core.plugin.IndyInlineAdvice;
+import com.megaease.easeagent.core.plugin.PluginLoader;
+import com.megaease.easeagent.core.plugin.transformer.ForAdviceTransformer;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.util.concurrent.TimeUnit;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+/**
+ * Steady state cost of an instrumented method, with the chain looked up by index
+ * or loaded by the invokedynamic call site, the uninstrumented method is the baseline.
+ * <p>
+ * run: mvn -pl core test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.megaease.easeagent.core.instrument.IndyDispatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+public class IndyDispatchBenchmark extends TransformTestBase {
+    @Param({"none", "index", "indy"})
+    public String dispatch;
+
+    private ClassFileTransformer classFileTransformer;
+    private Bar bar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EaseAgent.initializeContextSupplier = TestContext::new;
+        ClassLoader classLoader = new ByteArrayClassLoader.ChildFirst(
+            IndyDispatchBenchmark.class.getClassLoader(),
+            ClassFileLocator.ForClassLoader.readToNames(BarImpl.class, CommonInlineAdvice.class, IndyInlineAdvice.class),
+            ByteArrayClassLoader.PersistenceHandler.MANIFEST);
+        if (!"none".equals(dispatch)) {
+            ByteBuddyAgent.install();
+            ForAdviceTransformer.setIndyDispatch("indy".equals(dispatch));
+            classFileTransformer = Bootstrap.getAgentBuilder(null, true)
+                .type(named(BarImpl.class.getName()), ElementMatchers.is(classLoader))
+                .transform(PluginLoader.compound(false, getMethodTransformations(1, FOO, new FooProvider())))
+                .installOnByteBuddyAgent();
+        }
+        bar = (Bar) classLoader.loadClass(BarImpl.class.getName()).getDeclaredConstructor().newInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (classFileTransformer != null) {
+            ByteBuddyAgent.getInstrumentation().removeTransformer(classFileTransformer);
+        }
+        ForAdviceTransformer.setIndyDispatch(false);
+    }
+
+    @Benchmark
+    public String instrumentedMethod() {
+        return bar.foo("kkk");
+    }
+
+    public interface Bar {
+        String foo(String a);
+    }
+
+    public static class BarImpl implements Bar {
+        @Override
+        public String foo(String a) {
+            return a;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(IndyDispatchBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
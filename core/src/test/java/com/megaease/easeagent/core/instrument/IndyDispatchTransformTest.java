@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.instrument;
+
+import com.megaease.easeagent.core.Bootstrap;
+import com.megaease.easeagent.core.plugin.CommonInlineAdvice;
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.core.plugin.IndyInlineAdvice;
+import com.megaease.easeagent.core.plugin.PluginLoader;
+import com.megaease.easeagent.core.plugin.matcher.MethodTransformation;
+import com.megaease.easeagent.core.plugin.transformer.ForAdviceTransformer;
+import com.megaease.easeagent.core.utils.AgentAttachmentRule;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.interceptor.AgentInterceptorChain;
+import net.bytebuddy.agent.ByteBuddyAgent;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.MethodRule;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertSame;
+
+public class IndyDispatchTransformTest extends TransformTestBase {
+    private static ClassLoader classLoader;
+    private static final AtomicInteger globalIndex = new AtomicInteger(3000);
+
+    @Rule
+    public MethodRule agentAttachmentRule = new AgentAttachmentRule();
+
+    @BeforeClass
+    public static void setUp() {
+        EaseAgent.initializeContextSupplier = TestContext::new;
+        classLoader = new ByteArrayClassLoader.ChildFirst(
+            IndyDispatchTransformTest.class.getClassLoader(),
+            ClassFileLocator.ForClassLoader.readToNames(Foo.class, CommonInlineAdvice.class, IndyInlineAdvice.class),
+            ByteArrayClassLoader.PersistenceHandler.MANIFEST);
+    }
+
+    @Test
+    @AgentAttachmentRule.Enforce
+    public void testIndyAdviceTransformer() throws Exception {
+        assertThat(ByteBuddyAgent.install(), instanceOf(Instrumentation.class));
+        AgentBuilder builder = Bootstrap.getAgentBuilder(null, true);
+
+        ForAdviceTransformer.setIndyDispatch(true);
+        Set<MethodTransformation> transformations;
+        AgentBuilder.Transformer transformer;
+        try {
+            transformations = getMethodTransformations(globalIndex.incrementAndGet(), FOO, new FooProvider());
+            transformer = PluginLoader.compound(false, transformations);
+        } finally {
+            ForAdviceTransformer.setIndyDispatch(false);
+        }
+
+        ClassFileTransformer classFileTransformer = builder
+            .type(named(Foo.class.getName()), ElementMatchers.is(classLoader))
+            .transform(transformer)
+            .installOnByteBuddyAgent();
+        try {
+            Class<?> type = classLoader.loadClass(Foo.class.getName());
+            Object instance = type.getDeclaredConstructor().newInstance();
+            // the chain is resolved by the call site, the result must be same as the index dispatch
+            for (int i = 0; i < 3; i++) {
+                assertThat(type.getDeclaredMethod(FOO, String.class).invoke(instance, "kkk"), is(QUX + BAR));
+            }
+        } finally {
+            assertThat(ByteBuddyAgent.getInstrumentation().removeTransformer(classFileTransformer), is(true));
+        }
+    }
+
+    @Test
+    public void testCallSiteRebind() throws Throwable {
+        int index = 5000;
+        AgentInterceptorChain first = new AgentInterceptorChain(new ArrayList<>());
+        Dispatcher.register(index, first);
+        CallSite site = Dispatcher.bootstrap(MethodHandles.lookup(), "chain",
+            MethodType.methodType(AgentInterceptorChain.class), index);
+        assertSame(first, site.dynamicInvoker().invoke());
+        assertSame(site, Dispatcher.bootstrap(MethodHandles.lookup(), "chain",
+            MethodType.methodType(AgentInterceptorChain.class), index));
+
+        AgentInterceptorChain second = new AgentInterceptorChain(new ArrayList<>());
+        Dispatcher.updateChain(index, second);
+        assertSame(second, site.dynamicInvoker().invoke());
+    }
+
+    @SuppressWarnings("unused")
+    public static class Foo {
+        public String foo(String a) {
+            return a;
+        }
+    }
+}
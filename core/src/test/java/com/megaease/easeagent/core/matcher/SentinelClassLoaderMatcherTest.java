@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.matcher;
+
+import com.megaease.easeagent.core.plugin.matcher.SentinelClassLoaderMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+public class SentinelClassLoaderMatcherTest {
+    @Test
+    public void test_probe() {
+        SentinelClassLoaderMatcher matcher = new SentinelClassLoaderMatcher("test",
+            Collections.singleton(SentinelClassLoaderMatcherTest.class.getName()));
+        Assert.assertFalse(matcher.matches(new URLClassLoader(new URL[0], null)));
+        Assert.assertFalse(matcher.isActive());
+
+        Assert.assertTrue(matcher.matches(this.getClass().getClassLoader()));
+        Assert.assertTrue(matcher.isActive());
+        // once activated, every classloader is matched
+        Assert.assertTrue(matcher.matches(new URLClassLoader(new URL[0], null)));
+    }
+
+    @Test
+    public void test_activate() {
+        SentinelClassLoaderMatcher matcher = new SentinelClassLoaderMatcher("test",
+            Collections.singleton("com.not.exists.Sentinel"));
+        Assert.assertFalse(matcher.matches(this.getClass().getClassLoader()));
+        Assert.assertFalse(matcher.matches(null));
+
+        matcher.activate();
+        Assert.assertTrue(matcher.matches(this.getClass().getClassLoader()));
+    }
+}
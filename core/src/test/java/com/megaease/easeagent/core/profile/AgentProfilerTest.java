@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.core.profile;
+
+import com.megaease.easeagent.core.instrument.TestContext;
+import com.megaease.easeagent.core.plugin.Dispatcher;
+import com.megaease.easeagent.core.plugin.PointcutStats;
+import com.megaease.easeagent.core.plugin.matcher.ClassTransformation;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.IHTTPSession;
+import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Response;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.interceptor.AgentInterceptorChain;
+import com.megaease.easeagent.plugin.interceptor.Interceptor;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AgentProfilerTest {
+    private static final int DISABLED_INDEX = 5000;
+    private static final int ENABLED_INDEX = 5001;
+    private static final int SNAPSHOT_INDEX = 5002;
+    private static final int HANDLER_INDEX = 5003;
+
+    private static AgentInterceptorChain chain() {
+        Interceptor interceptor = new Interceptor() {
+            @Override
+            public void before(MethodInfo methodInfo, Context context) {
+                spin();
+            }
+
+            @Override
+            public void after(MethodInfo methodInfo, Context context) {
+                spin();
+            }
+
+            @Override
+            public int order() {
+                return 0;
+            }
+        };
+        return new AgentInterceptorChain(Collections.singletonList(interceptor));
+    }
+
+    private static void spin() {
+        long begin = System.nanoTime();
+        while (System.nanoTime() == begin) {
+            Thread.yield();
+        }
+    }
+
+    private static void invoke(int index, int times) {
+        AgentInterceptorChain chain = chain();
+        for (int i = 0; i < times; i++) {
+            MethodInfo info = MethodInfo.builder().build();
+            TestContext ctx = new TestContext();
+            Dispatcher.enter(chain, index, info, ctx);
+            Dispatcher.exit(chain, index, info, ctx);
+        }
+    }
+
+    @After
+    public void after() {
+        AgentProfiler.disable();
+    }
+
+    @Test
+    public void test_dispatcher_disabled() {
+        Dispatcher.setProfiling(false);
+        invoke(DISABLED_INDEX, 100);
+        Assert.assertNull(Dispatcher.getStats(DISABLED_INDEX));
+    }
+
+    @Test
+    public void test_dispatcher_enabled() {
+        Dispatcher.setProfiling(true);
+        invoke(ENABLED_INDEX, 2000);
+        PointcutStats stats = Dispatcher.getStats(ENABLED_INDEX);
+        Assert.assertNotNull(stats);
+        Assert.assertEquals(2000, stats.getInvocations());
+        // about 1/16 of the calls are timed, each of them spins at least one tick
+        Assert.assertTrue(stats.getEnterAvgNanos() > 0);
+        Assert.assertTrue(stats.getExitAvgNanos() > 0);
+        Assert.assertTrue(stats.getEstimatedSelfNanos() > 0);
+
+        stats.reset();
+        Assert.assertEquals(0, stats.getInvocations());
+        Assert.assertEquals(0, stats.getEstimatedSelfNanos());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_transformation_timing() {
+        AgentProfiler.enable();
+        ClassTransformation transformation = ClassTransformation.builder()
+            .name("com.megaease.easeagent.core.profile.TestPoints")
+            .build();
+        TransformationStats stats = AgentProfiler.register(transformation);
+        ElementMatcher.Junction<TypeDescription> matcher = stats.timing(named(String.class.getName()));
+
+        AgentProfiler.onDiscovery();
+        Assert.assertTrue(matcher.matches(TypeDescription.ForLoadedType.of(String.class)));
+        spin();
+        AgentProfiler.onTransformation();
+        AgentProfiler.onDiscovery();
+        Assert.assertFalse(matcher.matches(TypeDescription.ForLoadedType.of(Integer.class)));
+        AgentProfiler.onTransformation();
+        AgentProfiler.onComplete();
+
+        Assert.assertEquals(2, stats.getMatchCount());
+        Assert.assertEquals(1, stats.getMatched());
+        Assert.assertEquals(1, stats.getTransformCount());
+        Assert.assertTrue(stats.getTransformNanos() > 0);
+
+        Map<String, Object> snapshot = AgentProfiler.snapshot();
+        Assert.assertEquals(true, snapshot.get("enabled"));
+        List<Map<String, Object>> transformations = (List<Map<String, Object>>) snapshot.get("transformations");
+        Map<String, Object> item = transformations.stream()
+            .filter(t -> transformation.getName().equals(t.get("name")))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+        Assert.assertEquals(2L, item.get("matchCount"));
+        Assert.assertEquals(1L, item.get("matched"));
+        Assert.assertEquals(1L, item.get("transformCount"));
+
+        AgentProfiler.reset();
+        Assert.assertEquals(0, stats.getMatchCount());
+        Assert.assertEquals(0, stats.getTransformNanos());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_pointcut_snapshot() {
+        AgentProfiler.enable();
+        invoke(SNAPSHOT_INDEX, 10);
+        Map<String, Object> snapshot = AgentProfiler.snapshot();
+        List<Map<String, Object>> pointcuts = (List<Map<String, Object>>) snapshot.get("pointcuts");
+        Map<String, Object> item = pointcuts.stream()
+            .filter(p -> Integer.valueOf(SNAPSHOT_INDEX).equals(p.get("index")))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+        Assert.assertTrue((Long) item.get("invocations") >= 10);
+        Assert.assertTrue(item.containsKey("estimatedSelfTimeMs"));
+    }
+
+    @Test
+    public void test_http_handler_reset() throws IOException {
+        AgentProfiler.enable();
+        invoke(HANDLER_INDEX, 10);
+        ProfilingProvider.ProfilingHttpHandler handler = new ProfilingProvider.ProfilingHttpHandler();
+        Assert.assertEquals("/profiling", handler.getPath());
+
+        IHTTPSession session = mock(IHTTPSession.class);
+        when(session.getParameters()).thenReturn(Collections.emptyMap());
+        String body = read(handler.process(null, Collections.emptyMap(), session));
+        Assert.assertTrue(body.contains("\"pointcuts\""));
+        Assert.assertTrue(Dispatcher.getStats(HANDLER_INDEX).getInvocations() >= 10);
+
+        when(session.getParameters()).thenReturn(Collections.singletonMap("reset", Collections.emptyList()));
+        body = read(handler.process(null, Collections.emptyMap(), session));
+        Assert.assertTrue(body.contains("\"invocations\""));
+        Assert.assertEquals(0, Dispatcher.getStats(HANDLER_INDEX).getInvocations());
+    }
+
+    private static String read(Response response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = response.getData()) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -19,11 +19,13 @@ package com.megaease.easeagent.metrics;
 
 import com.codahale.metrics.MetricRegistry;
 import com.megaease.easeagent.config.ConfigAware;
+import com.megaease.easeagent.config.ConfigUtils;
 import com.megaease.easeagent.metrics.config.MetricsConfig;
 import com.megaease.easeagent.metrics.config.PluginMetricsConfig;
 import com.megaease.easeagent.metrics.converter.ConverterAdapter;
 import com.megaease.easeagent.metrics.converter.KeyType;
 import com.megaease.easeagent.metrics.converter.MetricsAdditionalAttributes;
+import com.megaease.easeagent.metrics.impl.Exemplars;
 import com.megaease.easeagent.metrics.impl.MetricRegistryImpl;
 import com.megaease.easeagent.plugin.api.Reporter;
 import com.megaease.easeagent.plugin.api.config.Config;
@@ -54,6 +56,7 @@ public class MetricProviderImpl implements AgentReportAware, ConfigAware, Metric
     public void setConfig(Config config) {
         this.config = config;
         this.additionalAttributes = new MetricsAdditionalAttributes(config);
+        ConfigUtils.bindProp(Exemplars.ENABLED_KEY, config, Config::getBoolean, Exemplars::setEnabled, false);
     }
 
     @Override
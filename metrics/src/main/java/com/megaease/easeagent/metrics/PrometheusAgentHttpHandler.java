@@ -18,7 +18,6 @@
 package com.megaease.easeagent.metrics;
 
 import com.megaease.easeagent.httpserver.nano.AgentHttpHandler;
-import com.megaease.easeagent.httpserver.nano.AgentHttpServer;
 import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.IHTTPSession;
 import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Response;
 import com.megaease.easeagent.httpserver.nanohttpd.protocols.http.response.Status;
@@ -61,6 +60,7 @@ public class PrometheusAgentHttpHandler extends AgentHttpHandler {
             LOGGER.warn("write data error. {}", e.getMessage());
         }
         String data = stringWriter.toString();
-        return Response.newFixedLengthResponse(Status.OK, AgentHttpServer.JSON_TYPE, data);
+        // the exemplars are only written in the OpenMetrics format, the scraper must know which one it got
+        return Response.newFixedLengthResponse(Status.OK, contentType, data);
     }
 }
@@ -31,6 +31,10 @@ import java.util.function.Supplier;
 
 public abstract class AbstractConverter implements Converter {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractConverter.class);
+    /**
+     * map of the duration field to its exemplar, only present when there are some
+     */
+    public static final String EXEMPLARS_FIELD = "exemplars";
 
     @SuppressWarnings("unused")
     private final String rateUnit;
@@ -20,6 +20,8 @@ package com.megaease.easeagent.metrics.converter;
 import com.codahale.metrics.*;
 import com.codahale.metrics.Timer;
 import com.megaease.easeagent.metrics.impl.CounterImpl;
+import com.megaease.easeagent.metrics.impl.ExemplarTimer;
+import com.megaease.easeagent.metrics.impl.Exemplars;
 import com.megaease.easeagent.metrics.impl.MeterImpl;
 import com.megaease.easeagent.metrics.impl.SnapshotImpl;
 import com.megaease.easeagent.metrics.impl.TimerImpl;
@@ -210,14 +212,31 @@ public class ConverterAdapter extends AbstractConverter {
         Map<MetricSubType, MetricName> map = nameFactory.timerNames(key);
         consumerMetric(map, metricSubType, v -> Optional.ofNullable(timers.get(v.name())).ifPresent(t -> {
                 final Snapshot snapshot = t.getSnapshot();
+                final Map<String, Object> exemplars = new HashMap<>();
                 v.getValueFetcher().forEach((fieldName, fetcher) -> {
                     if (fetcher.getClazz().equals(com.megaease.easeagent.plugin.api.metric.Snapshot.class)) {
-                        appendField(output, fieldName, fetcher, SnapshotImpl.build(snapshot));
+                        com.megaease.easeagent.plugin.api.metric.Snapshot s = SnapshotImpl.build(snapshot);
+                        appendField(output, fieldName, fetcher, s);
+                        appendExemplar(exemplars, fieldName, fetcher.apply(s), t);
                     } else {
                         appendField(output, fieldName, fetcher, TimerImpl.build(t));
                     }
                 });
+                if (!exemplars.isEmpty()) {
+                    output.put(EXEMPLARS_FIELD, exemplars);
+                }
             })
         );
     }
+
+    private void appendExemplar(Map<String, Object> exemplars, MetricField fieldName, Object value, Timer timer) {
+        if (fieldName.getType() != ConverterType.DURATION || !(value instanceof Number)
+            || !(timer instanceof ExemplarTimer)) {
+            return;
+        }
+        Exemplars.Exemplar exemplar = ((ExemplarTimer) timer).getExemplars().nearest(((Number) value).doubleValue());
+        if (exemplar != null) {
+            exemplars.put(fieldName.getField(), exemplar.toMap(durationFactor));
+        }
+    }
 }
@@ -24,6 +24,7 @@ import com.megaease.easeagent.log4j2.LoggerFactory;
 import com.megaease.easeagent.plugin.api.metric.name.MetricName;
 import io.prometheus.client.Collector;
 import io.prometheus.client.dropwizard.samplebuilder.SampleBuilder;
+import io.prometheus.client.exemplars.Exemplar;
 
 import java.util.*;
 
@@ -66,6 +67,26 @@ public class EaseAgentPrometheusExports extends Collector implements Collector.D
         return this.sampleBuilder.createSample(dropwizardName, "_" + valueType, Collections.emptyList(), Collections.emptyList(), value);
     }
 
+    static MetricFamilySamples.Sample withExemplar(MetricFamilySamples.Sample sample, Object exemplar) {
+        if (!(exemplar instanceof Map)) {
+            return sample;
+        }
+        Map<?, ?> map = (Map<?, ?>) exemplar;
+        Object value = map.get("value");
+        Object timestamp = map.get("timestamp");
+        Object traceId = map.get("traceId");
+        Object spanId = map.get("spanId");
+        if (!(value instanceof Number) || traceId == null) {
+            return sample;
+        }
+        String[] labels = spanId == null
+            ? new String[]{"trace_id", traceId.toString()}
+            : new String[]{"trace_id", traceId.toString(), "span_id", spanId.toString()};
+        Exemplar e = new Exemplar(((Number) value).doubleValue(),
+            timestamp instanceof Number ? ((Number) timestamp).longValue() : null, labels);
+        return new MetricFamilySamples.Sample(sample.name, sample.labelNames, sample.labelValues, sample.value, e);
+    }
+
     public MetricFilter getMetricFilter() {
         return metricFilter;
     }
@@ -114,8 +135,15 @@ public class EaseAgentPrometheusExports extends Collector implements Collector.D
             SortedMap<String, T> gaugeSortedMap = getMetric();
             for (String s : gaugeSortedMap.keySet()) {
                 writeValue(MetricName.metricNameFor(s), gaugeSortedMap, values);
+                Object exemplars = values.remove(AbstractConverter.EXEMPLARS_FIELD);
                 for (Map.Entry<String, Object> entry : values.entrySet()) {
                     MetricFamilySamples.Sample sample = doubleValue(s, entry.getValue(), entry.getKey(), clzss);
+                    if (sample == null) {
+                        continue;
+                    }
+                    if (exemplars instanceof Map) {
+                        sample = withExemplar(sample, ((Map<?, ?>) exemplars).get(entry.getKey()));
+                    }
                     EaseAgentPrometheusExports.this.addToMap(mfSamplesMap, new MetricFamilySamples(sample.name, type, getHelpMessage(sample.name, clzss), Collections.singletonList(sample)));
                 }
                 values.clear();
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.metrics.impl;
+
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.api.trace.Span;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Recent samples of a series linked to the span they were recorded in, the exemplars.
+ * <p>
+ * The values are bucketed by their power of two, each bucket keeps the most recent exemplar,
+ * so a series holds at most 64 of them and a percentile finds one of its magnitude.
+ * A bucket is replaced at most once per second and the lookup of the current span is skipped before that,
+ * so a hot series pays one array read per update. The capture is a plain store, without lock.
+ */
+public class Exemplars {
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.METRICS_EXEMPLARS, "enabled");
+
+    static final int BUCKETS = 64;
+    static final long MIN_INTERVAL_MILLIS = 1000;
+
+    private static volatile boolean enabled = false;
+
+    private volatile AtomicReferenceArray<Exemplar> buckets;
+
+    public static void setEnabled(boolean enabled) {
+        Exemplars.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * keep the value as the exemplar of its bucket with the current span, if there is a sampled one
+     */
+    public void capture(long value) {
+        if (!enabled) {
+            return;
+        }
+        int index = bucket(value);
+        long now = System.currentTimeMillis();
+        if (isRecent(index, now)) {
+            return;
+        }
+        Span span = EaseAgent.getContext().currentTracing().currentSpan();
+        if (span == null || !span.isSampled()) {
+            return;
+        }
+        buckets().lazySet(index, new Exemplar(value, span.traceIdString(), span.spanIdString(), now));
+    }
+
+    public void capture(long value, String traceId, String spanId) {
+        if (!enabled || traceId == null) {
+            return;
+        }
+        int index = bucket(value);
+        long now = System.currentTimeMillis();
+        if (isRecent(index, now)) {
+            return;
+        }
+        buckets().lazySet(index, new Exemplar(value, traceId, spanId, now));
+    }
+
+    /**
+     * @return the exemplar of the bucket of the value, or of the closest bucket having one, null when there is none
+     */
+    public Exemplar nearest(double value) {
+        AtomicReferenceArray<Exemplar> current = this.buckets;
+        if (current == null) {
+            return null;
+        }
+        int index = bucket((long) value);
+        for (int distance = 0; distance < BUCKETS; distance++) {
+            if (index - distance >= 0) {
+                Exemplar exemplar = current.get(index - distance);
+                if (exemplar != null) {
+                    return exemplar;
+                }
+            }
+            if (distance > 0 && index + distance < BUCKETS) {
+                Exemplar exemplar = current.get(index + distance);
+                if (exemplar != null) {
+                    return exemplar;
+                }
+            }
+        }
+        return null;
+    }
+
+    public List<Exemplar> getExemplars() {
+        List<Exemplar> result = new ArrayList<>();
+        AtomicReferenceArray<Exemplar> current = this.buckets;
+        if (current == null) {
+            return result;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            Exemplar exemplar = current.get(i);
+            if (exemplar != null) {
+                result.add(exemplar);
+            }
+        }
+        return result;
+    }
+
+    private boolean isRecent(int index, long now) {
+        AtomicReferenceArray<Exemplar> current = this.buckets;
+        if (current == null) {
+            return false;
+        }
+        Exemplar last = current.get(index);
+        return last != null && now - last.timestamp < MIN_INTERVAL_MILLIS;
+    }
+
+    private AtomicReferenceArray<Exemplar> buckets() {
+        AtomicReferenceArray<Exemplar> current = this.buckets;
+        if (current == null) {
+            // a racing capture may be lost, no harm for samples
+            current = new AtomicReferenceArray<>(BUCKETS);
+            this.buckets = current;
+        }
+        return current;
+    }
+
+    static int bucket(long value) {
+        return value <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(value);
+    }
+
+    public static class Exemplar {
+        private final long value;
+        private final String traceId;
+        private final String spanId;
+        private final long timestamp;
+
+        Exemplar(long value, String traceId, String spanId, long timestamp) {
+            this.value = value;
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.timestamp = timestamp;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public String getTraceId() {
+            return traceId;
+        }
+
+        public String getSpanId() {
+            return spanId;
+        }
+
+        /**
+         * @return epoch millis of the capture
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @param factor the value is divided by, eg. nanoseconds per millisecond for durations
+         */
+        public Map<String, Object> toMap(double factor) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("value", value / factor);
+            map.put("traceId", traceId);
+            map.put("spanId", spanId);
+            map.put("timestamp", timestamp);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return "Exemplar(" + value + ", " + traceId + ", " + spanId + ", " + timestamp + ")";
+        }
+    }
+}
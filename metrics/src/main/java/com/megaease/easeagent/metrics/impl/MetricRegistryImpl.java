@@ -60,7 +60,7 @@ public class MetricRegistryImpl implements com.megaease.easeagent.plugin.api.met
     MetricBuilder<Timer> timers = new MetricBuilder<Timer>() {
         @Override
         public Timer newMetric(String name) {
-            return NoNull.of(TimerImpl.build(metricRegistry.timer(name)), NoOpMetrics.NO_OP_TIMER);
+            return NoNull.of(TimerImpl.build(metricRegistry.timer(name, ExemplarTimer::new)), NoOpMetrics.NO_OP_TIMER);
         }
     };
 
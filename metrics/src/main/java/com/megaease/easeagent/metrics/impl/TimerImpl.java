@@ -29,9 +29,11 @@ import java.util.function.Supplier;
 
 public class TimerImpl implements com.megaease.easeagent.plugin.api.metric.Timer {
     private final Timer timer;
+    private final Exemplars exemplars;
 
     private TimerImpl(Timer timer) {
         this.timer = Objects.requireNonNull(timer, "timer must not be null");
+        this.exemplars = timer instanceof ExemplarTimer ? ((ExemplarTimer) timer).getExemplars() : null;
     }
 
     public static com.megaease.easeagent.plugin.api.metric.Timer build(Timer timer) {
@@ -41,31 +43,62 @@ public class TimerImpl implements com.megaease.easeagent.plugin.api.metric.Timer
     @Override
     public void update(long duration, TimeUnit unit) {
         timer.update(duration, unit);
+        capture(unit.toNanos(duration));
     }
 
     @Override
     public void update(Duration duration) {
         timer.update(duration);
+        capture(duration.toNanos());
+    }
+
+    @Override
+    public void update(Duration duration, String traceId, String spanId) {
+        timer.update(duration);
+        if (exemplars != null) {
+            exemplars.capture(duration.toNanos(), traceId, spanId);
+        }
     }
 
     @Override
     public <T> T time(Callable<T> event) throws Exception {
-        return timer.time(event);
+        Context context = time();
+        try {
+            return event.call();
+        } finally {
+            context.stop();
+        }
     }
 
     @Override
     public <T> T timeSupplier(Supplier<T> event) {
-        return timer.timeSupplier(event);
+        Context context = time();
+        try {
+            return event.get();
+        } finally {
+            context.stop();
+        }
     }
 
     @Override
     public void time(Runnable event) {
-        timer.time(event);
+        Context context = time();
+        try {
+            event.run();
+        } finally {
+            context.stop();
+        }
     }
 
     @Override
     public Context time() {
-        return new ContextImpl(timer.time());
+        return new ContextImpl(timer.time(), exemplars);
+    }
+
+    private void capture(long nanos) {
+        if (exemplars != null && nanos > 0) {
+            exemplars.capture(nanos);
+        }
     }
 
     @Override
@@ -106,19 +139,25 @@ public class TimerImpl implements com.megaease.easeagent.plugin.api.metric.Timer
 
     public static class ContextImpl implements Context {
         private final Timer.Context context;
+        private final Exemplars exemplars;
 
-        ContextImpl(Timer.Context context) {
+        ContextImpl(Timer.Context context, Exemplars exemplars) {
             this.context = context;
+            this.exemplars = exemplars;
         }
 
         @Override
         public long stop() {
-            return context.stop();
+            long elapsed = context.stop();
+            if (exemplars != null) {
+                exemplars.capture(elapsed);
+            }
+            return elapsed;
         }
 
         @Override
         public void close() {
-            context.close();
+            stop();
         }
     }
 
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.metrics.impl;
+
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.api.context.IContextManager;
+import com.megaease.easeagent.plugin.api.trace.Span;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ExemplarsTest {
+
+    @Before
+    public void before() {
+        Exemplars.setEnabled(true);
+    }
+
+    @After
+    public void after() {
+        Exemplars.setEnabled(false);
+    }
+
+    @Test
+    public void bucket() {
+        assertEquals(0, Exemplars.bucket(-1));
+        assertEquals(0, Exemplars.bucket(0));
+        assertEquals(0, Exemplars.bucket(1));
+        assertEquals(1, Exemplars.bucket(2));
+        assertEquals(1, Exemplars.bucket(3));
+        assertEquals(10, Exemplars.bucket(1024));
+        assertEquals(63, Exemplars.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void capture() {
+        Exemplars exemplars = new Exemplars();
+        assertNull(exemplars.nearest(100));
+        exemplars.capture(100, "a", "b");
+        exemplars.capture(100_000, "c", "d");
+
+        Exemplars.Exemplar exemplar = exemplars.nearest(120);
+        assertNotNull(exemplar);
+        assertEquals(100, exemplar.getValue());
+        assertEquals("a", exemplar.getTraceId());
+        assertEquals("b", exemplar.getSpanId());
+        assertEquals("c", exemplars.nearest(90_000).getTraceId());
+        assertEquals("a", exemplars.nearest(1000).getTraceId());
+        assertEquals("c", exemplars.nearest(Long.MAX_VALUE).getTraceId());
+        assertEquals(2, exemplars.getExemplars().size());
+    }
+
+    @Test
+    public void minInterval() {
+        Exemplars exemplars = new Exemplars();
+        exemplars.capture(100, "a", "b");
+        exemplars.capture(101, "c", "d");
+        assertEquals("a", exemplars.nearest(100).getTraceId());
+        exemplars.capture(300, "c", "d");
+        assertEquals("c", exemplars.nearest(300).getTraceId());
+    }
+
+    @Test
+    public void disabled() {
+        Exemplars.setEnabled(false);
+        Exemplars exemplars = new Exemplars();
+        exemplars.capture(100, "a", "b");
+        exemplars.capture(100);
+        assertNull(exemplars.nearest(100));
+        assertTrue(exemplars.getExemplars().isEmpty());
+    }
+
+    @Test
+    public void currentSpan() {
+        Span span = mock(Span.class);
+        when(span.traceIdString()).thenReturn("a");
+        when(span.spanIdString()).thenReturn("b");
+        Context context = mock(Context.class, RETURNS_DEEP_STUBS);
+        when(context.currentTracing().currentSpan()).thenReturn(span);
+        IContextManager original = EaseAgent.initializeContextSupplier;
+        EaseAgent.initializeContextSupplier = () -> context;
+        try {
+            Exemplars exemplars = new Exemplars();
+            // recorded only locally, e.g. for the span metrics, so never reported
+            when(span.isSampled()).thenReturn(false);
+            exemplars.capture(100);
+            assertNull(exemplars.nearest(100));
+
+            when(span.isSampled()).thenReturn(true);
+            exemplars.capture(100);
+            assertEquals("a", exemplars.nearest(100).getTraceId());
+            assertEquals("b", exemplars.nearest(100).getSpanId());
+        } finally {
+            EaseAgent.initializeContextSupplier = original;
+        }
+    }
+
+    @Test
+    public void toMap() {
+        Exemplars exemplars = new Exemplars();
+        exemplars.capture(2_000_000, "a", "b");
+        Map<String, Object> map = exemplars.nearest(2_000_000).toMap(1_000_000);
+        assertEquals(2.0, (Double) map.get("value"), 0.0001);
+        assertEquals("a", map.get("traceId"));
+        assertEquals("b", map.get("spanId"));
+        assertNotNull(map.get("timestamp"));
+    }
+
+    @Test
+    public void timer() {
+        ExemplarTimer unwrap = new ExemplarTimer();
+        com.megaease.easeagent.plugin.api.metric.Timer timer = TimerImpl.build(unwrap);
+        timer.update(Duration.ofMillis(5), "a", "b");
+        assertEquals(1, timer.getCount());
+        assertEquals("a", unwrap.getExemplars().nearest(Duration.ofMillis(5).toNanos()).getTraceId());
+    }
+}
@@ -19,6 +19,9 @@ package com.megaease.easeagent.plugin;
 
 import com.megaease.easeagent.plugin.enums.Order;
 
+import java.util.Collections;
+import java.util.Set;
+
 public interface AgentPlugin extends Ordered {
     /**
      * define the plugin name, avoiding conflicts with others
@@ -35,6 +38,16 @@ public interface AgentPlugin extends Ordered {
     default int order() {
         return Order.HIGH.getOrder();
     }
+
+    /**
+     * define the classes of the instrumented library,
+     * transformations of this plugin are activated only when one of them is present,
+     * empty means always active.
+     * It can be overridden by {@link Points#getSentinelClasses()}
+     */
+    default Set<String> getSentinelClasses() {
+        return Collections.emptySet();
+    }
 }
 
 
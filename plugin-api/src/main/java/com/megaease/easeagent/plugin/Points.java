@@ -22,6 +22,7 @@ import com.megaease.easeagent.plugin.matcher.IMethodMatcher;
 import com.megaease.easeagent.plugin.matcher.loader.ClassLoaderMatcher;
 import com.megaease.easeagent.plugin.matcher.loader.IClassLoaderMatcher;
 
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -87,4 +88,14 @@ public interface Points {
     default IClassLoaderMatcher getClassLoaderMatcher() {
         return ClassLoaderMatcher.ALL;
     }
+
+    /**
+     * Only activate the transformation when one of the sentinel classes is present,
+     * default as the sentinel classes of the plugin
+     *
+     * @return sentinel class names
+     */
+    default Set<String> getSentinelClasses() {
+        return Collections.emptySet();
+    }
 }
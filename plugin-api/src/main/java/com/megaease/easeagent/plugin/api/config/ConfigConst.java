@@ -67,6 +67,14 @@ public interface ConfigConst {
     interface Observability {
         String KEY_COMM_ENABLED = "enabled";
         String KEY_COMM_SAMPLED_BY_QPS = "sampledByQPS";
+        String KEY_COMM_SAMPLED_RATE = "sampledRate";
+        String KEY_COMM_SAMPLED_TYPE = "sampledType";
+        String KEY_COMM_TAIL_SAMPLING = "tailSampling";
+        String KEY_COMM_ASYNC_HANDOFF = "asyncHandoff";
+        String KEY_COMM_AGGREGATION = "aggregation";
+        String KEY_COMM_RECENT = "recent";
+        String KEY_COMM_SPAN_METRICS = "spanMetrics";
+        String KEY_COMM_PROPAGATION = "propagation";
         String KEY_COMM_OUTPUT = "output";
         String KEY_COMM_TAG = "tag";
         String KEY_COMM_SERVICE_PREFIX = "servicePrefix";
@@ -96,6 +104,14 @@ public interface ConfigConst {
 
         String TRACE_ENABLED = join(TRACE, "enabled");
         String TRACE_SAMPLED_BY_QPS = join(TRACE, KEY_COMM_SAMPLED_BY_QPS);
+        String TRACE_SAMPLED_RATE = join(TRACE, KEY_COMM_SAMPLED_RATE);
+        String TRACE_SAMPLED_TYPE = join(TRACE, KEY_COMM_SAMPLED_TYPE);
+        String TRACE_TAIL_SAMPLING = join(TRACE, KEY_COMM_TAIL_SAMPLING);
+        String TRACE_ASYNC_HANDOFF = join(TRACE, KEY_COMM_ASYNC_HANDOFF);
+        String TRACE_AGGREGATION = join(TRACE, KEY_COMM_AGGREGATION);
+        String TRACE_RECENT = join(TRACE, KEY_COMM_RECENT);
+        String TRACE_SPAN_METRICS = join(TRACE, KEY_COMM_SPAN_METRICS);
+        String TRACE_PROPAGATION = join(TRACE, KEY_COMM_PROPAGATION);
 
         String TRACE_OUTPUT = join(TRACE, KEY_COMM_OUTPUT);
         String TRACE_OUTPUT_ENABLED = join(TRACE_OUTPUT, "enabled");
@@ -116,6 +132,9 @@ public interface ConfigConst {
         String KEY_METRICS_JVM_GC = "jvmGc";
         String KEY_METRICS_JVM_MEMORY = "jvmMemory";
         String KEY_METRICS_MD5_DICTIONARY = "md5Dictionary";
+        String KEY_METRICS_EXEMPLARS = "exemplars";
+
+        String METRICS_EXEMPLARS = join(METRICS, KEY_METRICS_EXEMPLARS);
 
         String KEY_TRACE_REQUEST = "request";
         String KEY_TRACE_REMOTE_INVOKE = "remoteInvoke";
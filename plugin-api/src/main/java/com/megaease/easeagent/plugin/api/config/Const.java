@@ -20,6 +20,7 @@ package com.megaease.easeagent.plugin.api.config;
 public interface Const {
     int MAX_PLUGIN_STACK = 10000;
     String ENABLED_CONFIG = "enabled";
+    String SPAN_DERIVED_CONFIG = "spanDerived";
 
     int METRIC_DEFAULT_INTERVAL = 30;
     String METRIC_DEFAULT_INTERVAL_UNIT = "SECONDS";
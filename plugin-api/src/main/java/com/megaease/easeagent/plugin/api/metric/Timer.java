@@ -64,6 +64,17 @@ public interface Timer extends Metric {
      */
     void update(Duration duration);
 
+    /**
+     * Adds a recorded duration of a span, the span may be kept as an exemplar of the duration.
+     *
+     * @param duration the {@link Duration} to add to the timer. Negative or zero value are ignored.
+     * @param traceId  the trace id of the span
+     * @param spanId   the id of the span
+     */
+    default void update(Duration duration, String traceId, String spanId) {
+        update(duration);
+    }
+
     /**
      * Times and records the duration of event.
      *
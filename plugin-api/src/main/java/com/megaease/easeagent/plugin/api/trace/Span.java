@@ -18,6 +18,8 @@
 package com.megaease.easeagent.plugin.api.trace;
 
 import javax.annotation.Nullable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Here's a typical example of synchronous tracing from perspective of the span:
@@ -82,6 +84,14 @@ public interface Span {
      */
     boolean isNoop();
 
+    /**
+     * When true, the span is reported. A span that is not noop may still be unsampled, when it is
+     * only recorded locally, e.g. for span metrics; it must not be linked from metrics then.
+     */
+    default boolean isSampled() {
+        return !isNoop();
+    }
+
     /**
      * Sets the string name for the logical operation this span represents.
      */
@@ -97,6 +107,34 @@ public interface Span {
      */
     Span tag(String key, String value);
 
+    /**
+     * Like {@link #tag(String, String)}, except the value is only computed when the span is reported.
+     * Implementations skip noop spans as well as unsampled spans that are only recorded locally.
+     * Use this for values that are expensive to compute, such as serialized arguments or compressed sql.
+     *
+     * @param key   Name used to lookup spans, cannot be <code>null</code>.
+     * @param value Supplier of the value, not invoked when the span is noop or unsampled. A <code>null</code> value is ignored.
+     */
+    default Span tag(String key, Supplier<String> value) {
+        if (isNoop()) {
+            return this;
+        }
+        return tag(key, value.get());
+    }
+
+    /**
+     * Tags the span in a batch. The tagger is only invoked when the span is reported, so the values
+     * shared by several tags are computed once, and not at all for noop or unsampled spans.
+     *
+     * @param tagger calls {@link #tag(String, String)} on the given span
+     */
+    default Span tags(Consumer<Span> tagger) {
+        if (!isNoop()) {
+            tagger.accept(this);
+        }
+        return this;
+    }
+
     /**
      * Associates an event that explains latency with the current system time.
      *
@@ -133,6 +133,10 @@ public class ReportSpanImpl implements ReportSpan {
         return system;
     }
 
+    /**
+     * The span takes over the annotations and tags of the builder without copying them,
+     * the builder must not modify them after that.
+     */
     public ReportSpanImpl(Builder builder) {
         traceId = builder.traceId;
         // prevent self-referencing spans
@@ -145,7 +149,7 @@ public class ReportSpanImpl implements ReportSpan {
         localEndpoint = builder.localEndpoint;
         remoteEndpoint = builder.remoteEndpoint;
         annotations = builder.annotations;
-        tags = builder.tags == null ? Collections.emptyMap() : new TreeMap<>(builder.tags);
+        tags = builder.tags == null ? Collections.emptyMap() : builder.tags;
         debug = builder.debug;
         shared = builder.shared;
     }
@@ -47,14 +47,28 @@ public class ServerMetric extends ServiceMetric {
     }
 
     public void collectMetric(String key, int statusCode, Throwable throwable, long startMillis, long endMillis) {
+        collectMetric(key, Duration.ofMillis(endMillis - startMillis), statusCode >= 400 || throwable != null);
+    }
+
+    public void collectMetric(String key, Duration duration, boolean error) {
+        collectMetric(key, duration, error, null, null);
+    }
+
+    /**
+     * @param traceId not null to link the duration to the span as an exemplar, instead of the current span
+     */
+    public void collectMetric(String key, Duration duration, boolean error, String traceId, String spanId) {
         Timer timer = timer(key, MetricSubType.DEFAULT);
-        timer.update(Duration.ofMillis(endMillis - startMillis));
+        if (traceId != null) {
+            timer.update(duration, traceId, spanId);
+        } else {
+            timer.update(duration);
+        }
         final Meter errorMeter = meter(key, MetricSubType.ERROR);
         final Meter meter = meter(key, MetricSubType.DEFAULT);
         Counter errorCounter = counter(key, MetricSubType.ERROR);
         Counter counter = counter(key, MetricSubType.DEFAULT);
-        boolean hasException = throwable != null;
-        if (statusCode >= 400 || hasException) {
+        if (error) {
             errorMeter.mark();
             errorCounter.inc();
         }
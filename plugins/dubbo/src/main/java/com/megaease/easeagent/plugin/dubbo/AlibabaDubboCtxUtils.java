@@ -127,7 +127,7 @@ public class AlibabaDubboCtxUtils {
                 span.error(result.getException());
             } else {
                 if (config.resultCollectEnabled() && result.getValue() != null) {
-                    span.tag(RESULT.name, config.resultCollectEnabled() ? JsonUtil.toJson(result.getValue()) : null);
+                    span.tag(RESULT.name, () -> JsonUtil.toJson(result.getValue()));
                 }
             }
         }
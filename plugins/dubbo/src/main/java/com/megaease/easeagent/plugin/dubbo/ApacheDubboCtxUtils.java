@@ -113,7 +113,7 @@ public class ApacheDubboCtxUtils {
                 span.error(result.getException());
             } else {
                 if (dubboTraceConfig.resultCollectEnabled() && result.getValue() != null) {
-                    span.tag(DubboTags.RESULT.name, JsonUtil.toJson(result.getValue()));
+                    span.tag(DubboTags.RESULT.name, () -> JsonUtil.toJson(result.getValue()));
                 }
             }
         }
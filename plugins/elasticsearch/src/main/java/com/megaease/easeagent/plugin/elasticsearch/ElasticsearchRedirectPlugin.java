@@ -21,6 +21,9 @@ import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 import com.megaease.easeagent.plugin.enums.Order;
 
+import java.util.Collections;
+import java.util.Set;
+
 public class ElasticsearchRedirectPlugin implements AgentPlugin {
     @Override
     public String getNamespace() {
@@ -36,4 +39,9 @@ public class ElasticsearchRedirectPlugin implements AgentPlugin {
     public int order() {
         return Order.REDIRECT.getOrder();
     }
+
+    @Override
+    public Set<String> getSentinelClasses() {
+        return Collections.singleton("org.elasticsearch.client.RestClient");
+    }
 }
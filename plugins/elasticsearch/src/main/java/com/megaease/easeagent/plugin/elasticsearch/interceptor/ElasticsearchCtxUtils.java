@@ -35,7 +35,6 @@ public class ElasticsearchCtxUtils {
     private static final String SPAN = ElasticsearchCtxUtils.class.getName() + "-Span";
     public static final String REQUEST = ElasticsearchCtxUtils.class.getName() + "-Request";
 
-    @SneakyThrows
     public static void initSpan(MethodInfo methodInfo, Context context) {
         Request request = (Request) methodInfo.getArgs()[0];
         HttpEntity entity = request.getEntity();
@@ -43,17 +42,24 @@ public class ElasticsearchCtxUtils {
         span.kind(Span.Kind.CLIENT);
         span.remoteServiceName("elasticsearch");
         span.tag(MiddlewareConstants.TYPE_TAG_NAME, Type.ELASTICSEARCH.getRemoteType());
-        span.tag("es.index", getIndex(request.getEndpoint()));
-        span.tag("es.operation", request.getMethod() + " " + request.getEndpoint());
-        if (entity != null) {
-            String body = EntityUtils.toString(entity, StandardCharsets.UTF_8);
-            span.tag("es.body", body);
-        }
+        span.tags(s -> {
+            String endpoint = request.getEndpoint();
+            s.tag("es.index", getIndex(endpoint));
+            s.tag("es.operation", request.getMethod() + " " + endpoint);
+            if (entity != null) {
+                s.tag("es.body", entityToString(entity));
+            }
+        });
         span.start();
         context.put(SPAN, span);
         context.put(REQUEST, request);
     }
 
+    @SneakyThrows
+    private static String entityToString(HttpEntity entity) {
+        return EntityUtils.toString(entity, StandardCharsets.UTF_8);
+    }
+
     public static String getIndex(String endpoint) {
         if (StringUtils.isEmpty(endpoint)) {
             return "";
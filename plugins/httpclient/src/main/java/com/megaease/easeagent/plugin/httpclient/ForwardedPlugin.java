@@ -20,6 +20,10 @@ package com.megaease.easeagent.plugin.httpclient;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class ForwardedPlugin implements AgentPlugin {
     @Override
     public String getNamespace() {
@@ -30,4 +34,12 @@ public class ForwardedPlugin implements AgentPlugin {
     public String getDomain() {
         return ConfigConst.INTEGRABILITY;
     }
+
+    @Override
+    public Set<String> getSentinelClasses() {
+        return new HashSet<>(Arrays.asList(
+            "org.apache.http.client.HttpClient",
+            "org.apache.hc.client5.http.classic.HttpClient",
+            "org.apache.hc.client5.http.async.HttpAsyncClient"));
+    }
 }
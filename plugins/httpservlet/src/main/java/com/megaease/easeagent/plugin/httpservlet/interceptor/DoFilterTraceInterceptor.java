@@ -69,7 +69,7 @@ public class DoFilterTraceInterceptor implements NonReentrantInterceptor {
         try {
             Span span = requestContext.span();
             if (!httpServletRequest.isAsyncStarted()) {
-                span.tag(TraceConst.HTTP_TAG_ROUTE, ServletUtils.getHttpRouteAttributeFromRequest(httpServletRequest));
+                span.tag(TraceConst.HTTP_TAG_ROUTE, () -> ServletUtils.getHttpRouteAttributeFromRequest(httpServletRequest));
                 HttpUtils.finish(span, new Response(methodInfo.getThrowable(), httpServletRequest, httpServletResponse));
             } else if (methodInfo.getThrowable() != null) {
                 span.error(methodInfo.getThrowable());
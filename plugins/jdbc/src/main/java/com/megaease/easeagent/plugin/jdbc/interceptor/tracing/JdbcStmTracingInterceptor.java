@@ -73,7 +73,7 @@ public class JdbcStmTracingInterceptor implements NonReentrantInterceptor {
         span.name(methodInfo.getMethod());
         span.kind(Span.Kind.CLIENT);
         span.tag(SPAN_SQL_QUERY_TAG_NAME,
-            md5SQLCompression.compress(sqlInfo.getSql()));
+            () -> md5SQLCompression.compress(sqlInfo.getSql()));
         span.tag(SPAN_LOCAL_COMPONENT_TAG_NAME, "database");
         Connection conn = sqlInfo.getConnection();
         String url = JdbcUtils.getUrl(conn);
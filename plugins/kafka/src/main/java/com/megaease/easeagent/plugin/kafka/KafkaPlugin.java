@@ -20,6 +20,9 @@ package com.megaease.easeagent.plugin.kafka;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Collections;
+import java.util.Set;
+
 public class KafkaPlugin implements AgentPlugin {
     @Override
     public String getNamespace() {
@@ -30,4 +33,9 @@ public class KafkaPlugin implements AgentPlugin {
     public String getDomain() {
         return ConfigConst.OBSERVABILITY;
     }
+
+    @Override
+    public Set<String> getSentinelClasses() {
+        return Collections.singleton("org.apache.kafka.clients.consumer.ConsumerRecord");
+    }
 }
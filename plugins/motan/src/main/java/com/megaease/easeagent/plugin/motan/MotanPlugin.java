@@ -3,6 +3,10 @@ package com.megaease.easeagent.plugin.motan;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class MotanPlugin implements AgentPlugin {
 
     @Override
@@ -14,4 +18,11 @@ public class MotanPlugin implements AgentPlugin {
     public String getDomain() {
         return ConfigConst.OBSERVABILITY;
     }
+
+    @Override
+    public Set<String> getSentinelClasses() {
+        return new HashSet<>(Arrays.asList(
+            "com.weibo.api.motan.rpc.AbstractReferer",
+            "com.weibo.api.motan.transport.ProviderMessageRouter"));
+    }
 }
@@ -20,6 +20,9 @@ package com.megaease.easeagent.plugin.rabbitmq;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Collections;
+import java.util.Set;
+
 public class RabbitMqRedirectPlugin implements AgentPlugin {
     @Override
     public String getNamespace() {
@@ -30,4 +33,9 @@ public class RabbitMqRedirectPlugin implements AgentPlugin {
     public String getDomain() {
         return ConfigConst.INTEGRABILITY;
     }
+
+    @Override
+    public Set<String> getSentinelClasses() {
+        return Collections.singleton("com.rabbitmq.client.ConnectionFactory");
+    }
 }
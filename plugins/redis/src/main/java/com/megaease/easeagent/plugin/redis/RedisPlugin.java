@@ -20,6 +20,10 @@ package com.megaease.easeagent.plugin.redis;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class RedisPlugin implements AgentPlugin {
 
     @Override
@@ -32,4 +36,11 @@ public class RedisPlugin implements AgentPlugin {
         return ConfigConst.OBSERVABILITY;
     }
 
+    @Override
+    public Set<String> getSentinelClasses() {
+        return new HashSet<>(Arrays.asList(
+            "redis.clients.jedis.Jedis",
+            "redis.clients.jedis.BinaryJedis",
+            "io.lettuce.core.RedisClient"));
+    }
 }
@@ -20,6 +20,10 @@ package com.megaease.easeagent.plugin.redis;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class RedisRedirectPlugin implements AgentPlugin {
     @Override
     public String getNamespace() {
@@ -31,4 +35,11 @@ public class RedisRedirectPlugin implements AgentPlugin {
         return ConfigConst.INTEGRABILITY;
     }
 
+    @Override
+    public Set<String> getSentinelClasses() {
+        return new HashSet<>(Arrays.asList(
+            "redis.clients.jedis.Jedis",
+            "redis.clients.jedis.BinaryJedis",
+            "io.lettuce.core.RedisClient"));
+    }
 }
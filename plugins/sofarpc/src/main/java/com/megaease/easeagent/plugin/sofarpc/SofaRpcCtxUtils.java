@@ -117,7 +117,7 @@ public class SofaRpcCtxUtils {
 		span.remoteServiceName(ConfigConst.Namespace.SOFARPC);
 		span.remoteIpAndPort(sofaClientTraceRequest.remoteHost(), sofaClientTraceRequest.remotePort());
 		if (SofaRpcTraceBaseInterceptor.SOFA_RPC_TRACE_CONFIG.argsCollectEnabled()) {
-			span.tag(SofaRpcTraceTags.ARGS.name, JsonUtil.toJson(sofaRequest.getMethodArgs()));
+			span.tag(SofaRpcTraceTags.ARGS.name, () -> JsonUtil.toJson(sofaRequest.getMethodArgs()));
 		}
 		span.tag(SofaRpcTraceTags.CLIENT_APPLICATION.name, sofaClientTraceRequest.appName());
 		span.tag(SofaRpcTraceTags.SERVICE_UNIQUE_ID.name, sofaClientTraceRequest.uniqueId());
@@ -192,7 +192,7 @@ public class SofaRpcCtxUtils {
 				if (result instanceof Throwable) {
 					span.error((Throwable) result);
 				} else if (SofaRpcTraceBaseInterceptor.SOFA_RPC_TRACE_CONFIG.resultCollectEnabled()) {
-					span.tag(SofaRpcTraceTags.RESULT.name, JsonUtil.toJson(result));
+					span.tag(SofaRpcTraceTags.RESULT.name, () -> JsonUtil.toJson(result));
 				}
 				span.finish();
 			}
@@ -220,7 +220,7 @@ public class SofaRpcCtxUtils {
 					if (sofaResponse.isError() || sofaResponse.getAppResponse() instanceof Throwable) {
 						span.error((Throwable) sofaResponse.getAppResponse());
 					} else if (SofaRpcTraceBaseInterceptor.SOFA_RPC_TRACE_CONFIG.resultCollectEnabled()) {
-						span.tag(SofaRpcTraceTags.RESULT.name, JsonUtil.toJson(sofaResponse.getAppResponse()));
+						span.tag(SofaRpcTraceTags.RESULT.name, () -> JsonUtil.toJson(sofaResponse.getAppResponse()));
 					}
 				}
 			} finally {
@@ -3,6 +3,10 @@ package com.megaease.easeagent.plugin.sofarpc;
 import com.megaease.easeagent.plugin.AgentPlugin;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class SofaRpcPlugin implements AgentPlugin {
 	@Override
 	public String getNamespace() {
@@ -13,4 +17,11 @@ public class SofaRpcPlugin implements AgentPlugin {
 	public String getDomain() {
 		return ConfigConst.OBSERVABILITY;
 	}
+
+	@Override
+	public Set<String> getSentinelClasses() {
+		return new HashSet<>(Arrays.asList(
+			"com.alipay.sofa.rpc.filter.ConsumerInvoker",
+			"com.alipay.sofa.rpc.filter.ProviderInvoker"));
+	}
 }
@@ -27,10 +27,12 @@ import com.megaease.easeagent.plugin.api.otlp.common.AgentLogData;
 import com.megaease.easeagent.plugin.report.AgentReport;
 import com.megaease.easeagent.plugin.report.metric.MetricReporterFactory;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.async.QueueBudget;
 import com.megaease.easeagent.report.async.log.AccessLogReporter;
 import com.megaease.easeagent.report.async.log.ApplicationLogReporter;
 import com.megaease.easeagent.report.metric.MetricReporterFactoryImpl;
 import com.megaease.easeagent.report.plugin.ReporterLoader;
+import com.megaease.easeagent.report.trace.RecentTraces;
 import com.megaease.easeagent.report.trace.TraceReport;
 import lombok.extern.slf4j.Slf4j;
 
@@ -45,14 +47,17 @@ public class DefaultAgentReport implements AgentReport, ConfigChangeListener {
     private final ApplicationLogReporter appLogReporter;
     private final Config config;
     private final Config reportConfig;
+    private volatile RecentTraces recentTraces;
 
     DefaultAgentReport(Config config) {
         this.config = config;
         this.reportConfig = new Configs(ReportConfigAdapter.extractReporterConfig(config));
+        QueueBudget.global().update(this.reportConfig);
         this.traceReport = new TraceReport(this.reportConfig);
         this.accessLogReporter = new AccessLogReporter(this.reportConfig);
         this.appLogReporter = new ApplicationLogReporter(this.reportConfig);
         this.metricReporterFactory = MetricReporterFactoryImpl.create(this.reportConfig);
+        refreshRecentTraces();
         this.config.addChangeListener(this);
     }
 
@@ -63,6 +68,10 @@ public class DefaultAgentReport implements AgentReport, ConfigChangeListener {
 
     @Override
     public void report(ReportSpan span) {
+        RecentTraces recent = this.recentTraces;
+        if (recent != null) {
+            recent.capture(span);
+        }
         this.traceReport.report(span);
     }
 
@@ -85,5 +94,24 @@ public class DefaultAgentReport implements AgentReport, ConfigChangeListener {
     public void onChange(List<ChangeItem> list) {
         Map<String, String> changes = ReportConfigAdapter.extractReporterConfig(this.config);
         this.reportConfig.updateConfigs(changes);
+        QueueBudget.global().update(this.reportConfig);
+        refreshRecentTraces();
+    }
+
+    private synchronized void refreshRecentTraces() {
+        boolean enabled = this.config.getBoolean(RecentTraces.ENABLED_KEY, false);
+        if (enabled && this.recentTraces == null) {
+            this.recentTraces = new RecentTraces(this.config);
+        } else if (!enabled && this.recentTraces != null) {
+            this.recentTraces.close();
+            this.recentTraces = null;
+        }
+    }
+
+    /**
+     * @return null when the recent traces are not enabled
+     */
+    public RecentTraces getRecentTraces() {
+        return this.recentTraces;
     }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+import com.megaease.easeagent.report.metric.SelfMetrics;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Self telemetry of a reporter pipeline on striped counters, cheap enough for the reporting threads.
+ * It is exported by plugin.observability.reporter.metric as the gauge "queue.{pipeline}" once the metric provider is installed,
+ * counters are cumulative so the enqueue and drop rates are left to the backend.
+ */
+public class AgentReporterMetrics implements AsyncReporterMetrics, GaugeMetricModel {
+    // the reporter queues and the budget, beside the sender metric of the same namespace
+    static final String METRIC_NAMESPACE = "reporter";
+    static final String METRIC_RESOURCE = "reporter-queue";
+    static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Map<String, AgentReporterMetrics> PIPELINES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String key;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder itemBytes = new LongAdder();
+    private final LongAdder itemsDropped = new LongAdder();
+    private final LongAdder priorityItemsDropped = new LongAdder();
+    private final Map<DropReason, LongAdder> droppedByReason = new EnumMap<>(DropReason.class);
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder messageBytes = new LongAdder();
+    private final LongAdder messagesDropped = new LongAdder();
+    private final StripedHistogram batchSize = new StripedHistogram(WINDOW_MILLIS);
+    private final StripedHistogram sendLatency = new StripedHistogram(WINDOW_MILLIS);
+    private final StripedHistogram delay = new StripedHistogram(WINDOW_MILLIS);
+    private volatile int queuedItems;
+    private volatile int queuedBytes;
+    private volatile long queueLost;
+    private volatile long queuePriorityLost;
+    private volatile boolean exported = false;
+
+    AgentReporterMetrics(String name) {
+        this.name = name;
+        this.key = "queue." + name;
+        for (DropReason reason : DropReason.values()) {
+            droppedByReason.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * @return the metrics of the pipeline, shared by the reporters built for it
+     */
+    public static AgentReporterMetrics of(String pipeline) {
+        return PIPELINES.computeIfAbsent(pipeline, AgentReporterMetrics::new);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void incrementMessages() {
+        messages.increment();
+    }
+
+    @Override
+    public void incrementMessagesDropped(Throwable cause) {
+        messagesDropped.increment();
+    }
+
+    @Override
+    public void incrementItems(int quantity) {
+        items.add(quantity);
+    }
+
+    @Override
+    public void incrementSpanBytes(int quantity) {
+        itemBytes.add(quantity);
+    }
+
+    @Override
+    public void incrementMessageBytes(int quantity) {
+        messageBytes.add(quantity);
+    }
+
+    @Override
+    public void incrementItemsDropped(int quantity) {
+        itemsDropped.add(quantity);
+    }
+
+    @Override
+    public void incrementItemsDropped(DropReason reason, int quantity) {
+        itemsDropped.add(quantity);
+        droppedByReason.get(reason).add(quantity);
+    }
+
+    @Override
+    public void incrementPriorityItemsDropped(int quantity) {
+        priorityItemsDropped.add(quantity);
+    }
+
+    @Override
+    public void updateQueuedItems(int update) {
+        queuedItems = update;
+    }
+
+    @Override
+    public void updateQueueLosses(long items, long priorityItems) {
+        queueLost = items;
+        queuePriorityLost = priorityItems;
+    }
+
+    /**
+     * Called after each drain of the queue, the gauge is registered from here.
+     */
+    @Override
+    public void updateQueuedBytes(int update) {
+        queuedBytes = update;
+        if (!exported) {
+            exported = SelfMetrics.exportGauge(METRIC_NAMESPACE, METRIC_RESOURCE, key, this);
+        }
+    }
+
+    @Override
+    public void updateBatchSize(int items) {
+        batchSize.update(items);
+    }
+
+    @Override
+    public void updateSendLatency(long nanos) {
+        sendLatency.update(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    @Override
+    public void updateDelay(long millis) {
+        delay.update(millis);
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public long getItemsDropped() {
+        return itemsDropped.sum();
+    }
+
+    public long getItemsDropped(DropReason reason) {
+        return droppedByReason.get(reason).sum();
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getMessagesDropped() {
+        return messagesDropped.sum();
+    }
+
+    public StripedHistogram getBatchSize() {
+        return batchSize;
+    }
+
+    public StripedHistogram getSendLatency() {
+        return sendLatency;
+    }
+
+    public StripedHistogram getDelay() {
+        return delay;
+    }
+
+    @Override
+    public Map<String, Object> toHashMap() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", getItems());
+        result.put("item-bytes", itemBytes.sum());
+        result.put("items-dropped", getItemsDropped());
+        for (DropReason reason : DropReason.values()) {
+            result.put("dropped-" + reason.name().toLowerCase(Locale.ROOT).replace('_', '-'), getItemsDropped(reason));
+        }
+        result.put("priority-dropped", priorityItemsDropped.sum());
+        result.put("messages", getMessages());
+        result.put("message-bytes", messageBytes.sum());
+        result.put("messages-dropped", getMessagesDropped());
+        result.put("queued-items", queuedItems);
+        result.put("queued-bytes", queuedBytes);
+        result.put("queue-lost", queueLost);
+        result.put("queue-priority-lost", queuePriorityLost);
+        batchSize.appendTo(result, "batch-size");
+        sendLatency.appendTo(result, "send-latency-us");
+        if (delay.getCount() > 0) {
+            delay.appendTo(result, "delay-ms");
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return key + "{items=" + getItems() + ", dropped=" + getItemsDropped() + "}";
+    }
+}
@@ -28,6 +28,11 @@ public interface AsyncProps {
 
     int getMessageMaxBytes();
 
+    /**
+     * @return percent of the queue reserved for high priority items, such as error spans and logs
+     */
+    int getPriorityReserved();
+
     static int onePercentOfMemory() {
         long result = (long) (Runtime.getRuntime().totalMemory() * 0.01);
         // don't overflow in the rare case 1% of memory is larger than 2 GiB!
@@ -55,12 +55,45 @@ public interface AsyncReporterMetrics {
      */
     void incrementItemsDropped(int quantity);
 
+    /**
+     * Increments the count of items dropped for the reason, they are also counted by {@link #incrementItemsDropped(int)}.
+     */
+    void incrementItemsDropped(DropReason reason, int quantity);
+
+    /**
+     * Increments the count of high priority items dropped before queueing, they are also counted by
+     * {@link #incrementItemsDropped(int)}.
+     */
+    void incrementPriorityItemsDropped(int quantity);
+
     /** Updates the count of items(spans/logs) pending, following a flush activity. */
     void updateQueuedItems(int update);
 
     /** Updates the count of encoded items(spans/logs) bytes pending, following a flush activity. */
     void updateQueuedBytes(int update);
 
+    /**
+     * Updates the total of items refused by the queue, and of those the items refused by its priority lane,
+     * following a flush activity.
+     */
+    void updateQueueLosses(long items, long priorityItems);
+
+    /** Updates the distribution of items(spans/logs) per message, before the message is sent. */
+    void updateBatchSize(int items);
+
+    /** Updates the distribution of the time spent sending a message, successful or not. */
+    void updateSendLatency(long nanos);
+
+    /** Updates the distribution of the time between an item finished and its message was sent. */
+    void updateDelay(long millis);
+
+    enum DropReason {
+        QUEUE_FULL,
+        TOO_LARGE,
+        CLOSED,
+        SEND_FAILED
+    }
+
     AsyncReporterMetrics NOOP_METRICS = new AsyncReporterMetrics() {
         @Override public void incrementMessages() {
             // noop
@@ -86,6 +119,14 @@ public interface AsyncReporterMetrics {
             // noop
         }
 
+        @Override public void incrementItemsDropped(DropReason reason, int quantity) {
+            // noop
+        }
+
+        @Override public void incrementPriorityItemsDropped(int quantity) {
+            // noop
+        }
+
         @Override public void updateQueuedItems(int update) {
             // noop
         }
@@ -94,6 +135,22 @@ public interface AsyncReporterMetrics {
             // noop
         }
 
+        @Override public void updateQueueLosses(long items, long priorityItems) {
+            // noop
+        }
+
+        @Override public void updateBatchSize(int items) {
+            // noop
+        }
+
+        @Override public void updateSendLatency(long nanos) {
+            // noop
+        }
+
+        @Override public void updateDelay(long millis) {
+            // noop
+        }
+
         @Override public String toString() {
             return "NoOpReporterMetrics";
         }
@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,16 +52,20 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
 
     final AtomicBoolean closed = new AtomicBoolean(false);
 
-    AgentByteBoundedQueue<S> pending;
+    final AgentByteBoundedQueue<S> pending;
     final CountDownLatch close;
 
     final int messageMaxBytes;
     final long closeTimeoutNanos;
-    long messageTimeoutNanos;
+    volatile long messageTimeoutNanos;
     ThreadFactory threadFactory;
 
     SenderWithEncoder sender;
     Encoder<S> encoder;
+    // items go to the priority lane of the queue, nullable
+    final Predicate<S> priority;
+    // shared byte budget of the queue, nullable
+    final QueueBudget.Account budget;
 
     AsyncProps asyncProperties;
 
@@ -71,10 +76,17 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
 
     List<Thread> flushThreads;
 
+    // running flushers, resized in place by startFlushThread
+    final List<Flusher<S>> flushers = new CopyOnWriteArrayList<>();
+
+    @SuppressWarnings("unchecked")
     DefaultAsyncReporter(Builder builder, AsyncProps asyncProperties) {
         this.asyncProperties = asyncProperties;
 
-        this.pending = new AgentByteBoundedQueue<>(builder.queuedMaxItems, builder.queuedMaxBytes);
+        this.budget = builder.budget;
+        this.pending = new AgentByteBoundedQueue<>(builder.queuedMaxItems, builder.queuedMaxBytes,
+            asyncProperties.getPriorityReserved(), this.budget);
+        this.priority = (Predicate<S>) builder.priority;
         this.messageMaxBytes = builder.messageMaxBytes;
         this.messageTimeoutNanos = builder.messageTimeoutNanos;
         this.closeTimeoutNanos = builder.closeTimeoutNanos;
@@ -90,6 +102,21 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         return new Builder(sender, asyncProperties).build();
     }
 
+    /**
+     * @param priority classifies the items that go to the priority lane of the queue
+     * @param budget   the queue takes its bytes from the shared budget too, the metrics are named after its pipeline
+     */
+    public static <S> AsyncReporter<S> builderAsyncReporter(SenderWithEncoder sender,
+                                                            AsyncProps asyncProperties,
+                                                            Predicate<S> priority,
+                                                            QueueBudget.Account budget) {
+        return new Builder(sender, asyncProperties)
+            .priority(priority)
+            .budget(budget)
+            .metrics(AgentReporterMetrics.of(budget.getName()))
+            .build();
+    }
+
     @Override
     public void setFlushThreads(List<Thread> flushThreads) {
         this.flushThreads = flushThreads;
@@ -102,36 +129,32 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
 
     @Override
     public void setSender(SenderWithEncoder sender) {
+        Encoder<S> old = this.encoder;
         this.sender = sender;
         this.encoder = sender.getEncoder();
+        if (old != this.encoder) {
+            // the flushers bundle by the encoder, they are replaced by the next startFlushThread
+            closeFlushThread();
+        }
     }
 
     public void setAsyncProperties(AsyncProps asyncProperties) {
         this.asyncProperties = asyncProperties;
     }
 
+    /**
+     * Resize the queue in place, the queued items are kept in order and no thread is started.
+     */
     @Override
     public void setPending(int queuedMaxSpans, int queuedMaxBytes) {
-        AgentByteBoundedQueue<S> copyPending = this.pending;
-        this.pending = new AgentByteBoundedQueue<>(queuedMaxSpans, queuedMaxBytes);
-        consumerData(copyPending);
-    }
-
-    private void consumerData(final AgentByteBoundedQueue<S> copyPending) {
-        Thread flushThread = this.threadFactory.newThread((() -> {
-            final AgentBufferNextMessage<S> bufferNextMessage = AgentBufferNextMessage
-                .create(encoder, messageMaxBytes, 0);
-            while (copyPending.getCount() > 0) {
-                flush(bufferNextMessage, copyPending);
-            }
-        }));
-        flushThread.setName("TempAsyncReporter{" + this.sender + "}");
-        flushThread.setDaemon(true);
-        flushThread.start();
+        this.pending.resize(queuedMaxSpans, queuedMaxBytes, this.asyncProperties.getPriorityReserved());
     }
 
     public void setMessageTimeoutNanos(long messageTimeoutNanos) {
         this.messageTimeoutNanos = messageTimeoutNanos;
+        for (Flusher<S> flusher : this.flushers) {
+            flusher.consumer.setTimeoutNanos(messageTimeoutNanos);
+        }
     }
 
     /**
@@ -144,14 +167,24 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         }
 
         metrics.incrementItems(1);
+        boolean high = priority != null && priority.test(next);
         int nextSizeInBytes = encoder.sizeInBytes(next);
         int messageSizeOfNextSpan = encoder.packageSizeInBytes(Collections.singletonList(nextSizeInBytes));
         metrics.incrementSpanBytes(nextSizeInBytes);
-        if (closed.get() ||
+        AsyncReporterMetrics.DropReason reason;
+        if (closed.get()) {
+            reason = AsyncReporterMetrics.DropReason.CLOSED;
+        } else if (messageSizeOfNextSpan > messageMaxBytes) {
             // don't enqueue something larger than we can drain
-            messageSizeOfNextSpan > messageMaxBytes ||
-            !pending.offer(next, nextSizeInBytes)) {
-            metrics.incrementItemsDropped(1);
+            reason = AsyncReporterMetrics.DropReason.TOO_LARGE;
+        } else if (!pending.offer(next, nextSizeInBytes, high)) {
+            reason = AsyncReporterMetrics.DropReason.QUEUE_FULL;
+        } else {
+            return;
+        }
+        metrics.incrementItemsDropped(reason, 1);
+        if (high) {
+            metrics.incrementPriorityItemsDropped(1);
         }
     }
 
@@ -173,6 +206,7 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
 
         // record after flushing reduces the amount of gauge events vs on doing this on report
         metrics.updateQueuedItems(pending.getCount());
+        metrics.updateQueueLosses(pending.getLoseCount(), pending.getPriorityLoseCount());
         metrics.updateQueuedBytes(pending.getSizeInBytes());
 
         // loop around if we are running, and the bundle isn't full
@@ -180,7 +214,10 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         if (!bundler.isReady() && !closed.get()) {
             return;
         }
+        send(bundler);
+    }
 
+    void send(AgentBufferNextMessage<S> bundler) {
         // Signal that we are about to send a message of a known size in bytes
         metrics.incrementMessages();
         metrics.incrementMessageBytes(bundler.sizeInBytes());
@@ -197,14 +234,18 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         });
 
         List<EncodedData> nextMessage = message.getMessages();
+        metrics.updateBatchSize(nextMessage.size());
+        long start = System.nanoTime();
         try {
             sender.send(nextMessage).execute();
+            metrics.updateSendLatency(System.nanoTime() - start);
         } catch (IOException | RuntimeException t) {
+            metrics.updateSendLatency(System.nanoTime() - start);
             // In failure case, we increment messages and spans dropped.
             int count = nextMessage.size();
             Call.propagateIfFatal(t);
             metrics.incrementMessagesDropped(t);
-            metrics.incrementItemsDropped(count);
+            metrics.incrementItemsDropped(AsyncReporterMetrics.DropReason.SEND_FAILED, count);
 
             Level logLevel = FINE;
 
@@ -250,7 +291,7 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         }
         int count = pending.clear();
         if (count > 0) {
-            metrics.incrementItemsDropped(count);
+            metrics.incrementItemsDropped(AsyncReporterMetrics.DropReason.CLOSED, count);
             logger.log(WARNING, "Dropped {0} spans due to AsyncReporter.close()", count);
         }
     }
@@ -265,27 +306,37 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         this.threadFactory = threadFactory;
     }
 
+    /**
+     * Start or stop flushers until reportThread of them are running, the running ones are kept.
+     * A stopped flusher sends what it has bundled before it exits.
+     */
     @Override
-    public void startFlushThread() {
-        if (this.messageTimeoutNanos > 0) {
-            List<Thread> threads = new CopyOnWriteArrayList<>();
-            for (int i = 0; i < asyncProperties.getReportThread(); i++) { // Multiple consumer consumption
-                final AgentBufferNextMessage<S> consumer =
-                    AgentBufferNextMessage.create(encoder, this.messageMaxBytes, this.messageTimeoutNanos);
-                Thread flushThread = this.threadFactory.newThread(new Flusher<>(this, consumer));
-                flushThread.setName(NAME_PREFIX + "{" + this.sender + "}");
-                flushThread.setDaemon(true);
-                flushThread.start();
-            }
-            this.setFlushThreads(threads);
+    public synchronized void startFlushThread() {
+        if (this.messageTimeoutNanos <= 0 || this.closed.get() || !check()) {
+            return;
+        }
+        int expected = asyncProperties.getReportThread();
+        while (this.flushers.size() > expected) {
+            this.flushers.remove(this.flushers.size() - 1).stop();
+        }
+        while (this.flushers.size() < expected) { // Multiple consumer consumption
+            final AgentBufferNextMessage<S> consumer =
+                AgentBufferNextMessage.create(encoder, this.messageMaxBytes, this.messageTimeoutNanos);
+            Flusher<S> flusher = new Flusher<>(this, consumer);
+            Thread flushThread = this.threadFactory.newThread(flusher);
+            flushThread.setName(NAME_PREFIX + "{" + this.sender + "}");
+            flushThread.setDaemon(true);
+            this.flushers.add(flusher);
+            flushThread.start();
         }
     }
 
     // 关掉flushThread
-    public void closeFlushThread() {
-        for (Thread thread : this.flushThreads) {
-            thread.interrupt();
+    public synchronized void closeFlushThread() {
+        for (Flusher<S> flusher : this.flushers) {
+            flusher.stop();
         }
+        this.flushers.clear();
     }
 
     @Override
@@ -311,6 +362,8 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         int queuedMaxBytes;
         AsyncProps props;
         GlobalExtrasSupplier globalExtrasSupplier;
+        Predicate<?> priority;
+        QueueBudget.Account budget;
 
         static int onePercentOfMemory() {
             long result = (long) (Runtime.getRuntime().totalMemory() * 0.01);
@@ -340,7 +393,8 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         }
 
         /**
-         * Aggregates and reports reporter metrics to a monitoring system. Defaults to no-op.
+         * Aggregates and reports reporter metrics to a monitoring system. Defaults to no-op,
+         * {@link AgentReporterMetrics} exports them through the metric pipeline.
          */
         public Builder metrics(AsyncReporterMetrics metrics) {
             if (metrics == null) throw new NullPointerException("metrics == null");
@@ -348,6 +402,23 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
             return this;
         }
 
+        /**
+         * Items matching it go to the priority lane, which has reserved capacity and is drained first.
+         * Defaults to null, all items share the normal lane.
+         */
+        public <S> Builder priority(Predicate<S> priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * The queue takes its bytes from the shared budget too. Defaults to null, only bounded by queuedMaxBytes.
+         */
+        public Builder budget(QueueBudget.Account budget) {
+            this.budget = budget;
+            return this;
+        }
+
         /**
          * Maximum bytes per message package including overhead.
          */
@@ -405,26 +476,9 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
             }
 
             final DefaultAsyncReporter<S> result = new DefaultAsyncReporter<>(this, this.props);
-
-            if (this.messageTimeoutNanos > 0) {
-                // Start a thread that flushes the queue in a loop.
-                List<Thread> flushThreads = new CopyOnWriteArrayList<>();
-                for (int i = 0; i < this.props.getReportThread(); i++) {
-                    // Multiple consumer consumption
-                    final AgentBufferNextMessage<S> consumer =
-                        AgentBufferNextMessage.create(encoder, this.messageMaxBytes, this.messageTimeoutNanos);
-
-                    Thread flushThread = this.threadFactory
-                        .newThread(new Flusher<>(result, consumer));
-                    flushThread.setName(NAME_PREFIX + "{" + this.sender + "}");
-                    flushThread.setDaemon(true);
-                    flushThread.start();
-                    flushThreads.add(flushThread);
-                }
-                result.setFlushThreads(flushThreads);
-                result.setThreadFactory(this.threadFactory);
-                result.setSender(this.sender);
-            }
+            result.setThreadFactory(this.threadFactory);
+            // Start threads that flush the queue in a loop.
+            result.startFlushThread();
 
             return result;
         }
@@ -435,27 +489,41 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
 
         final DefaultAsyncReporter<S> reporter;
         final AgentBufferNextMessage<S> consumer;
+        volatile boolean running = true;
 
         Flusher(DefaultAsyncReporter<S> reporter, AgentBufferNextMessage<S> consumer) {
             this.reporter = reporter;
             this.consumer = consumer;
         }
 
+        /**
+         * Exit after the current wait for data, at most messageTimeout later
+         */
+        void stop() {
+            this.running = false;
+        }
+
         @Override
         public void run() {
             try {
-                while (!reporter.closed.get() && reporter.check()) {
+                while (running && !reporter.closed.get() && reporter.check()) {
                     // flush will be block if there is no data ready, don't check trace is enabled,
                     // otherwise the cpu will spin.
                     reporter.flush(consumer, reporter.pending);
                 }
+                if (!running && !reporter.closed.get() && consumer.count() > 0) {
+                    reporter.send(consumer);
+                }
             } finally {
+                reporter.flushers.remove(this);
                 int count = consumer.count();
                 if (count > 0) {
-                    reporter.metrics.incrementItemsDropped(count);
+                    reporter.metrics.incrementItemsDropped(AsyncReporterMetrics.DropReason.CLOSED, count);
                     logger.log(WARNING,"Dropped {0} spans due to AsyncReporter.close()", count);
                 }
-                reporter.close.countDown();
+                if (running) {
+                    reporter.close.countDown();
+                }
             }
         }
 
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+import com.megaease.easeagent.report.metric.SelfMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+
+/**
+ * Byte budget shared by the queues of all reporters, so the worst-case heap held by queued items is bounded
+ * by one number instead of the sum of every queuedMaxSize.
+ * <p>
+ * Each pipeline owns a fair share of {@code maxSize} by its weight. A pipeline over its share borrows the free
+ * bytes, but leaves half of the unused share of every other pipeline, so an idle pipeline can always take
+ * at least half its share at once and the rest as soon as the borrower drains. Priority items only check
+ * the total. With {@code maxSize <= 0} the usage is tracked without limit.
+ */
+public class QueueBudget {
+    public static final String TRACING = "tracing";
+    public static final String LOG = "log";
+    public static final String ACCESS_LOG = "accessLog";
+
+    private static final QueueBudget GLOBAL = new QueueBudget();
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong used = new AtomicLong();
+    private volatile long maxSize = 0;
+    private volatile Config config;
+
+    public static QueueBudget global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Apply reporter.memoryBudget.maxSize and reporter.memoryBudget.weight.{pipeline}
+     */
+    public synchronized void update(Config reportConfig) {
+        this.config = reportConfig;
+        this.maxSize = reportConfig.getLong(MEMORY_BUDGET_MAX_SIZE, 0L);
+        for (Account account : accounts.values()) {
+            account.weight = weight(account.name, account.defaultWeight);
+        }
+        rebalance();
+    }
+
+    /**
+     * @return the account of the pipeline, created on first call
+     */
+    public synchronized Account account(String name, int defaultWeight) {
+        Account account = accounts.get(name);
+        if (account == null) {
+            account = new Account(name, defaultWeight);
+            account.weight = weight(name, defaultWeight);
+            accounts.put(name, account);
+            rebalance();
+        }
+        return account;
+    }
+
+    private int weight(String name, int defaultWeight) {
+        Config cfg = this.config;
+        if (cfg == null) {
+            return defaultWeight;
+        }
+        return Math.max(0, cfg.getInt(join(MEMORY_BUDGET_WEIGHT, name), defaultWeight));
+    }
+
+    private void rebalance() {
+        long total = 0;
+        for (Account account : accounts.values()) {
+            total += account.weight;
+        }
+        for (Account account : accounts.values()) {
+            account.share = total <= 0 ? 0 : this.maxSize * account.weight / total;
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    public Map<String, Account> getAccounts() {
+        return accounts;
+    }
+
+    public class Account implements GaugeMetricModel {
+        private final String name;
+        private final int defaultWeight;
+        private final AtomicLong used = new AtomicLong();
+        private final LongAdder refused = new LongAdder();
+        private volatile int weight;
+        private volatile long share;
+        private volatile boolean exported = false;
+
+        Account(String name, int defaultWeight) {
+            this.name = name;
+            this.defaultWeight = defaultWeight;
+        }
+
+        /**
+         * @return false when the bytes are not in the budget, nothing is taken then
+         */
+        public boolean tryAcquire(int bytes, boolean priority) {
+            long max = maxSize;
+            if (max > 0) {
+                if (!priority && used.get() + bytes > share && !mayBorrow(bytes, max)) {
+                    refused.increment();
+                    return false;
+                }
+                if (QueueBudget.this.used.addAndGet(bytes) > max) {
+                    QueueBudget.this.used.addAndGet(-bytes);
+                    refused.increment();
+                    return false;
+                }
+            } else {
+                QueueBudget.this.used.addAndGet(bytes);
+            }
+            used.addAndGet(bytes);
+            return true;
+        }
+
+        private boolean mayBorrow(int bytes, long max) {
+            long reserved = 0;
+            for (Account other : accounts.values()) {
+                if (other != this) {
+                    reserved += Math.max(0, other.share - other.used.get()) / 2;
+                }
+            }
+            return QueueBudget.this.used.get() + bytes <= max - reserved;
+        }
+
+        public void release(int bytes) {
+            if (bytes == 0) {
+                return;
+            }
+            used.addAndGet(-bytes);
+            QueueBudget.this.used.addAndGet(-bytes);
+            if (!exported) {
+                exported = SelfMetrics.exportGauge(AgentReporterMetrics.METRIC_NAMESPACE,
+                    AgentReporterMetrics.METRIC_RESOURCE, "budget." + name, this);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public long getShare() {
+            return share;
+        }
+
+        public long getUsed() {
+            return used.get();
+        }
+
+        public long getRefused() {
+            return refused.longValue();
+        }
+
+        @Override
+        public Map<String, Object> toHashMap() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("bytes-used", getUsed());
+            result.put("bytes-share", getShare());
+            result.put("bytes-max", getMaxSize());
+            result.put("refused", getRefused());
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{used=" + getUsed() + ", share=" + getShare() + "}";
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values on striped counters, one per power of two,
+ * so an update is a few uncontended adds and never locks the reporting thread.
+ * Count and sum are cumulative, percentiles and max are of the last one or two windows.
+ * A window is reset by the first update after it expired, updates racing the reset may be lost.
+ */
+public class StripedHistogram {
+    static final int BUCKETS = 64;
+
+    private final long windowMillis;
+    private final Window[] windows = new Window[]{new Window(), new Window()};
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public StripedHistogram(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void update(long value) {
+        update(value, System.currentTimeMillis());
+    }
+
+    void update(long value, long now) {
+        long v = Math.max(0, value);
+        count.increment();
+        sum.add(v);
+        long epoch = now / windowMillis;
+        Window window = windows[(int) (epoch & 1)];
+        if (window.epoch != epoch) {
+            window.reset(epoch);
+        }
+        window.buckets[BUCKETS - Long.numberOfLeadingZeros(v)].increment();
+        window.max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Put "{prefix}-count", "{prefix}-sum", "{prefix}-p50", "{prefix}-p99" and "{prefix}-max" to the map,
+     * the percentiles are the upper bound of their bucket, capped by max.
+     */
+    public void appendTo(Map<String, Object> map, String prefix) {
+        appendTo(map, prefix, System.currentTimeMillis());
+    }
+
+    void appendTo(Map<String, Object> map, String prefix, long now) {
+        long epoch = now / windowMillis;
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        long max = 0;
+        for (Window window : windows) {
+            long e = window.epoch;
+            if (e != epoch && e != epoch - 1) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = window.buckets[i].sum();
+                merged[i] += c;
+                total += c;
+            }
+            max = Math.max(max, window.max.get());
+        }
+        map.put(prefix + "-count", getCount());
+        map.put(prefix + "-sum", getSum());
+        map.put(prefix + "-p50", percentile(merged, total, 0.5, max));
+        map.put(prefix + "-p99", percentile(merged, total, 0.99, max));
+        map.put(prefix + "-max", max);
+    }
+
+    static long percentile(long[] buckets, long total, double quantile, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min((1L << i) - 1, max);
+            }
+        }
+        return max;
+    }
+
+    static class Window {
+        final LongAdder[] buckets = new LongAdder[BUCKETS];
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        volatile long epoch = Long.MIN_VALUE;
+
+        Window() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        synchronized void reset(long epoch) {
+            if (this.epoch == epoch) {
+                return;
+            }
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            max.reset();
+            this.epoch = epoch;
+        }
+    }
+}
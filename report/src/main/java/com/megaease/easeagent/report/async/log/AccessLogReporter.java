@@ -28,6 +28,7 @@ import com.megaease.easeagent.plugin.utils.common.StringUtils;
 import com.megaease.easeagent.report.async.AsyncProps;
 import com.megaease.easeagent.report.async.AsyncReporter;
 import com.megaease.easeagent.report.async.DefaultAsyncReporter;
+import com.megaease.easeagent.report.async.QueueBudget;
 import com.megaease.easeagent.report.plugin.ReporterRegistry;
 import com.megaease.easeagent.report.sender.SenderWithEncoder;
 
@@ -41,6 +42,8 @@ import static com.megaease.easeagent.config.report.ReportConfigConst.*;
 @SuppressWarnings("unused")
 public class AccessLogReporter implements ConfigChangeListener {
     Config config;
+    // bound to the config, it is updated before refresh
+    AsyncProps asyncProperties;
     AsyncReporter<AccessLogInfo> asyncReporter;
 
     public AccessLogReporter(Config configs) {
@@ -51,9 +54,10 @@ public class AccessLogReporter implements ConfigChangeListener {
         this.config = new Configs(cfg);
         configs.addChangeListener(this);
 
-        AsyncProps asyncProperties = new LogAsyncProps(this.config, LOG_ACCESS);
+        this.asyncProperties = new LogAsyncProps(this.config, LOG_ACCESS);
         SenderWithEncoder sender = ReporterRegistry.getSender(ReportConfigConst.LOG_ACCESS_SENDER, this.config);
-        this.asyncReporter = DefaultAsyncReporter.builderAsyncReporter(sender, asyncProperties);
+        this.asyncReporter = DefaultAsyncReporter.builderAsyncReporter(sender, asyncProperties,
+            AccessLogReporter::isServerError, QueueBudget.global().account(QueueBudget.ACCESS_LOG, 1));
         this.asyncReporter.startFlushThread();
     }
 
@@ -61,6 +65,14 @@ public class AccessLogReporter implements ConfigChangeListener {
         this.asyncReporter.report(log);
     }
 
+    /**
+     * 5xx access logs go to the priority lane
+     */
+    static boolean isServerError(AccessLogInfo log) {
+        String statusCode = log.getStatusCode();
+        return statusCode != null && statusCode.startsWith("5");
+    }
+
     @Override
     public void onChange(List<ChangeItem> list) {
         Map<String, String> changes = filterChanges(list);
@@ -99,11 +111,10 @@ public class AccessLogReporter implements ConfigChangeListener {
             asyncReporter.setSender(sender);
         }
 
-        AsyncProps asyncProperties = new LogAsyncProps(this.config, LOG_ACCESS);
-        asyncReporter.closeFlushThread();
+        // resize in place, the running flush threads are kept
         asyncReporter.setPending(asyncProperties.getQueuedMaxItems(), asyncProperties.getQueuedMaxSize());
         asyncReporter.setMessageTimeoutNanos(messageTimeout(asyncProperties.getMessageTimeout()));
-        asyncReporter.startFlushThread(); // start thread
+        asyncReporter.startFlushThread(); // start or stop threads to reportThread
     }
 
     protected long messageTimeout(long timeout) {
@@ -27,10 +27,12 @@ import com.megaease.easeagent.plugin.utils.common.StringUtils;
 import com.megaease.easeagent.report.async.AsyncProps;
 import com.megaease.easeagent.report.async.AsyncReporter;
 import com.megaease.easeagent.report.async.DefaultAsyncReporter;
+import com.megaease.easeagent.report.async.QueueBudget;
 import com.megaease.easeagent.report.plugin.ReporterRegistry;
 import com.megaease.easeagent.report.sender.SenderWithEncoder;
 
 import io.opentelemetry.sdk.logs.data.LogData;
+import io.opentelemetry.sdk.logs.data.Severity;
 
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +44,8 @@ import static com.megaease.easeagent.config.report.ReportConfigConst.*;
 @SuppressWarnings("unused")
 public class ApplicationLogReporter implements ConfigChangeListener {
     Config config;
+    // bound to the config, it is updated before refresh
+    AsyncProps asyncProperties;
     AsyncReporter<LogData> asyncReporter;
 
     public ApplicationLogReporter(Config configs) {
@@ -52,8 +56,9 @@ public class ApplicationLogReporter implements ConfigChangeListener {
         configs.addChangeListener(this);
 
         SenderWithEncoder sender = ReporterRegistry.getSender(ReportConfigConst.LOG_SENDER, configs);
-        AsyncProps asyncProperties = new LogAsyncProps(this.config, null);
-        this.asyncReporter = DefaultAsyncReporter.builderAsyncReporter(sender, asyncProperties);
+        this.asyncProperties = new LogAsyncProps(this.config, null);
+        this.asyncReporter = DefaultAsyncReporter.builderAsyncReporter(sender, asyncProperties,
+            ApplicationLogReporter::isError, QueueBudget.global().account(QueueBudget.LOG, 1));
         this.asyncReporter.startFlushThread();
     }
 
@@ -61,6 +66,14 @@ public class ApplicationLogReporter implements ConfigChangeListener {
         this.asyncReporter.report(log);
     }
 
+    /**
+     * ERROR and FATAL logs go to the priority lane
+     */
+    static boolean isError(LogData log) {
+        Severity severity = log.getSeverity();
+        return severity != null && severity.getSeverityNumber() >= Severity.ERROR.getSeverityNumber();
+    }
+
     @Override
     public void onChange(List<ChangeItem> list) {
         Map<String, String> changes = filterChanges(list);
@@ -98,11 +111,10 @@ public class ApplicationLogReporter implements ConfigChangeListener {
             asyncReporter.setSender(sender);
         }
 
-        AsyncProps asyncProperties = new LogAsyncProps(this.config, null);
-        asyncReporter.closeFlushThread();
+        // resize in place, the running flush threads are kept
         asyncReporter.setPending(asyncProperties.getQueuedMaxItems(), asyncProperties.getQueuedMaxSize());
         asyncReporter.setMessageTimeoutNanos(messageTimeout(asyncProperties.getMessageTimeout()));
-        asyncReporter.startFlushThread(); // start thread
+        asyncReporter.startFlushThread(); // start or stop threads to reportThread
     }
 
     protected long messageTimeout(long timeout) {
@@ -30,6 +30,7 @@ public class LogAsyncProps implements AsyncProps {
     private volatile int queuedMaxSize;
     private volatile int messageTimeout;
     private volatile int messageMaxBytes;
+    private volatile int priorityReserved;
 
     public LogAsyncProps(Config config, String prefix) {
         int onePercentageMemory = AsyncProps.onePercentOfMemory();
@@ -49,6 +50,9 @@ public class LogAsyncProps implements AsyncProps {
 
         bindProp(join(keyPrefix, join(ASYNC_KEY, ASYNC_MSG_TIMEOUT_KEY)),
             config, Config::getInt, v -> this.messageTimeout = v, 1000);
+
+        bindProp(join(keyPrefix, join(ASYNC_KEY, ASYNC_PRIORITY_RESERVED_KEY)),
+            config, Config::getInt, v -> this.priorityReserved = v, 10);
     }
 
     @Override
@@ -75,4 +79,9 @@ public class LogAsyncProps implements AsyncProps {
     public int getMessageMaxBytes() {
         return this.messageMaxBytes;
     }
+
+    @Override
+    public int getPriorityReserved() {
+        return this.priorityReserved;
+    }
 }
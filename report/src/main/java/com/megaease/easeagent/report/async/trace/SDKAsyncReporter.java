@@ -20,7 +20,10 @@ package com.megaease.easeagent.report.async.trace;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.async.AgentReporterMetrics;
 import com.megaease.easeagent.report.async.AsyncProps;
+import com.megaease.easeagent.report.async.AsyncReporterMetrics;
+import com.megaease.easeagent.report.async.QueueBudget;
 import com.megaease.easeagent.report.async.zipkin.AgentBufferNextMessage;
 import com.megaease.easeagent.report.async.zipkin.AgentByteBoundedQueue;
 import com.megaease.easeagent.report.encoder.PackedMessage;
@@ -32,13 +35,14 @@ import lombok.SneakyThrows;
 import zipkin2.Call;
 import zipkin2.CheckResult;
 import zipkin2.reporter.AsyncReporter;
-import zipkin2.reporter.ReporterMetrics;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,13 +58,19 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
     final AtomicBoolean closed = new AtomicBoolean(false);
     SenderWithEncoder sender;
     Encoder<S> encoder;
-
-    AgentByteBoundedQueue<S> pending;
+    // items go to the priority lane of the queue, nullable
+    final Predicate<S> priority;
+    // shared byte budget of the queue, nullable
+    final QueueBudget.Account budget;
+    // epoch micros the item finished at, for the end-to-end delay, nullable
+    final ToLongFunction<S> finished;
+
+    final AgentByteBoundedQueue<S> pending;
     final int messageMaxBytes;
-    long messageTimeoutNanos;
+    volatile long messageTimeoutNanos;
     final long closeTimeoutNanos;
     final CountDownLatch close;
-    final ReporterMetrics metrics;
+    final AsyncReporterMetrics metrics;
     AsyncProps traceProperties;
 
     ThreadFactory threadFactory;
@@ -72,8 +82,16 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
 
     List<Thread> flushThreads;
 
+    // running flushers, resized in place by startFlushThread
+    final List<Flusher<S>> flushers = new CopyOnWriteArrayList<>();
+
+    @SuppressWarnings("unchecked")
     SDKAsyncReporter(Builder builder, Encoder<S> encoder, AsyncProps traceProperties) {
-        this.pending = new AgentByteBoundedQueue<>(builder.queuedMaxItems, builder.queuedMaxBytes);
+        this.budget = builder.budget;
+        this.pending = new AgentByteBoundedQueue<>(builder.queuedMaxItems, builder.queuedMaxBytes,
+            traceProperties.getPriorityReserved(), this.budget);
+        this.priority = (Predicate<S>) builder.priority;
+        this.finished = (ToLongFunction<S>) builder.finished;
         this.sender = builder.sender;
         this.messageMaxBytes = builder.messageMaxBytes;
         this.messageTimeoutNanos = builder.messageTimeoutNanos;
@@ -89,12 +107,20 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
                                                                        GlobalExtrasSupplier extrasSupplier) {
         final SDKAsyncReporter<ReportSpan> reporter = new Builder(sender, traceProperties)
             .globalExtractor(extrasSupplier)
+            .priority(ReportSpan::hasError)
+            .budget(QueueBudget.global().account(QueueBudget.TRACING, 2))
+            .metrics(AgentReporterMetrics.of(QueueBudget.TRACING))
+            .finished(SDKAsyncReporter::finishedMicros)
             .build();
 
         reporter.setTraceProperties(traceProperties);
         return reporter;
     }
 
+    static long finishedMicros(ReportSpan span) {
+        return span.timestamp() == 0 ? 0 : span.timestamp() + span.duration();
+    }
+
     public void setFlushThreads(List<Thread> flushThreads) {
         this.flushThreads = flushThreads;
     }
@@ -106,35 +132,31 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
 
     //modify sender
     public void setSender(SenderWithEncoder sender) {
+        Encoder<S> old = this.encoder;
         this.sender = sender;
         this.encoder = sender.getEncoder();
+        if (old != this.encoder) {
+            // the flushers bundle by the encoder, they are replaced by the next startFlushThread
+            closeFlushThread();
+        }
     }
 
     public void setTraceProperties(AsyncProps traceProperties) {
         this.traceProperties = traceProperties;
     }
 
+    /**
+     * Resize the queue in place, the queued items are kept in order and no thread is started.
+     */
     public void setPending(int queuedMaxSpans, int queuedMaxBytes) {
-        AgentByteBoundedQueue<S> copyPending = this.pending;
-        this.pending = new AgentByteBoundedQueue<>(queuedMaxSpans, queuedMaxBytes);
-        consumerData(copyPending);
-    }
-
-    private void consumerData(final AgentByteBoundedQueue<S> copyPending) {
-        Thread flushThread = this.threadFactory.newThread((() -> {
-            final AgentBufferNextMessage<S> bufferNextMessage = AgentBufferNextMessage
-                .create(encoder, messageMaxBytes, 0);
-            while (copyPending.getCount() > 0) {
-                flush(bufferNextMessage, copyPending);
-            }
-        }));
-        flushThread.setName("TempAsyncReporter{" + this.sender + "}");
-        flushThread.setDaemon(true);
-        flushThread.start();
+        this.pending.resize(queuedMaxSpans, queuedMaxBytes, this.traceProperties.getPriorityReserved());
     }
 
     public void setMessageTimeoutNanos(long messageTimeoutNanos) {
         this.messageTimeoutNanos = messageTimeoutNanos;
+        for (Flusher<S> flusher : this.flushers) {
+            flusher.consumer.setTimeoutNanos(messageTimeoutNanos);
+        }
     }
 
     /**
@@ -151,15 +173,25 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
             return;
         }
 
-        metrics.incrementSpans(1);
+        metrics.incrementItems(1);
+        boolean high = priority != null && priority.test(next);
         int nextSizeInBytes = encoder.sizeInBytes(next);
         int messageSizeOfNextSpan = encoder.packageSizeInBytes(Collections.singletonList(nextSizeInBytes));
         metrics.incrementSpanBytes(nextSizeInBytes);
-        if (closed.get() ||
+        AsyncReporterMetrics.DropReason reason;
+        if (closed.get()) {
+            reason = AsyncReporterMetrics.DropReason.CLOSED;
+        } else if (messageSizeOfNextSpan > messageMaxBytes) {
             // don't enqueue something larger than we can drain
-            messageSizeOfNextSpan > messageMaxBytes ||
-            !pending.offer(next, nextSizeInBytes)) {
-            metrics.incrementSpansDropped(1);
+            reason = AsyncReporterMetrics.DropReason.TOO_LARGE;
+        } else if (!pending.offer(next, nextSizeInBytes, high)) {
+            reason = AsyncReporterMetrics.DropReason.QUEUE_FULL;
+        } else {
+            return;
+        }
+        metrics.incrementItemsDropped(reason, 1);
+        if (high) {
+            metrics.incrementPriorityItemsDropped(1);
         }
     }
 
@@ -181,22 +213,31 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         pending.drainTo(bundler, bundler.remainingNanos());
 
         // record after flushing reduces the amount of gauge events vs on doing this on report
-        metrics.updateQueuedSpans(pending.getCount());
+        metrics.updateQueuedItems(pending.getCount());
+        metrics.updateQueueLosses(pending.getLoseCount(), pending.getPriorityLoseCount());
         metrics.updateQueuedBytes(pending.getSizeInBytes());
 
         // loop around if we are running, and the bundle isn't full
         // if we are closed, try to send what's pending
         if (!bundler.isReady() && !closed.get()) return;
+        send(bundler);
+    }
 
+    void send(AgentBufferNextMessage<S> bundler) {
         // Signal that we are about to send a message of a known size in bytes
         metrics.incrementMessages();
         metrics.incrementMessageBytes(bundler.sizeInBytes());
 
         // Create the next message. Since we are outside the lock shared with writers, we can encode
         PackedMessage message = new DefaultPackedMessage(bundler.count(), encoder);
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
         bundler.drain((next, nextSizeInBytes) -> {
             if (message.calculateAppendSize(nextSizeInBytes) <= messageMaxBytes) {
                 message.addMessage(encoder.encode(next));
+                long finishedAt = finished == null ? 0 : finished.applyAsLong(next);
+                if (finishedAt > 0) {
+                    metrics.updateDelay(TimeUnit.MICROSECONDS.toMillis(nowMicros - finishedAt));
+                }
                 return true;
             } else {
                 return false;
@@ -204,14 +245,18 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         });
 
         List<EncodedData> nextMessage = message.getMessages();
+        metrics.updateBatchSize(nextMessage.size());
+        long start = System.nanoTime();
         try {
             sender.send(nextMessage).execute();
+            metrics.updateSendLatency(System.nanoTime() - start);
         } catch (IOException | RuntimeException t) {
+            metrics.updateSendLatency(System.nanoTime() - start);
             // In failure case, we increment messages and spans dropped.
             int count = nextMessage.size();
             Call.propagateIfFatal(t);
             metrics.incrementMessagesDropped(t);
-            metrics.incrementSpansDropped(count);
+            metrics.incrementItemsDropped(AsyncReporterMetrics.DropReason.SEND_FAILED, count);
 
             Level logLevel = FINE;
 
@@ -256,7 +301,7 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         }
         int count = pending.clear();
         if (count > 0) {
-            metrics.incrementSpansDropped(count);
+            metrics.incrementItemsDropped(AsyncReporterMetrics.DropReason.CLOSED, count);
             logger.log(WARNING, "Dropped {0} spans due to AsyncReporter.close()", count);
         }
     }
@@ -270,33 +315,43 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         this.threadFactory = threadFactory;
     }
 
-    public void startFlushThread() {
-        if (this.messageTimeoutNanos > 0) {
-            List<Thread> threads = new CopyOnWriteArrayList<>();
-            for (int i = 0; i < traceProperties.getReportThread(); i++) { // Multiple consumer consumption
-                final AgentBufferNextMessage<S> consumer =
-                    AgentBufferNextMessage.create(encoder, this.messageMaxBytes, this.messageTimeoutNanos);
-                Thread flushThread = this.threadFactory.newThread(new Flusher<>(this, consumer, this.sender));
-                flushThread.setName(NAME_PREFIX + "{" + this.sender + "}");
-                flushThread.setDaemon(true);
-                flushThread.start();
-            }
-            this.setFlushThreads(threads);
+    /**
+     * Start or stop flushers until reportThread of them are running, the running ones are kept.
+     * A stopped flusher sends what it has bundled before it exits.
+     */
+    public synchronized void startFlushThread() {
+        if (this.messageTimeoutNanos <= 0 || this.closed.get() || !this.sender.isAvailable()) {
+            return;
+        }
+        int expected = traceProperties.getReportThread();
+        while (this.flushers.size() > expected) {
+            this.flushers.remove(this.flushers.size() - 1).stop();
+        }
+        while (this.flushers.size() < expected) { // Multiple consumer consumption
+            final AgentBufferNextMessage<S> consumer =
+                AgentBufferNextMessage.create(encoder, this.messageMaxBytes, this.messageTimeoutNanos);
+            Flusher<S> flusher = new Flusher<>(this, consumer);
+            Thread flushThread = this.threadFactory.newThread(flusher);
+            flushThread.setName(NAME_PREFIX + "{" + this.sender + "}");
+            flushThread.setDaemon(true);
+            this.flushers.add(flusher);
+            flushThread.start();
         }
     }
 
     // 关掉flushThread
-    public void closeFlushThread() {
-        for (Thread thread : this.flushThreads) {
-            thread.interrupt();
+    public synchronized void closeFlushThread() {
+        for (Flusher<S> flusher : this.flushers) {
+            flusher.stop();
         }
+        this.flushers.clear();
     }
 
     @SuppressWarnings("unused")
     public static final class Builder {
         final SenderWithEncoder sender;
         ThreadFactory threadFactory = Executors.defaultThreadFactory();
-        ReporterMetrics metrics = ReporterMetrics.NOOP_METRICS;
+        AsyncReporterMetrics metrics = AsyncReporterMetrics.NOOP_METRICS;
         int messageMaxBytes;
         long messageTimeoutNanos;
         long closeTimeoutNanos = TimeUnit.SECONDS.toNanos(1);
@@ -304,6 +359,9 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         int queuedMaxBytes;
         AsyncProps props;
         GlobalExtrasSupplier globalExtrasSupplier;
+        Predicate<?> priority;
+        QueueBudget.Account budget;
+        ToLongFunction<?> finished;
 
 
         Builder(SenderWithEncoder sender, AsyncProps traceProperties) {
@@ -336,14 +394,41 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         }
 
         /**
-         * Aggregates and reports reporter metrics to a monitoring system. Defaults to no-op.
+         * Items matching it go to the priority lane, which has reserved capacity and is drained first.
+         * Defaults to null, all items share the normal lane.
          */
-        public Builder metrics(ReporterMetrics metrics) {
+        public <S> Builder priority(Predicate<S> priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * The queue takes its bytes from the shared budget too. Defaults to null, only bounded by queuedMaxBytes.
+         */
+        public Builder budget(QueueBudget.Account budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Aggregates and reports reporter metrics to a monitoring system. Defaults to no-op,
+         * {@link AgentReporterMetrics} exports them through the metric pipeline.
+         */
+        public Builder metrics(AsyncReporterMetrics metrics) {
             if (metrics == null) throw new NullPointerException("metrics == null");
             this.metrics = metrics;
             return this;
         }
 
+        /**
+         * Epoch micros an item finished at, zero when unknown, the delay until it is sent goes to the metrics.
+         * Defaults to null, the delay is not recorded.
+         */
+        public <S> Builder finished(ToLongFunction<S> finished) {
+            this.finished = finished;
+            return this;
+        }
+
         /**
          * Maximum bytes per message package including overhead.
          */
@@ -401,26 +486,9 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
             }
 
             final SDKAsyncReporter<S> result = new SDKAsyncReporter<>(this, encoder, this.props);
-
-            if (this.messageTimeoutNanos > 0) {
-                // Start a thread that flushes the queue in a loop.
-                List<Thread> flushThreads = new CopyOnWriteArrayList<>();
-                for (int i = 0; i < this.props.getReportThread(); i++) {
-                    // Multiple consumer consumption
-                    final AgentBufferNextMessage<S> consumer =
-                        AgentBufferNextMessage.create(encoder, this.messageMaxBytes, this.messageTimeoutNanos);
-
-                    Thread flushThread = this.threadFactory
-                        .newThread(new Flusher<>(result, consumer, this.sender));
-                    flushThread.setName(NAME_PREFIX + "{" + this.sender + "}");
-                    flushThread.setDaemon(true);
-                    flushThread.start();
-                    flushThreads.add(flushThread);
-                }
-                result.setFlushThreads(flushThreads);
-                result.setThreadFactory(this.threadFactory);
-                result.setSender(this.sender);
-            }
+            result.setThreadFactory(this.threadFactory);
+            // Start threads that flush the queue in a loop.
+            result.startFlushThread();
 
             return result;
         }
@@ -431,29 +499,41 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
 
         final SDKAsyncReporter<S> result;
         final AgentBufferNextMessage<S> consumer;
-        final SenderWithEncoder sender;
+        volatile boolean running = true;
 
-        Flusher(SDKAsyncReporter<S> result, AgentBufferNextMessage<S> consumer, SenderWithEncoder sender) {
+        Flusher(SDKAsyncReporter<S> result, AgentBufferNextMessage<S> consumer) {
             this.result = result;
             this.consumer = consumer;
-            this.sender = sender;
+        }
+
+        /**
+         * Exit after the current wait for data, at most messageTimeout later
+         */
+        void stop() {
+            this.running = false;
         }
 
         @Override
         public void run() {
             try {
-                while (!result.closed.get() && sender.isAvailable()) {
+                while (running && !result.closed.get() && result.sender.isAvailable()) {
                     // flush will be block if there is no data ready, don't check trace is enabled,
                     // otherwise the cpu will spin.
                     result.flush(consumer, result.pending);
                 }
+                if (!running && !result.closed.get() && consumer.count() > 0) {
+                    result.send(consumer);
+                }
             } finally {
+                result.flushers.remove(this);
                 int count = consumer.count();
                 if (count > 0) {
-                    result.metrics.incrementSpansDropped(count);
+                    result.metrics.incrementItemsDropped(AsyncReporterMetrics.DropReason.CLOSED, count);
                     logger.log(WARNING,"Dropped {0} spans due to AsyncReporter.close()", count);
                 }
-                result.close.countDown();
+                if (running) {
+                    result.close.countDown();
+                }
             }
         }
 
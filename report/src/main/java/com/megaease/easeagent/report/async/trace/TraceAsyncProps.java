@@ -29,6 +29,7 @@ public class TraceAsyncProps implements AsyncProps {
     private volatile int queuedMaxSize;
     private volatile int messageTimeout;
     private volatile int messageMaxBytes;
+    private volatile int priorityReserved;
 
     public TraceAsyncProps(Config config) {
         int onePercentageMemory = AsyncProps.onePercentOfMemory();
@@ -37,6 +38,7 @@ public class TraceAsyncProps implements AsyncProps {
         bindProp(TRACE_ASYNC_QUEUED_MAX_SPANS_V2, config, Config::getInt, v -> this.queuedMaxSpans = v, 1000);
         bindProp(TRACE_ASYNC_MESSAGE_MAX_BYTES_V2, config, Config::getInt, v -> this.messageMaxBytes = v, 999900);
         bindProp(TRACE_ASYNC_MESSAGE_TIMEOUT_V2, config, Config::getInt, v -> this.messageTimeout = v, 1000);
+        bindProp(TRACE_ASYNC_PRIORITY_RESERVED_V2, config, Config::getInt, v -> this.priorityReserved = v, 10);
     }
 
     @Override
@@ -63,4 +65,9 @@ public class TraceAsyncProps implements AsyncProps {
     public int getMessageMaxBytes() {
         return this.messageMaxBytes;
     }
+
+    @Override
+    public int getPriorityReserved() {
+        return this.priorityReserved;
+    }
 }
@@ -28,7 +28,7 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
 
     final Encoder<S> encoder;
     final int maxBytes;
-    final long timeoutNanos;
+    volatile long timeoutNanos;
     final ArrayList<S> spans = new ArrayList<>();
     final ArrayList<Integer> sizes = new ArrayList<>();
 
@@ -73,6 +73,13 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
         sizes.add(nextSizeInBytes);
     }
 
+    /**
+     * Takes effect from the next message
+     */
+    public void setTimeoutNanos(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+    }
+
     public long remainingNanos() {
         if (spans.isEmpty()) {
             deadlineNanoTime = System.nanoTime() + timeoutNanos;
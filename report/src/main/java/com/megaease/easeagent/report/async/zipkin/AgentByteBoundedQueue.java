@@ -14,8 +14,13 @@ package com.megaease.easeagent.report.async.zipkin;
  * the License.
  */
 
+import com.megaease.easeagent.report.async.QueueBudget;
 import lombok.Data;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,73 +35,179 @@ import java.util.concurrent.locks.LockSupport;
  * on the basis of LinkedTransferQueue. Taking advantage of the lock-free performance of LinkedTransferQueue in
  * inserting data, the performance problem of locking in the old version can be avoided.
  * </p>
+ * <p>
+ * Items offered with priority go to a separate lane which is drained first. {@code priorityReserved} percent of
+ * the count and bytes can only be taken by the priority lane, so error spans and logs still get in when the
+ * normal lane has filled the queue.
+ * </p>
  */
 public final class AgentByteBoundedQueue<S> implements WithSizeConsumer<S> {
+    // live queues of all reporters, used to evaluate the reporting pressure of the agent
+    private static final Set<AgentByteBoundedQueue<?>> QUEUES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // handed to a consumer blocked on the normal lane when a priority item arrives
+    private static final DataWrapper<?> WAKE_UP = new DataWrapper<>(null, 0);
 
     private final LinkedTransferQueue<DataWrapper<S>> queue = new LinkedTransferQueue<>();
 
+    private final LinkedTransferQueue<DataWrapper<S>> priorityQueue = new LinkedTransferQueue<>();
+
+    private final AtomicInteger count = new AtomicInteger(0);
+
     private final AtomicInteger sizeInBytes = new AtomicInteger(0);
 
-    private final int maxSize;
+    private volatile int maxSize;
+
+    private volatile int maxBytes;
+
+    private volatile int normalMaxSize;
 
-    private final int maxBytes;
+    private volatile int normalMaxBytes;
 
     private final LongAdder loseCounter = new LongAdder();
 
+    private final LongAdder priorityLoseCounter = new LongAdder();
+
+    // nullable
+    private final QueueBudget.Account budget;
+
     public AgentByteBoundedQueue(int maxSize, int maxBytes) {
+        this(maxSize, maxBytes, 0, null);
+    }
+
+    /**
+     * @param priorityReserved percent of maxSize and maxBytes reserved for the priority lane, in range [0, 100]
+     * @param budget           the bytes are also taken from the shared budget, nullable
+     */
+    public AgentByteBoundedQueue(int maxSize, int maxBytes, int priorityReserved, QueueBudget.Account budget) {
+        this.budget = budget;
+        resize(maxSize, maxBytes, priorityReserved);
+        QUEUES.add(this);
+    }
+
+    /**
+     * Change the bounds in place, the queued items are kept in order. When shrunk below the current size,
+     * new items are refused until the consumers drain below the new bounds.
+     */
+    public void resize(int maxSize, int maxBytes, int priorityReserved) {
+        int reserved = Math.max(0, Math.min(100, priorityReserved));
+        this.normalMaxSize = maxSize - (int) ((long) maxSize * reserved / 100);
+        this.normalMaxBytes = maxBytes - (int) ((long) maxBytes * reserved / 100);
         this.maxSize = maxSize;
         this.maxBytes = maxBytes;
     }
 
     @Override
     public boolean offer(S next, int nextSizeInBytes) {
-        if (maxSize == queue.size()) {
-            loseCounter.increment();
+        return offer(next, nextSizeInBytes, false);
+    }
+
+    public boolean offer(S next, int nextSizeInBytes, boolean priority) {
+        int sizeLimit = priority ? maxSize : normalMaxSize;
+        int bytesLimit = priority ? maxBytes : normalMaxBytes;
+        if (count.incrementAndGet() > sizeLimit) {
+            count.decrementAndGet();
+            lose(priority);
             return false;
         }
-        if (sizeInBytes.updateAndGet(pre -> pre + nextSizeInBytes) > maxBytes) {
-            loseCounter.increment();
-            sizeInBytes.updateAndGet(pre -> pre - nextSizeInBytes);
+        if (sizeInBytes.addAndGet(nextSizeInBytes) > bytesLimit
+            || (budget != null && !budget.tryAcquire(nextSizeInBytes, priority))) {
+            sizeInBytes.addAndGet(-nextSizeInBytes);
+            count.decrementAndGet();
+            lose(priority);
             return false;
         }
-        queue.offer(new DataWrapper<>(next, nextSizeInBytes));
+        DataWrapper<S> wrapper = new DataWrapper<>(next, nextSizeInBytes);
+        if (priority) {
+            priorityQueue.offer(wrapper);
+            queue.tryTransfer(wakeUp());
+        } else {
+            queue.offer(wrapper);
+        }
         return true;
     }
 
-    int doDrain(WithSizeConsumer<S> consumer, DataWrapper<S> firstPoll) {
-        int drainedCount = 0;
-        int drainedSizeInBytes = 0;
-        DataWrapper<S> next = firstPoll;
-        do {
-            int nextSizeInBytes = next.getSizeInBytes();
-            if (consumer.offer(next.getElement(), nextSizeInBytes)) {
-                drainedCount++;
-                drainedSizeInBytes += nextSizeInBytes;
-            } else {
-                queue.offer(next);
-                break;
+    private void lose(boolean priority) {
+        loseCounter.increment();
+        if (priority) {
+            priorityLoseCounter.increment();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> DataWrapper<S> wakeUp() {
+        return (DataWrapper<S>) WAKE_UP;
+    }
+
+    /**
+     * Blocks on the normal lane only, a priority item offered right before the wait starts is taken
+     * by the next call, at most {@code nanosTimeout} later, which is the bundling delay anyway.
+     */
+    public int drainTo(WithSizeConsumer<S> consumer, long nanosTimeout) {
+        DataWrapper<S> firstPoll = null;
+        if (priorityQueue.isEmpty()) {
+            try {
+                firstPoll = queue.poll(nanosTimeout, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                return 0;
+            }
+            if (firstPoll == null) {
+                return 0;
+            }
+            if (firstPoll == WAKE_UP) {
+                firstPoll = null;
             }
-        } while ((next = queue.poll()) != null);
-        final int updateValue = drainedSizeInBytes;
+        }
+        Drain<S> drain = new Drain<>(consumer);
+        drain.drain(priorityQueue, priorityQueue.poll());
+        if (firstPoll != null || !drain.full) {
+            drain.drain(queue, firstPoll != null ? firstPoll : queue.poll());
+        }
+        final int updateValue = drain.drainedSizeInBytes;
         sizeInBytes.updateAndGet(pre -> pre - updateValue);
-        return drainedCount;
+        count.addAndGet(-drain.drainedCount);
+        if (budget != null) {
+            budget.release(updateValue);
+        }
+        return drain.drainedCount;
     }
 
-    public int drainTo(WithSizeConsumer<S> consumer, long nanosTimeout) {
-        DataWrapper<S> firstPoll;
-        try {
-            firstPoll = queue.poll(nanosTimeout, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            return 0;
+    private static class Drain<S> {
+        final WithSizeConsumer<S> consumer;
+        int drainedCount = 0;
+        int drainedSizeInBytes = 0;
+        boolean full = false;
+
+        Drain(WithSizeConsumer<S> consumer) {
+            this.consumer = consumer;
         }
-        if (firstPoll == null) {
-            return 0;
+
+        void drain(LinkedTransferQueue<DataWrapper<S>> lane, DataWrapper<S> firstPoll) {
+            DataWrapper<S> next = firstPoll;
+            while (next != null) {
+                if (next != WAKE_UP) {
+                    if (full || !consumer.offer(next.getElement(), next.getSizeInBytes())) {
+                        full = true;
+                        lane.offer(next);
+                        return;
+                    }
+                    drainedCount++;
+                    drainedSizeInBytes += next.getSizeInBytes();
+                }
+                next = lane.poll();
+            }
         }
-        return doDrain(consumer, firstPoll);
     }
 
     public int getCount() {
-        return queue.size();
+        return count.get();
+    }
+
+    /**
+     * O(n), for monitoring only
+     */
+    public int getPriorityCount() {
+        return priorityQueue.size();
     }
 
     public int getSizeInBytes() {
@@ -104,21 +215,69 @@ public final class AgentByteBoundedQueue<S> implements WithSizeConsumer<S> {
     }
 
     public int clear() {
-        DataWrapper<S> data;
         int result = 0;
         int removeBytes = 0;
-        while ((data = queue.poll()) != null) {
-            removeBytes += data.getSizeInBytes();
-            result++;
+        for (LinkedTransferQueue<DataWrapper<S>> lane : Arrays.asList(priorityQueue, queue)) {
+            DataWrapper<S> data;
+            while ((data = lane.poll()) != null) {
+                removeBytes += data.getSizeInBytes();
+                result++;
+            }
         }
         sizeInBytes.addAndGet(removeBytes * -1);
+        count.addAndGet(-result);
+        if (budget != null) {
+            budget.release(removeBytes);
+        }
         return result;
     }
 
+    /**
+     * @return items refused by the queue, whichever lane they were offered to
+     */
     public long getLoseCount() {
         return loseCounter.longValue();
     }
 
+    /**
+     * @return items refused by the priority lane only, they are also counted by {@link #getLoseCount()}
+     */
+    public long getPriorityLoseCount() {
+        return priorityLoseCounter.longValue();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the larger one of count usage and bytes usage, in range [0, 1]
+     */
+    public double getUsage() {
+        int size = maxSize;
+        int bytes = maxBytes;
+        double countUsage = size <= 0 ? 0 : (double) count.get() / size;
+        double bytesUsage = bytes <= 0 ? 0 : (double) sizeInBytes.get() / bytes;
+        return Math.min(1.0, Math.max(countUsage, bytesUsage));
+    }
+
+    /**
+     * @return the highest usage of all live queues
+     */
+    public static double maxUsage() {
+        double max = 0;
+        synchronized (QUEUES) {
+            for (AgentByteBoundedQueue<?> one : QUEUES) {
+                max = Math.max(max, one.getUsage());
+            }
+        }
+        return max;
+    }
+
     @Data
     private static class DataWrapper<S> {
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder;
+
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
+import com.megaease.easeagent.report.util.TextUtils;
+import zipkin2.internal.JsonEscaper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JSON encoder which can pack a batch into an envelope instead of a bare array:
+ * <pre>{"resource":{"service":"s","system":"sys"},"records":[{...},{...}]}</pre>
+ * The resource fields are shared by every record of the batch and are written once,
+ * records then only carry their own fields. The envelope is off by default,
+ * it is switched on by {@code reporter.<signal>.encoder.envelope=true} before {@link #init}.
+ *
+ * @param <T> abstract type
+ */
+public abstract class JsonEnvelopeEncoder<T> extends JsonEncoder<T> {
+    static final byte[] RESOURCE_PREFIX = "{\"resource\":".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] RECORDS_PREFIX = ",\"records\":".getBytes(StandardCharsets.US_ASCII);
+    static final int ENVELOPE_SIZE = RESOURCE_PREFIX.length + RECORDS_PREFIX.length + 1;
+
+    protected boolean envelope = false;
+    private volatile Resource resource;
+
+    public void setEnvelope(boolean envelope) {
+        this.envelope = envelope;
+    }
+
+    public boolean isEnvelope() {
+        return this.envelope;
+    }
+
+    /**
+     * The shared fields of the current batch as a json object, only called in envelope mode.
+     *
+     * @return encoded resource object
+     */
+    protected abstract byte[] resource();
+
+    @Override
+    public EncodedData encodeList(List<EncodedData> encodedItems) {
+        EncodedData array = super.encodeList(encodedItems);
+        if (!this.envelope) {
+            return array;
+        }
+        byte[] r = resource();
+        byte[] records = array.getData();
+        byte[] buf = new byte[ENVELOPE_SIZE + r.length + records.length];
+        int pos = copy(RESOURCE_PREFIX, buf, 0);
+        pos = copy(r, buf, pos);
+        pos = copy(RECORDS_PREFIX, buf, pos);
+        pos = copy(records, buf, pos);
+        buf[pos] = '}';
+        return new ByteWrapper(buf);
+    }
+
+    @Override
+    public int packageSizeInBytes(List<Integer> sizes) {
+        int size = super.packageSizeInBytes(sizes);
+        if (!this.envelope) {
+            return size;
+        }
+        return size + ENVELOPE_SIZE + resource().length;
+    }
+
+    /**
+     * Encode key value pairs as a json object, pairs with empty value are skipped.
+     * The result is cached until one of the values changes.
+     *
+     * @param keyValues key1, value1, key2, value2...
+     * @return encoded json object
+     */
+    protected byte[] resource(String... keyValues) {
+        Resource r = this.resource;
+        if (r != null && Arrays.equals(r.keyValues, keyValues)) {
+            return r.data;
+        }
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            if (!TextUtils.hasText(keyValues[i + 1])) {
+                continue;
+            }
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append('\"').append(keyValues[i]).append("\":\"")
+                .append(JsonEscaper.jsonEscape(keyValues[i + 1])).append('\"');
+        }
+        sb.append('}');
+        r = new Resource(keyValues, sb.toString().getBytes(StandardCharsets.UTF_8));
+        this.resource = r;
+        return r.data;
+    }
+
+    private static int copy(byte[] src, byte[] dest, int pos) {
+        System.arraycopy(src, 0, dest, pos, src.length);
+        return pos + src.length;
+    }
+
+    static class Resource {
+        final String[] keyValues;
+        final byte[] data;
+
+        Resource(String[] keyValues, byte[] data) {
+            this.keyValues = keyValues;
+            this.data = data;
+        }
+    }
+}
@@ -21,16 +21,21 @@ import com.google.auto.service.AutoService;
 import com.megaease.easeagent.config.report.ReportConfigConst;
 import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.report.ByteWrapper;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
-import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
+import com.megaease.easeagent.plugin.utils.common.HostAddress;
+import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.JsonEnvelopeEncoder;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
 import zipkin2.internal.JsonCodec;
 
 @AutoService(Encoder.class)
-public class AccessLogJsonEncoder extends JsonEncoder<AccessLogInfo> {
+public class AccessLogJsonEncoder extends JsonEnvelopeEncoder<AccessLogInfo> {
     public static final String ENCODER_NAME = ReportConfigConst.ACCESS_LOG_JSON_ENCODER_NAME;
 
+    GlobalExtrasSupplier extrasSupplier;
     AccessLogWriter writer;
 
     @Override
@@ -40,7 +45,8 @@ public class AccessLogJsonEncoder extends JsonEncoder<AccessLogInfo> {
 
     @Override
     public void init(Config config) {
-        this.writer = new AccessLogWriter();
+        this.extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
+        this.writer = new AccessLogWriter(envelope ? this.extrasSupplier : null);
     }
 
     @Override
@@ -64,4 +70,12 @@ public class AccessLogJsonEncoder extends JsonEncoder<AccessLogInfo> {
             return new ByteWrapper(new byte[0]);
         }
     }
+
+    @Override
+    protected byte[] resource() {
+        return resource("service", extrasSupplier.service(),
+            "system", extrasSupplier.system(),
+            "host_name", HostAddress.localhost(),
+            "host_ipv4", HostAddress.getHostIpv4());
+    }
 }
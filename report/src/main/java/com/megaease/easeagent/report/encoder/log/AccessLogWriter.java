@@ -18,6 +18,8 @@
 package com.megaease.easeagent.report.encoder.log;
 
 import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
+import com.megaease.easeagent.plugin.utils.common.HostAddress;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
 import zipkin2.internal.JsonEscaper;
 import zipkin2.internal.WriteBuffer;
 
@@ -52,8 +54,6 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
         + TRACE_ID_FIELD_NAME.length() + 1
         + SPAN_ID_FIELD_NAME.length() + 1
         // + PARENT_ID_FIELD_NAME.length() + 1
-        + SERVICE_FIELD_NAME.length() + 1
-        + SYSTEM_FIELD_NAME.length() + 1
         + METHOD_FIELD_NAME.length() + 1
         + CATEGORY_FIELD_NAME.length() + 1
         + HEADERS_FIELD_NAME.length()
@@ -64,11 +64,21 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
         + RESPONSE_SIZE_FIELD_NAME.length()
         + REQUEST_TIME_FIELD_NAME.length()
         + CPU_ELAPSED_TIME_FIELD_NAME.length()
-        + HOST_NAME_FIELD_NAME.length() + 1
-        + HOST_IPV4_FIELD_NAME.length() + 1
         + MATCH_URL_FIELD_NAME.length() + 1
         + TIMESTAMP_FIELD_NAME.length();
 
+    /**
+     * Fields equal to the shared resource are left to the batch envelope, null to write all fields.
+     */
+    final GlobalExtrasSupplier resource;
+
+    public AccessLogWriter() {
+        this(null);
+    }
+
+    public AccessLogWriter(GlobalExtrasSupplier resource) {
+        this.resource = resource;
+    }
 
     @Override
     public int sizeInBytes(AccessLogInfo value) {
@@ -89,8 +99,14 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
             size += stringSizeInBytes(value.getParentSpanId());
         }
 
-        size += JsonEscaper.jsonEscapedSizeInBytes(value.getService());
-        size += JsonEscaper.jsonEscapedSizeInBytes(value.getSystem());
+        if (!isShared(value.getService(), resource == null ? null : resource.service())) {
+            size += SERVICE_FIELD_NAME.length() + 1;
+            size += JsonEscaper.jsonEscapedSizeInBytes(value.getService());
+        }
+        if (!isShared(value.getSystem(), resource == null ? null : resource.system())) {
+            size += SYSTEM_FIELD_NAME.length() + 1;
+            size += JsonEscaper.jsonEscapedSizeInBytes(value.getSystem());
+        }
 
         size +=value.getMethod().length();
         size +=value.getCategory().length();
@@ -107,9 +123,14 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
         size += WriteBuffer.asciiSizeInBytes(value.getResponseSize());
         size += WriteBuffer.asciiSizeInBytes(value.getRequestTime());
         size += WriteBuffer.asciiSizeInBytes(value.getCpuElapsedTime());
-        size += JsonEscaper.jsonEscapedSizeInBytes(value.getHostName());
-
-        size += value.getHostIpv4().length();
+        if (!isShared(value.getHostName(), resource == null ? null : HostAddress.localhost())) {
+            size += HOST_NAME_FIELD_NAME.length() + 1;
+            size += JsonEscaper.jsonEscapedSizeInBytes(value.getHostName());
+        }
+        if (!isShared(value.getHostIpv4(), resource == null ? null : HostAddress.getHostIpv4())) {
+            size += HOST_IPV4_FIELD_NAME.length() + 1;
+            size += value.getHostIpv4().length();
+        }
         size += JsonEscaper.jsonEscapedSizeInBytes(value.getMatchUrl());
         size += WriteBuffer.asciiSizeInBytes(value.getTimestamp());
 
@@ -140,13 +161,17 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
             writeAscii(value.getParentSpanId(), b);
             b.writeByte('\"');
         }
-        b.writeAscii(SERVICE_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value.getService()));
-        b.writeByte('\"');
+        if (!isShared(value.getService(), resource == null ? null : resource.service())) {
+            b.writeAscii(SERVICE_FIELD_NAME);
+            b.writeUtf8(JsonEscaper.jsonEscape(value.getService()));
+            b.writeByte('\"');
+        }
 
-        b.writeAscii(SYSTEM_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value.getSystem()));
-        b.writeByte('\"');
+        if (!isShared(value.getSystem(), resource == null ? null : resource.system())) {
+            b.writeAscii(SYSTEM_FIELD_NAME);
+            b.writeUtf8(JsonEscaper.jsonEscape(value.getSystem()));
+            b.writeByte('\"');
+        }
 
         b.writeAscii(METHOD_FIELD_NAME);
         b.writeAscii(value.getMethod());
@@ -183,13 +208,17 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
         b.writeAscii(CPU_ELAPSED_TIME_FIELD_NAME);
         b.writeAscii(value.getCpuElapsedTime());
 
-        b.writeAscii(HOST_NAME_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value.getHostName()));
-        b.writeByte('\"');
+        if (!isShared(value.getHostName(), resource == null ? null : HostAddress.localhost())) {
+            b.writeAscii(HOST_NAME_FIELD_NAME);
+            b.writeUtf8(JsonEscaper.jsonEscape(value.getHostName()));
+            b.writeByte('\"');
+        }
 
-        b.writeAscii(HOST_IPV4_FIELD_NAME);
-        b.writeAscii(value.getHostIpv4());
-        b.writeByte('\"');
+        if (!isShared(value.getHostIpv4(), resource == null ? null : HostAddress.getHostIpv4())) {
+            b.writeAscii(HOST_IPV4_FIELD_NAME);
+            b.writeAscii(value.getHostIpv4());
+            b.writeByte('\"');
+        }
 
         b.writeAscii(MATCH_URL_FIELD_NAME);
         b.writeUtf8(JsonEscaper.jsonEscape(value.getMatchUrl()));
@@ -235,6 +264,10 @@ public class AccessLogWriter implements WriteBuffer.Writer<AccessLogInfo> {
         b.writeByte('}');
     }
 
+    private static boolean isShared(String v, String shared) {
+        return shared != null && shared.equals(v);
+    }
+
     private int stringSizeInBytes(String v) {
         if (v == null) {
             return "null".length() + 2;
@@ -24,10 +24,13 @@ import com.megaease.easeagent.plugin.api.config.ChangeItem;
 import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.config.ConfigChangeListener;
 import com.megaease.easeagent.plugin.api.otlp.common.AgentLogData;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.report.ByteWrapper;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
-import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
+import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.JsonEnvelopeEncoder;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
 import zipkin2.internal.JsonCodec;
 
 import java.util.HashMap;
@@ -36,19 +39,22 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import static com.megaease.easeagent.config.report.ReportConfigConst.ENCODER_KEY;
+import static com.megaease.easeagent.config.report.ReportConfigConst.ENVELOPE_KEY;
 
 @AutoService(Encoder.class)
-public class LogDataJsonEncoder extends JsonEncoder<AgentLogData> implements ConfigChangeListener {
+public class LogDataJsonEncoder extends JsonEnvelopeEncoder<AgentLogData> implements ConfigChangeListener {
     public static final String ENCODER_NAME = ReportConfigConst.LOG_DATA_JSON_ENCODER_NAME;
 
     Config encoderConfig;
+    GlobalExtrasSupplier extrasSupplier;
     LogDataWriter writer;
 
     @Override
     public void init(Config config) {
         config.addChangeListener(this);
         this.encoderConfig = new Configs(getEncoderConfig(config.getConfigs()));
-        this.writer = new LogDataWriter(this.encoderConfig);
+        this.extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
+        this.writer = new LogDataWriter(this.encoderConfig, envelope ? this.extrasSupplier : null);
     }
 
     @Override
@@ -70,6 +76,12 @@ public class LogDataJsonEncoder extends JsonEncoder<AgentLogData> implements Con
         }
     }
 
+    @Override
+    protected byte[] resource() {
+        return resource("service", extrasSupplier.service(),
+            "system", extrasSupplier.system());
+    }
+
     @Override
     public String name() {
         return ENCODER_NAME;
@@ -89,14 +101,14 @@ public class LogDataJsonEncoder extends JsonEncoder<AgentLogData> implements Con
         Map<String, String> cfg = this.encoderConfig.getConfigs();
         cfg.putAll(encoderChanges);
         this.encoderConfig = new Configs(cfg);
-        this.writer = new LogDataWriter(this.encoderConfig);
+        this.writer = new LogDataWriter(this.encoderConfig, envelope ? this.extrasSupplier : null);
     }
 
     private Map<String, String> getEncoderConfig(Map<String, String> cfgMap) {
         Map<String, String> encoderMap = new TreeMap<>();
 
         cfgMap.forEach((k, v) -> {
-            if (k.contains(ENCODER_KEY) && !k.endsWith(ENCODER_KEY)) {
+            if (k.contains(ENCODER_KEY) && !k.endsWith(ENCODER_KEY) && !k.endsWith(ENVELOPE_KEY)) {
                 encoderMap.put(k.substring(k.lastIndexOf('.') + 1), v);
             }
         });
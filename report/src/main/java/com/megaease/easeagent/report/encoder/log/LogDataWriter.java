@@ -21,6 +21,7 @@ import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.otlp.common.AgentLogData;
 import com.megaease.easeagent.plugin.utils.common.StringUtils;
 import com.megaease.easeagent.report.encoder.log.pattern.LogDataPatternFormatter;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
 import io.opentelemetry.api.trace.SpanContext;
 import org.apache.logging.log4j.core.layout.PatternLayout;
 import org.apache.logging.log4j.core.pattern.PatternParser;
@@ -76,9 +77,7 @@ public class LogDataWriter implements WriteBuffer.Writer<AgentLogData> {
     static final String MESSAGE = "message";
 
     static final int STATIC_SIZE = 2
-        + TYPE_FIELD_NAME.length()
-        + SERVICE_FIELD_NAME.length() + 1
-        + SYSTEM_FIELD_NAME.length() + 1;
+        + TYPE_FIELD_NAME.length();
 
     private static final ThreadLocal<StringBuilder> threadLocal = new ThreadLocal<>();
 
@@ -98,8 +97,18 @@ public class LogDataWriter implements WriteBuffer.Writer<AgentLogData> {
 
     Map<String, List<LogDataPatternFormatter>> customFields = new HashMap<>();
 
+    /**
+     * service/system equal to the shared resource are left to the batch envelope, null to write them all.
+     */
+    final GlobalExtrasSupplier resource;
+
     public LogDataWriter(Config cfg) {
+        this(cfg, null);
+    }
+
+    public LogDataWriter(Config cfg, GlobalExtrasSupplier resource) {
         this.config = cfg;
+        this.resource = resource;
         this.parser = PatternLayout.createPatternParser(null);
         initFormatters();
     }
@@ -108,8 +117,16 @@ public class LogDataWriter implements WriteBuffer.Writer<AgentLogData> {
     public int sizeInBytes(AgentLogData value) {
         int size = STATIC_SIZE;
 
-        size += JsonEscaper.jsonEscapedSizeInBytes(value.getAgentResource().getService());
-        size += JsonEscaper.jsonEscapedSizeInBytes(value.getAgentResource().getSystem());
+        String service = value.getAgentResource().getService();
+        if (!isShared(service, resource == null ? null : resource.service())) {
+            size += SERVICE_FIELD_NAME.length() + 1;
+            size += JsonEscaper.jsonEscapedSizeInBytes(service);
+        }
+        String system = value.getAgentResource().getSystem();
+        if (!isShared(system, resource == null ? null : resource.system())) {
+            size += SYSTEM_FIELD_NAME.length() + 1;
+            size += JsonEscaper.jsonEscapedSizeInBytes(system);
+        }
 
         if (!value.getSpanContext().equals(SpanContext.getInvalid())) {
             size += TRACE_ID_FIELD_NAME.length() + value.getSpanContext().getTraceId().length() + 1;
@@ -161,13 +178,19 @@ public class LogDataWriter implements WriteBuffer.Writer<AgentLogData> {
         }
 
         // resource - system/service
-        b.writeAscii(SERVICE_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value.getAgentResource().getService()));
-        b.writeByte('\"');
+        String service = value.getAgentResource().getService();
+        if (!isShared(service, resource == null ? null : resource.service())) {
+            b.writeAscii(SERVICE_FIELD_NAME);
+            b.writeUtf8(JsonEscaper.jsonEscape(service));
+            b.writeByte('\"');
+        }
 
-        b.writeAscii(SYSTEM_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value.getAgentResource().getSystem()));
-        b.writeByte('\"');
+        String system = value.getAgentResource().getSystem();
+        if (!isShared(system, resource == null ? null : resource.system())) {
+            b.writeAscii(SYSTEM_FIELD_NAME);
+            b.writeUtf8(JsonEscaper.jsonEscape(system));
+            b.writeByte('\"');
+        }
 
         if (this.dateTypeIsNumber) {
             b.writeAscii(TIMESTAMP_NUM_FILED_NAME);
@@ -195,6 +218,10 @@ public class LogDataWriter implements WriteBuffer.Writer<AgentLogData> {
 
     }
 
+    private static boolean isShared(String v, String shared) {
+        return shared != null && shared.equals(v);
+    }
+
     /**
      *  count size written by @{link writeKeyValue}
      * @return size
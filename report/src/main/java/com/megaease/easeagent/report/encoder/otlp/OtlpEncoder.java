@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.otlp;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
+import com.megaease.easeagent.report.encoder.span.okhttp.ProtobufRequestBody;
+import com.megaease.easeagent.report.util.TextUtils;
+import zipkin2.internal.WriteBuffer;
+
+import java.util.List;
+
+import static com.megaease.easeagent.report.util.Proto3.*;
+
+/**
+ * Base of the OTLP/HTTP protobuf encoders of traces, metrics and logs.
+ * <p>
+ * The export requests of the three signals share their layout:
+ * request { 1: resource_X { 1: resource, 2: scope_X { 1: scope, 2: items } } }.
+ * An item is encoded as the repeated field 2 of the scope, so a list is the items concatenated into one envelope,
+ * and the resource attributes are written once per request.
+ */
+public abstract class OtlpEncoder<T> implements Encoder<T> {
+    static final int RESOURCE_X_FIELD = 1;
+    static final int RESOURCE_FIELD = 1;
+    static final int SCOPE_X_FIELD = 2;
+    static final int SCOPE_FIELD = 1;
+    static final int ITEM_FIELD = 2;
+
+    static final int RESOURCE_ATTRIBUTES_FIELD = 1;
+    static final int SCOPE_NAME_FIELD = 1;
+
+    static final int KEY_VALUE_KEY_FIELD = 1;
+    static final int KEY_VALUE_VALUE_FIELD = 2;
+
+    static final int ANY_STRING_FIELD = 1;
+    static final int ANY_BOOL_FIELD = 2;
+    static final int ANY_INT_FIELD = 3;
+    static final int ANY_DOUBLE_FIELD = 4;
+
+    static final String SCOPE_NAME = "easeagent";
+    static final String SERVICE_NAME = "service.name";
+    static final String SERVICE_NAMESPACE = "service.namespace";
+    static final String SDK_NAME = "telemetry.sdk.name";
+    static final String SDK_LANGUAGE = "telemetry.sdk.language";
+
+    /**
+     * the lengths of the three envelopes may each take one more byte when an item is appended
+     */
+    static final int APPEND_SLACK = 3;
+
+    GlobalExtrasSupplier extras;
+
+    @Override
+    public void init(Config config) {
+        this.extras = GlobalExtractor.getInstance(EaseAgent.getConfig());
+    }
+
+    @Override
+    public EncodedData encodeList(List<EncodedData> encodedItems) {
+        int items = 0;
+        for (EncodedData item : encodedItems) {
+            items += item.size();
+        }
+        String service = text(extras.service());
+        String system = text(extras.system());
+        int resourceSize = resourceSizeInBytes(service, system);
+        int scopeXSize = scopeXSizeInBytes(items);
+        int resourceXSize = resourceXSizeInBytes(resourceSize, scopeXSize);
+
+        byte[] data = new byte[sizeOfLengthDelimited(RESOURCE_X_FIELD, resourceXSize)];
+        WriteBuffer b = WriteBuffer.wrap(data);
+        writeLengthDelimited(b, RESOURCE_X_FIELD, resourceXSize);
+        writeLengthDelimited(b, RESOURCE_FIELD, resourceSize);
+        writeAttribute(b, RESOURCE_ATTRIBUTES_FIELD, SERVICE_NAME, service);
+        writeAttribute(b, RESOURCE_ATTRIBUTES_FIELD, SERVICE_NAMESPACE, system);
+        writeAttribute(b, RESOURCE_ATTRIBUTES_FIELD, SDK_NAME, SCOPE_NAME);
+        writeAttribute(b, RESOURCE_ATTRIBUTES_FIELD, SDK_LANGUAGE, "java");
+        writeLengthDelimited(b, SCOPE_X_FIELD, scopeXSize);
+        writeLengthDelimited(b, SCOPE_FIELD, scopeSizeInBytes());
+        writeString(b, SCOPE_NAME_FIELD, SCOPE_NAME);
+        for (EncodedData item : encodedItems) {
+            b.write(item.getData());
+        }
+        return new ProtobufRequestBody(data);
+    }
+
+    @Override
+    public int appendSizeInBytes(int newMsgSize) {
+        return newMsgSize + APPEND_SLACK;
+    }
+
+    @Override
+    public int packageSizeInBytes(List<Integer> sizes) {
+        int items = 0;
+        if (sizes != null) {
+            for (Integer size : sizes) {
+                items += size;
+            }
+        }
+        int resourceSize = resourceSizeInBytes(text(extras.service()), text(extras.system()));
+        int resourceXSize = resourceXSizeInBytes(resourceSize, scopeXSizeInBytes(items));
+        return sizeOfLengthDelimited(RESOURCE_X_FIELD, resourceXSize);
+    }
+
+    static int resourceSizeInBytes(String service, String system) {
+        return sizeOfAttribute(RESOURCE_ATTRIBUTES_FIELD, SERVICE_NAME, service)
+            + sizeOfAttribute(RESOURCE_ATTRIBUTES_FIELD, SERVICE_NAMESPACE, system)
+            + sizeOfAttribute(RESOURCE_ATTRIBUTES_FIELD, SDK_NAME, SCOPE_NAME)
+            + sizeOfAttribute(RESOURCE_ATTRIBUTES_FIELD, SDK_LANGUAGE, "java");
+    }
+
+    static int scopeSizeInBytes() {
+        return sizeOfString(SCOPE_NAME_FIELD, SCOPE_NAME);
+    }
+
+    static int scopeXSizeInBytes(int items) {
+        return sizeOfLengthDelimited(SCOPE_FIELD, scopeSizeInBytes()) + items;
+    }
+
+    static int resourceXSizeInBytes(int resourceSize, int scopeXSize) {
+        return sizeOfLengthDelimited(RESOURCE_FIELD, resourceSize) + sizeOfLengthDelimited(SCOPE_X_FIELD, scopeXSize);
+    }
+
+    static String text(String value) {
+        return TextUtils.hasText(value) ? value : null;
+    }
+
+    /**
+     * size of a KeyValue field, 0 when the value is null
+     */
+    static int sizeOfAttribute(int field, String key, Object value) {
+        if (value == null) {
+            return 0;
+        }
+        return sizeOfLengthDelimited(field, keyValueSizeInBytes(key, value));
+    }
+
+    static void writeAttribute(WriteBuffer b, int field, String key, Object value) {
+        if (value == null) {
+            return;
+        }
+        writeLengthDelimited(b, field, keyValueSizeInBytes(key, value));
+        writeString(b, KEY_VALUE_KEY_FIELD, key);
+        writeLengthDelimited(b, KEY_VALUE_VALUE_FIELD, anyValueSizeInBytes(value));
+        writeAnyValue(b, value);
+    }
+
+    static int keyValueSizeInBytes(String key, Object value) {
+        return sizeOfString(KEY_VALUE_KEY_FIELD, key) + sizeOfLengthDelimited(KEY_VALUE_VALUE_FIELD, anyValueSizeInBytes(value));
+    }
+
+    /**
+     * the value is a oneof, it is written even when it is the default one
+     */
+    static int anyValueSizeInBytes(Object value) {
+        if (value instanceof Boolean) {
+            return sizeOfKey(ANY_BOOL_FIELD) + 1;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return sizeOfKey(ANY_INT_FIELD) + WriteBuffer.varintSizeInBytes(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            return sizeOfKey(ANY_DOUBLE_FIELD) + 8;
+        }
+        return sizeOfLengthDelimited(ANY_STRING_FIELD, WriteBuffer.utf8SizeInBytes(value.toString()));
+    }
+
+    static void writeAnyValue(WriteBuffer b, Object value) {
+        if (value instanceof Boolean) {
+            writeKey(b, ANY_BOOL_FIELD, WIRETYPE_VARINT);
+            b.writeByte((Boolean) value ? 1 : 0);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeKey(b, ANY_INT_FIELD, WIRETYPE_VARINT);
+            b.writeVarint(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            writeKey(b, ANY_DOUBLE_FIELD, WIRETYPE_FIXED64);
+            b.writeLongLe(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else {
+            String s = value.toString();
+            writeLengthDelimited(b, ANY_STRING_FIELD, WriteBuffer.utf8SizeInBytes(s));
+            b.writeUtf8(s);
+        }
+    }
+
+    /**
+     * @param size size of the item message, it is written as the repeated field of the scope
+     */
+    static byte[] newItem(int size) {
+        return new byte[sizeOfLengthDelimited(ITEM_FIELD, size)];
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.otlp;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.config.report.ReportConfigConst;
+import com.megaease.easeagent.plugin.api.otlp.common.AgentLogData;
+import com.megaease.easeagent.plugin.api.otlp.common.SemanticKey;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.logs.data.Body;
+import io.opentelemetry.sdk.logs.data.Severity;
+import zipkin2.internal.WriteBuffer;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static com.megaease.easeagent.report.util.Proto3.*;
+
+/**
+ * Encode log records as OTLP ExportLogsServiceRequest.
+ * The logger and thread names and the exception are attributes, the record is encoded once and kept in the log data.
+ */
+@AutoService(Encoder.class)
+@SuppressWarnings("unused")
+public class OtlpLogEncoder extends OtlpEncoder<AgentLogData> {
+    public static final String ENCODER_NAME = ReportConfigConst.OTLP_LOG_ENCODER_NAME;
+
+    static final int TIME_FIELD = 1;
+    static final int SEVERITY_NUMBER_FIELD = 2;
+    static final int SEVERITY_TEXT_FIELD = 3;
+    static final int BODY_FIELD = 5;
+    static final int ATTRIBUTES_FIELD = 6;
+    static final int TRACE_ID_FIELD = 9;
+    static final int SPAN_ID_FIELD = 10;
+
+    static final String LOGGER_NAME = "logger.name";
+
+    @Override
+    public String name() {
+        return ENCODER_NAME;
+    }
+
+    @Override
+    public int sizeInBytes(AgentLogData input) {
+        return encode(input).size();
+    }
+
+    @Override
+    public EncodedData encode(AgentLogData input) {
+        EncodedData encoded = input.getEncodedData();
+        if (encoded != null) {
+            return encoded;
+        }
+        Throwable throwable = input.getThrowable();
+        String stackTrace = throwable == null ? null : stackTrace(throwable);
+        int size = recordSizeInBytes(input, throwable, stackTrace);
+        byte[] data = newItem(size);
+        WriteBuffer b = WriteBuffer.wrap(data);
+        writeLengthDelimited(b, ITEM_FIELD, size);
+
+        writeFixed64(b, TIME_FIELD, input.getEpochNanos());
+        writeVarint(b, SEVERITY_NUMBER_FIELD, severity(input.getSeverity()));
+        writeString(b, SEVERITY_TEXT_FIELD, input.getSeverityText());
+        String body = body(input.getBody());
+        if (body != null) {
+            writeLengthDelimited(b, BODY_FIELD, anyValueSizeInBytes(body));
+            writeAnyValue(b, body);
+        }
+        Attributes attributes = input.getAttributes();
+        if (attributes != null) {
+            attributes.forEach((k, v) -> writeAttribute(b, ATTRIBUTES_FIELD, k.getKey(), v));
+        }
+        writeAttribute(b, ATTRIBUTES_FIELD, LOGGER_NAME, text(input.getLocation()));
+        writeAttribute(b, ATTRIBUTES_FIELD, SemanticKey.THREAD_NAME.getKey(), text(input.getThreadName()));
+        if (throwable != null) {
+            writeAttribute(b, ATTRIBUTES_FIELD, SemanticKey.EXCEPTION_TYPE.getKey(), throwable.getClass().getName());
+            writeAttribute(b, ATTRIBUTES_FIELD, SemanticKey.EXCEPTION_MESSAGE.getKey(), throwable.getMessage());
+            writeAttribute(b, ATTRIBUTES_FIELD, SemanticKey.EXCEPTION_STACKTRACE.getKey(), stackTrace);
+        }
+        SpanContext spanContext = input.getSpanContext();
+        if (spanContext != null && spanContext.isValid()) {
+            writeHex(b, TRACE_ID_FIELD, spanContext.getTraceId(), 0);
+            writeHex(b, SPAN_ID_FIELD, spanContext.getSpanId(), 0);
+        }
+
+        encoded = new ByteWrapper(data);
+        input.setEncodedData(encoded);
+        return encoded;
+    }
+
+    static int recordSizeInBytes(AgentLogData input, Throwable throwable, String stackTrace) {
+        int size = sizeOfFixed64(TIME_FIELD, input.getEpochNanos());
+        size += sizeOfVarint(SEVERITY_NUMBER_FIELD, severity(input.getSeverity()));
+        size += sizeOfString(SEVERITY_TEXT_FIELD, input.getSeverityText());
+        String body = body(input.getBody());
+        if (body != null) {
+            size += sizeOfLengthDelimited(BODY_FIELD, anyValueSizeInBytes(body));
+        }
+        Attributes attributes = input.getAttributes();
+        if (attributes != null) {
+            int[] attributesSize = new int[1];
+            attributes.forEach((k, v) -> attributesSize[0] += sizeOfAttribute(ATTRIBUTES_FIELD, k.getKey(), v));
+            size += attributesSize[0];
+        }
+        size += sizeOfAttribute(ATTRIBUTES_FIELD, LOGGER_NAME, text(input.getLocation()));
+        size += sizeOfAttribute(ATTRIBUTES_FIELD, SemanticKey.THREAD_NAME.getKey(), text(input.getThreadName()));
+        if (throwable != null) {
+            size += sizeOfAttribute(ATTRIBUTES_FIELD, SemanticKey.EXCEPTION_TYPE.getKey(), throwable.getClass().getName());
+            size += sizeOfAttribute(ATTRIBUTES_FIELD, SemanticKey.EXCEPTION_MESSAGE.getKey(), throwable.getMessage());
+            size += sizeOfAttribute(ATTRIBUTES_FIELD, SemanticKey.EXCEPTION_STACKTRACE.getKey(), stackTrace);
+        }
+        SpanContext spanContext = input.getSpanContext();
+        if (spanContext != null && spanContext.isValid()) {
+            size += sizeOfHex(TRACE_ID_FIELD, spanContext.getTraceId(), 0);
+            size += sizeOfHex(SPAN_ID_FIELD, spanContext.getSpanId(), 0);
+        }
+        return size;
+    }
+
+    static int severity(Severity severity) {
+        return severity == null ? 0 : severity.getSeverityNumber();
+    }
+
+    static String body(Body body) {
+        if (body == null) {
+            return null;
+        }
+        String value = body.asString();
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    static String stackTrace(Throwable throwable) {
+        StringWriter writer = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
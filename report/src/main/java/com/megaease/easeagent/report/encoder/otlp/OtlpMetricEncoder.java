@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.otlp;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.config.report.ReportConfigConst;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import zipkin2.internal.WriteBuffer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.megaease.easeagent.report.util.Proto3.*;
+
+/**
+ * Encode the converted metrics as OTLP ExportMetricsServiceRequest.
+ * Each numeric field of a metric map is a gauge named {type}.{field}, with the string fields of the map,
+ * but service and system which are the resource, as the attributes of its data point.
+ * An item is the concatenation of its gauges, it is encoded once and kept in the map until it is sent.
+ */
+@AutoService(Encoder.class)
+@SuppressWarnings("unused")
+public class OtlpMetricEncoder extends OtlpEncoder<Map<String, Object>> {
+    public static final String ENCODER_NAME = ReportConfigConst.OTLP_METRIC_ENCODER_NAME;
+
+    static final String ENCODED_TMP = "__agent_otlp_encoded__";
+    static final String INTERNAL_PREFIX = "__";
+    static final String TIMESTAMP = "timestamp";
+    static final String TYPE = "type";
+    static final String CATEGORY = "category";
+    static final String SERVICE = "service";
+    static final String SYSTEM = "system";
+
+    static final int METRIC_NAME_FIELD = 1;
+    static final int METRIC_GAUGE_FIELD = 5;
+    static final int GAUGE_DATA_POINTS_FIELD = 1;
+    static final int POINT_TIME_FIELD = 3;
+    static final int POINT_AS_DOUBLE_FIELD = 4;
+    static final int POINT_AS_INT_FIELD = 6;
+    static final int POINT_ATTRIBUTES_FIELD = 7;
+
+    @Override
+    public String name() {
+        return ENCODER_NAME;
+    }
+
+    @Override
+    public int sizeInBytes(Map<String, Object> input) {
+        return encode(input).size();
+    }
+
+    @Override
+    public EncodedData encode(Map<String, Object> input) {
+        Object encoded = input.get(ENCODED_TMP);
+        if (encoded instanceof EncodedData) {
+            return (EncodedData) encoded;
+        }
+        String prefix = prefix(input);
+        long timeNanos = timeNanos(input);
+        int attributesSize = attributesSizeInBytes(input);
+        int size = 0;
+        for (Map.Entry<String, Object> entry : input.entrySet()) {
+            if (isValue(entry)) {
+                size += sizeOfLengthDelimited(ITEM_FIELD,
+                    metricSizeInBytes(prefix, entry.getKey(), timeNanos, attributesSize));
+            }
+        }
+        byte[] data = new byte[size];
+        WriteBuffer b = WriteBuffer.wrap(data);
+        for (Map.Entry<String, Object> entry : input.entrySet()) {
+            if (!isValue(entry)) {
+                continue;
+            }
+            String field = entry.getKey();
+            Number value = (Number) entry.getValue();
+            int pointSize = pointSizeInBytes(timeNanos, attributesSize);
+            writeLengthDelimited(b, ITEM_FIELD, metricSizeInBytes(prefix, field, timeNanos, attributesSize));
+            writeLengthDelimited(b, METRIC_NAME_FIELD, nameSizeInBytes(prefix, field));
+            b.writeUtf8(prefix);
+            b.writeUtf8(field);
+            writeLengthDelimited(b, METRIC_GAUGE_FIELD, sizeOfLengthDelimited(GAUGE_DATA_POINTS_FIELD, pointSize));
+            writeLengthDelimited(b, GAUGE_DATA_POINTS_FIELD, pointSize);
+            writeFixed64(b, POINT_TIME_FIELD, timeNanos);
+            writePointValue(b, value);
+            for (Map.Entry<String, Object> attribute : input.entrySet()) {
+                if (isAttribute(attribute)) {
+                    writeAttribute(b, POINT_ATTRIBUTES_FIELD, attribute.getKey(), attribute.getValue());
+                }
+            }
+        }
+        EncodedData result = new ByteWrapper(data);
+        input.put(ENCODED_TMP, result);
+        return result;
+    }
+
+    static int metricSizeInBytes(String prefix, String field, long timeNanos, int attributesSize) {
+        int pointSize = pointSizeInBytes(timeNanos, attributesSize);
+        return sizeOfLengthDelimited(METRIC_NAME_FIELD, nameSizeInBytes(prefix, field))
+            + sizeOfLengthDelimited(METRIC_GAUGE_FIELD, sizeOfLengthDelimited(GAUGE_DATA_POINTS_FIELD, pointSize));
+    }
+
+    static int nameSizeInBytes(String prefix, String field) {
+        return WriteBuffer.utf8SizeInBytes(prefix) + WriteBuffer.utf8SizeInBytes(field);
+    }
+
+    static int pointSizeInBytes(long timeNanos, int attributesSize) {
+        return sizeOfFixed64(POINT_TIME_FIELD, timeNanos) + sizeOfKey(POINT_AS_DOUBLE_FIELD) + 8 + attributesSize;
+    }
+
+    /**
+     * the value is a oneof, it is written even when it is zero, both alternatives are 8 bytes
+     */
+    static void writePointValue(WriteBuffer b, Number value) {
+        if (value instanceof Double || value instanceof Float) {
+            writeKey(b, POINT_AS_DOUBLE_FIELD, WIRETYPE_FIXED64);
+            b.writeLongLe(Double.doubleToRawLongBits(value.doubleValue()));
+        } else {
+            writeKey(b, POINT_AS_INT_FIELD, WIRETYPE_FIXED64);
+            b.writeLongLe(value.longValue());
+        }
+    }
+
+    static int attributesSizeInBytes(Map<String, Object> input) {
+        int size = 0;
+        for (Map.Entry<String, Object> attribute : input.entrySet()) {
+            if (isAttribute(attribute)) {
+                size += sizeOfAttribute(POINT_ATTRIBUTES_FIELD, attribute.getKey(), attribute.getValue());
+            }
+        }
+        return size;
+    }
+
+    static boolean isValue(Map.Entry<String, Object> entry) {
+        return entry.getValue() instanceof Number && !TIMESTAMP.equals(entry.getKey())
+            && !entry.getKey().startsWith(INTERNAL_PREFIX);
+    }
+
+    static boolean isAttribute(Map.Entry<String, Object> entry) {
+        return entry.getValue() instanceof String && !SERVICE.equals(entry.getKey()) && !SYSTEM.equals(entry.getKey())
+            && !entry.getKey().startsWith(INTERNAL_PREFIX);
+    }
+
+    static String prefix(Map<String, Object> input) {
+        Object type = input.get(TYPE);
+        if (type == null) {
+            type = input.get(CATEGORY);
+        }
+        return type == null ? SCOPE_NAME + "." : type + ".";
+    }
+
+    static long timeNanos(Map<String, Object> input) {
+        Object timestamp = input.get(TIMESTAMP);
+        long millis = timestamp instanceof Number ? ((Number) timestamp).longValue() : System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
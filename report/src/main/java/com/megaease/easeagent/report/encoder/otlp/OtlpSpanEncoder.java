@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.otlp;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.config.report.ReportConfigConst;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.plugin.report.tracing.Annotation;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import zipkin2.internal.WriteBuffer;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.megaease.easeagent.report.util.Proto3.*;
+
+/**
+ * Encode spans as OTLP ExportTraceServiceRequest.
+ * The tags are string attributes, the remote endpoint is peer.service/net.peer.ip/net.peer.port,
+ * the annotations are events and the error tag is the error status.
+ */
+@AutoService(Encoder.class)
+@SuppressWarnings("unused")
+public class OtlpSpanEncoder extends OtlpEncoder<ReportSpan> {
+    public static final String ENCODER_NAME = ReportConfigConst.OTLP_SPAN_ENCODER_NAME;
+
+    static final int TRACE_ID_FIELD = 1;
+    static final int SPAN_ID_FIELD = 2;
+    static final int PARENT_SPAN_ID_FIELD = 4;
+    static final int NAME_FIELD = 5;
+    static final int KIND_FIELD = 6;
+    static final int START_TIME_FIELD = 7;
+    static final int END_TIME_FIELD = 8;
+    static final int ATTRIBUTES_FIELD = 9;
+    static final int EVENTS_FIELD = 11;
+    static final int STATUS_FIELD = 15;
+
+    static final int EVENT_TIME_FIELD = 1;
+    static final int EVENT_NAME_FIELD = 2;
+
+    static final int STATUS_MESSAGE_FIELD = 2;
+    static final int STATUS_CODE_FIELD = 3;
+    static final int STATUS_CODE_ERROR = 2;
+
+    static final int TRACE_ID_BYTES = 16;
+
+    static final String PEER_SERVICE = "peer.service";
+    static final String PEER_IP = "net.peer.ip";
+    static final String PEER_PORT = "net.peer.port";
+    static final String ERROR_TAG = "error";
+
+    @Override
+    public String name() {
+        return ENCODER_NAME;
+    }
+
+    @Override
+    public int sizeInBytes(ReportSpan input) {
+        return sizeOfLengthDelimited(ITEM_FIELD, spanSizeInBytes(input));
+    }
+
+    @Override
+    public EncodedData encode(ReportSpan span) {
+        int size = spanSizeInBytes(span);
+        byte[] data = newItem(size);
+        WriteBuffer b = WriteBuffer.wrap(data);
+        writeLengthDelimited(b, ITEM_FIELD, size);
+
+        writeHex(b, TRACE_ID_FIELD, span.traceId(), TRACE_ID_BYTES);
+        writeHex(b, SPAN_ID_FIELD, span.id(), 0);
+        writeHex(b, PARENT_SPAN_ID_FIELD, span.parentId(), 0);
+        writeString(b, NAME_FIELD, span.name());
+        writeVarint(b, KIND_FIELD, kind(span.kind()));
+        writeFixed64(b, START_TIME_FIELD, span.timestamp() * 1000);
+        writeFixed64(b, END_TIME_FIELD, (span.timestamp() + span.duration()) * 1000);
+        Map<String, String> tags = span.tags();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                writeAttribute(b, ATTRIBUTES_FIELD, tag.getKey(), tag.getValue());
+            }
+        }
+        Endpoint remote = span.remoteEndpoint();
+        if (remote != null) {
+            writeAttribute(b, ATTRIBUTES_FIELD, PEER_SERVICE, text(remote.serviceName()));
+            writeAttribute(b, ATTRIBUTES_FIELD, PEER_IP, peerIp(remote));
+            writeAttribute(b, ATTRIBUTES_FIELD, PEER_PORT, peerPort(remote));
+        }
+        List<Annotation> annotations = span.annotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                writeLengthDelimited(b, EVENTS_FIELD, eventSizeInBytes(annotation));
+                writeFixed64(b, EVENT_TIME_FIELD, annotation.timestamp() * 1000);
+                writeString(b, EVENT_NAME_FIELD, annotation.value());
+            }
+        }
+        String error = tags == null ? null : tags.get(ERROR_TAG);
+        if (error != null) {
+            writeLengthDelimited(b, STATUS_FIELD, statusSizeInBytes(error));
+            writeString(b, STATUS_MESSAGE_FIELD, error);
+            writeVarint(b, STATUS_CODE_FIELD, STATUS_CODE_ERROR);
+        }
+        return new ByteWrapper(data);
+    }
+
+    static int spanSizeInBytes(ReportSpan span) {
+        int size = sizeOfHex(TRACE_ID_FIELD, span.traceId(), TRACE_ID_BYTES);
+        size += sizeOfHex(SPAN_ID_FIELD, span.id(), 0);
+        size += sizeOfHex(PARENT_SPAN_ID_FIELD, span.parentId(), 0);
+        size += sizeOfString(NAME_FIELD, span.name());
+        size += sizeOfVarint(KIND_FIELD, kind(span.kind()));
+        size += sizeOfFixed64(START_TIME_FIELD, span.timestamp() * 1000);
+        size += sizeOfFixed64(END_TIME_FIELD, (span.timestamp() + span.duration()) * 1000);
+        Map<String, String> tags = span.tags();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                size += sizeOfAttribute(ATTRIBUTES_FIELD, tag.getKey(), tag.getValue());
+            }
+        }
+        Endpoint remote = span.remoteEndpoint();
+        if (remote != null) {
+            size += sizeOfAttribute(ATTRIBUTES_FIELD, PEER_SERVICE, text(remote.serviceName()));
+            size += sizeOfAttribute(ATTRIBUTES_FIELD, PEER_IP, peerIp(remote));
+            size += sizeOfAttribute(ATTRIBUTES_FIELD, PEER_PORT, peerPort(remote));
+        }
+        List<Annotation> annotations = span.annotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                size += sizeOfLengthDelimited(EVENTS_FIELD, eventSizeInBytes(annotation));
+            }
+        }
+        String error = tags == null ? null : tags.get(ERROR_TAG);
+        if (error != null) {
+            size += sizeOfLengthDelimited(STATUS_FIELD, statusSizeInBytes(error));
+        }
+        return size;
+    }
+
+    static int eventSizeInBytes(Annotation annotation) {
+        return sizeOfFixed64(EVENT_TIME_FIELD, annotation.timestamp() * 1000)
+            + sizeOfString(EVENT_NAME_FIELD, annotation.value());
+    }
+
+    static int statusSizeInBytes(String error) {
+        return sizeOfString(STATUS_MESSAGE_FIELD, error) + sizeOfVarint(STATUS_CODE_FIELD, STATUS_CODE_ERROR);
+    }
+
+    static String peerIp(Endpoint endpoint) {
+        return endpoint.ipv4() != null ? text(endpoint.ipv4()) : text(endpoint.ipv6());
+    }
+
+    static Long peerPort(Endpoint endpoint) {
+        return endpoint.port() == 0 ? null : (long) endpoint.port();
+    }
+
+    /**
+     * zipkin kind to OTLP SpanKind, a span without kind is internal
+     */
+    static int kind(String kind) {
+        if (kind == null) {
+            return 1;
+        }
+        switch (kind) {
+            case "SERVER":
+                return 2;
+            case "CLIENT":
+                return 3;
+            case "PRODUCER":
+                return 4;
+            case "CONSUMER":
+                return 5;
+            default:
+                return 1;
+        }
+    }
+}
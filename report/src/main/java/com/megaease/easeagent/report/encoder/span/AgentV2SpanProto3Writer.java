@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.tracing.Annotation;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.util.TextUtils;
+import zipkin2.internal.WriteBuffer;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.megaease.easeagent.report.util.Proto3.*;
+
+/**
+ * Write a span as one entry of zipkin's proto3 ListOfSpans, so encoded spans are simply concatenated into a list.
+ * <p>
+ * Fields 1 to 13 follow zipkin.proto, the global extras of {@link AgentV2SpanGlobalWriter} are written as
+ * the string fields 14 type, 15 service and 16 system, which a plain zipkin decoder skips.
+ * Hex ids are written as bytes, the addresses as their 4 or 16 bytes.
+ */
+public class AgentV2SpanProto3Writer implements WriteBuffer.Writer<ReportSpan> {
+    static final int LIST_OF_SPANS_FIELD = 1;
+
+    static final int TRACE_ID_FIELD = 1;
+    static final int PARENT_ID_FIELD = 2;
+    static final int ID_FIELD = 3;
+    static final int KIND_FIELD = 4;
+    static final int NAME_FIELD = 5;
+    static final int TIMESTAMP_FIELD = 6;
+    static final int DURATION_FIELD = 7;
+    static final int LOCAL_ENDPOINT_FIELD = 8;
+    static final int REMOTE_ENDPOINT_FIELD = 9;
+    static final int ANNOTATION_FIELD = 10;
+    static final int TAG_FIELD = 11;
+    static final int DEBUG_FIELD = 12;
+    static final int SHARED_FIELD = 13;
+    static final int TYPE_FIELD = 14;
+    static final int SERVICE_FIELD = 15;
+    static final int SYSTEM_FIELD = 16;
+
+    static final int ENDPOINT_SERVICE_NAME_FIELD = 1;
+    static final int ENDPOINT_IPV4_FIELD = 2;
+    static final int ENDPOINT_IPV6_FIELD = 3;
+    static final int ENDPOINT_PORT_FIELD = 4;
+
+    static final int ANNOTATION_TIMESTAMP_FIELD = 1;
+    static final int ANNOTATION_VALUE_FIELD = 2;
+
+    static final int ENTRY_KEY_FIELD = 1;
+    static final int ENTRY_VALUE_FIELD = 2;
+
+    final String type;
+    final GlobalExtrasSupplier extras;
+
+    public AgentV2SpanProto3Writer(String type, GlobalExtrasSupplier extras) {
+        this.type = type;
+        this.extras = extras;
+    }
+
+    @Override
+    public int sizeInBytes(ReportSpan value) {
+        return sizeOfLengthDelimited(LIST_OF_SPANS_FIELD, spanSizeInBytes(value));
+    }
+
+    @Override
+    public void write(ReportSpan value, WriteBuffer b) {
+        writeKey(b, LIST_OF_SPANS_FIELD, WIRETYPE_LENGTH_DELIMITED);
+        b.writeVarint(spanSizeInBytes(value));
+
+        writeHex(b, TRACE_ID_FIELD, value.traceId(), 0);
+        writeHex(b, PARENT_ID_FIELD, value.parentId(), 0);
+        writeHex(b, ID_FIELD, value.id(), 0);
+        int kind = kind(value.kind());
+        if (kind != 0) {
+            writeKey(b, KIND_FIELD, WIRETYPE_VARINT);
+            b.writeVarint(kind);
+        }
+        writeString(b, NAME_FIELD, value.name());
+        if (value.timestamp() != 0L) {
+            writeKey(b, TIMESTAMP_FIELD, WIRETYPE_FIXED64);
+            b.writeLongLe(value.timestamp());
+        }
+        if (value.duration() != 0L) {
+            writeKey(b, DURATION_FIELD, WIRETYPE_VARINT);
+            b.writeVarint(value.duration());
+        }
+        writeEndpoint(b, LOCAL_ENDPOINT_FIELD, value.localEndpoint());
+        writeEndpoint(b, REMOTE_ENDPOINT_FIELD, value.remoteEndpoint());
+        List<Annotation> annotations = value.annotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                writeKey(b, ANNOTATION_FIELD, WIRETYPE_LENGTH_DELIMITED);
+                b.writeVarint(annotationSizeInBytes(annotation));
+                writeKey(b, ANNOTATION_TIMESTAMP_FIELD, WIRETYPE_FIXED64);
+                b.writeLongLe(annotation.timestamp());
+                writeString(b, ANNOTATION_VALUE_FIELD, annotation.value());
+            }
+        }
+        Map<String, String> tags = value.tags();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                writeKey(b, TAG_FIELD, WIRETYPE_LENGTH_DELIMITED);
+                b.writeVarint(entrySizeInBytes(tag.getKey(), tag.getValue()));
+                writeString(b, ENTRY_KEY_FIELD, tag.getKey());
+                writeString(b, ENTRY_VALUE_FIELD, tag.getValue());
+            }
+        }
+        if (value.debug()) {
+            writeKey(b, DEBUG_FIELD, WIRETYPE_VARINT);
+            b.writeByte(1);
+        }
+        if (value.shared()) {
+            writeKey(b, SHARED_FIELD, WIRETYPE_VARINT);
+            b.writeByte(1);
+        }
+        writeString(b, TYPE_FIELD, text(type));
+        writeString(b, SERVICE_FIELD, text(extras.service()));
+        writeString(b, SYSTEM_FIELD, text(extras.system()));
+    }
+
+    int spanSizeInBytes(ReportSpan value) {
+        int size = sizeOfHex(TRACE_ID_FIELD, value.traceId(), 0);
+        size += sizeOfHex(PARENT_ID_FIELD, value.parentId(), 0);
+        size += sizeOfHex(ID_FIELD, value.id(), 0);
+        int kind = kind(value.kind());
+        if (kind != 0) {
+            size += 2;
+        }
+        size += sizeOfString(NAME_FIELD, value.name());
+        if (value.timestamp() != 0L) {
+            size += 1 + 8;
+        }
+        if (value.duration() != 0L) {
+            size += 1 + WriteBuffer.varintSizeInBytes(value.duration());
+        }
+        size += sizeOfEndpoint(LOCAL_ENDPOINT_FIELD, value.localEndpoint());
+        size += sizeOfEndpoint(REMOTE_ENDPOINT_FIELD, value.remoteEndpoint());
+        List<Annotation> annotations = value.annotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                size += sizeOfLengthDelimited(ANNOTATION_FIELD, annotationSizeInBytes(annotation));
+            }
+        }
+        Map<String, String> tags = value.tags();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                size += sizeOfLengthDelimited(TAG_FIELD, entrySizeInBytes(tag.getKey(), tag.getValue()));
+            }
+        }
+        if (value.debug()) {
+            size += 2;
+        }
+        if (value.shared()) {
+            size += 2;
+        }
+        size += sizeOfString(TYPE_FIELD, text(type));
+        size += sizeOfString(SERVICE_FIELD, text(extras.service()));
+        size += sizeOfString(SYSTEM_FIELD, text(extras.system()));
+        return size;
+    }
+
+    static String text(String value) {
+        return TextUtils.hasText(value) ? value : null;
+    }
+
+    static int kind(String kind) {
+        if (kind == null) {
+            return 0;
+        }
+        switch (kind) {
+            case "CLIENT":
+                return 1;
+            case "SERVER":
+                return 2;
+            case "PRODUCER":
+                return 3;
+            case "CONSUMER":
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    static int annotationSizeInBytes(Annotation annotation) {
+        return 1 + 8 + sizeOfString(ANNOTATION_VALUE_FIELD, annotation.value());
+    }
+
+    static int entrySizeInBytes(String key, String value) {
+        return sizeOfString(ENTRY_KEY_FIELD, key) + sizeOfString(ENTRY_VALUE_FIELD, value);
+    }
+
+    static int endpointSizeInBytes(Endpoint endpoint) {
+        int size = sizeOfString(ENDPOINT_SERVICE_NAME_FIELD, endpoint.serviceName());
+        if (ipv4(endpoint.ipv4()) != -1L) {
+            size += 1 + 1 + 4;
+        }
+        if (ipv6(endpoint.ipv6()) != null) {
+            size += 1 + 1 + 16;
+        }
+        if (endpoint.port() != 0) {
+            size += 1 + WriteBuffer.varintSizeInBytes(endpoint.port());
+        }
+        return size;
+    }
+
+    static int sizeOfEndpoint(int field, Endpoint endpoint) {
+        if (endpoint == null) {
+            return 0;
+        }
+        int size = endpointSizeInBytes(endpoint);
+        return size == 0 ? 0 : sizeOfLengthDelimited(field, size);
+    }
+
+    static void writeEndpoint(WriteBuffer b, int field, Endpoint endpoint) {
+        if (endpoint == null) {
+            return;
+        }
+        int size = endpointSizeInBytes(endpoint);
+        if (size == 0) {
+            return;
+        }
+        writeKey(b, field, WIRETYPE_LENGTH_DELIMITED);
+        b.writeVarint(size);
+        writeString(b, ENDPOINT_SERVICE_NAME_FIELD, endpoint.serviceName());
+        long ipv4 = ipv4(endpoint.ipv4());
+        if (ipv4 != -1L) {
+            writeKey(b, ENDPOINT_IPV4_FIELD, WIRETYPE_LENGTH_DELIMITED);
+            b.writeByte(4);
+            b.writeByte((int) (ipv4 >> 24 & 0xff));
+            b.writeByte((int) (ipv4 >> 16 & 0xff));
+            b.writeByte((int) (ipv4 >> 8 & 0xff));
+            b.writeByte((int) (ipv4 & 0xff));
+        }
+        byte[] ipv6 = ipv6(endpoint.ipv6());
+        if (ipv6 != null) {
+            writeKey(b, ENDPOINT_IPV6_FIELD, WIRETYPE_LENGTH_DELIMITED);
+            b.writeByte(16);
+            b.write(ipv6);
+        }
+        if (endpoint.port() != 0) {
+            writeKey(b, ENDPOINT_PORT_FIELD, WIRETYPE_VARINT);
+            b.writeVarint(endpoint.port());
+        }
+    }
+
+    /**
+     * @return the address as an unsigned int, -1 when it is not a dotted quad
+     */
+    static long ipv4(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return -1L;
+        }
+        long result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                if (octet < 0 || ++dots > 3) {
+                    return -1L;
+                }
+                result = result << 8 | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1L;
+                }
+            } else {
+                return -1L;
+            }
+        }
+        if (octet < 0 || dots != 3) {
+            return -1L;
+        }
+        return result << 8 | octet;
+    }
+
+    static byte[] ipv6(String ip) {
+        if (!TextUtils.hasText(ip)) {
+            return null;
+        }
+        // rare enough to let zipkin parse it
+        return zipkin2.Endpoint.newBuilder().ip(ip).build().ipv6Bytes();
+    }
+
+    public String toString() {
+        return "Span";
+    }
+}
@@ -25,18 +25,29 @@ import zipkin2.internal.WriteBuffer;
 import java.util.Collection;
 
 public class AgentV2SpanWriter implements WriteBuffer.Writer<ReportSpan> {
+    public static final String TYPE = "log-tracing";
 
     public final Collection<WriteBuffer.Writer<ReportSpan>> writerList;
 
     public AgentV2SpanWriter(GlobalExtrasSupplier extrasSupplier) {
-        writerList = ImmutableList.<WriteBuffer.Writer<ReportSpan>>builder()
+        this(extrasSupplier, true);
+    }
+
+    /**
+     * @param extrasSupplier global fields supplier
+     * @param withGlobal false when the global fields are written once per batch by the encoder
+     */
+    public AgentV2SpanWriter(GlobalExtrasSupplier extrasSupplier, boolean withGlobal) {
+        ImmutableList.Builder<WriteBuffer.Writer<ReportSpan>> builder = ImmutableList.<WriteBuffer.Writer<ReportSpan>>builder()
                 .add(new AgentV2SpanBaseWriter())
                 .add(new AgentV2SpanLocalEndpointWriter())
                 .add(new AgentV2SpanRemoteEndpointWriter())
                 .add(new AgentV2SpanAnnotationsWriter())
-                .add(new AgentV2SpanTagsWriter())
-                .add(new AgentV2SpanGlobalWriter("log-tracing", extrasSupplier))
-                .build();
+                .add(new AgentV2SpanTagsWriter());
+        if (withGlobal) {
+            builder.add(new AgentV2SpanGlobalWriter(TYPE, extrasSupplier));
+        }
+        writerList = builder.build();
     }
 
 
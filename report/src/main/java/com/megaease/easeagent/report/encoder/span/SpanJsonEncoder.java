@@ -24,21 +24,22 @@ import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.report.ByteWrapper;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
-import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.JsonEnvelopeEncoder;
 import zipkin2.internal.JsonCodec;
 
 @AutoService(Encoder.class)
 @SuppressWarnings("unused")
-public class SpanJsonEncoder extends JsonEncoder<ReportSpan> {
+public class SpanJsonEncoder extends JsonEnvelopeEncoder<ReportSpan> {
     public static final String ENCODER_NAME = ReportConfigConst.SPAN_JSON_ENCODER_NAME;
+    GlobalExtrasSupplier extrasSupplier;
     AgentV2SpanWriter writer;
 
     @Override
     public void init(Config config) {
-        GlobalExtrasSupplier extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
-        writer = new AgentV2SpanWriter(extrasSupplier);
+        extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
+        writer = new AgentV2SpanWriter(extrasSupplier, !envelope);
     }
 
     @Override
@@ -55,4 +56,11 @@ public class SpanJsonEncoder extends JsonEncoder<ReportSpan> {
     public EncodedData encode(ReportSpan span) {
         return new ByteWrapper(JsonCodec.write(writer, span));
     }
+
+    @Override
+    protected byte[] resource() {
+        return resource("type", AgentV2SpanWriter.TYPE,
+            "service", extrasSupplier.service(),
+            "system", extrasSupplier.system());
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.config.report.ReportConfigConst;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.span.okhttp.ProtobufRequestBody;
+import zipkin2.internal.WriteBuffer;
+
+import java.util.List;
+
+/**
+ * Encode spans in zipkin's proto3 format, the list is the concatenation of the encoded spans.
+ * The list is also a request body of content type application/x-protobuf, so it works with both http and kafka.
+ */
+@AutoService(Encoder.class)
+@SuppressWarnings("unused")
+public class SpanProtobufEncoder implements Encoder<ReportSpan> {
+    public static final String ENCODER_NAME = ReportConfigConst.SPAN_PROTOBUF_ENCODER_NAME;
+    AgentV2SpanProto3Writer writer;
+
+    @Override
+    public void init(Config config) {
+        GlobalExtrasSupplier extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
+        writer = new AgentV2SpanProto3Writer("log-tracing", extrasSupplier);
+    }
+
+    @Override
+    public String name() {
+        return ENCODER_NAME;
+    }
+
+    @Override
+    public int sizeInBytes(ReportSpan input) {
+        return writer.sizeInBytes(input);
+    }
+
+    @Override
+    public EncodedData encode(ReportSpan span) {
+        byte[] data = new byte[writer.sizeInBytes(span)];
+        writer.write(span, WriteBuffer.wrap(data));
+        return new ByteWrapper(data);
+    }
+
+    @Override
+    public EncodedData encodeList(List<EncodedData> encodedItems) {
+        int size = 0;
+        for (EncodedData item : encodedItems) {
+            size += item.size();
+        }
+        byte[] buf = new byte[size];
+        int pos = 0;
+        for (EncodedData item : encodedItems) {
+            byte[] v = item.getData();
+            System.arraycopy(v, 0, buf, pos, v.length);
+            pos += v.length;
+        }
+        return new ProtobufRequestBody(buf);
+    }
+
+    @Override
+    public int appendSizeInBytes(int newMsgSize) {
+        return newMsgSize;
+    }
+
+    @Override
+    public int packageSizeInBytes(List<Integer> sizes) {
+        int sizeInBytes = 0;
+        if (sizes != null) {
+            for (Integer size : sizes) {
+                sizeInBytes += size;
+            }
+        }
+        return sizeInBytes;
+    }
+}
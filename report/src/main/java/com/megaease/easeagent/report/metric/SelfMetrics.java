@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.report.metric;
+
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfigImpl;
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfigRegistry;
+import com.megaease.easeagent.plugin.api.metric.MetricRegistry;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetric;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetricRegistry;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetricSupplier;
+import com.megaease.easeagent.plugin.api.metric.name.MetricSubType;
+import com.megaease.easeagent.plugin.api.metric.name.NameFactory;
+import com.megaease.easeagent.plugin.api.metric.name.Tags;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.bridge.NoOpMetrics;
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Self metrics of the report and tracing stages, exported by plugin.observability.{namespace}.metric
+ * with the tag resource={resource}.
+ * The stages are created before the metric provider is installed, so nothing is registered until it is:
+ * a stage calls {@link #exportGauge} from its own thread until it returns true, and keeps that in a volatile flag.
+ */
+@Slf4j
+public final class SelfMetrics {
+    public static final ServiceMetricSupplier<GaugeMetric> GAUGE_METRIC_SUPPLIER = new ServiceMetricSupplier<GaugeMetric>() {
+        @Override
+        public NameFactory newNameFactory() {
+            return NameFactory.createBuilder()
+                .gaugeType(MetricSubType.DEFAULT, new HashMap<>())
+                .build();
+        }
+
+        @Override
+        public GaugeMetric newInstance(MetricRegistry metricRegistry, NameFactory nameFactory) {
+            return new GaugeMetric(metricRegistry, nameFactory);
+        }
+    };
+
+    private static final Set<String> EXPORTED = ConcurrentHashMap.newKeySet();
+
+    private SelfMetrics() {
+    }
+
+    /**
+     * @return null before the metric provider is installed or when the metric is disabled, nothing is cached then
+     */
+    public static <T extends ServiceMetric> T get(String namespace, String resource, ServiceMetricSupplier<T> supplier) {
+        if (EaseAgent.metricRegistrySupplier == NoOpMetrics.NO_OP_METRIC_SUPPLIER) {
+            return null;
+        }
+        try {
+            AutoRefreshPluginConfigImpl config = AutoRefreshPluginConfigRegistry.getOrCreate("observability", namespace, "metric");
+            if (!config.enabled()) {
+                return null;
+            }
+            return ServiceMetricRegistry.getOrCreate(config, new Tags("application", resource, "resource"), supplier);
+        } catch (Throwable e) {
+            log.debug("get self metric {} fail: {}", namespace, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true when the gauge is registered, by this call or a former one
+     */
+    public static boolean exportGauge(String namespace, String resource, String key, GaugeMetricModel model) {
+        String id = namespace + ":" + resource + ":" + key;
+        if (EXPORTED.contains(id)) {
+            return true;
+        }
+        GaugeMetric metric = get(namespace, resource, GAUGE_METRIC_SUPPLIER);
+        if (metric == null) {
+            return false;
+        }
+        if (EXPORTED.add(id)) {
+            metric.gauge(key, MetricSubType.DEFAULT, () -> () -> model);
+        }
+        return true;
+    }
+
+    public static class GaugeMetric extends ServiceMetric {
+        public GaugeMetric(@Nonnull MetricRegistry metricRegistry, @Nonnull NameFactory nameFactory) {
+            super(metricRegistry, nameFactory);
+        }
+    }
+}
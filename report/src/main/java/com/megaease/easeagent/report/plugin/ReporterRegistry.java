@@ -21,6 +21,7 @@ import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.Sender;
 import com.megaease.easeagent.report.sender.NoOpSender;
+import com.megaease.easeagent.report.sender.RetrySenderDecorator;
 import com.megaease.easeagent.report.sender.SenderConfigDecorator;
 import com.megaease.easeagent.report.sender.SenderWithEncoder;
 import org.slf4j.Logger;
@@ -80,7 +81,7 @@ public class ReporterRegistry {
         }
         SenderWithEncoder sender = new SenderConfigDecorator(prefix, getSender(name), config);
         sender.init(config, prefix);
-        return sender;
+        return new RetrySenderDecorator(sender, config);
     }
 
     private static Sender getSender(String name) {
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consecutive failures breaker shared by the flush threads of a sender.
+ * It opens after {@code failureThreshold} consecutive failures, and after {@code openNanos} lets one
+ * trial call through as half-open: success closes it, failure opens it again.
+ * A threshold of zero or less disables it.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Notified of each transition, under the lock of the breaker.
+     */
+    public interface Listener {
+        void onStateChange(State from, State to);
+    }
+
+    static final long HALF_OPEN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Listener listener;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openUntil = 0L;
+    private boolean trialInFlight = false;
+
+    public CircuitBreaker(int failureThreshold, long openNanos, Listener listener) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.listener = listener;
+    }
+
+    public synchronized State state() {
+        return this.state;
+    }
+
+    /**
+     * @param now {@link System#nanoTime()}
+     * @return nanos to wait before a call is permitted, 0 when the call is permitted now
+     */
+    public synchronized long acquire(long now) {
+        switch (this.state) {
+            case OPEN:
+                if (now - this.openUntil < 0) {
+                    return this.openUntil - now;
+                }
+                transition(State.HALF_OPEN);
+                this.trialInFlight = true;
+                return 0L;
+            case HALF_OPEN:
+                if (this.trialInFlight) {
+                    return Math.min(HALF_OPEN_POLL_NANOS, this.openNanos);
+                }
+                this.trialInFlight = true;
+                return 0L;
+            default:
+                return 0L;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        this.failures = 0;
+        this.trialInFlight = false;
+        if (this.state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    /**
+     * Gives back a permitted call which ended without reaching the collector, e.g. when the sender is closed.
+     */
+    public synchronized void release() {
+        this.trialInFlight = false;
+    }
+
+    /**
+     * @param now {@link System#nanoTime()}
+     */
+    public synchronized void onFailure(long now) {
+        this.trialInFlight = false;
+        if (this.failureThreshold <= 0) {
+            return;
+        }
+        this.failures++;
+        if (this.state == State.HALF_OPEN || (this.state == State.CLOSED && this.failures >= this.failureThreshold)) {
+            this.openUntil = now + this.openNanos;
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State to) {
+        State from = this.state;
+        this.state = to;
+        this.listener.onStateChange(from, to);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" + this.state + ", failures=" + this.failures + "}";
+    }
+}
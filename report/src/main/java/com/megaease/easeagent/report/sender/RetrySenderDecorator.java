@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender;
+
+import com.megaease.easeagent.plugin.api.config.ChangeItem;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.config.ConfigChangeListener;
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.Callback;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.join;
+
+/**
+ * Retries a failed send with jittered exponential backoff and stops the flush threads from hammering a
+ * collector which is down: after consecutive failures the {@link CircuitBreaker} opens, and a send blocks
+ * the flush thread until the open duration elapses, then it is the half-open trial.
+ * Pending items are bounded by the queue of the reporter, they are dropped there while the sends are paused.
+ * <p>
+ * The calls run on the flush thread, retries and pauses happen in {@link Call#execute()}.
+ * {@link Call#enqueue(Callback)} doesn't wait: it fails at once while the breaker holds the calls.
+ */
+@Slf4j
+public class RetrySenderDecorator implements SenderWithEncoder, ConfigChangeListener {
+    public static final String MAX_RETRIES_KEY = "retry.maxRetries";
+    public static final String BACKOFF_KEY = "retry.backoff";
+    public static final String MAX_BACKOFF_KEY = "retry.maxBackoff";
+    public static final String BREAKER_FAILURES_KEY = "circuitBreaker.failures";
+    public static final String BREAKER_OPEN_DURATION_KEY = "circuitBreaker.openDuration";
+
+    static final int DEFAULT_MAX_RETRIES = 2;
+    static final long DEFAULT_BACKOFF = 200L;
+    static final long DEFAULT_MAX_BACKOFF = 5_000L;
+    static final int DEFAULT_BREAKER_FAILURES = 5;
+    static final long DEFAULT_BREAKER_OPEN_DURATION = 30_000L;
+
+    private final SenderWithEncoder sender;
+    private final Config config;
+    private final Object lock = new Object();
+    private final Runnable removeListener;
+    private volatile boolean closed = false;
+
+    volatile int maxRetries;
+    volatile long backoffMillis;
+    volatile long maxBackoffMillis;
+    volatile CircuitBreaker breaker;
+
+    public RetrySenderDecorator(SenderWithEncoder sender, Config config) {
+        this.sender = sender;
+        this.config = config;
+        extractConfig();
+        this.removeListener = config.addChangeListener(this);
+    }
+
+    private void extractConfig() {
+        String prefix = getPrefix();
+        this.maxRetries = Math.max(0, config.getInt(join(prefix, MAX_RETRIES_KEY), DEFAULT_MAX_RETRIES));
+        this.backoffMillis = Math.max(1L, config.getLong(join(prefix, BACKOFF_KEY), DEFAULT_BACKOFF));
+        this.maxBackoffMillis = Math.max(this.backoffMillis, config.getLong(join(prefix, MAX_BACKOFF_KEY), DEFAULT_MAX_BACKOFF));
+        int failures = config.getInt(join(prefix, BREAKER_FAILURES_KEY), DEFAULT_BREAKER_FAILURES);
+        long openMillis = Math.max(1L, config.getLong(join(prefix, BREAKER_OPEN_DURATION_KEY), DEFAULT_BREAKER_OPEN_DURATION));
+        this.breaker = new CircuitBreaker(failures, TimeUnit.MILLISECONDS.toNanos(openMillis), this::onStateChange);
+    }
+
+    private void onStateChange(CircuitBreaker.State from, CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN) {
+            log.warn("circuit breaker of {} is open, pause sending", getPrefix());
+        } else if (to == CircuitBreaker.State.CLOSED) {
+            log.info("circuit breaker of {} is closed, resume sending", getPrefix());
+        }
+        SenderMetric.increment(getPrefix(), to.name().toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public String name() {
+        return sender.name();
+    }
+
+    @Override
+    public String getPrefix() {
+        return sender.getPrefix();
+    }
+
+    @Override
+    public void init(Config config, String prefix) {
+        sender.init(config, prefix);
+    }
+
+    @Override
+    public Call<Void> send(EncodedData encodedData) {
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+        return new RetryCall(encodedData);
+    }
+
+    @Override
+    public Call<Void> send(List<EncodedData> encodedData) {
+        // encode once, the retries send the same message
+        return send(sender.getEncoder().encodeList(encodedData));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return sender.isAvailable();
+    }
+
+    @Override
+    public void updateConfigs(Map<String, String> changes) {
+        sender.updateConfigs(changes);
+    }
+
+    @Override
+    public <T> Encoder<T> getEncoder() {
+        return sender.getEncoder();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        removeListener.run();
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        sender.close();
+    }
+
+    @Override
+    public void onChange(List<ChangeItem> list) {
+        String prefix = getPrefix();
+        String retry = join(prefix, "retry");
+        String circuitBreaker = join(prefix, "circuitBreaker");
+        for (ChangeItem item : list) {
+            if (item.getFullName().startsWith(retry) || item.getFullName().startsWith(circuitBreaker)) {
+                extractConfig();
+                return;
+            }
+        }
+    }
+
+    long backoffNanos(int attempt) {
+        long cap = this.maxBackoffMillis;
+        long backoff = attempt >= 30 ? cap : Math.min(cap, this.backoffMillis << attempt);
+        // equal jitter: half of the backoff is fixed, the other half is random
+        long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        return TimeUnit.MILLISECONDS.toNanos(jittered);
+    }
+
+    private void await(long nanos) throws IOException {
+        long deadline = System.nanoTime() + nanos;
+        synchronized (lock) {
+            long remaining = nanos;
+            while (!closed && remaining > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting to send", e);
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+    }
+
+    class RetryCall implements Call<Void> {
+        final EncodedData data;
+
+        RetryCall(EncodedData data) {
+            this.data = data;
+        }
+
+        @Override
+        public Void execute() throws IOException {
+            CircuitBreaker cb = breaker;
+            for (int attempt = 0; ; attempt++) {
+                long wait;
+                while ((wait = cb.acquire(System.nanoTime())) > 0) {
+                    await(wait);
+                }
+                try {
+                    sender.send(data).execute();
+                    cb.onSuccess();
+                    return null;
+                } catch (IOException | RuntimeException e) {
+                    if (e instanceof IllegalStateException) {
+                        // closed, neither a success nor a failure of the collector
+                        cb.release();
+                        throw e;
+                    }
+                    cb.onFailure(System.nanoTime());
+                    if (attempt >= maxRetries || cb.state() == CircuitBreaker.State.OPEN) {
+                        throw e;
+                    }
+                    SenderMetric.increment(getPrefix(), SenderMetric.RETRY);
+                    await(backoffNanos(attempt));
+                }
+            }
+        }
+
+        @Override
+        public void enqueue(Callback<Void> delegate) {
+            CircuitBreaker cb = breaker;
+            if (cb.acquire(System.nanoTime()) > 0) {
+                delegate.onError(new IOException("circuit breaker of " + getPrefix() + " is open"));
+                return;
+            }
+            Call<Void> call;
+            try {
+                call = sender.send(data);
+            } catch (RuntimeException e) {
+                cb.release();
+                throw e;
+            }
+            call.enqueue(new Callback<Void>() {
+                @Override
+                public void onSuccess(Void value) {
+                    cb.onSuccess();
+                    delegate.onSuccess(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    cb.onFailure(System.nanoTime());
+                    delegate.onError(t);
+                }
+            });
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.megaease.easeagent.plugin.api.config.ChangeItem;
 import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.config.ConfigChangeListener;
 import com.megaease.easeagent.plugin.report.*;
+import com.megaease.easeagent.report.encoder.JsonEnvelopeEncoder;
 import com.megaease.easeagent.report.plugin.ReporterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
@@ -66,8 +67,7 @@ public class SenderConfigDecorator
 
     @Override
     public void init(Config config, String prefix) {
-        this.packer = ReporterRegistry.getEncoder(config.getString(this.encoderKey));
-        this.packer.init(this.packerConfig);
+        this.packer = newEncoder(config.getString(this.encoderKey));
         this.sender.init(this.senderConfig, prefix);
     }
 
@@ -107,11 +107,21 @@ public class SenderConfigDecorator
     // checkEncoder update
     protected void updateEncoder(Map<String, String> changes) {
         String name = changes.get(this.encoderKey);
-        if (name == null || name.equals(this.packer.name())) {
+        String envelope = changes.get(join(this.encoderKey, ENVELOPE_KEY));
+        if ((name == null || name.equals(this.packer.name())) && envelope == null) {
             return;
         }
-        this.packer = ReporterRegistry.getEncoder(packerConfig.getString(this.encoderKey));
-        this.packer.init(packerConfig);
+        this.packer = newEncoder(packerConfig.getString(this.encoderKey));
+    }
+
+    private Encoder<?> newEncoder(String name) {
+        Encoder<?> encoder = ReporterRegistry.getEncoder(name);
+        if (encoder instanceof JsonEnvelopeEncoder) {
+            boolean envelope = this.packerConfig.getBoolean(join(this.encoderKey, ENVELOPE_KEY), false);
+            ((JsonEnvelopeEncoder<?>) encoder).setEnvelope(envelope);
+        }
+        encoder.init(this.packerConfig);
+        return encoder;
     }
 
     @Override
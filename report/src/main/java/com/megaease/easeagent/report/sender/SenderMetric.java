@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender;
+
+import com.google.common.collect.ImmutableMap;
+import com.megaease.easeagent.plugin.api.metric.MetricRegistry;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetric;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetricSupplier;
+import com.megaease.easeagent.plugin.api.metric.name.*;
+import com.megaease.easeagent.report.metric.SelfMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Self metrics of the senders, exported by plugin.observability.reporter.metric.
+ * Counters keyed by "{sender prefix}.{event}", eg. reporter.tracing.sender.open, where the events are the
+ * transitions of the circuit breaker (open, half_open, closed) and the retried sends (retry).
+ * Events before the metric provider is installed are not counted, the report is created before it.
+ */
+@Slf4j
+public class SenderMetric extends ServiceMetric {
+    public static final ServiceMetricSupplier<SenderMetric> SENDER_METRIC_SUPPLIER = new ServiceMetricSupplier<SenderMetric>() {
+        @Override
+        public NameFactory newNameFactory() {
+            return nameFactory();
+        }
+
+        @Override
+        public SenderMetric newInstance(MetricRegistry metricRegistry, NameFactory nameFactory) {
+            return new SenderMetric(metricRegistry, nameFactory);
+        }
+    };
+
+    public static final String RETRY = "retry";
+
+    public SenderMetric(@Nonnull MetricRegistry metricRegistry, @Nonnull NameFactory nameFactory) {
+        super(metricRegistry, nameFactory);
+    }
+
+    public static void increment(String prefix, String event) {
+        try {
+            SenderMetric metric = SelfMetrics.get("reporter", "reporter", SENDER_METRIC_SUPPLIER);
+            if (metric == null) {
+                return;
+            }
+            metric.counter(prefix + "." + event, MetricSubType.DEFAULT).inc();
+        } catch (Throwable e) {
+            log.debug("count sender event {}.{} fail: {}", prefix, event, e.getMessage());
+        }
+    }
+
+    @Nonnull
+    public static NameFactory nameFactory() {
+        return NameFactory.createBuilder()
+            .counterType(MetricSubType.DEFAULT, ImmutableMap.<MetricField, MetricValueFetcher>builder()
+                .put(MetricField.EXECUTION_COUNT, MetricValueFetcher.CountingCount)
+                .build())
+            .build();
+    }
+}
@@ -39,6 +39,10 @@ public class ByteRequestBody extends RequestBody {
         this.contentLength = data.length;
     }
 
+    byte[] data() {
+        return data;
+    }
+
     @Nullable
     @Override
     public MediaType contentType() {
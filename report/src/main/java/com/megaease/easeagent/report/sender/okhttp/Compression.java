@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.github.luben.zstd.Zstd;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Request body compression of {@link HttpSender}, selected by the {@code compress} config:
+ * true/gzip (default), zstd, or false/none.
+ * Bodies are compressed on the flush thread, which keeps its own deflater and buffer for gzip,
+ * so a flush neither allocates native zlib memory nor copies the body into an intermediate buffer.
+ */
+@Slf4j
+public enum Compression {
+    NONE(null) {
+        @Override
+        RequestBody compress(RequestBody body) {
+            return body;
+        }
+    },
+
+    GZIP("gzip") {
+        @Override
+        RequestBody compress(RequestBody body) throws IOException {
+            Buffer compressed = new Buffer();
+            GzipStream gzip = GZIP_STREAMS.get();
+            gzip.start(compressed);
+            try {
+                if (body instanceof ByteRequestBody) {
+                    gzip.write(((ByteRequestBody) body).data());
+                } else {
+                    BufferedSink sink = Okio.buffer(Okio.sink(gzip));
+                    body.writeTo(sink);
+                    sink.flush();
+                }
+                gzip.finish();
+            } finally {
+                gzip.reset();
+            }
+            return new HttpSender.BufferRequestBody(body.contentType(), compressed);
+        }
+    },
+
+    ZSTD("zstd") {
+        @Override
+        RequestBody compress(RequestBody body) throws IOException {
+            byte[] data;
+            if (body instanceof ByteRequestBody) {
+                data = ((ByteRequestBody) body).data();
+            } else {
+                Buffer buffer = new Buffer();
+                body.writeTo(buffer);
+                data = buffer.readByteArray();
+            }
+            return RequestBody.create(Zstd.compress(data, ZSTD_LEVEL), body.contentType());
+        }
+    };
+
+    static final int ZSTD_LEVEL = 3;
+
+    private static final ThreadLocal<GzipStream> GZIP_STREAMS = ThreadLocal.withInitial(GzipStream::new);
+
+    private final String contentEncoding;
+
+    Compression(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return value of the Content-Encoding header, null when the body is not compressed
+     */
+    public String contentEncoding() {
+        return this.contentEncoding;
+    }
+
+    abstract RequestBody compress(RequestBody body) throws IOException;
+
+    /**
+     * Parse the {@code compress} config, it was a boolean, so true/yes still select gzip.
+     * zstd falls back to gzip when its native library can not be loaded.
+     *
+     * @param value config value
+     * @return compression, gzip when value is null
+     */
+    public static Compression of(String value) {
+        if (value == null) {
+            return GZIP;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "false":
+            case "no":
+            case "none":
+                return NONE;
+            case "zstd":
+                if (ZstdSupport.AVAILABLE) {
+                    return ZSTD;
+                }
+                log.warn("zstd is not available, compress http body with gzip");
+                return GZIP;
+            default:
+                return GZIP;
+        }
+    }
+
+    static class ZstdSupport {
+        static final boolean AVAILABLE = available();
+
+        private static boolean available() {
+            try {
+                Zstd.compress(new byte[1], ZSTD_LEVEL);
+                return true;
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * gzip member written by a reusable raw deflater, same bytes as {@link java.util.zip.GZIPOutputStream}
+     */
+    static final class GzipStream extends OutputStream {
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] buf = new byte[8192];
+        private Buffer sink;
+
+        void start(Buffer sink) {
+            this.sink = sink;
+            sink.write(HEADER);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len <= 0) {
+                return;
+            }
+            crc.update(b, off, len);
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        void finish() {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate();
+            }
+            sink.writeIntLe((int) crc.getValue());
+            sink.writeIntLe((int) deflater.getBytesRead());
+        }
+
+        void reset() {
+            this.deflater.reset();
+            this.crc.reset();
+            this.sink = null;
+        }
+
+        private void deflate() {
+            int n = deflater.deflate(buf, 0, buf.length);
+            if (n > 0) {
+                sink.write(buf, 0, n);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collector endpoints of a {@link HttpSender}, balanced on the client side.
+ * An endpoint is ejected after {@code ejectFailures} consecutive failures, connection errors or 5xx responses,
+ * for {@code ejectNanos}. Then the next request goes to it as the recovery probe: success brings it back,
+ * failure ejects it again. When all endpoints are ejected, the one ejected first is used anyway.
+ */
+@Slf4j
+public class Endpoints {
+    public enum LoadBalance {
+        ROUND_ROBIN, LEAST_IN_FLIGHT;
+
+        static LoadBalance of(String value) {
+            if (value != null && value.replace("_", "").equalsIgnoreCase("leastInFlight")) {
+                return LEAST_IN_FLIGHT;
+            }
+            return ROUND_ROBIN;
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private final LoadBalance loadBalance;
+    private final int ejectFailures;
+    private final long ejectNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public Endpoints(List<HttpUrl> urls, LoadBalance loadBalance, int ejectFailures, long ejectMillis) {
+        List<Endpoint> list = new ArrayList<>(urls.size());
+        for (HttpUrl url : urls) {
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.loadBalance = loadBalance;
+        this.ejectFailures = ejectFailures;
+        this.ejectNanos = TimeUnit.MILLISECONDS.toNanos(ejectMillis);
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @param now {@link System#nanoTime()}
+     * @return endpoint of the next request
+     */
+    public Endpoint next(long now) {
+        int n = endpoints.size();
+        if (n == 1) {
+            return endpoints.get(0);
+        }
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        Endpoint picked = null;
+        Endpoint firstEjected = null;
+        for (int i = 0; i < n; i++) {
+            Endpoint e = endpoints.get((start + i) % n);
+            if (e.isEjected()) {
+                if (e.tryProbe(now)) {
+                    return e;
+                }
+                if (firstEjected == null || e.ejectedUntil - firstEjected.ejectedUntil < 0) {
+                    firstEjected = e;
+                }
+                continue;
+            }
+            if (loadBalance == LoadBalance.ROUND_ROBIN) {
+                return e;
+            }
+            if (picked == null || e.inFlight() < picked.inFlight()) {
+                picked = e;
+            }
+        }
+        return picked != null ? picked : firstEjected;
+    }
+
+    public class Endpoint {
+        private final HttpUrl url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private int failures = 0;
+        private volatile boolean ejected = false;
+        private volatile long ejectedUntil = 0L;
+        private boolean probing = false;
+
+        Endpoint(HttpUrl url) {
+            this.url = url;
+        }
+
+        public HttpUrl url() {
+            return url;
+        }
+
+        public int inFlight() {
+            return inFlight.get();
+        }
+
+        public boolean isEjected() {
+            return ejected;
+        }
+
+        void begin() {
+            inFlight.incrementAndGet();
+        }
+
+        /**
+         * @param healthy the endpoint responded without a server error
+         * @param now {@link System#nanoTime()}
+         */
+        void end(boolean healthy, long now) {
+            inFlight.decrementAndGet();
+            if (ejectFailures <= 0 || endpoints.size() == 1) {
+                return;
+            }
+            synchronized (this) {
+                if (healthy) {
+                    failures = 0;
+                    probing = false;
+                    if (ejected) {
+                        ejected = false;
+                        log.info("endpoint {} recovered", url);
+                    }
+                    return;
+                }
+                failures++;
+                if (probing || (!ejected && failures >= ejectFailures)) {
+                    probing = false;
+                    ejectedUntil = now + ejectNanos;
+                    if (!ejected) {
+                        ejected = true;
+                        log.warn("endpoint {} is ejected after {} failures", url, failures);
+                    }
+                }
+            }
+        }
+
+        private synchronized boolean tryProbe(long now) {
+            if (!ejected || probing || now - ejectedUntil < 0) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return url + (ejected ? "(ejected)" : "");
+        }
+    }
+}
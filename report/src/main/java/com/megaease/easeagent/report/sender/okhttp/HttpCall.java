@@ -28,22 +28,37 @@ import java.io.IOException;
 final class HttpCall implements Call<Void> {
 
     final okhttp3.Call call;
+    final Endpoints.Endpoint endpoint;
 
-    HttpCall(okhttp3.Call call) {
+    HttpCall(okhttp3.Call call, Endpoints.Endpoint endpoint) {
         this.call = call;
+        this.endpoint = endpoint;
     }
 
     @Override
     public Void execute() throws IOException {
+        boolean healthy = false;
+        endpoint.begin();
         try (Response response = call.execute()) {
+            healthy = isHealthy(response);
             parseResponse(response);
+        } finally {
+            endpoint.end(healthy, System.nanoTime());
         }
         return null;
     }
 
     @Override
     public void enqueue(Callback<Void> delegate) {
-        call.enqueue(new V2CallbackAdapter<>(delegate));
+        endpoint.begin();
+        call.enqueue(new V2CallbackAdapter<>(delegate, endpoint));
+    }
+
+    /**
+     * a client error is the fault of the request, not of the endpoint
+     */
+    static boolean isHealthy(Response response) {
+        return response.code() < 500;
     }
 
     static void parseResponse(Response response) throws IOException {
@@ -55,13 +70,16 @@ final class HttpCall implements Call<Void> {
 
     static class V2CallbackAdapter<V> implements okhttp3.Callback {
         final Callback<V> delegate;
+        final Endpoints.Endpoint endpoint;
 
-        V2CallbackAdapter(Callback<V> delegate) {
+        V2CallbackAdapter(Callback<V> delegate, Endpoints.Endpoint endpoint) {
             this.delegate = delegate;
+            this.endpoint = endpoint;
         }
 
         @Override
         public void onFailure(@Nonnull okhttp3.Call call, @Nonnull IOException e) {
+            endpoint.end(false, System.nanoTime());
             delegate.onError(e);
         }
 
@@ -70,6 +88,7 @@ final class HttpCall implements Call<Void> {
          */
         @Override
         public void onResponse(@Nonnull okhttp3.Call call, @Nonnull Response response) {
+            endpoint.end(isHealthy(response), System.nanoTime());
             try {
                 parseResponse(response);
                 delegate.onSuccess(null);
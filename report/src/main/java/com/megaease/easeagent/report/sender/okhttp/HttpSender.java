@@ -33,11 +33,11 @@ import okhttp3.tls.HandshakeCertificates;
 import okhttp3.tls.HeldCertificate;
 import okio.Buffer;
 import okio.BufferedSink;
-import okio.GzipSink;
-import okio.Okio;
 
 import java.io.IOException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.SynchronousQueue;
@@ -62,6 +62,9 @@ public class HttpSender implements Sender {
     private static final String PASSWORD_KEY = "password";
     private static final String GZIP_KEY = "compress";
     private static final String MAX_REQUESTS_KEY = "maxRequests";
+    private static final String LOAD_BALANCE_KEY = "loadBalance";
+    private static final String EJECT_FAILURES_KEY = "ejection.failures";
+    private static final String EJECT_INTERVAL_KEY = "ejection.interval";
 
     private static final String SERVER_USER_NAME_KEY = join(OUTPUT_SERVER_V2, USERNAME_KEY);
     private static final String SERVER_PASSWORD_KEY = join(OUTPUT_SERVER_V2, PASSWORD_KEY);
@@ -80,18 +83,21 @@ public class HttpSender implements Sender {
     private String passwordKey;
     private String gzipKey;
     private String maxRequestsKey;
+    private String loadBalanceKey;
+    private String ejectFailuresKey;
+    private String ejectIntervalKey;
 
     private static final int MIN_TIMEOUT = 30_000;
 
     private Config config;
 
     private String url;
-    private HttpUrl httpUrl;
+    private Endpoints endpoints;
     private String username;
     private String password;
 
     private boolean enabled;
-    private boolean gzip;
+    private Compression compression;
     private boolean isAuth;
 
     private int timeout;
@@ -130,6 +136,9 @@ public class HttpSender implements Sender {
         passwordKey = join(prefix, PASSWORD_KEY);
         gzipKey = join(prefix, GZIP_KEY);
         maxRequestsKey = join(prefix, MAX_REQUESTS_KEY);
+        loadBalanceKey = join(prefix, LOAD_BALANCE_KEY);
+        ejectFailuresKey = join(prefix, EJECT_FAILURES_KEY);
+        ejectIntervalKey = join(prefix, EJECT_INTERVAL_KEY);
     }
 
     private void extractConfig(Config config) {
@@ -143,7 +152,7 @@ public class HttpSender implements Sender {
         this.tlsCert = config.getString(TLS_CERT);
         this.tlsCaCert = config.getString(TLS_CA_CERT);
 
-        this.gzip = NoNull.of(config.getBooleanNullForUnset(gzipKey), NoNull.of(config.getBooleanNullForUnset(SERVER_GZIP_KEY), true));
+        this.compression = Compression.of(StringUtils.noEmptyOf(config.getString(gzipKey), config.getString(SERVER_GZIP_KEY)));
 
         this.timeout = NoNull.of(config.getInt(OUTPUT_SERVERS_TIMEOUT), MIN_TIMEOUT);
         if (this.timeout < MIN_TIMEOUT) {
@@ -155,9 +164,8 @@ public class HttpSender implements Sender {
         if (StringUtils.isEmpty(url) || Boolean.FALSE.equals(config.getBoolean(OUTPUT_SERVERS_ENABLE))) {
             this.enabled = false;
         } else {
-            this.httpUrl = HttpUrl.parse(this.url);
-            if (this.httpUrl == null) {
-                log.error("Invalid Url:{}", this.url);
+            this.endpoints = newEndpoints(config);
+            if (this.endpoints == null) {
                 this.enabled = false;
             }
         }
@@ -168,14 +176,45 @@ public class HttpSender implements Sender {
         }
     }
 
+    /**
+     * url and bootstrapServer can be comma separated lists, a relative url is appended to each bootstrapServer
+     */
     private String getUrl(Config config) {
         // url
         String outputServer = config.getString(BOOTSTRAP_SERVERS);
         String cUrl = NoNull.of(config.getString(urlKey), "");
-        if (!StringUtils.isEmpty(outputServer) && !cUrl.startsWith("http")) {
-            cUrl = outputServer + cUrl;
+        if (StringUtils.isEmpty(outputServer)) {
+            return cUrl;
+        }
+        List<String> urls = new ArrayList<>();
+        for (String one : cUrl.split(",")) {
+            one = one.trim();
+            if (one.startsWith("http")) {
+                urls.add(one);
+                continue;
+            }
+            for (String server : outputServer.split(",")) {
+                urls.add(server.trim() + one);
+            }
+        }
+        return String.join(",", urls);
+    }
+
+    private Endpoints newEndpoints(Config config) {
+        List<HttpUrl> urls = new ArrayList<>();
+        for (String one : this.url.split(",")) {
+            HttpUrl httpUrl = HttpUrl.parse(one.trim());
+            if (httpUrl == null) {
+                log.error("Invalid Url:{}", one);
+            } else {
+                urls.add(httpUrl);
+            }
+        }
+        if (urls.isEmpty()) {
+            return null;
         }
-        return cUrl;
+        return new Endpoints(urls, Endpoints.LoadBalance.of(config.getString(loadBalanceKey)),
+            config.getInt(ejectFailuresKey, 3), config.getLong(ejectIntervalKey, 10_000L));
     }
 
     @Override
@@ -183,8 +222,7 @@ public class HttpSender implements Sender {
         if (!enabled) {
             return NoOpCall.getInstance(Void.class);
         }
-        Request request;
-
+        Request.Builder request;
         try {
             if (encodedData instanceof RequestBody) {
                 request = newRequest((RequestBody) encodedData);
@@ -199,7 +237,9 @@ public class HttpSender implements Sender {
             return NoOpCall.getInstance(Void.class);
         }
 
-        return new HttpCall(client.newCall(request));
+        // pick the endpoint last: next() may start the recovery probe of an ejected endpoint, only the HttpCall ends it
+        Endpoints.Endpoint endpoint = this.endpoints.next(System.nanoTime());
+        return new HttpCall(client.newCall(request.url(endpoint.url()).build()), endpoint);
     }
 
     @Override
@@ -220,6 +260,9 @@ public class HttpSender implements Sender {
             clearClient();
             extractConfig(this.config);
             newClient();
+        } else if (this.enabled && (changes.containsKey(loadBalanceKey)
+            || changes.containsKey(ejectFailuresKey) || changes.containsKey(ejectIntervalKey))) {
+            this.endpoints = newEndpoints(this.config);
         }
     }
 
@@ -278,7 +321,7 @@ public class HttpSender implements Sender {
             if (clientMap.get(clientKey) != null) {
                 client = clientMap.get(clientKey);
             } else {
-                builder.dispatcher(newDispatcher(maxRequests));
+                builder.dispatcher(newDispatcher(maxRequests, this.endpoints == null ? 1 : this.endpoints.size()));
                 newClient = builder.build();
                 clientMap.putIfAbsent(clientKey, newClient);
                 client = newClient;
@@ -324,29 +367,29 @@ public class HttpSender implements Sender {
     }
 
     // borrow form zipkin-reporter
-    private Request newRequest(RequestBody body) throws IOException {
-        Request.Builder request = new Request.Builder().url(httpUrl);
+    private Request.Builder newRequest(RequestBody body) throws IOException {
+        Request.Builder request = new Request.Builder();
         // Amplification can occur when the Zipkin endpoint is accessed through a proxy, and the proxy is instrumented.
         // This prevents that in proxies, such as Envoy, that understand B3 single format,
         request.addHeader("b3", "0");
         if (this.isAuth) {
             request.header(AUTH_HEADER, credential);
         }
-        if (this.gzip) {
-            request.addHeader("Content-Encoding", "gzip");
-            Buffer gzipped = new Buffer();
-            BufferedSink gzipSink = Okio.buffer(new GzipSink(gzipped));
-            body.writeTo(gzipSink);
-            gzipSink.close();
-            body = new BufferRequestBody(body.contentType(), gzipped);
+        if (this.compression != Compression.NONE) {
+            request.addHeader("Content-Encoding", this.compression.contentEncoding());
+            body = this.compression.compress(body);
         }
         request.post(body);
-        return request.build();
+        return request;
     }
 
-    static Dispatcher newDispatcher(int maxRequests) {
+    /**
+     * maxRequests in flight to each endpoint
+     */
+    static Dispatcher newDispatcher(int maxRequests, int endpointCount) {
+        int total = maxRequests * Math.max(1, endpointCount);
         // bound the executor so that we get consistent performance
-        ThreadPoolExecutor dispatchExecutor = new ThreadPoolExecutor(0, maxRequests, 60, TimeUnit.SECONDS,
+        ThreadPoolExecutor dispatchExecutor = new ThreadPoolExecutor(0, total, 60, TimeUnit.SECONDS,
             // Using a synchronous queue means messages will send immediately until we hit max
             // in-flight requests. Once max requests are hit, send will block the caller, which is
             // the AsyncReporter flush thread. This is ok, as the AsyncReporter has a buffer of
@@ -354,7 +397,7 @@ public class HttpSender implements Sender {
             new SynchronousQueue<>(), OkHttpSenderThreadFactory.INSTANCE);
 
         Dispatcher dispatcher = new Dispatcher(dispatchExecutor);
-        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequests(total);
         dispatcher.setMaxRequestsPerHost(maxRequests);
         return dispatcher;
     }
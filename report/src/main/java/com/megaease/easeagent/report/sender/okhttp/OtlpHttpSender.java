@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Sender;
+import com.megaease.easeagent.report.encoder.span.okhttp.ProtobufRequestBody;
+import okhttp3.RequestBody;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.OTLP_SENDER_NAME;
+
+/**
+ * OTLP/HTTP sender, to be paired with the Otlp*Encoder of the signal and the url of its collector path,
+ * eg. reporter.tracing.sender.url=http://127.0.0.1:4318/v1/traces
+ * <p>
+ * It shares the client, auth, tls and compression of the http sender, and always posts application/x-protobuf.
+ */
+@AutoService(Sender.class)
+public class OtlpHttpSender extends HttpSender {
+    public static final String SENDER_NAME = OTLP_SENDER_NAME;
+
+    @Override
+    public String name() {
+        return SENDER_NAME;
+    }
+
+    @Override
+    public Call<Void> send(EncodedData encodedData) {
+        if (encodedData instanceof RequestBody) {
+            return super.send(encodedData);
+        }
+        return super.send(new ProtobufRequestBody(encodedData.getData()));
+    }
+}
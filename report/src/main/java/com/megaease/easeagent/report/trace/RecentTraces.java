@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.trace;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.report.tracing.Annotation;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last finished spans of this agent in a fixed size ring, plus the top-K slowest traces per endpoint,
+ * for looking at traces when the backend is degraded or absent.
+ * <p>
+ * Capturing a span claims a slot with an atomic cursor and does one ordered store into it, nothing else
+ * runs on the reporting thread. The spans are grouped by trace id only when the ring is read: the slowest
+ * traces are harvested by a background thread and before each query, the endpoint is the name of the
+ * local root span.
+ */
+public class RecentTraces implements Closeable {
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_RECENT, "enabled");
+    public static final String SIZE_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_RECENT, "size");
+    public static final String TOP_K_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_RECENT, "topK");
+    public static final String MAX_ENDPOINTS_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_RECENT, "maxEndpoints");
+
+    private final AtomicReferenceArray<ReportSpan> ring;
+    private final AtomicLong cursor = new AtomicLong();
+    private final int mask;
+    private final int topK;
+    private final int maxEndpoints;
+    // slowest traces by endpoint, guarded by itself
+    private final Map<String, List<Trace>> slowest = new HashMap<>();
+    private final ScheduledExecutorService harvester;
+
+    public RecentTraces(Config config) {
+        this(config, true);
+    }
+
+    RecentTraces(Config config, boolean startHarvester) {
+        int size = Math.max(16, Math.min(1 << 20, config.getInt(SIZE_KEY, 4096)));
+        int capacity = Integer.highestOneBit(size - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.topK = Math.max(1, config.getInt(TOP_K_KEY, 5));
+        this.maxEndpoints = Math.max(1, config.getInt(MAX_ENDPOINTS_KEY, 100));
+        if (startHarvester) {
+            this.harvester = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "easeagent-recent-traces");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.harvester.scheduleWithFixedDelay(this::harvest, 1, 1, TimeUnit.SECONDS);
+        } else {
+            this.harvester = null;
+        }
+    }
+
+    public void capture(ReportSpan span) {
+        ring.lazySet((int) (cursor.getAndIncrement() & mask), span);
+    }
+
+    /**
+     * @return max count of spans
+     */
+    public int capacity() {
+        return ring.length();
+    }
+
+    /**
+     * spans in the ring, the newest first
+     */
+    List<ReportSpan> snapshot() {
+        long end = cursor.get();
+        int length = ring.length();
+        List<ReportSpan> spans = new ArrayList<>(length);
+        for (int i = 1; i <= length; i++) {
+            ReportSpan span = ring.get((int) ((end - i) & mask));
+            if (span != null) {
+                spans.add(span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * group the spans, the newest first, by trace id in order of the newest span of each trace
+     */
+    static Collection<Trace> traces(List<ReportSpan> spans) {
+        Map<String, Trace> traces = new LinkedHashMap<>();
+        for (ReportSpan span : spans) {
+            traces.computeIfAbsent(span.traceId(), Trace::new);
+        }
+        // a trace takes its spans in finishing order
+        for (int i = spans.size() - 1; i >= 0; i--) {
+            ReportSpan span = spans.get(i);
+            traces.get(span.traceId()).add(span);
+        }
+        return traces.values();
+    }
+
+    static boolean isLocalRoot(ReportSpan span) {
+        if (span.parentId() == null) {
+            return true;
+        }
+        String kind = span.kind();
+        return "SERVER".equals(kind) || "CONSUMER".equals(kind);
+    }
+
+    void harvest() {
+        Collection<Trace> traces = traces(snapshot());
+        synchronized (slowest) {
+            for (Trace trace : traces) {
+                for (ReportSpan span : trace.spans) {
+                    if (!isLocalRoot(span) || span.name() == null) {
+                        continue;
+                    }
+                    List<Trace> list = slowest.get(span.name());
+                    if (list == null) {
+                        if (slowest.size() >= maxEndpoints) {
+                            continue;
+                        }
+                        list = new ArrayList<>(topK + 1);
+                        slowest.put(span.name(), list);
+                    }
+                    if (!admit(list, span)) {
+                        continue;
+                    }
+                    list.add(trace.withRoot(span));
+                    list.sort((a, b) -> Long.compare(b.duration(), a.duration()));
+                    if (list.size() > topK) {
+                        list.remove(list.size() - 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean admit(List<Trace> list, ReportSpan root) {
+        for (Trace trace : list) {
+            if (trace.root == root || root.id().equals(trace.root.id()) && root.traceId().equals(trace.traceId)) {
+                return false;
+            }
+        }
+        return list.size() < topK || root.duration() > list.get(list.size() - 1).duration();
+    }
+
+    /**
+     * @param minDurationMicros only traces lasting at least this long, ignored when not positive
+     * @param error             only traces with or without error, ignored when null
+     * @param service           only traces with a span of this service, ignored when null
+     * @param limit             max count of recent traces
+     */
+    public Map<String, Object> query(long minDurationMicros, Boolean error, String service, int limit) {
+        harvest();
+        List<Map<String, Object>> recent = new ArrayList<>();
+        for (Trace trace : traces(snapshot())) {
+            if (recent.size() >= limit) {
+                break;
+            }
+            if (trace.matches(minDurationMicros, error, service)) {
+                recent.add(trace.toMap());
+            }
+        }
+        Map<String, List<Map<String, Object>>> slow = new TreeMap<>();
+        synchronized (slowest) {
+            for (Map.Entry<String, List<Trace>> entry : slowest.entrySet()) {
+                List<Map<String, Object>> list = new ArrayList<>();
+                for (Trace trace : entry.getValue()) {
+                    if (trace.matches(minDurationMicros, error, service)) {
+                        list.add(trace.toMap());
+                    }
+                }
+                if (!list.isEmpty()) {
+                    slow.put(entry.getKey(), list);
+                }
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capacity", capacity());
+        result.put("recent", recent);
+        result.put("slowest", slow);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        if (harvester != null) {
+            harvester.shutdownNow();
+        }
+    }
+
+    static class Trace {
+        final String traceId;
+        final List<ReportSpan> spans = new ArrayList<>();
+        ReportSpan root;
+
+        Trace(String traceId) {
+            this.traceId = traceId;
+        }
+
+        /**
+         * the spans are added in finishing order, so the last local root is the outermost one,
+         * unless the root of the whole trace is here
+         */
+        void add(ReportSpan span) {
+            spans.add(span);
+            if (isLocalRoot(span) && (root == null || root.parentId() != null)) {
+                root = span;
+            }
+        }
+
+        Trace withRoot(ReportSpan root) {
+            Trace trace = new Trace(traceId);
+            trace.spans.addAll(spans);
+            trace.root = root;
+            return trace;
+        }
+
+        long duration() {
+            if (root != null) {
+                return root.duration();
+            }
+            long duration = 0;
+            for (ReportSpan span : spans) {
+                duration = Math.max(duration, span.duration());
+            }
+            return duration;
+        }
+
+        boolean hasError() {
+            for (ReportSpan span : spans) {
+                if (span.hasError()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean matches(long minDurationMicros, Boolean error, String service) {
+            if (minDurationMicros > 0 && duration() < minDurationMicros) {
+                return false;
+            }
+            if (error != null && error != hasError()) {
+                return false;
+            }
+            if (service == null) {
+                return true;
+            }
+            for (ReportSpan span : spans) {
+                if (service.equals(span.localServiceName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("traceId", traceId);
+            if (root != null) {
+                result.put("name", root.name());
+                result.put("service", root.localServiceName());
+            }
+            result.put("duration", duration());
+            result.put("error", hasError());
+            List<Map<String, Object>> list = new ArrayList<>(spans.size());
+            for (ReportSpan span : spans) {
+                list.add(spanToMap(span));
+            }
+            result.put("spans", list);
+            return result;
+        }
+    }
+
+    static Map<String, Object> spanToMap(ReportSpan span) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("traceId", span.traceId());
+        if (span.parentId() != null) {
+            result.put("parentId", span.parentId());
+        }
+        result.put("id", span.id());
+        putIfNotNull(result, "kind", span.kind());
+        putIfNotNull(result, "name", span.name());
+        result.put("timestamp", span.timestamp());
+        result.put("duration", span.duration());
+        putIfNotNull(result, "localEndpoint", endpointToMap(span.localEndpoint()));
+        putIfNotNull(result, "remoteEndpoint", endpointToMap(span.remoteEndpoint()));
+        if (span.annotations() != null && !span.annotations().isEmpty()) {
+            List<Map<String, Object>> annotations = new ArrayList<>(span.annotations().size());
+            for (Annotation annotation : span.annotations()) {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("timestamp", annotation.timestamp());
+                map.put("value", annotation.value());
+                annotations.add(map);
+            }
+            result.put("annotations", annotations);
+        }
+        if (span.tags() != null && !span.tags().isEmpty()) {
+            result.put("tags", span.tags());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> endpointToMap(Endpoint endpoint) {
+        if (endpoint == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        putIfNotNull(result, "serviceName", endpoint.serviceName());
+        putIfNotNull(result, "ipv4", endpoint.ipv4());
+        putIfNotNull(result, "ipv6", endpoint.ipv6());
+        if (endpoint.port() > 0) {
+            result.put("port", endpoint.port());
+        }
+        return result;
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+}
@@ -40,7 +40,8 @@ import static com.megaease.easeagent.config.report.ReportConfigConst.TRACE_SENDE
  */
 public class RefreshableReporter<S> implements Reporter<S> {
     private final SDKAsyncReporter<S> asyncReporter;
-    private AsyncProps traceProperties;
+    // bound to the config, it is updated before refresh
+    private final AsyncProps traceProperties;
     private Config reportConfig;
 
     public RefreshableReporter(SDKAsyncReporter<S> reporter,
@@ -78,11 +79,10 @@ public class RefreshableReporter<S> implements Reporter<S> {
             asyncReporter.setSender(sender);
         }
 
-        traceProperties = new TraceAsyncProps(this.reportConfig);
-        asyncReporter.closeFlushThread();
+        // resize in place, the running flush threads are kept
         asyncReporter.setPending(traceProperties.getQueuedMaxItems(), traceProperties.getQueuedMaxSize());
         asyncReporter.setMessageTimeoutNanos(messageTimeout(traceProperties.getMessageTimeout()));
-        asyncReporter.startFlushThread(); // start thread
+        asyncReporter.startFlushThread(); // start or stop threads to reportThread
     }
 
     protected long messageTimeout(long timeout) {
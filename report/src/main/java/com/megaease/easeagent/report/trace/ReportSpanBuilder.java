@@ -114,6 +114,26 @@ public class ReportSpanBuilder extends ReportSpanImpl.Builder {
         return e;
     }
 
+    /**
+     * Build the endpoint straight from the values of a brave span, the ip is already normalized by brave,
+     * so it is not parsed again by {@link zipkin2.Endpoint.Builder}.
+     */
+    public static Endpoint endpoint(String serviceName, String ip, int port) {
+        Endpoint e = new Endpoint();
+        if (serviceName != null && !serviceName.isEmpty()) {
+            e.setServiceName(serviceName.toLowerCase(Locale.ROOT));
+        }
+        if (ip != null) {
+            if (ip.indexOf(':') >= 0) {
+                e.setIpv6(ip);
+            } else {
+                e.setIpv4(ip);
+            }
+        }
+        e.setPort(Math.max(port, 0));
+        return e;
+    }
+
     public static void mergeEndpoint(Endpoint e, zipkin2.Endpoint source) {
         if (e.serviceName() == null) {
             e.setServiceName(source.serviceName());
@@ -359,14 +379,18 @@ public class ReportSpanBuilder extends ReportSpanImpl.Builder {
         }
         annotations = sortedList(annotations);
         // shared is for the server side, unset it if accidentally set on the client side
-        if (this.shared && kind.equals(Kind.CLIENT.name())) {
+        if (this.shared && Kind.CLIENT.name().equals(kind)) {
             Logger logger = Logger.getLogger(ReportSpan.class.getName());
             if (logger.isLoggable(FINEST)) {
                 logger.fine(format("removing shared flag on client: traceId=%s, spanId=%s", traceId, id));
             }
             shared(null);
         }
-        return new ReportSpanImpl(this);
+        ReportSpanImpl span = new ReportSpanImpl(this);
+        // the span took over the tags and annotations
+        tags = null;
+        annotations = null;
+        return span;
     }
 
     ReportSpanBuilder() {
@@ -439,6 +463,10 @@ public class ReportSpanBuilder extends ReportSpanImpl.Builder {
             return Collections.singletonList(in.get(0));
         }
 
+        if (isSortedAndDistinct(in)) {
+            return Collections.unmodifiableList(in);
+        }
+
         Object[] array = in.toArray();
         Arrays.sort(array);
 
@@ -455,4 +483,13 @@ public class ReportSpanBuilder extends ReportSpanImpl.Builder {
         List result = Arrays.asList(i == j + 1 ? array : Arrays.copyOf(array, j + 1));
         return Collections.<T>unmodifiableList(result);
     }
+
+    static <T extends Comparable<? super T>> boolean isSortedAndDistinct(List<T> in) {
+        for (int i = 1, size = in.size(); i < size; i++) {
+            if (in.get(i - 1).compareTo(in.get(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
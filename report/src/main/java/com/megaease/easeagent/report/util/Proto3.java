@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.util;
+
+import zipkin2.internal.WriteBuffer;
+
+/**
+ * Hand written proto3 wire format, sizes are computed first so messages are written in one pass without copy.
+ * Every sizeOf method has a write method of the same field, they skip the same default values.
+ */
+public class Proto3 {
+    public static final int WIRETYPE_VARINT = 0;
+    public static final int WIRETYPE_FIXED64 = 1;
+    public static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    private Proto3() {}
+
+    public static int sizeOfKey(int field) {
+        return WriteBuffer.varintSizeInBytes(field << 3);
+    }
+
+    public static void writeKey(WriteBuffer b, int field, int wireType) {
+        b.writeVarint(field << 3 | wireType);
+    }
+
+    /**
+     * size of a field of a message, or of bytes, of the given length
+     */
+    public static int sizeOfLengthDelimited(int field, int length) {
+        return sizeOfKey(field) + WriteBuffer.varintSizeInBytes(length) + length;
+    }
+
+    /**
+     * the key and length of a field of a message, the caller writes the content
+     */
+    public static void writeLengthDelimited(WriteBuffer b, int field, int length) {
+        writeKey(b, field, WIRETYPE_LENGTH_DELIMITED);
+        b.writeVarint(length);
+    }
+
+    public static int sizeOfString(int field, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        return sizeOfLengthDelimited(field, WriteBuffer.utf8SizeInBytes(value));
+    }
+
+    public static void writeString(WriteBuffer b, int field, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        writeLengthDelimited(b, field, WriteBuffer.utf8SizeInBytes(value));
+        b.writeUtf8(value);
+    }
+
+    public static int sizeOfVarint(int field, long value) {
+        return value == 0 ? 0 : sizeOfKey(field) + WriteBuffer.varintSizeInBytes(value);
+    }
+
+    public static void writeVarint(WriteBuffer b, int field, long value) {
+        if (value == 0) {
+            return;
+        }
+        writeKey(b, field, WIRETYPE_VARINT);
+        b.writeVarint(value);
+    }
+
+    public static int sizeOfBool(int field, boolean value) {
+        return value ? sizeOfKey(field) + 1 : 0;
+    }
+
+    public static void writeBool(WriteBuffer b, int field, boolean value) {
+        if (value) {
+            writeKey(b, field, WIRETYPE_VARINT);
+            b.writeByte(1);
+        }
+    }
+
+    public static int sizeOfFixed64(int field, long value) {
+        return value == 0 ? 0 : sizeOfKey(field) + 8;
+    }
+
+    /**
+     * fixed64, sfixed64 and double fields
+     */
+    public static void writeFixed64(WriteBuffer b, int field, long value) {
+        if (value == 0) {
+            return;
+        }
+        writeKey(b, field, WIRETYPE_FIXED64);
+        b.writeLongLe(value);
+    }
+
+    public static int sizeOfDouble(int field, double value) {
+        return sizeOfFixed64(field, Double.doubleToRawLongBits(value));
+    }
+
+    public static void writeDouble(WriteBuffer b, int field, double value) {
+        writeFixed64(b, field, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * size of a hex id written as bytes, left padded with zeros to {@code minBytes}
+     *
+     * @return 0 when the id is absent or not hex
+     */
+    public static int sizeOfHex(int field, String hex, int minBytes) {
+        int length = hexLength(hex);
+        return length == 0 ? 0 : sizeOfLengthDelimited(field, Math.max(length / 2, minBytes));
+    }
+
+    public static void writeHex(WriteBuffer b, int field, String hex, int minBytes) {
+        int length = hexLength(hex);
+        if (length == 0) {
+            return;
+        }
+        int bytes = length / 2;
+        writeLengthDelimited(b, field, Math.max(bytes, minBytes));
+        for (int i = bytes; i < minBytes; i++) {
+            b.writeByte(0);
+        }
+        for (int i = 0; i < length; i += 2) {
+            b.writeByte(Character.digit(hex.charAt(i), 16) << 4 | Character.digit(hex.charAt(i + 1), 16));
+        }
+    }
+
+    /**
+     * @return the length of the hex id, 0 when it is absent or not hex
+     */
+    public static int hexLength(String hex) {
+        if (hex == null || hex.isEmpty() || (hex.length() & 1) != 0) {
+            return 0;
+        }
+        for (int i = 0; i < hex.length(); i++) {
+            if (Character.digit(hex.charAt(i), 16) < 0) {
+                return 0;
+            }
+        }
+        return hex.length();
+    }
+}
@@ -28,7 +28,6 @@ import java.util.logging.Logger;
 
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import com.megaease.easeagent.report.trace.ReportSpanBuilder;
-import zipkin2.Endpoint;
 import zipkin2.Span;
 import zipkin2.reporter.Reporter;
 
@@ -70,26 +69,17 @@ final class ConvertSpanReporter implements Reporter<MutableSpan> {
             result.kind(BRAVE_TO_ZIPKIN_KIND.get(kind));
         }
 
+        // build the endpoints straight from the span, no zipkin2.Endpoint in between
         String localServiceName = span.localServiceName();
         String localIp = span.localIp();
         if (localServiceName != null || localIp != null) {
-            zipkin2.Endpoint e = Endpoint.newBuilder()
-                .serviceName(localServiceName)
-                .ip(localIp)
-                .port(span.localPort())
-                .build();
-            result.localEndpoint(ReportSpanBuilder.endpoint(e));
+            result.localEndpoint(ReportSpanBuilder.endpoint(localServiceName, localIp, span.localPort()));
         }
 
         String remoteServiceName = span.remoteServiceName();
         String remoteIp = span.remoteIp();
         if (remoteServiceName != null || remoteIp != null) {
-            zipkin2.Endpoint e = Endpoint.newBuilder()
-                .serviceName(remoteServiceName)
-                .ip(remoteIp)
-                .port(span.remotePort())
-                .build();
-            result.remoteEndpoint(ReportSpanBuilder.endpoint(e));
+            result.remoteEndpoint(ReportSpanBuilder.endpoint(remoteServiceName, remoteIp, span.remotePort()));
         }
 
         span.forEachTag(Consumer.INSTANCE, result);
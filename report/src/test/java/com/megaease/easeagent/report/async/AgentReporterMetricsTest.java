@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.report.async.zipkin.AgentBufferNextMessage;
+import com.megaease.easeagent.report.async.zipkin.AgentByteBoundedQueue;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AgentReporterMetricsTest {
+    @Test
+    public void histogramWindows() {
+        StripedHistogram histogram = new StripedHistogram(1000);
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i, 500);
+        }
+        histogram.update(-1, 500);
+
+        Map<String, Object> map = new HashMap<>();
+        histogram.appendTo(map, "h", 500);
+        assertEquals(101L, map.get("h-count"));
+        assertEquals(5050L, map.get("h-sum"));
+        // the upper bound of the bucket 32..63
+        assertEquals(63L, map.get("h-p50"));
+        assertEquals(100L, map.get("h-p99"));
+        assertEquals(100L, map.get("h-max"));
+
+        // the last window is still seen, the one before is reset by the next update
+        histogram.update(7, 1500);
+        histogram.appendTo(map, "h", 1500);
+        assertEquals(100L, map.get("h-max"));
+        histogram.update(3, 2500);
+        histogram.appendTo(map, "h", 2500);
+        assertEquals(7L, map.get("h-max"));
+        assertEquals(3L, map.get("h-p50"));
+        assertEquals(103L, map.get("h-count"));
+        histogram.appendTo(map, "h", 5500);
+        assertEquals(0L, map.get("h-max"));
+        assertEquals(0L, map.get("h-p99"));
+    }
+
+    @Test
+    public void reporterMetrics() throws Exception {
+        DefaultAsyncReporterTest.MutableProps props = new DefaultAsyncReporterTest.MutableProps();
+        props.reportThread = 1;
+        DefaultAsyncReporterTest.CountingSender sender = new DefaultAsyncReporterTest.CountingSender();
+        String name = "test-" + UUID.randomUUID();
+        DefaultAsyncReporter<String> reporter = (DefaultAsyncReporter<String>) DefaultAsyncReporter
+            .<String>builderAsyncReporter(sender, props, null, new QueueBudget().account(name, 1));
+        AgentReporterMetrics metrics = AgentReporterMetrics.of(name);
+        assertSame(metrics, reporter.metrics);
+
+        for (int i = 0; i < 100; i++) {
+            reporter.report("item" + i);
+        }
+        StringBuilder large = new StringBuilder();
+        while (large.length() <= props.getMessageMaxBytes()) {
+            large.append("0123456789");
+        }
+        reporter.report(large.toString());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sender.items.get() < 100 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(100, sender.items.get());
+        reporter.close();
+        reporter.report("late");
+
+        assertEquals(102, metrics.getItems());
+        assertEquals(2, metrics.getItemsDropped());
+        assertEquals(1, metrics.getItemsDropped(AsyncReporterMetrics.DropReason.TOO_LARGE));
+        assertEquals(1, metrics.getItemsDropped(AsyncReporterMetrics.DropReason.CLOSED));
+        assertEquals(0, metrics.getItemsDropped(AsyncReporterMetrics.DropReason.QUEUE_FULL));
+        assertEquals(metrics.getMessages(), metrics.getBatchSize().getCount());
+        assertEquals(100, metrics.getBatchSize().getSum());
+        assertEquals(metrics.getMessages(), metrics.getSendLatency().getCount());
+
+        Map<String, Object> map = metrics.toHashMap();
+        assertEquals(1L, map.get("dropped-too-large"));
+        assertEquals(100L, map.get("batch-size-sum"));
+        assertFalse(map.containsKey("delay-ms-count"));
+    }
+
+    @Test
+    public void queueLosses() {
+        DefaultAsyncReporterTest.MutableProps props = new DefaultAsyncReporterTest.MutableProps();
+        // no flusher, the test drains the queue itself
+        props.reportThread = 0;
+        String name = "test-" + UUID.randomUUID();
+        DefaultAsyncReporter<String> reporter = (DefaultAsyncReporter<String>) DefaultAsyncReporter
+            .<String>builderAsyncReporter(new DefaultAsyncReporterTest.CountingSender(), props, null,
+                new QueueBudget().account(name, 1));
+        AgentReporterMetrics metrics = AgentReporterMetrics.of(name);
+
+        // half of the two slots are reserved for the priority lane
+        AgentByteBoundedQueue<String> queue = new AgentByteBoundedQueue<>(2, 1000, 50, null);
+        assertTrue(queue.offer("a", 1, false));
+        assertFalse(queue.offer("b", 1, false));
+        assertTrue(queue.offer("c", 1, true));
+        assertFalse(queue.offer("d", 1, true));
+        reporter.flush(AgentBufferNextMessage.create(reporter.encoder, 1000, 0), queue);
+
+        Map<String, Object> map = metrics.toHashMap();
+        assertEquals(2L, map.get("queue-lost"));
+        assertEquals(1L, map.get("queue-priority-lost"));
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.report.plugin.NoOpEncoder;
+import com.megaease.easeagent.report.sender.SenderWithEncoder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DefaultAsyncReporterTest {
+    static class MutableProps implements AsyncProps {
+        volatile int reportThread = 2;
+        volatile int queuedMaxItems = 1000;
+
+        @Override
+        public int getReportThread() {
+            return reportThread;
+        }
+
+        @Override
+        public int getQueuedMaxItems() {
+            return queuedMaxItems;
+        }
+
+        @Override
+        public long getMessageTimeout() {
+            return 10;
+        }
+
+        @Override
+        public int getQueuedMaxSize() {
+            return 1_000_000;
+        }
+
+        @Override
+        public int getMessageMaxBytes() {
+            return 999900;
+        }
+
+        @Override
+        public int getPriorityReserved() {
+            return 10;
+        }
+    }
+
+    static class CountingSender implements SenderWithEncoder {
+        final String name = "counting-" + UUID.randomUUID();
+        final AtomicInteger items = new AtomicInteger();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Encoder<T> getEncoder() {
+            return (Encoder<T>) NoOpEncoder.INSTANCE;
+        }
+
+        @Override
+        public Call<Void> send(List<EncodedData> encodedData) {
+            items.addAndGet(encodedData.size());
+            return () -> null;
+        }
+
+        @Override
+        public String getPrefix() {
+            return "reporter.test.sender";
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void init(Config config, String prefix) {
+            // ignored
+        }
+
+        @Override
+        public Call<Void> send(EncodedData encodedData) {
+            return send(Collections.singletonList(encodedData));
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void updateConfigs(Map<String, String> changes) {
+            // ignored
+        }
+
+        @Override
+        public void close() {
+            // ignored
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static int flushThreads(CountingSender sender) {
+        String name = DefaultAsyncReporter.NAME_PREFIX + "{" + sender + "}";
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && name.equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void refreshUnderLoad() throws Exception {
+        MutableProps props = new MutableProps();
+        CountingSender sender = new CountingSender();
+        DefaultAsyncReporter<String> reporter =
+            (DefaultAsyncReporter<String>) DefaultAsyncReporter.<String>builderAsyncReporter(sender, props);
+        assertEquals(2, reporter.flushers.size());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger reported = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread producer = new Thread(() -> {
+                while (running.get()) {
+                    reporter.report("item" + reported.incrementAndGet());
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        int maxThreads = 0;
+        for (int i = 0; i < 200; i++) {
+            props.reportThread = 1 + i % 4;
+            props.queuedMaxItems = 500 + (i % 3) * 500;
+            reporter.setPending(props.getQueuedMaxItems(), props.getQueuedMaxSize());
+            reporter.setMessageTimeoutNanos(TimeUnit.MILLISECONDS.toNanos(5 + i % 3));
+            reporter.startFlushThread();
+            assertEquals(props.reportThread, reporter.flushers.size());
+            maxThreads = Math.max(maxThreads, flushThreads(sender));
+            Thread.sleep(2);
+        }
+        running.set(false);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // a stopped flusher exits within one messageTimeout, so only a few may overlap the running ones
+        assertTrue("flush threads: " + maxThreads, maxThreads <= 4 + 4);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flushThreads(sender) != props.reportThread && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(props.reportThread, flushThreads(sender));
+
+        // every accepted item is sent once: nothing is left behind by a resize or a stopped flusher
+        long accepted = reported.get() - reporter.pending.getLoseCount();
+        while (sender.items.get() < accepted && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(accepted, sender.items.get());
+        assertEquals(0, reporter.pending.getCount());
+        reporter.close();
+    }
+}
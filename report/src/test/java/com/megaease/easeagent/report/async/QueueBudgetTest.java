@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.report.async.zipkin.AgentByteBoundedQueue;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+import static org.junit.Assert.*;
+
+public class QueueBudgetTest {
+    static QueueBudget budget(long maxSize) {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(MEMORY_BUDGET_MAX_SIZE, String.valueOf(maxSize));
+        cfg.put(join(MEMORY_BUDGET_WEIGHT, "b"), "3");
+        QueueBudget budget = new QueueBudget();
+        budget.update(new Configs(cfg));
+        return budget;
+    }
+
+    @Test
+    public void fairShares() {
+        QueueBudget budget = budget(1000);
+        QueueBudget.Account a = budget.account("a", 1);
+        QueueBudget.Account b = budget.account("b", 1);
+        assertEquals(250, a.getShare());
+        assertEquals(750, b.getShare());
+        assertSame(a, budget.account("a", 5));
+    }
+
+    @Test
+    public void borrow() {
+        QueueBudget budget = budget(1000);
+        QueueBudget.Account a = budget.account("a", 1);
+        QueueBudget.Account b = budget.account("b", 1);
+
+        // a borrows up to half of the idle share of b: 250 + 375
+        assertTrue(a.tryAcquire(625, false));
+        assertFalse(a.tryAcquire(1, false));
+        assertEquals(1, a.getRefused());
+
+        // b still gets its share, bounded by the total
+        assertTrue(b.tryAcquire(375, false));
+        assertFalse(b.tryAcquire(1, false));
+        assertEquals(1000, budget.getUsed());
+
+        a.release(625);
+        assertTrue(b.tryAcquire(375, false));
+        assertEquals(750, b.getUsed());
+        assertEquals(750, budget.getUsed());
+    }
+
+    @Test
+    public void priorityIgnoresShare() {
+        QueueBudget budget = budget(1000);
+        QueueBudget.Account a = budget.account("a", 1);
+        budget.account("b", 1);
+        assertTrue(a.tryAcquire(900, true));
+        assertFalse(a.tryAcquire(101, true));
+        assertTrue(a.tryAcquire(100, true));
+    }
+
+    @Test
+    public void unlimited() {
+        QueueBudget budget = budget(0);
+        QueueBudget.Account a = budget.account("a", 1);
+        assertTrue(a.tryAcquire(Integer.MAX_VALUE, false));
+        assertEquals(Integer.MAX_VALUE, budget.getUsed());
+    }
+
+    @Test
+    public void sharedByQueues() {
+        QueueBudget budget = budget(100);
+        QueueBudget.Account a = budget.account("a", 1);
+        QueueBudget.Account b = budget.account("b", 3);
+        AgentByteBoundedQueue<String> qa = new AgentByteBoundedQueue<>(1000, 1000, 0, a);
+        AgentByteBoundedQueue<String> qb = new AgentByteBoundedQueue<>(1000, 1000, 0, b);
+        int accepted = 0;
+        while (qb.offer("b", 10)) {
+            accepted++;
+        }
+        // share 75 plus half of the idle 25 of a
+        assertEquals(8, accepted);
+        assertEquals(80, b.getUsed());
+        assertTrue(qa.offer("a", 10));
+        assertTrue(qa.offer("a", 10));
+        assertFalse("the total is used up", qa.offer("a", 10));
+
+        assertEquals(8, qb.clear());
+        assertEquals(0, b.getUsed());
+        assertEquals(20, budget.getUsed());
+        assertTrue(qa.offer("a", 10));
+    }
+}
@@ -4,6 +4,10 @@ import com.megaease.easeagent.report.plugin.NoOpEncoder;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -151,4 +155,72 @@ public class AgentByteBoundedQueueTest {
         Assert.assertEquals("The number of bytes of data in the queue should be 0", 0, queue.getSizeInBytes());
     }
 
+    @Test
+    public void priorityLane() {
+        AgentByteBoundedQueue<String> queue = new AgentByteBoundedQueue<>(10, 100, 20);
+        // 1. The normal lane can only take 80% of the queue
+        for (int i = 0; i < 10; i++) {
+            queue.offer("normal" + i, 1);
+        }
+        Assert.assertEquals("The normal lane should stop at 8", 8, queue.getCount());
+        Assert.assertEquals("2 normal items should be lost", 2, queue.getLoseCount());
+        // 2. The reserved part is left for the priority lane
+        Assert.assertTrue(queue.offer("error0", 1, true));
+        Assert.assertTrue(queue.offer("error1", 1, true));
+        Assert.assertFalse("The queue is full", queue.offer("error2", 1, true));
+        Assert.assertEquals("The priority lane should hold 2", 2, queue.getPriorityCount());
+        Assert.assertEquals("1 priority item should be lost", 1, queue.getPriorityLoseCount());
+        Assert.assertEquals("Lost items of both lanes", 3, queue.getLoseCount());
+        // 3. The priority lane is drained first
+        List<String> drained = new ArrayList<>();
+        queue.drainTo((next, size) -> drained.size() < 3 && drained.add(next), 0);
+        Assert.assertEquals(Arrays.asList("error0", "error1", "normal0"), drained);
+        Assert.assertEquals("The queue should hold 7 now", 7, queue.getCount());
+        Assert.assertEquals("The number of bytes of the remaining data in the queue should be 7", 7, queue.getSizeInBytes());
+        Assert.assertEquals(7, queue.clear());
+        Assert.assertEquals(0, queue.getSizeInBytes());
+    }
+
+    @Test
+    public void priorityWakesUpConsumer() throws Exception {
+        AgentByteBoundedQueue<String> queue = new AgentByteBoundedQueue<>(10, 100, 10);
+        List<String> drained = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            queue.drainTo((next, size) -> drained.add(next), TimeUnit.SECONDS.toNanos(30));
+            done.countDown();
+        });
+        consumer.start();
+        // wait for the consumer to block on the normal lane
+        while (consumer.getState() != Thread.State.TIMED_WAITING && consumer.getState() != Thread.State.TERMINATED) {
+            Thread.sleep(1);
+        }
+        queue.offer("error", 1, true);
+        Assert.assertTrue("The consumer should not wait for the timeout", done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("error"), drained);
+        Assert.assertEquals(0, queue.getCount());
+    }
+
+    @Test
+    public void resizeInPlace() {
+        AgentByteBoundedQueue<String> queue = new AgentByteBoundedQueue<>(10, 100);
+        for (int i = 0; i < 8; i++) {
+            queue.offer("test" + i, 1);
+        }
+        // shrink below the current size: nothing is dropped, new items are refused
+        queue.resize(5, 100, 0);
+        Assert.assertEquals(5, queue.getMaxSize());
+        Assert.assertFalse(queue.offer("refused", 1));
+        Assert.assertEquals("The queued items should be kept", 8, queue.getCount());
+        // grow again
+        queue.resize(20, 100, 0);
+        Assert.assertTrue(queue.offer("test8", 1));
+
+        List<String> drained = new ArrayList<>();
+        queue.drainTo((next, size) -> drained.add(next), 0);
+        for (int i = 0; i < 9; i++) {
+            Assert.assertEquals("The order should be kept", "test" + i, drained.get(i));
+        }
+    }
+
 }
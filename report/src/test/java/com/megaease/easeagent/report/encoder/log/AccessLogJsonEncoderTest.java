@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.log;
+
+import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.utils.common.HostAddress;
+import com.megaease.easeagent.plugin.utils.common.JsonUtil;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AccessLogJsonEncoderTest {
+    static final GlobalExtrasSupplier EXTRAS = new GlobalExtrasSupplier() {
+        @Override
+        public String service() {
+            return "demo-service";
+        }
+
+        @Override
+        public String system() {
+            return "demo-system";
+        }
+    };
+
+    static AccessLogInfo accessLog(String service) {
+        AccessLogInfo info = new AccessLogInfo();
+        info.setService(service);
+        info.setSystem("demo-system");
+        info.setHostName(HostAddress.localhost());
+        info.setHostIpv4(HostAddress.getHostIpv4());
+        info.setTraceId("5af7183fb1d4cf5f");
+        info.setSpanId("6b221d5bc9e6496c");
+        info.setUrl("GET /users/1");
+        info.setMethod("GET");
+        info.setStatusCode("200");
+        info.setMatchUrl("GET /users/{id}");
+        info.setHeaders(Collections.singletonMap("host", "demo"));
+        info.setQueries(Collections.emptyMap());
+        info.setTimestamp(1648878722451L);
+        return info;
+    }
+
+    static AccessLogJsonEncoder encoder(boolean envelope) {
+        AccessLogJsonEncoder encoder = new AccessLogJsonEncoder();
+        encoder.setEnvelope(envelope);
+        encoder.extrasSupplier = EXTRAS;
+        encoder.writer = new AccessLogWriter(envelope ? EXTRAS : null);
+        return encoder;
+    }
+
+    static EncodedData batch(AccessLogJsonEncoder encoder, AccessLogInfo... logs) {
+        List<EncodedData> items = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (AccessLogInfo log : logs) {
+            int size = encoder.sizeInBytes(log);
+            EncodedData item = encoder.encode(log);
+            assertEquals(size, item.size());
+            items.add(item);
+            sizes.add(item.size());
+        }
+        EncodedData data = encoder.encodeList(items);
+        assertEquals(encoder.packageSizeInBytes(sizes), data.size());
+        return data;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void envelope() {
+        EncodedData data = batch(encoder(true), accessLog("demo-service"), accessLog("other-service"));
+        Map<String, Object> json = JsonUtil.toMap(new String(data.getData()));
+        Map<String, Object> resource = (Map<String, Object>) json.get("resource");
+        assertEquals("demo-service", resource.get("service"));
+        assertEquals("demo-system", resource.get("system"));
+        assertEquals(HostAddress.localhost(), resource.get("host_name"));
+        assertEquals(HostAddress.getHostIpv4(), resource.get("host_ipv4"));
+
+        List<Map<String, Object>> records = (List<Map<String, Object>>) json.get("records");
+        assertEquals(2, records.size());
+        assertNull(records.get(0).get("service"));
+        assertNull(records.get(0).get("host_name"));
+        assertEquals("200", records.get(0).get("status_code"));
+        // a record differs from the resource keeps its own value
+        assertEquals("other-service", records.get(1).get("service"));
+        assertNull(records.get(1).get("system"));
+    }
+
+    @Test
+    public void envelopeIsSmaller() {
+        int count = 50;
+        AccessLogInfo[] arrayLogs = new AccessLogInfo[count];
+        AccessLogInfo[] envelopeLogs = new AccessLogInfo[count];
+        for (int i = 0; i < count; i++) {
+            arrayLogs[i] = accessLog("demo-service");
+            envelopeLogs[i] = accessLog("demo-service");
+        }
+        int arraySize = batch(encoder(false), arrayLogs).size();
+        int envelopeSize = batch(encoder(true), envelopeLogs).size();
+
+        AccessLogInfo one = accessLog("demo-service");
+        int perRecord = new AccessLogWriter().sizeInBytes(one) - new AccessLogWriter(EXTRAS).sizeInBytes(one);
+        int resource = encoder(true).packageSizeInBytes(Collections.emptyList()) - 2;
+        assertEquals(perRecord * count - resource, arraySize - envelopeSize);
+        assertTrue(arraySize - envelopeSize > 0);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.otlp;
+
+import com.megaease.easeagent.plugin.api.otlp.common.AgentLogData;
+import com.megaease.easeagent.plugin.api.otlp.common.AgentLogDataImpl;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
+import com.megaease.easeagent.report.encoder.span.okhttp.ProtobufRequestBody;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import io.opentelemetry.sdk.logs.data.Severity;
+import org.junit.Test;
+import zipkin2.Span;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OtlpEncoderTest {
+    static final GlobalExtrasSupplier EXTRAS = new GlobalExtrasSupplier() {
+        @Override
+        public String service() {
+            return "demo-service";
+        }
+
+        @Override
+        public String system() {
+            return "demo-system";
+        }
+    };
+
+    static <T extends OtlpEncoder<?>> T init(T encoder) {
+        encoder.extras = EXTRAS;
+        return encoder;
+    }
+
+    /**
+     * minimal proto3 reader: field number to its values, length delimited values are byte arrays
+     */
+    static Map<Integer, List<Object>> read(byte[] data) {
+        Map<Integer, List<Object>> fields = new HashMap<>();
+        int pos = 0;
+        while (pos < data.length) {
+            long[] key = varint(data, pos);
+            pos = (int) key[1];
+            int field = (int) (key[0] >>> 3);
+            int wireType = (int) (key[0] & 7);
+            Object value;
+            if (wireType == 0) {
+                long[] v = varint(data, pos);
+                value = v[0];
+                pos = (int) v[1];
+            } else if (wireType == 1) {
+                long v = 0;
+                for (int i = 7; i >= 0; i--) {
+                    v = v << 8 | (data[pos + i] & 0xff);
+                }
+                value = v;
+                pos += 8;
+            } else if (wireType == 2) {
+                long[] length = varint(data, pos);
+                pos = (int) length[1];
+                value = Arrays.copyOfRange(data, pos, pos + (int) length[0]);
+                pos += (int) length[0];
+            } else {
+                throw new IllegalStateException("wire type " + wireType);
+            }
+            fields.computeIfAbsent(field, k -> new ArrayList<>()).add(value);
+        }
+        assertEquals(data.length, pos);
+        return fields;
+    }
+
+    static long[] varint(byte[] data, int pos) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos++];
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return new long[]{result, pos};
+            }
+            shift += 7;
+        }
+    }
+
+    static byte[] bytes(Map<Integer, List<Object>> fields, int field) {
+        return (byte[]) fields.get(field).get(0);
+    }
+
+    static String string(Map<Integer, List<Object>> fields, int field) {
+        return new String(bytes(fields, field), StandardCharsets.UTF_8);
+    }
+
+    static Map<String, Object> attributes(List<Object> keyValues) {
+        Map<String, Object> result = new HashMap<>();
+        for (Object kv : keyValues) {
+            Map<Integer, List<Object>> fields = read((byte[]) kv);
+            Map<Integer, List<Object>> value = read(bytes(fields, 2));
+            Object v = value.containsKey(1) ? string(value, 1) : value.values().iterator().next().get(0);
+            result.put(string(fields, 1), v);
+        }
+        return result;
+    }
+
+    /**
+     * @return the items of the single scope of the single resource, after checking the resource
+     */
+    static List<Object> items(EncodedData list) {
+        Map<Integer, List<Object>> request = read(list.getData());
+        assertEquals(1, request.get(1).size());
+        Map<Integer, List<Object>> resourceX = read(bytes(request, 1));
+        Map<String, Object> resource = attributes(read(bytes(resourceX, 1)).get(1));
+        assertEquals("demo-service", resource.get("service.name"));
+        assertEquals("demo-system", resource.get("service.namespace"));
+        Map<Integer, List<Object>> scopeX = read(bytes(resourceX, 2));
+        assertEquals("easeagent", string(read(bytes(scopeX, 1)), 1));
+        return scopeX.get(2);
+    }
+
+    static void assertPackage(OtlpEncoder<?> encoder, List<EncodedData> items, EncodedData list) {
+        assertTrue(list instanceof ProtobufRequestBody);
+        assertEquals(encoder.messageSizeInBytes(items), list.size());
+        assertEquals(list.size(), list.getData().length);
+    }
+
+    static ReportSpan span(long id, boolean error) {
+        ReportSpanBuilder builder = ReportSpanBuilder.newBuilder()
+            .traceId(0L, 0x5678L)
+            .parentId(0x9aL)
+            .id(id)
+            .name("get /users/{id}")
+            .kind(Span.Kind.CLIENT)
+            .timestamp(1648878722451000L)
+            .duration(1234L)
+            .remoteEndpoint(ReportSpanBuilder.endpoint("users", "10.0.0.1", 8080))
+            .addAnnotation(1648878722451100L, "wr")
+            .putTag("http.method", "GET");
+        if (error) {
+            builder.putTag("error", "timeout");
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void spans() {
+        OtlpSpanEncoder encoder = init(new OtlpSpanEncoder());
+        ReportSpan first = span(1L, false);
+        EncodedData item = encoder.encode(first);
+        assertEquals(encoder.sizeInBytes(first), item.size());
+
+        List<EncodedData> items = Arrays.asList(item, encoder.encode(span(2L, true)));
+        EncodedData list = encoder.encodeList(items);
+        assertPackage(encoder, items, list);
+
+        List<Object> spans = items(list);
+        assertEquals(2, spans.size());
+        Map<Integer, List<Object>> span = read((byte[]) spans.get(0));
+        assertEquals(16, bytes(span, 1).length);
+        assertEquals(0x78, bytes(span, 1)[15]);
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 1}, bytes(span, 2));
+        assertEquals("get /users/{id}", string(span, 5));
+        assertEquals(3L, span.get(6).get(0));
+        assertEquals(1648878722451000_000L, span.get(7).get(0));
+        assertEquals((1648878722451000L + 1234L) * 1000, span.get(8).get(0));
+        Map<String, Object> attributes = attributes(span.get(9));
+        assertEquals("GET", attributes.get("http.method"));
+        assertEquals("users", attributes.get("peer.service"));
+        assertEquals("10.0.0.1", attributes.get("net.peer.ip"));
+        assertEquals(8080L, attributes.get("net.peer.port"));
+        assertEquals("wr", string(read((byte[]) span.get(11).get(0)), 2));
+        assertNull(span.get(15));
+
+        Map<Integer, List<Object>> status = read(bytes(read((byte[]) spans.get(1)), 15));
+        assertEquals("timeout", string(status, 2));
+        assertEquals(2L, status.get(3).get(0));
+    }
+
+    @Test
+    public void metrics() {
+        OtlpMetricEncoder encoder = init(new OtlpMetricEncoder());
+        Map<String, Object> metric = new HashMap<>();
+        metric.put("timestamp", 1648878722451L);
+        metric.put("service", "demo-service");
+        metric.put("category", "application");
+        metric.put("type", "http-request");
+        metric.put("url", "GET /users");
+        metric.put("cnt", 10L);
+        metric.put("p99", 12.5D);
+        metric.put("exemplars", Collections.emptyMap());
+
+        int size = encoder.sizeInBytes(metric);
+        EncodedData item = encoder.encode(metric);
+        assertEquals(size, item.size());
+        assertSame(item, encoder.encode(metric));
+
+        List<EncodedData> items = Collections.singletonList(item);
+        EncodedData list = encoder.encodeList(items);
+        assertPackage(encoder, items, list);
+
+        Map<String, Map<Integer, List<Object>>> points = new HashMap<>();
+        for (Object m : items(list)) {
+            Map<Integer, List<Object>> fields = read((byte[]) m);
+            Map<Integer, List<Object>> gauge = read(bytes(fields, 5));
+            points.put(string(fields, 1), read(bytes(gauge, 1)));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("http-request.cnt", "http-request.p99")), points.keySet());
+        Map<Integer, List<Object>> cnt = points.get("http-request.cnt");
+        assertEquals(10L, cnt.get(6).get(0));
+        assertEquals(1648878722451_000_000L, cnt.get(3).get(0));
+        Map<String, Object> attributes = attributes(cnt.get(7));
+        assertEquals("GET /users", attributes.get("url"));
+        assertEquals("application", attributes.get("category"));
+        assertFalse(attributes.containsKey("service"));
+        assertEquals(12.5D, Double.longBitsToDouble((Long) points.get("http-request.p99").get(4).get(0)), 0);
+    }
+
+    @Test
+    public void logs() {
+        OtlpLogEncoder encoder = init(new OtlpLogEncoder());
+        AgentLogData log = AgentLogDataImpl.builder()
+            .epochMills(1648878722451L)
+            .logger("com.demo.UserService")
+            .severity(Severity.WARN)
+            .severityText("WARN")
+            .thread(Thread.currentThread())
+            .throwable(new IllegalStateException("test"))
+            .body("Hello")
+            .build();
+
+        int size = encoder.sizeInBytes(log);
+        EncodedData item = encoder.encode(log);
+        assertEquals(size, item.size());
+
+        List<EncodedData> items = Collections.singletonList(item);
+        EncodedData list = encoder.encodeList(items);
+        assertPackage(encoder, items, list);
+
+        Map<Integer, List<Object>> record = read((byte[]) items(list).get(0));
+        assertEquals(1648878722451_000_000L, record.get(1).get(0));
+        assertEquals((long) Severity.WARN.getSeverityNumber(), record.get(2).get(0));
+        assertEquals("WARN", string(record, 3));
+        assertEquals("Hello", string(read(bytes(record, 5)), 1));
+        Map<String, Object> attributes = attributes(record.get(6));
+        assertEquals("com.demo.UserService", attributes.get("logger.name"));
+        assertEquals(IllegalStateException.class.getName(), attributes.get("exception.type"));
+        assertEquals("test", attributes.get("exception.message"));
+        assertNull(record.get(9));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding a typical server span with the proto3 and the json encoder: time and allocation
+ * per span from the gc profiler, and the encoded bytes per span printed after the run.
+ * <p>
+ * run: mvn -pl report test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.megaease.easeagent.report.encoder.span.SpanEncoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SpanEncoderBenchmark {
+    private final ReportSpan span = SpanProtobufEncoderTest.span(0xbcL);
+    private final SpanProtobufEncoder proto = proto();
+    private final SpanJsonEncoder json = SpanJsonEncoderTest.encoder(true);
+
+    static SpanProtobufEncoder proto() {
+        SpanProtobufEncoder encoder = new SpanProtobufEncoder();
+        encoder.writer = new AgentV2SpanProto3Writer("log-tracing", SpanProtobufEncoderTest.EXTRAS);
+        return encoder;
+    }
+
+    @Benchmark
+    public EncodedData proto3() {
+        return proto.encode(span);
+    }
+
+    @Benchmark
+    public EncodedData json() {
+        return json.encode(span);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(SpanEncoderBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+
+        SpanEncoderBenchmark benchmark = new SpanEncoderBenchmark();
+        System.out.println("bytes per span: proto3 " + benchmark.proto3().size()
+            + ", json " + benchmark.json().size());
+    }
+}
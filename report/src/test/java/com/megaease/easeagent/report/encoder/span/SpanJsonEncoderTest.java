@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.plugin.utils.common.JsonUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.megaease.easeagent.report.encoder.span.SpanProtobufEncoderTest.EXTRAS;
+import static com.megaease.easeagent.report.encoder.span.SpanProtobufEncoderTest.span;
+import static org.junit.Assert.*;
+
+public class SpanJsonEncoderTest {
+    static SpanJsonEncoder encoder(boolean envelope) {
+        SpanJsonEncoder encoder = new SpanJsonEncoder();
+        encoder.setEnvelope(envelope);
+        encoder.extrasSupplier = EXTRAS;
+        encoder.writer = new AgentV2SpanWriter(EXTRAS, !envelope);
+        return encoder;
+    }
+
+    static EncodedData batch(SpanJsonEncoder encoder, int count) {
+        List<EncodedData> items = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ReportSpan span = span(i + 1);
+            EncodedData item = encoder.encode(span);
+            assertEquals(encoder.sizeInBytes(span), item.size());
+            items.add(item);
+            sizes.add(item.size());
+        }
+        EncodedData data = encoder.encodeList(items);
+        assertEquals(encoder.packageSizeInBytes(sizes), data.size());
+        return data;
+    }
+
+    @Test
+    public void arrayByDefault() {
+        EncodedData data = batch(encoder(false), 2);
+        String json = new String(data.getData());
+        assertTrue(json.startsWith("[{"));
+        assertTrue(json.contains("\"service\":\"demo-service\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void envelope() {
+        EncodedData data = batch(encoder(true), 3);
+        Map<String, Object> json = JsonUtil.toMap(new String(data.getData()));
+        Map<String, Object> resource = (Map<String, Object>) json.get("resource");
+        assertEquals("log-tracing", resource.get("type"));
+        assertEquals("demo-service", resource.get("service"));
+        assertEquals("demo-system", resource.get("system"));
+        List<Map<String, Object>> records = (List<Map<String, Object>>) json.get("records");
+        assertEquals(3, records.size());
+        for (Map<String, Object> r : records) {
+            assertNull(r.get("service"));
+            assertNull(r.get("system"));
+            assertNotNull(r.get("traceId"));
+        }
+    }
+
+    @Test
+    public void envelopeSavesGlobalFieldsPerRecord() {
+        SpanJsonEncoder array = encoder(false);
+        SpanJsonEncoder envelope = encoder(true);
+        int perRecord = new AgentV2SpanGlobalWriter(AgentV2SpanWriter.TYPE, EXTRAS).sizeInBytes(span(1));
+        int resource = envelope.packageSizeInBytes(Collections.emptyList()) - 2;
+        for (int count : new int[]{1, 10, 100}) {
+            int saved = batch(array, count).size() - batch(envelope, count).size();
+            assertEquals(perRecord * count - resource, saved);
+        }
+        // 69 bytes of type/service/system per span, 94 bytes of envelope per batch
+        assertEquals(69, perRecord);
+        assertEquals(94, resource);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.encoder.span.okhttp.ProtobufRequestBody;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesDecoder;
+import zipkin2.internal.JsonCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SpanProtobufEncoderTest {
+    static final GlobalExtrasSupplier EXTRAS = new GlobalExtrasSupplier() {
+        @Override
+        public String service() {
+            return "demo-service";
+        }
+
+        @Override
+        public String system() {
+            return "demo-system";
+        }
+    };
+
+    SpanProtobufEncoder encoder;
+
+    @Before
+    public void before() {
+        encoder = new SpanProtobufEncoder();
+        encoder.writer = new AgentV2SpanProto3Writer("log-tracing", EXTRAS);
+    }
+
+    static ReportSpan span(long id) {
+        return ReportSpanBuilder.newBuilder()
+            .traceId(0x1234L, 0x5678L)
+            .parentId(0x9aL)
+            .id(id)
+            .name("get /users/{id}")
+            .kind(Span.Kind.SERVER)
+            .timestamp(1648878722451000L)
+            .duration(1234L)
+            .localEndpoint(ReportSpanBuilder.endpoint("demo-service", "192.168.1.10", 8080))
+            .remoteEndpoint(ReportSpanBuilder.endpoint("caller", "10.0.0.1", 0))
+            .addAnnotation(1648878722451100L, "wr")
+            .putTag("http.method", "GET")
+            .putTag("http.path", "/users/1")
+            .build();
+    }
+
+    @Test
+    public void sizeInBytes() {
+        ReportSpan span = span(0xbcL);
+        EncodedData data = encoder.encode(span);
+        assertEquals(encoder.sizeInBytes(span), data.size());
+        assertEquals(data.size(), data.getData().length);
+    }
+
+    @Test
+    public void decode() {
+        EncodedData data = encoder.encode(span(0xbcL));
+        List<Span> spans = SpanBytesDecoder.PROTO3.decodeList(data.getData());
+        assertEquals(1, spans.size());
+        Span span = spans.get(0);
+        assertEquals("00000000000012340000000000005678", span.traceId());
+        assertEquals("000000000000009a", span.parentId());
+        assertEquals("00000000000000bc", span.id());
+        assertEquals(Span.Kind.SERVER, span.kind());
+        assertEquals("get /users/{id}", span.name());
+        assertEquals(1648878722451000L, (long) span.timestamp());
+        assertEquals(1234L, (long) span.duration());
+        assertEquals("demo-service", span.localServiceName());
+        assertEquals("192.168.1.10", span.localEndpoint().ipv4());
+        assertEquals(8080, (int) span.localEndpoint().port());
+        assertEquals("caller", span.remoteServiceName());
+        assertEquals("wr", span.annotations().get(0).value());
+        assertEquals("GET", span.tags().get("http.method"));
+        assertEquals("/users/1", span.tags().get("http.path"));
+    }
+
+    @Test
+    public void globalExtras() {
+        byte[] data = encoder.encode(span(0xbcL)).getData();
+        int[] pos = {0};
+        assertEquals((1 << 3) | 2, readVarint(data, pos));
+        int end = (int) readVarint(data, pos) + pos[0];
+        assertEquals(data.length, end);
+
+        Map<Integer, String> extras = new HashMap<>();
+        while (pos[0] < end) {
+            long key = readVarint(data, pos);
+            int field = (int) (key >>> 3);
+            switch ((int) (key & 7)) {
+                case 0:
+                    readVarint(data, pos);
+                    break;
+                case 1:
+                    pos[0] += 8;
+                    break;
+                case 2:
+                    int length = (int) readVarint(data, pos);
+                    if (field >= AgentV2SpanProto3Writer.TYPE_FIELD) {
+                        extras.put(field, new String(data, pos[0], length, StandardCharsets.UTF_8));
+                    }
+                    pos[0] += length;
+                    break;
+                case 5:
+                    pos[0] += 4;
+                    break;
+                default:
+                    fail("unexpected wire type of key " + key);
+            }
+        }
+        assertEquals(end, pos[0]);
+        assertEquals(3, extras.size());
+        assertEquals("log-tracing", extras.get(AgentV2SpanProto3Writer.TYPE_FIELD));
+        assertEquals("demo-service", extras.get(AgentV2SpanProto3Writer.SERVICE_FIELD));
+        assertEquals("demo-system", extras.get(AgentV2SpanProto3Writer.SYSTEM_FIELD));
+    }
+
+    static long readVarint(byte[] data, int[] pos) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[pos[0]++];
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    @Test
+    public void encodeList() {
+        List<EncodedData> items = Arrays.asList(encoder.encode(span(1L)), encoder.encode(span(2L)));
+        EncodedData list = encoder.encodeList(items);
+        assertTrue(list instanceof ProtobufRequestBody);
+        assertEquals(encoder.messageSizeInBytes(items), list.size());
+        assertEquals(items.get(0).size() + encoder.appendSizeInBytes(items.get(1).size()), list.size());
+
+        List<Span> spans = SpanBytesDecoder.PROTO3.decodeList(list.getData());
+        assertEquals(2, spans.size());
+        assertEquals("0000000000000001", spans.get(0).id());
+        assertEquals("0000000000000002", spans.get(1).id());
+    }
+
+    @Test
+    public void smallerThanJson() {
+        ReportSpan span = span(0xbcL);
+        AgentV2SpanWriter json = new AgentV2SpanWriter(EXTRAS);
+        int jsonSize = JsonCodec.write(json, span).length;
+        int protoSize = encoder.encode(span).size();
+        assertTrue(protoSize + " vs " + jsonSize, protoSize * 10 < jsonSize * 6);
+    }
+
+    @Test
+    public void ipv4() {
+        assertEquals(0xc0a8010aL, AgentV2SpanProto3Writer.ipv4("192.168.1.10"));
+        assertEquals(0xffffffffL, AgentV2SpanProto3Writer.ipv4("255.255.255.255"));
+        assertEquals(-1L, AgentV2SpanProto3Writer.ipv4("256.1.1.1"));
+        assertEquals(-1L, AgentV2SpanProto3Writer.ipv4("1.1.1"));
+        assertEquals(-1L, AgentV2SpanProto3Writer.ipv4("1..1.1"));
+        assertEquals(-1L, AgentV2SpanProto3Writer.ipv4("::1"));
+        assertEquals(-1L, AgentV2SpanProto3Writer.ipv4(null));
+    }
+}
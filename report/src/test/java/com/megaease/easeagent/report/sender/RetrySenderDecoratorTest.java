@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.Callback;
+import com.megaease.easeagent.report.sender.okhttp.HttpSender;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+import static com.megaease.easeagent.report.sender.CircuitBreaker.State.*;
+import static org.junit.Assert.*;
+
+public class RetrySenderDecoratorTest {
+    static final String PREFIX = TRACE_SENDER;
+
+    HttpServer collector;
+    final AtomicInteger requests = new AtomicInteger();
+    // the requests before this one fail
+    final AtomicInteger failUntil = new AtomicInteger(Integer.MAX_VALUE);
+    Configs config;
+
+    @Before
+    public void before() throws Exception {
+        collector = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        collector.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() >= 0) {
+                    // drain
+                }
+            }
+            int n = requests.incrementAndGet();
+            exchange.sendResponseHeaders(n < failUntil.get() ? 503 : 200, -1);
+            exchange.close();
+        });
+        collector.start();
+    }
+
+    @After
+    public void after() {
+        collector.stop(0);
+    }
+
+    RetrySenderDecorator sender(int maxRetries, int failures, long openMillis) {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(OUTPUT_SERVERS_ENABLE, "true");
+        cfg.put(join(PREFIX, APPEND_TYPE_KEY), HttpSender.SENDER_NAME);
+        cfg.put(TRACE_ENCODER, SPAN_JSON_ENCODER_NAME);
+        cfg.put(join(PREFIX, "url"), "http://127.0.0.1:" + collector.getAddress().getPort() + "/tracing");
+        cfg.put(join(PREFIX, "compress"), "false");
+        cfg.put(join(PREFIX, RetrySenderDecorator.MAX_RETRIES_KEY), String.valueOf(maxRetries));
+        cfg.put(join(PREFIX, RetrySenderDecorator.BACKOFF_KEY), "10");
+        cfg.put(join(PREFIX, RetrySenderDecorator.MAX_BACKOFF_KEY), "40");
+        cfg.put(join(PREFIX, RetrySenderDecorator.BREAKER_FAILURES_KEY), String.valueOf(failures));
+        cfg.put(join(PREFIX, RetrySenderDecorator.BREAKER_OPEN_DURATION_KEY), String.valueOf(openMillis));
+        config = new Configs(cfg);
+        SenderConfigDecorator decorator = new SenderConfigDecorator(PREFIX, new HttpSender(), config);
+        decorator.init(config, PREFIX);
+        return new RetrySenderDecorator(decorator, config);
+    }
+
+    static boolean send(RetrySenderDecorator sender) {
+        try {
+            sender.send(new ByteWrapper("[]".getBytes())).execute();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void backoff() {
+        RetrySenderDecorator sender = sender(8, 0, 1000);
+        for (int attempt = 0; attempt < 8; attempt++) {
+            long nanos = sender.backoffNanos(attempt);
+            long cap = Math.min(40, 10L << attempt);
+            assertTrue(nanos >= TimeUnit.MILLISECONDS.toNanos(cap / 2));
+            assertTrue(nanos <= TimeUnit.MILLISECONDS.toNanos(cap));
+        }
+    }
+
+    @Test
+    public void retrySucceeds() throws IOException {
+        failUntil.set(3);
+        RetrySenderDecorator sender = sender(2, 5, 1000);
+        assertTrue(send(sender));
+        assertEquals(3, requests.get());
+        assertEquals(CLOSED, sender.breaker.state());
+        sender.close();
+    }
+
+    @Test
+    public void retriesAreBounded() throws IOException {
+        RetrySenderDecorator sender = sender(2, 0, 1000);
+        assertFalse(send(sender));
+        assertEquals(3, requests.get());
+        sender.close();
+    }
+
+    @Test
+    public void circuitBreakerPausesSending() throws IOException {
+        RetrySenderDecorator sender = sender(0, 3, 300);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(send(sender));
+        }
+        assertEquals(OPEN, sender.breaker.state());
+        assertEquals(3, requests.get());
+
+        // paused until the open duration elapses, then the half-open trial fails and opens it again
+        long begin = System.nanoTime();
+        assertFalse(send(sender));
+        assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(4, requests.get());
+        assertEquals(OPEN, sender.breaker.state());
+
+        // the collector is back, the trial closes it
+        failUntil.set(0);
+        assertTrue(send(sender));
+        assertEquals(5, requests.get());
+        assertEquals(CLOSED, sender.breaker.state());
+        sender.close();
+    }
+
+    @Test
+    public void closeWakesPausedSend() throws Exception {
+        RetrySenderDecorator sender = sender(0, 1, 60_000);
+        assertFalse(send(sender));
+        assertEquals(OPEN, sender.breaker.state());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread flusher = new Thread(() -> {
+            try {
+                send(sender);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        flusher.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+        sender.close();
+        flusher.join(5_000);
+        assertFalse(flusher.isAlive());
+        assertTrue(error.get() instanceof IllegalStateException);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void enqueueFailsFastWhenOpen() throws IOException {
+        RetrySenderDecorator sender = sender(0, 1, 60_000);
+        assertFalse(send(sender));
+        assertEquals(OPEN, sender.breaker.state());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        sender.send(new ByteWrapper("[]".getBytes())).enqueue(new Callback<Void>() {
+            @Override
+            public void onSuccess(Void value) {
+                fail();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error.set(t);
+            }
+        });
+        assertTrue(error.get() instanceof IOException);
+        assertEquals(1, requests.get());
+        sender.close();
+    }
+
+    @Test
+    public void closeRemovesListener() throws IOException {
+        RetrySenderDecorator sender = sender(0, 1, 60_000);
+        CircuitBreaker breaker = sender.breaker;
+        sender.close();
+        config.updateConfigs(Collections.singletonMap(join(PREFIX, RetrySenderDecorator.BREAKER_FAILURES_KEY), "10"));
+        assertSame(breaker, sender.breaker);
+    }
+
+    @Test
+    public void transitions() {
+        List<CircuitBreaker.State> states = new ArrayList<>();
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000L, (from, to) -> states.add(to));
+        long now = 0L;
+        assertEquals(0L, breaker.acquire(now));
+        breaker.onFailure(now);
+        assertEquals(CLOSED, breaker.state());
+        breaker.onFailure(now);
+        assertEquals(OPEN, breaker.state());
+        assertEquals(1000L, breaker.acquire(now));
+        assertEquals(400L, breaker.acquire(now + 600));
+
+        // one trial while half-open
+        assertEquals(0L, breaker.acquire(now + 1000));
+        assertTrue(breaker.acquire(now + 1000) > 0);
+        breaker.onFailure(now + 1000);
+        assertEquals(0L, breaker.acquire(now + 2000));
+        // a trial ended without an outcome lets the next one through
+        breaker.release();
+        assertEquals(0L, breaker.acquire(now + 2000));
+        breaker.onSuccess();
+        assertEquals(Arrays.asList(OPEN, HALF_OPEN, OPEN, HALF_OPEN, CLOSED), states);
+
+        // disabled by threshold 0
+        CircuitBreaker disabled = new CircuitBreaker(0, 1000L, (from, to) -> fail());
+        for (int i = 0; i < 10; i++) {
+            disabled.onFailure(now);
+        }
+        assertEquals(0L, disabled.acquire(now));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.github.luben.zstd.Zstd;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class CompressionTest {
+    static byte[] payload(int records) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < records; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"traceId\":\"5af7183fb1d4cf5f\",\"id\":\"").append(i)
+                .append("\",\"name\":\"get /users/{id}\",\"service\":\"demo-service\"}");
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] bytes(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        assertEquals(body.contentLength(), buffer.size());
+        return buffer.readByteArray();
+    }
+
+    static byte[] gunzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void of() {
+        assertEquals(Compression.GZIP, Compression.of(null));
+        assertEquals(Compression.GZIP, Compression.of("true"));
+        assertEquals(Compression.GZIP, Compression.of("gzip"));
+        assertEquals(Compression.NONE, Compression.of("false"));
+        assertEquals(Compression.NONE, Compression.of("none"));
+        assertNull(Compression.NONE.contentEncoding());
+        assertEquals("gzip", Compression.GZIP.contentEncoding());
+    }
+
+    @Test
+    public void gzipReusesDeflater() throws IOException {
+        // the flush thread compresses one body after another with the same deflater
+        for (int records : new int[]{1000, 1, 0, 300}) {
+            byte[] data = payload(records);
+            RequestBody compressed = Compression.GZIP.compress(new ByteRequestBody(data));
+            assertEquals(ByteRequestBody.CONTENT_TYPE, compressed.contentType());
+            byte[] gzipped = bytes(compressed);
+            assertArrayEquals(data, gunzip(gzipped));
+            if (records > 1) {
+                assertTrue(gzipped.length < data.length);
+            }
+        }
+    }
+
+    @Test
+    public void gzipStreamsRequestBody() throws IOException {
+        byte[] data = payload(2000);
+        MediaType type = MediaType.parse("application/x-protobuf");
+        RequestBody streamed = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return type;
+            }
+
+            @Override
+            public void writeTo(@NotNull BufferedSink sink) throws IOException {
+                for (int i = 0; i < data.length; i += 100) {
+                    sink.write(data, i, Math.min(100, data.length - i));
+                }
+            }
+        };
+        RequestBody compressed = Compression.GZIP.compress(streamed);
+        assertEquals(type, compressed.contentType());
+        assertArrayEquals(data, gunzip(bytes(compressed)));
+    }
+
+    @Test
+    public void zstd() throws IOException {
+        Assume.assumeTrue(Compression.ZstdSupport.AVAILABLE);
+        assertEquals(Compression.ZSTD, Compression.of("zstd"));
+        assertEquals("zstd", Compression.ZSTD.contentEncoding());
+
+        byte[] data = payload(1000);
+        byte[] compressed = bytes(Compression.ZSTD.compress(new ByteRequestBody(data)));
+        assertTrue(compressed.length < data.length);
+        assertArrayEquals(data, Zstd.decompress(compressed, data.length));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+import static org.junit.Assert.*;
+
+public class EndpointsTest {
+    final List<HttpServer> servers = new ArrayList<>();
+
+    @After
+    public void after() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    static Endpoints endpoints(Endpoints.LoadBalance loadBalance, int ejectFailures, String... urls) {
+        List<HttpUrl> list = new ArrayList<>();
+        for (String url : urls) {
+            list.add(HttpUrl.get(url));
+        }
+        return new Endpoints(list, loadBalance, ejectFailures, 1000);
+    }
+
+    @Test
+    public void loadBalanceOf() {
+        assertEquals(Endpoints.LoadBalance.ROUND_ROBIN, Endpoints.LoadBalance.of(null));
+        assertEquals(Endpoints.LoadBalance.ROUND_ROBIN, Endpoints.LoadBalance.of("roundRobin"));
+        assertEquals(Endpoints.LoadBalance.LEAST_IN_FLIGHT, Endpoints.LoadBalance.of("leastInFlight"));
+        assertEquals(Endpoints.LoadBalance.LEAST_IN_FLIGHT, Endpoints.LoadBalance.of("LEAST_IN_FLIGHT"));
+    }
+
+    @Test
+    public void roundRobin() {
+        Endpoints endpoints = endpoints(Endpoints.LoadBalance.ROUND_ROBIN, 3, "http://a/", "http://b/", "http://c/");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            counts.merge(endpoints.next(0).url().host(), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(c -> assertEquals(10, c.intValue()));
+    }
+
+    @Test
+    public void leastInFlight() {
+        Endpoints endpoints = endpoints(Endpoints.LoadBalance.LEAST_IN_FLIGHT, 3, "http://a/", "http://b/");
+        Endpoints.Endpoint a = endpoints.getEndpoints().get(0);
+        a.begin();
+        a.begin();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("b", endpoints.next(0).url().host());
+        }
+        a.end(true, 0);
+        a.end(true, 0);
+        Endpoints.Endpoint b = endpoints.getEndpoints().get(1);
+        b.begin();
+        assertSame(a, endpoints.next(0));
+    }
+
+    @Test
+    public void ejectAndProbe() {
+        Endpoints endpoints = endpoints(Endpoints.LoadBalance.ROUND_ROBIN, 2, "http://a/", "http://b/");
+        Endpoints.Endpoint a = endpoints.getEndpoints().get(0);
+        long now = 0;
+        a.begin();
+        a.end(false, now);
+        assertFalse(a.isEjected());
+        a.begin();
+        a.end(false, now);
+        assertTrue(a.isEjected());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("b", endpoints.next(now).url().host());
+        }
+
+        // the interval elapsed: only one request probes it
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertSame(a, endpoints.next(now));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("b", endpoints.next(now).url().host());
+        }
+        // failed probe ejects it again
+        a.begin();
+        a.end(false, now);
+        assertTrue(a.isEjected());
+        assertEquals("b", endpoints.next(now + 1).url().host());
+
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertSame(a, endpoints.next(now));
+        a.begin();
+        a.end(true, now);
+        assertFalse(a.isEjected());
+    }
+
+    @Test
+    public void allEjected() {
+        Endpoints endpoints = endpoints(Endpoints.LoadBalance.ROUND_ROBIN, 1, "http://a/", "http://b/");
+        Endpoints.Endpoint a = endpoints.getEndpoints().get(0);
+        Endpoints.Endpoint b = endpoints.getEndpoints().get(1);
+        a.begin();
+        a.end(false, 0);
+        b.begin();
+        b.end(false, 10);
+        assertTrue(a.isEjected() && b.isEjected());
+        assertSame(a, endpoints.next(20));
+        assertSame(a, endpoints.next(20));
+    }
+
+    HttpServer server(int status, AtomicInteger requests) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() >= 0) {
+                    // drain
+                }
+            }
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    @Test
+    public void failover() throws Exception {
+        AtomicInteger healthy = new AtomicInteger();
+        AtomicInteger broken = new AtomicInteger();
+        HttpServer ok = server(200, healthy);
+        HttpServer down = server(503, broken);
+
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(OUTPUT_SERVERS_ENABLE, "true");
+        cfg.put(BOOTSTRAP_SERVERS, String.join(",", Arrays.asList(
+            "http://127.0.0.1:" + ok.getAddress().getPort(),
+            "http://127.0.0.1:" + down.getAddress().getPort())));
+        cfg.put(join(TRACE_SENDER, "url"), "/tracing");
+        cfg.put(join(TRACE_SENDER, "compress"), "false");
+        cfg.put(join(TRACE_SENDER, "ejection.failures"), "2");
+        cfg.put(join(TRACE_SENDER, "ejection.interval"), "60000");
+
+        HttpSender sender = new HttpSender();
+        sender.init(new Configs(cfg), TRACE_SENDER);
+        assertTrue(sender.isAvailable());
+        for (int i = 0; i < 10; i++) {
+            try {
+                sender.send(new ByteWrapper(new byte[]{'[', ']'})).execute();
+            } catch (IOException e) {
+                // 503
+            }
+        }
+        assertEquals(2, broken.get());
+        assertEquals(8, healthy.get());
+        sender.close();
+    }
+
+    @Test
+    public void failedRequestKeepsProbe() throws Exception {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(OUTPUT_SERVERS_ENABLE, "true");
+        cfg.put(join(TRACE_SENDER, "url"), "http://127.0.0.1:1/tracing,http://127.0.0.1:2/tracing");
+        cfg.put(join(TRACE_SENDER, "compress"), "gzip");
+        cfg.put(join(TRACE_SENDER, "ejection.failures"), "1");
+        cfg.put(join(TRACE_SENDER, "ejection.interval"), "1");
+
+        HttpSender sender = new HttpSender();
+        sender.init(new Configs(cfg), TRACE_SENDER);
+        Endpoints endpoints = AgentFieldReflectAccessor.getFieldValue(sender, "endpoints");
+        Endpoints.Endpoint a = endpoints.getEndpoints().get(0);
+        a.begin();
+        a.end(false, System.nanoTime());
+        assertTrue(a.isEjected());
+        Thread.sleep(5);
+
+        // compression fails before there is a call, the probe of the endpoint must not be taken
+        for (int i = 0; i < 2; i++) {
+            sender.send(new BrokenBody());
+        }
+        assertSame(a, endpoints.next(System.nanoTime()));
+        assertEquals(0, a.inFlight());
+        sender.close();
+    }
+
+    static class BrokenBody extends RequestBody implements EncodedData {
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public byte[] getData() {
+            return new byte[1];
+        }
+
+        @Override
+        public MediaType contentType() {
+            return null;
+        }
+
+        @Override
+        public void writeTo(@NotNull BufferedSink sink) throws IOException {
+            throw new IOException("broken");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+import static org.junit.Assert.*;
+
+public class OtlpHttpSenderTest {
+    HttpServer collector;
+    final AtomicReference<String> contentType = new AtomicReference<>();
+    final AtomicReference<String> path = new AtomicReference<>();
+    final AtomicReference<byte[]> body = new AtomicReference<>();
+
+    @Before
+    public void before() throws Exception {
+        collector = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        collector.createContext("/", exchange -> {
+            contentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            path.set(exchange.getRequestURI().getPath());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buf = new byte[1024];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                }
+            }
+            body.set(out.toByteArray());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        collector.start();
+    }
+
+    @After
+    public void after() {
+        collector.stop(0);
+    }
+
+    @Test
+    public void send() throws Exception {
+        String prefix = TRACE_SENDER;
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(OUTPUT_SERVERS_ENABLE, "true");
+        cfg.put(join(prefix, "url"), "http://127.0.0.1:" + collector.getAddress().getPort() + "/v1/traces");
+        cfg.put(join(prefix, "compress"), "false");
+
+        OtlpHttpSender sender = new OtlpHttpSender();
+        sender.init(new Configs(cfg), prefix);
+        assertEquals(OTLP_SENDER_NAME, sender.name());
+        assertTrue(sender.isAvailable());
+
+        byte[] data = new byte[]{0x0a, 0x00};
+        sender.send(new ByteWrapper(data)).execute();
+        assertEquals("/v1/traces", path.get());
+        assertTrue(contentType.get().startsWith("application/x-protobuf"));
+        assertArrayEquals(data, body.get());
+        sender.close();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.trace;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import org.junit.Test;
+import zipkin2.Span;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class RecentTracesTest {
+
+    private static ReportSpan span(long traceId, long id, Long parentId, String name, String service, long duration, boolean error) {
+        ReportSpanBuilder builder = ReportSpanBuilder.newBuilder()
+            .traceId(0L, traceId)
+            .id(id)
+            .name(name)
+            .kind(parentId == null ? Span.Kind.SERVER : Span.Kind.CLIENT)
+            .timestamp(1L)
+            .duration(duration)
+            .localEndpoint(ReportSpanBuilder.endpoint(service, "127.0.0.1", 8080));
+        if (parentId != null) {
+            builder.parentId(parentId);
+        }
+        if (error) {
+            builder.putTag("error", "fail");
+        }
+        return builder.build();
+    }
+
+    private static RecentTraces recentTraces(int size, int topK) {
+        Map<String, String> source = new HashMap<>();
+        source.put(RecentTraces.SIZE_KEY, String.valueOf(size));
+        source.put(RecentTraces.TOP_K_KEY, String.valueOf(topK));
+        return new RecentTraces(new Configs(source), false);
+    }
+
+    @Test
+    public void ring() {
+        RecentTraces recent = recentTraces(20, 2);
+        assertEquals(32, recent.capacity());
+        for (int i = 1; i <= 40; i++) {
+            recent.capture(span(i, i, null, "get /" + i, "demo", i, false));
+        }
+        List<ReportSpan> spans = recent.snapshot();
+        assertEquals(32, spans.size());
+        assertEquals("0000000000000028", spans.get(0).id());
+        assertEquals("0000000000000009", spans.get(31).id());
+    }
+
+    @Test
+    public void groupedByTrace() {
+        RecentTraces recent = recentTraces(16, 2);
+        recent.capture(span(1, 2, 1L, "select", "demo", 10, false));
+        recent.capture(span(2, 4, null, "get /other", "demo", 1, false));
+        recent.capture(span(1, 3, 1L, "select", "demo", 20, false));
+        recent.capture(span(1, 1, null, "get /users", "demo", 100, false));
+
+        List<RecentTraces.Trace> traces = new ArrayList<>(RecentTraces.traces(recent.snapshot()));
+        assertEquals(2, traces.size());
+        RecentTraces.Trace users = traces.get(0);
+        assertEquals("0000000000000001", users.traceId);
+        assertEquals(3, users.spans.size());
+        // in finishing order, the root last
+        assertEquals("0000000000000002", users.spans.get(0).id());
+        assertEquals("get /users", users.root.name());
+        assertEquals(100L, users.duration());
+        assertEquals("0000000000000002", traces.get(1).traceId);
+    }
+
+    @Test
+    public void concurrentCapture() throws InterruptedException {
+        RecentTraces recent = recentTraces(2048, 2);
+        int threads = 4;
+        int tracesPerThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = t * 10_000L;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 1; i <= tracesPerThread; i++) {
+                    recent.capture(span(i, base + i, 1L, "select", "demo", 1, false));
+                    recent.capture(span(i, base + tracesPerThread + i, null, "get /", "demo", 1, false));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // every capture claims its own slot: no span is lost and the spans of all threads group into one trace
+        assertEquals(threads * tracesPerThread * 2, recent.snapshot().size());
+        Collection<RecentTraces.Trace> traces = RecentTraces.traces(recent.snapshot());
+        assertEquals(tracesPerThread, traces.size());
+        for (RecentTraces.Trace trace : traces) {
+            assertEquals(threads * 2, trace.spans.size());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void query() {
+        RecentTraces recent = recentTraces(16, 2);
+        recent.capture(span(1, 2, 1L, "select", "demo", 100, false));
+        recent.capture(span(1, 1, null, "get /users", "demo", 1000, false));
+        recent.capture(span(2, 3, null, "get /users", "demo", 3000, true));
+        recent.capture(span(3, 4, null, "get /users", "other", 2000, false));
+        recent.capture(span(4, 5, null, "get /users", "demo", 10, false));
+
+        Map<String, Object> all = recent.query(0, null, null, 100);
+        List<Map<String, Object>> traces = (List<Map<String, Object>>) all.get("recent");
+        assertEquals(4, traces.size());
+        assertEquals("0000000000000004", traces.get(0).get("traceId"));
+        Map<String, Object> first = traces.get(3);
+        assertEquals(1000L, first.get("duration"));
+        assertEquals(2, ((List<?>) first.get("spans")).size());
+
+        traces = (List<Map<String, Object>>) recent.query(1500, null, null, 100).get("recent");
+        assertEquals(2, traces.size());
+        traces = (List<Map<String, Object>>) recent.query(0, true, null, 100).get("recent");
+        assertEquals(1, traces.size());
+        assertEquals("0000000000000002", traces.get(0).get("traceId"));
+        traces = (List<Map<String, Object>>) recent.query(0, null, "other", 100).get("recent");
+        assertEquals(1, traces.size());
+        traces = (List<Map<String, Object>>) recent.query(0, null, null, 1).get("recent");
+        assertEquals(1, traces.size());
+
+        Map<String, List<Map<String, Object>>> slowest = (Map<String, List<Map<String, Object>>>) all.get("slowest");
+        List<Map<String, Object>> users = slowest.get("get /users");
+        assertEquals(2, users.size());
+        assertEquals(3000L, users.get(0).get("duration"));
+        assertEquals(2000L, users.get(1).get("duration"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void slowestOutliveRing() {
+        RecentTraces recent = recentTraces(16, 1);
+        recent.capture(span(1, 1, null, "get /slow", "demo", 5000, false));
+        recent.harvest();
+        for (int i = 2; i < 40; i++) {
+            recent.capture(span(i, i, null, "get /fast", "demo", 1, false));
+        }
+        Map<String, Object> result = recent.query(0, null, null, 100);
+        Map<String, List<Map<String, Object>>> slowest = (Map<String, List<Map<String, Object>>>) result.get("slowest");
+        assertEquals(5000L, slowest.get("get /slow").get(0).get("duration"));
+        assertEquals(1, slowest.get("get /fast").size());
+        assertEquals(16, ((List<?>) result.get("recent")).size());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package zipkin2.reporter.brave;
+
+import brave.handler.MutableSpan;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting a finished brave span to a ReportSpan, straight from the MutableSpan
+ * or through zipkin2.Span as before, with the allocation rate per operation of the gc profiler.
+ * <p>
+ * run: mvn -pl report test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=zipkin2.reporter.brave.ConvertSpanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConvertSpanBenchmark {
+    private final MutableSpan span = ConvertSpanReporterTest.span();
+
+    @Benchmark
+    public ReportSpan direct() {
+        return ConvertSpanReporter.convert(span);
+    }
+
+    @Benchmark
+    public ReportSpan byZipkinSpan() {
+        return ConvertSpanReporterTest.convertByZipkinSpan(span);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ConvertSpanBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
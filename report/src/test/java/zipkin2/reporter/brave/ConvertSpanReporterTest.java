@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package zipkin2.reporter.brave;
+
+import brave.Span.Kind;
+import brave.handler.MutableSpan;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import org.junit.Test;
+import zipkin2.Endpoint;
+import zipkin2.Span;
+
+import static org.junit.Assert.*;
+
+public class ConvertSpanReporterTest {
+    static MutableSpan span() {
+        MutableSpan span = new MutableSpan();
+        span.traceId("463ac35c9f6413ad");
+        span.parentId("463ac35c9f6413ad");
+        span.id("72485a3953bb6124");
+        span.name("GET /Users");
+        span.kind(Kind.SERVER);
+        span.startTimestamp(1000L);
+        span.finishTimestamp(3000L);
+        span.localServiceName("Demo-Service");
+        span.localIp("192.168.0.1");
+        span.localPort(8080);
+        span.remoteIpAndPort("2001:db8::c001", 9090);
+        span.tag("http.path", "/users");
+        span.tag("http.method", "GET");
+        span.tag("http.status_code", "200");
+        span.annotate(1100L, "ws");
+        span.annotate(2900L, "wr");
+        return span;
+    }
+
+    /**
+     * the conversion before: MutableSpan to zipkin2.Span, then merged into ReportSpan
+     */
+    static ReportSpan convertByZipkinSpan(MutableSpan span) {
+        Span.Builder builder = Span.newBuilder()
+            .traceId(span.traceId())
+            .parentId(span.parentId())
+            .id(span.id())
+            .name(span.name())
+            .kind(Span.Kind.valueOf(span.kind().name()))
+            .timestamp(span.startTimestamp())
+            .duration(span.finishTimestamp() - span.startTimestamp())
+            .localEndpoint(Endpoint.newBuilder()
+                .serviceName(span.localServiceName()).ip(span.localIp()).port(span.localPort()).build())
+            .remoteEndpoint(Endpoint.newBuilder()
+                .ip(span.remoteIp()).port(span.remotePort()).build());
+        span.forEachTag(Span.Builder::putTag, builder);
+        span.forEachAnnotation(Span.Builder::addAnnotation, builder);
+        return ReportSpanBuilder.newBuilder().merge(builder.build()).build();
+    }
+
+    @Test
+    public void convert() {
+        ReportSpan converted = ConvertSpanReporter.convert(span());
+        assertEquals("463ac35c9f6413ad", converted.traceId());
+        assertEquals("463ac35c9f6413ad", converted.parentId());
+        assertEquals("72485a3953bb6124", converted.id());
+        assertEquals("get /users", converted.name());
+        assertEquals("SERVER", converted.kind());
+        assertEquals(2000L, converted.duration());
+        assertEquals("demo-service", converted.localServiceName());
+        assertEquals("192.168.0.1", converted.localEndpoint().ipv4());
+        assertNull(converted.localEndpoint().ipv6());
+        assertEquals(8080, converted.localEndpoint().port());
+        assertNull(converted.remoteEndpoint().ipv4());
+        assertEquals("2001:db8::c001", converted.remoteEndpoint().ipv6());
+        assertEquals(9090, converted.remoteEndpoint().port());
+        assertEquals("[http.method, http.path, http.status_code]", converted.tags().keySet().toString());
+        assertEquals(2, converted.annotations().size());
+        assertEquals("ws", converted.annotations().get(0).value());
+
+        ReportSpan legacy = convertByZipkinSpan(span());
+        assertEquals(legacy.localEndpoint(), converted.localEndpoint());
+        assertEquals(legacy.remoteEndpoint(), converted.remoteEndpoint());
+        assertEquals(legacy.tags(), converted.tags());
+        assertEquals(legacy.annotations(), converted.annotations());
+    }
+
+    @Test
+    public void builderHandsOverTags() {
+        ReportSpanBuilder builder = ReportSpanBuilder.newBuilder()
+            .traceId("463ac35c9f6413ad")
+            .id("72485a3953bb6124")
+            .putTag("a", "1")
+            .addAnnotation(1L, "ws");
+        ReportSpan first = builder.build();
+        ReportSpan second = builder.putTag("b", "2").addAnnotation(2L, "wr").build();
+        assertEquals(1, first.tags().size());
+        assertEquals(1, first.annotations().size());
+        assertEquals("2", second.tag("b"));
+        assertNull(second.tag("a"));
+    }
+
+    @Test
+    public void annotationsSortedAndDistinct() {
+        MutableSpan span = span();
+        span.annotate(1000L, "cs");
+        span.annotate(2900L, "wr");
+        ReportSpan converted = ConvertSpanReporter.convert(span);
+        assertEquals(3, converted.annotations().size());
+        assertEquals("cs", converted.annotations().get(0).value());
+        assertEquals("ws", converted.annotations().get(1).value());
+        assertEquals("wr", converted.annotations().get(2).value());
+        assertEquals(convertByZipkinSpan(span).annotations(), converted.annotations());
+    }
+
+    @Test
+    public void endpointWithoutParsing() {
+        MutableSpan span = span();
+        span.localIp("::ffff:192.168.0.1");
+        span.remoteIpAndPort("10.0.0.2", 0);
+        ReportSpan converted = ConvertSpanReporter.convert(span);
+        // brave normalizes the mapped address, it is kept as is
+        assertEquals(convertByZipkinSpan(span).localEndpoint(), converted.localEndpoint());
+        assertEquals("10.0.0.2", converted.remoteEndpoint().ipv4());
+        assertNull(converted.remoteEndpoint().ipv6());
+    }
+}
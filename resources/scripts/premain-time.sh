@@ -0,0 +1,61 @@
+#!/bin/bash
+
+set -e
+
+pushd $(dirname $0) > /dev/null
+SCRIPTPATH=$(pwd -P)
+popd > /dev/null
+
+# compares the premain time of the sequential and the parallel bootstrap on an empty application:
+# "init" is the time logged by Bootstrap, "jvm" the wall time of the whole run, both in ms.
+
+show_usage() {
+   printf "usage: premain-time.sh [-j AGENT_JAR] [-n RUNS]\n"
+   printf "\t-j AGENT_JAR the agent jar, default is ROOT_RESPOSITORY_DIR/build/target/easeagent-dep.jar\n"
+   printf "\t-n RUNS the runs of each mode, default is 5\n"
+   printf ""
+}
+
+AGENT_JAR=${SCRIPTPATH}/../../build/target/easeagent-dep.jar
+RUNS=5
+
+while getopts 'hj:n:' flag; do
+  case "${flag}" in
+    h) show_usage; exit ;;
+    j) AGENT_JAR=${OPTARG};;
+    n) RUNS=${OPTARG};;
+    *) show_usage; exit ;;
+  esac
+done
+
+if [ ! -f "${AGENT_JAR}" ]; then
+   printf "agent jar %s not found, build it with: mvn clean package -Dmaven.test.skip\n" "${AGENT_JAR}"
+   exit 1
+fi
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "${WORK_DIR}"' EXIT
+
+cat > "${WORK_DIR}/Empty.java" <<EOF
+public class Empty {
+    public static void main(String[] args) {
+    }
+}
+EOF
+javac -d "${WORK_DIR}" "${WORK_DIR}/Empty.java"
+
+run() {
+    local parallel=$1
+    local begin end output init
+    begin=$(date +%s%N)
+    output=$(cd "${WORK_DIR}" && java -javaagent:"${AGENT_JAR}" -Deaseagent.bootstrap.parallel.enabled="${parallel}" \
+        -Deaseagent.server.enabled=false -cp "${WORK_DIR}" Empty 2>&1)
+    end=$(date +%s%N)
+    init=$(echo "${output}" | sed -n 's/.*Initialization has took \([0-9]*\)ms.*/\1/p' | tail -1)
+    printf "parallel=%-5s init=%sms jvm=%sms\n" "${parallel}" "${init:-?}" "$(( (end - begin) / 1000000 ))"
+}
+
+for i in $(seq 1 "${RUNS}"); do
+    run false
+    run true
+done
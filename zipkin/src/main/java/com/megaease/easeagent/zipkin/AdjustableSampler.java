@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin;
+
+import brave.sampler.CountingSampler;
+import brave.sampler.Sampler;
+
+/**
+ * A counting sampler whose rate can be changed at runtime, eg. by the overhead governor
+ * through "observability.tracings.sampledRate".
+ */
+public class AdjustableSampler extends Sampler {
+    private volatile float rate;
+    private volatile Sampler delegate;
+
+    public AdjustableSampler(float rate) {
+        setRate(rate);
+    }
+
+    public float getRate() {
+        return this.rate;
+    }
+
+    /**
+     * @param rate in range [0, 1], out of range values are clamped
+     */
+    public synchronized void setRate(float rate) {
+        float newRate = Math.max(0.0f, Math.min(1.0f, rate));
+        if (this.delegate != null && Float.compare(newRate, this.rate) == 0) {
+            return;
+        }
+        this.delegate = CountingSampler.create(newRate);
+        this.rate = newRate;
+    }
+
+    @Override
+    public boolean isSampled(long traceId) {
+        return this.delegate.isSampled(traceId);
+    }
+
+    @Override
+    public String toString() {
+        return "AdjustableSampler(" + this.rate + ")";
+    }
+}
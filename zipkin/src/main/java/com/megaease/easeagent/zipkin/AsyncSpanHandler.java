@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.report.metric.SelfMetrics;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hand the finished spans over to a worker thread, then run the wrapped handlers there.
+ * <p>
+ * {@code span.finish()} on the application thread only appends the finished span to a lock-free queue,
+ * the custom tags, the conversion, the global extras and the sizing of the encoder run on the worker.
+ * Brave doesn't touch a {@link MutableSpan} after it is ended, so it is safe to read it from the worker.
+ * When the queue is full the span is dropped and counted, the counts are exported as the gauge "spanHandoff"
+ * of plugin.observability.spanHandoff.metric.
+ * The idle worker is parked until a span is handed over, it doesn't poll.
+ */
+public class AsyncSpanHandler extends SpanHandler implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSpanHandler.class);
+
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_ASYNC_HANDOFF, "enabled");
+    public static final String QUEUE_SIZE_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_ASYNC_HANDOFF, "queueSize");
+
+    private final SpanHandler[] handlers;
+    private final int queueSize;
+    private final ConcurrentLinkedQueue<Finished> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean closed = false;
+    // set by the worker before it parks, so end() only unparks a waiting worker
+    private volatile boolean waiting = false;
+    private volatile boolean exported = false;
+
+    public AsyncSpanHandler(int queueSize, SpanHandler... handlers) {
+        this(queueSize, true, handlers);
+    }
+
+    AsyncSpanHandler(int queueSize, boolean startWorker, SpanHandler... handlers) {
+        this.handlers = handlers;
+        this.queueSize = Math.max(1, queueSize);
+        if (startWorker) {
+            this.worker = new Thread(this::work, "easeagent-span-handoff");
+            this.worker.setDaemon(true);
+            this.worker.start();
+        } else {
+            this.worker = null;
+        }
+    }
+
+    @Override
+    public boolean alwaysSampleLocal() {
+        for (SpanHandler handler : handlers) {
+            if (handler.alwaysSampleLocal()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (closed || queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return true;
+        }
+        queue.offer(new Finished(context, span, cause));
+        if (waiting) {
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+
+    private void work() {
+        while (!closed) {
+            if (drain() > 0) {
+                continue;
+            }
+            if (!exported) {
+                exported = SelfMetrics.exportGauge("spanHandoff", "span-handoff", "spanHandoff", () -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("queued", getQueued());
+                    result.put("dropped", getDropped());
+                    return result;
+                });
+            }
+            waiting = true;
+            // an offer after this check sees waiting and unparks
+            if (queue.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+        drain();
+    }
+
+    /**
+     * run the wrapped handlers for the spans in the queue
+     *
+     * @return count of the handled spans
+     */
+    int drain() {
+        int count = 0;
+        Finished next;
+        while ((next = queue.poll()) != null) {
+            queued.decrementAndGet();
+            count++;
+            try {
+                for (SpanHandler handler : handlers) {
+                    if (!handler.end(next.context, next.span, next.cause)) {
+                        break;
+                    }
+                }
+            } catch (Throwable e) {
+                LOGGER.warn("handle span {} fail: {}", next.span.id(), e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncSpanHandler(queueSize: " + queueSize + ", queued: " + queued.get() + ", dropped: " + getDropped() + ")";
+    }
+
+    private static class Finished {
+        private final TraceContext context;
+        private final MutableSpan span;
+        private final Cause cause;
+
+        Finished(TraceContext context, MutableSpan span, Cause cause) {
+            this.context = context;
+            this.span = span;
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+
+/**
+ * put the sampling threshold of this node in the baggage of new traces,
+ * so the downstream nodes decide by the same threshold
+ */
+public class SamplingThresholdSpanHandler extends SpanHandler {
+    private final TraceIdSampler sampler;
+
+    public SamplingThresholdSpanHandler(TraceIdSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    @Override
+    public boolean begin(TraceContext context, MutableSpan span, TraceContext parent) {
+        if (parent == null && TraceIdSampler.THRESHOLD_FIELD.getValue(context) == null) {
+            TraceIdSampler.THRESHOLD_FIELD.updateValue(context, String.valueOf(sampler.getThreshold()));
+        }
+        return true;
+    }
+}
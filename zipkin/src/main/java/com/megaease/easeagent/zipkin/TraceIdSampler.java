@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin;
+
+import brave.baggage.BaggageField;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import brave.propagation.TraceIdContext;
+import brave.sampler.Sampler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decide from the trace id against a threshold, every node with the same threshold keeps the same traces,
+ * and a node with a lower threshold keeps a subset of them, so traces are never broken by the sampling.
+ * <p>
+ * The threshold is the sampled rate out of {@link #PRECISION}, a per-node QPS cap only ever lowers it.
+ * The threshold of the root is propagated in the baggage {@link #THRESHOLD_FIELD}, a downstream node
+ * deciding a trace without sampled flag uses the upstream threshold, lowered by its own QPS cap.
+ */
+public class TraceIdSampler extends Sampler {
+    public static final int PRECISION = 10000;
+    public static final BaggageField THRESHOLD_FIELD = BaggageField.create("ease-sampling-threshold");
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile int threshold = PRECISION;
+    private volatile int qpsThreshold = PRECISION;
+    private volatile int maxQps = 0;
+    private final LongAdder decisions = new LongAdder();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    public TraceIdSampler(float rate, int maxQps) {
+        setRate(rate);
+        setMaxQps(maxQps);
+    }
+
+    /**
+     * @param rate in range [0, 1], out of range values are clamped
+     */
+    public void setRate(float rate) {
+        this.threshold = (int) (Math.max(0.0f, Math.min(1.0f, rate)) * PRECISION);
+    }
+
+    /**
+     * @param maxQps sampled traces per second of this node, not limited when less than or equal to 0
+     */
+    public void setMaxQps(int maxQps) {
+        this.maxQps = maxQps;
+        if (maxQps <= 0) {
+            this.qpsThreshold = PRECISION;
+        }
+    }
+
+    /**
+     * @return the threshold of new traces on this node
+     */
+    public int getThreshold() {
+        return Math.min(this.threshold, this.qpsThreshold);
+    }
+
+    @Override
+    public boolean isSampled(long traceId) {
+        countDecision();
+        return inThreshold(traceId, getThreshold());
+    }
+
+    /**
+     * decide the extracted context without sampled flag by the upstream threshold,
+     * the lowered threshold is written back to the baggage
+     */
+    public TraceContextOrSamplingFlags decide(TraceContextOrSamplingFlags extracted) {
+        if (extracted.sampled() != null) {
+            return extracted;
+        }
+        long traceId;
+        TraceContext context = extracted.context();
+        TraceIdContext traceIdContext = extracted.traceIdContext();
+        if (context != null) {
+            traceId = context.traceId();
+        } else if (traceIdContext != null) {
+            traceId = traceIdContext.traceId();
+        } else {
+            // a new trace, decided by isSampled
+            return extracted;
+        }
+        int upstream = parseThreshold(THRESHOLD_FIELD.getValue(extracted));
+        if (upstream < 0) {
+            return extracted;
+        }
+        countDecision();
+        int local = Math.min(upstream, this.qpsThreshold);
+        if (local < upstream) {
+            THRESHOLD_FIELD.updateValue(extracted, String.valueOf(local));
+        }
+        return extracted.sampled(inThreshold(traceId, local));
+    }
+
+    static int parseThreshold(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Math.min(PRECISION, Integer.parseInt(value)));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static boolean inThreshold(long traceId, int threshold) {
+        if (threshold >= PRECISION) {
+            return true;
+        }
+        return (traceId & Long.MAX_VALUE) % PRECISION < threshold;
+    }
+
+    /**
+     * adjust the qps threshold every second, so the expected sampled traces per second is the max qps
+     */
+    private void countDecision() {
+        decisions.increment();
+        int limit = this.maxQps;
+        if (limit <= 0) {
+            return;
+        }
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        double perSecond = decisions.sumThenReset() * (double) WINDOW_NANOS / (now - start);
+        this.qpsThreshold = perSecond <= limit ? PRECISION : (int) (PRECISION * limit / perSecond);
+    }
+
+    @Override
+    public String toString() {
+        return "TraceIdSampler(" + this.threshold + "/" + PRECISION + ", maxQps: " + this.maxQps + ")";
+    }
+}
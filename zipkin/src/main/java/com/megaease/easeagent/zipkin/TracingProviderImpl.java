@@ -18,10 +18,16 @@
 package com.megaease.easeagent.zipkin;
 
 import brave.Tracing;
+import brave.baggage.BaggagePropagation;
+import brave.baggage.BaggagePropagationConfig;
+import brave.handler.SpanHandler;
+import brave.propagation.B3Propagation;
 import brave.propagation.ThreadLocalCurrentTraceContext;
-import brave.sampler.CountingSampler;
 import com.megaease.easeagent.config.AutoRefreshConfigItem;
 import com.megaease.easeagent.config.ConfigAware;
+import com.megaease.easeagent.config.ConfigUtils;
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
 import com.megaease.easeagent.plugin.annotation.Injection;
 import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.config.ConfigConst;
@@ -37,16 +43,31 @@ import com.megaease.easeagent.plugin.report.AgentReport;
 import com.megaease.easeagent.report.AgentReportAware;
 import com.megaease.easeagent.zipkin.impl.TracingImpl;
 import com.megaease.easeagent.zipkin.logging.AgentMDCScopeDecorator;
+import com.megaease.easeagent.zipkin.metrics.SpanMetricsHandler;
+import com.megaease.easeagent.zipkin.propagation.HeaderCodec;
+import com.megaease.easeagent.zipkin.aggregate.SpanAggregationReporter;
+import com.megaease.easeagent.zipkin.tail.TailSamplingReporter;
 import zipkin2.reporter.Reporter;
 import zipkin2.reporter.brave.ConvertZipkinSpanHandler;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class TracingProviderImpl implements BeanProvider, AgentReportAware, ConfigAware, AgentInitializingBean, TracingProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TracingProviderImpl.class);
     private static final String ENV_ZIPKIN_SERVER_URL = "ZIPKIN_SERVER_URL";
+    private static final String SAMPLED_TYPE_TRACE_ID = "traceId";
     private Tracing tracing;
     private volatile ITracing iTracing;
     private AgentReport agentReport;
     private Config config;
     private AutoRefreshConfigItem<String> serviceName;
+    private TraceIdSampler traceIdSampler;
+    private HeaderCodec headerCodec;
+    // closed with the tracing, they own threads
+    private final List<Closeable> closeables = new ArrayList<>();
 
 
     @Override
@@ -68,21 +89,86 @@ public class TracingProviderImpl implements BeanProvider, AgentReportAware, Conf
             .build();
 
         serviceName = new AutoRefreshConfigItem<>(config, ConfigConst.SERVICE_NAME, Config::getString);
-
         Reporter<ReportSpan> reporter;
         reporter = span -> agentReport.report(span);
-        this.tracing = Tracing.newBuilder()
+        if (config.getBoolean(TailSamplingReporter.ENABLED_KEY, false)) {
+            TailSamplingReporter tailSampling = new TailSamplingReporter(reporter, config);
+            closeables.add(tailSampling);
+            reporter = tailSampling;
+        }
+        if (config.getBoolean(SpanAggregationReporter.ENABLED_KEY, false)) {
+            SpanAggregationReporter aggregation = new SpanAggregationReporter(reporter, config);
+            closeables.add(aggregation);
+            reporter = aggregation;
+        }
+        Tracing.Builder builder = Tracing.newBuilder()
             .localServiceName(getServiceName())
-            .traceId128Bit(false)
-            .sampler(CountingSampler.create(1))
-            .addSpanHandler(new CustomTagsSpanHandler(this::getServiceName, AdditionalAttributes.getHostName()))
-            .addSpanHandler(ConvertZipkinSpanHandler
-                .builder(reporter)
-                .alwaysReportSpans(true)
-                .build()
-            )
+            .traceId128Bit(false);
+        if (SAMPLED_TYPE_TRACE_ID.equals(config.getString(ConfigConst.Observability.TRACE_SAMPLED_TYPE))) {
+            TraceIdSampler idSampler = new TraceIdSampler(1.0f, 0);
+            ConfigUtils.bindProp(ConfigConst.Observability.TRACE_SAMPLED_RATE, config, Config::getDouble,
+                rate -> idSampler.setRate(rate.floatValue()), 1.0d);
+            ConfigUtils.bindProp(ConfigConst.Observability.TRACE_SAMPLED_BY_QPS, config, Config::getInt,
+                idSampler::setMaxQps, 0);
+            builder.sampler(idSampler)
+                .propagationFactory(BaggagePropagation.newFactoryBuilder(B3Propagation.FACTORY)
+                    .add(BaggagePropagationConfig.SingleBaggageField.remote(TraceIdSampler.THRESHOLD_FIELD))
+                    .build())
+                .addSpanHandler(new SamplingThresholdSpanHandler(idSampler));
+            this.traceIdSampler = idSampler;
+        } else {
+            AdjustableSampler sampler = new AdjustableSampler(1.0f);
+            ConfigUtils.bindProp(ConfigConst.Observability.TRACE_SAMPLED_RATE, config, Config::getDouble,
+                rate -> sampler.setRate(rate.floatValue()), 1.0d);
+            builder.sampler(sampler);
+            // the codec carries no baggage, so not with the threshold baggage of the trace id sampler
+            if (config.getBoolean(HeaderCodec.ENABLED_KEY, false)) {
+                this.headerCodec = HeaderCodec.of(config.getString(HeaderCodec.INJECT_KEY));
+            }
+        }
+        SpanHandler customTags = new CustomTagsSpanHandler(this::getServiceName, AdditionalAttributes.getHostName());
+        SpanHandler convert = ConvertZipkinSpanHandler
+            .builder(reporter)
+            .alwaysReportSpans(true)
+            .build();
+        List<SpanHandler> handlers = new ArrayList<>();
+        if (config.getBoolean(SpanMetricsHandler.ENABLED_KEY, false)) {
+            // first, the spans of unsampled traces stop at it
+            handlers.add(new SpanMetricsHandler(config));
+        }
+        handlers.add(customTags);
+        handlers.add(convert);
+        if (config.getBoolean(AsyncSpanHandler.ENABLED_KEY, false)) {
+            AsyncSpanHandler handoff = new AsyncSpanHandler(config.getInt(AsyncSpanHandler.QUEUE_SIZE_KEY, 10000),
+                handlers.toArray(new SpanHandler[0]));
+            closeables.add(handoff);
+            builder.addSpanHandler(handoff);
+        } else {
+            handlers.forEach(builder::addSpanHandler);
+        }
+        this.tracing = builder
             .currentTraceContext(traceContext)
             .build();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "easeagent-tracing-close"));
+    }
+
+    /**
+     * close the tracing and the stages that own threads, called on shutdown
+     */
+    public synchronized void close() {
+        if (this.tracing != null) {
+            this.tracing.close();
+        }
+        // the later ones flush into the earlier ones
+        for (int i = closeables.size() - 1; i >= 0; i--) {
+            Closeable closeable = closeables.get(i);
+            try {
+                closeable.close();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("close {} fail: {}", closeable, e.getMessage());
+            }
+        }
+        closeables.clear();
     }
 
 
@@ -101,7 +187,7 @@ public class TracingProviderImpl implements BeanProvider, AgentReportAware, Conf
                 if (iTracing != null) {
                     return iTracing;
                 }
-                iTracing = TracingImpl.build(supplier, tracing);
+                iTracing = TracingImpl.build(supplier, tracing, traceIdSampler, headerCodec);
             }
             return iTracing;
         };
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.aggregate;
+
+import com.megaease.easeagent.plugin.api.metric.*;
+import com.megaease.easeagent.plugin.api.metric.name.*;
+import com.megaease.easeagent.plugin.utils.ImmutableMap;
+import com.megaease.easeagent.report.metric.SelfMetrics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * N+1 runs detected by {@link SpanAggregationReporter}, keyed by "{component type}:{span name}",
+ * a meter of the runs and a counter of the spans in them.
+ */
+public class SpanAggregationMetric extends ServiceMetric {
+    public static final ServiceMetricSupplier<SpanAggregationMetric> METRIC_SUPPLIER = new ServiceMetricSupplier<SpanAggregationMetric>() {
+        @Override
+        public NameFactory newNameFactory() {
+            return SpanAggregationMetric.nameFactory();
+        }
+
+        @Override
+        public SpanAggregationMetric newInstance(MetricRegistry metricRegistry, NameFactory nameFactory) {
+            return new SpanAggregationMetric(metricRegistry, nameFactory);
+        }
+    };
+
+    public SpanAggregationMetric(@Nonnull MetricRegistry metricRegistry, @Nonnull NameFactory nameFactory) {
+        super(metricRegistry, nameFactory);
+    }
+
+    /**
+     * N+1 runs before the metric provider is installed are only counted by the reporter
+     */
+    static void nPlusOne(String type, String name, int count) {
+        SpanAggregationMetric metric = SelfMetrics.get("spanAggregation", "span-aggregation", METRIC_SUPPLIER);
+        if (metric != null) {
+            metric.collect(type + ":" + name, count);
+        }
+    }
+
+    public void collect(String key, int count) {
+        metricRegistry.meter(nameFactory.meterName(key, MetricSubType.DEFAULT)).mark();
+        metricRegistry.counter(nameFactory.counterName(key, MetricSubType.DEFAULT)).inc(count);
+    }
+
+    static NameFactory nameFactory() {
+        return NameFactory.createBuilder()
+            .meterType(MetricSubType.DEFAULT, ImmutableMap.<MetricField, MetricValueFetcher>builder()
+                .put(MetricField.TIMES, MetricValueFetcher.MeteredCount)
+                .put(MetricField.TIMES_RATE, MetricValueFetcher.MeteredMeanRate)
+                .build())
+            .counterType(MetricSubType.DEFAULT, ImmutableMap.<MetricField, MetricValueFetcher>builder()
+                .put(MetricField.EXECUTION_COUNT, MetricValueFetcher.CountingCount)
+                .build())
+            .build();
+    }
+}
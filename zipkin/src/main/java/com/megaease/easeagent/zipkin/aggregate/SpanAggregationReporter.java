@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.aggregate;
+
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+import com.megaease.easeagent.plugin.api.config.ChangeItem;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.api.middleware.MiddlewareConstants;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import zipkin2.reporter.Reporter;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapse repeated child spans, eg. the N+1 queries of an ORM, into one aggregate span.
+ * <p>
+ * Consecutive sibling spans of the same component type, name and remote endpoint form a run.
+ * The first {@code exemplars} spans of a run are reported as they are, the rest are merged into one
+ * aggregate span carrying the count, total, min and max duration of the whole run. A run ends when its
+ * parent finishes, when another child of the same parent finishes, or when it is idle for the window.
+ * A run of at least {@code nPlusOneThreshold} spans is counted as an N+1 and exported as a metric.
+ * <p>
+ * Spans with error are never merged. The component types are set by the {@code component.type} tag of
+ * the plugins, each type can be configured by {@code observability.tracings.aggregation.{type}.*}
+ */
+public class SpanAggregationReporter implements Reporter<ReportSpan>, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpanAggregationReporter.class);
+
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, "enabled");
+    public static final String TYPES_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, "types");
+    public static final String EXEMPLARS_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, "exemplars");
+    public static final String N_PLUS_ONE_THRESHOLD_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, "nPlusOneThreshold");
+    public static final String WINDOW_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, "window");
+    public static final String MAX_GROUPS_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, "maxGroups");
+
+    public static final String TAG_COUNT = "aggregate.count";
+    public static final String TAG_TOTAL = "aggregate.total";
+    public static final String TAG_MIN = "aggregate.min";
+    public static final String TAG_MAX = "aggregate.max";
+
+    private static final String DEFAULT_TYPES = MiddlewareConstants.TYPE_DATABASE + "," + MiddlewareConstants.TYPE_REDIS;
+
+    private final Reporter<ReportSpan> delegate;
+    private final Config config;
+    private final NPlusOneListener listener;
+    private final long windowNanos;
+    private final int maxGroups;
+    // children runs by trace id and parent id
+    private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+    private volatile Map<String, Settings> settings;
+
+    private final LongAdder aggregatedSpans = new LongAdder();
+    private final LongAdder aggregateSpans = new LongAdder();
+    private final LongAdder nPlusOnes = new LongAdder();
+    private final LongAdder bypassedSpans = new LongAdder();
+
+    public SpanAggregationReporter(Reporter<ReportSpan> delegate, Config config) {
+        this(delegate, config, SpanAggregationMetric::nPlusOne, true);
+    }
+
+    SpanAggregationReporter(Reporter<ReportSpan> delegate, Config config, NPlusOneListener listener, boolean startSweeper) {
+        this.delegate = delegate;
+        this.config = config;
+        this.listener = listener;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getLong(WINDOW_KEY, 5000)));
+        this.maxGroups = Math.max(1, config.getInt(MAX_GROUPS_KEY, 10000));
+        this.settings = settings(config);
+        config.addChangeListener(list -> {
+            for (ChangeItem item : list) {
+                if (item.getFullName().startsWith(ConfigConst.Observability.TRACE_AGGREGATION + ConfigConst.DELIMITER)) {
+                    this.settings = settings(config);
+                    return;
+                }
+            }
+        });
+        if (startSweeper) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "easeagent-span-aggregation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(100), windowNanos / 2);
+            this.sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * settings by component type, the type settings fall back to the global ones:
+     * observability.tracings.aggregation.{type}.enabled/exemplars/nPlusOneThreshold
+     */
+    private static Map<String, Settings> settings(Config config) {
+        int exemplars = Math.max(0, config.getInt(EXEMPLARS_KEY, 3));
+        int threshold = Math.max(2, config.getInt(N_PLUS_ONE_THRESHOLD_KEY, 10));
+        String types = config.getString(TYPES_KEY);
+        Map<String, Settings> result = new HashMap<>();
+        for (String type : (types == null ? DEFAULT_TYPES : types).split(",")) {
+            type = type.trim();
+            if (type.isEmpty()) {
+                continue;
+            }
+            String prefix = ConfigConst.join(ConfigConst.Observability.TRACE_AGGREGATION, type);
+            Boolean enabled = config.getBoolean(ConfigConst.join(prefix, "enabled"), true);
+            if (!Boolean.TRUE.equals(enabled)) {
+                continue;
+            }
+            result.put(type, new Settings(
+                Math.max(0, config.getInt(ConfigConst.join(prefix, "exemplars"), exemplars)),
+                Math.max(2, config.getInt(ConfigConst.join(prefix, "nPlusOneThreshold"), threshold))));
+        }
+        return result;
+    }
+
+    @Override
+    public void report(ReportSpan span) {
+        String traceId = span.traceId();
+        // the children of this span are done
+        Group children = groups.remove(key(traceId, span.id()));
+        if (children != null) {
+            emit(children.close());
+        }
+        String parentId = span.parentId();
+        if (parentId == null) {
+            delegate.report(span);
+            return;
+        }
+        String groupKey = key(traceId, parentId);
+        Settings setting = span.hasError() ? null : settings.get(span.tag(MiddlewareConstants.TYPE_TAG_NAME));
+        if (setting == null) {
+            Group siblings = groups.get(groupKey);
+            if (siblings != null) {
+                emit(siblings.endRun());
+            }
+            delegate.report(span);
+            return;
+        }
+        Group siblings = groups.get(groupKey);
+        if (siblings == null) {
+            if (groups.size() >= maxGroups) {
+                bypassedSpans.increment();
+                delegate.report(span);
+                return;
+            }
+            siblings = groups.computeIfAbsent(groupKey, k -> new Group(k));
+        }
+        emit(siblings.add(span, setting));
+    }
+
+    private static String key(String traceId, String spanId) {
+        return traceId + ':' + spanId;
+    }
+
+    void sweep() {
+        try {
+            long now = System.nanoTime();
+            for (Group group : groups.values()) {
+                if (now - group.lastNanos >= windowNanos && groups.remove(group.key, group)) {
+                    emit(group.close());
+                }
+            }
+        } catch (Throwable e) {
+            LOGGER.warn("span aggregation sweep fail: {}", e.getMessage());
+        }
+    }
+
+    private void emit(List<ReportSpan> spans) {
+        for (ReportSpan span : spans) {
+            delegate.report(span);
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("groups", (long) groups.size());
+        stats.put("aggregatedSpans", aggregatedSpans.sum());
+        stats.put("aggregateSpans", aggregateSpans.sum());
+        stats.put("nPlusOnes", nPlusOnes.sum());
+        stats.put("bypassedSpans", bypassedSpans.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        for (Group group : groups.values()) {
+            if (groups.remove(group.key, group)) {
+                emit(group.close());
+            }
+        }
+    }
+
+    /**
+     * notified of every run of at least nPlusOneThreshold spans
+     */
+    public interface NPlusOneListener {
+        void nPlusOne(String type, String name, int count);
+    }
+
+    static class Settings {
+        final int exemplars;
+        final int nPlusOneThreshold;
+
+        Settings(int exemplars, int nPlusOneThreshold) {
+            this.exemplars = exemplars;
+            this.nPlusOneThreshold = nPlusOneThreshold;
+        }
+    }
+
+    /**
+     * children of one parent, only the current run is kept
+     */
+    class Group {
+        final String key;
+        volatile long lastNanos = System.nanoTime();
+        private Run run;
+        private boolean closed = false;
+
+        Group(String key) {
+            this.key = key;
+        }
+
+        synchronized List<ReportSpan> add(ReportSpan span, Settings setting) {
+            lastNanos = System.nanoTime();
+            if (closed) {
+                return Collections.singletonList(span);
+            }
+            if (run != null && run.matches(span)) {
+                return run.add(span);
+            }
+            List<ReportSpan> result = new ArrayList<>(2);
+            if (run != null) {
+                run.end(result);
+            }
+            run = new Run(span, setting);
+            result.addAll(run.add(span));
+            return result;
+        }
+
+        synchronized List<ReportSpan> endRun() {
+            lastNanos = System.nanoTime();
+            if (run == null) {
+                return Collections.emptyList();
+            }
+            List<ReportSpan> result = new ArrayList<>(1);
+            run.end(result);
+            run = null;
+            return result;
+        }
+
+        synchronized List<ReportSpan> close() {
+            closed = true;
+            return endRun();
+        }
+    }
+
+    /**
+     * consecutive siblings with the same type, name and remote endpoint
+     */
+    class Run {
+        private final String type;
+        private final String name;
+        private final Endpoint remoteEndpoint;
+        private final Settings setting;
+        private int count;
+        private long total;
+        private long min = Long.MAX_VALUE;
+        private long max = 0L;
+        private ReportSpan firstAggregated;
+        private long start = Long.MAX_VALUE;
+        private long end = 0L;
+
+        Run(ReportSpan first, Settings setting) {
+            this.type = first.tag(MiddlewareConstants.TYPE_TAG_NAME);
+            this.name = first.name();
+            this.remoteEndpoint = first.remoteEndpoint();
+            this.setting = setting;
+        }
+
+        boolean matches(ReportSpan span) {
+            return Objects.equals(type, span.tag(MiddlewareConstants.TYPE_TAG_NAME))
+                && Objects.equals(name, span.name())
+                && Objects.equals(remoteEndpoint, span.remoteEndpoint());
+        }
+
+        List<ReportSpan> add(ReportSpan span) {
+            long duration = span.duration();
+            count++;
+            total += duration;
+            min = Math.min(min, duration);
+            max = Math.max(max, duration);
+            if (count <= setting.exemplars) {
+                return Collections.singletonList(span);
+            }
+            if (firstAggregated == null) {
+                firstAggregated = span;
+            }
+            start = Math.min(start, span.timestamp());
+            end = Math.max(end, span.timestamp() + span.duration());
+            aggregatedSpans.increment();
+            return Collections.emptyList();
+        }
+
+        void end(List<ReportSpan> result) {
+            if (count >= setting.nPlusOneThreshold) {
+                nPlusOnes.increment();
+                try {
+                    listener.nPlusOne(type, name, count);
+                } catch (Throwable e) {
+                    LOGGER.warn("notify N+1 of {} fail: {}", name, e.getMessage());
+                }
+            }
+            if (firstAggregated == null) {
+                return;
+            }
+            aggregateSpans.increment();
+            result.add(aggregate());
+        }
+
+        private ReportSpan aggregate() {
+            ReportSpanBuilder builder = ReportSpanBuilder.newBuilder()
+                .traceId(firstAggregated.traceId())
+                .parentId(firstAggregated.parentId())
+                .id(firstAggregated.id())
+                .name(firstAggregated.name())
+                .timestamp(start)
+                .duration(end - start)
+                .localEndpoint(firstAggregated.localEndpoint())
+                .remoteEndpoint(firstAggregated.remoteEndpoint())
+                .shared(firstAggregated.shared())
+                .debug(firstAggregated.debug());
+            if (firstAggregated.kind() != null) {
+                builder.kind(zipkin2.Span.Kind.valueOf(firstAggregated.kind()));
+            }
+            for (Map.Entry<String, String> tag : firstAggregated.tags().entrySet()) {
+                builder.putTag(tag.getKey(), tag.getValue());
+            }
+            builder.putTag(TAG_COUNT, String.valueOf(count))
+                .putTag(TAG_TOTAL, String.valueOf(total))
+                .putTag(TAG_MIN, String.valueOf(min))
+                .putTag(TAG_MAX, String.valueOf(max));
+            return builder.build();
+        }
+    }
+}
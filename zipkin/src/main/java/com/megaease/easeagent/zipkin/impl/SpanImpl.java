@@ -31,6 +31,8 @@ import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class SpanImpl implements Span {
     private static final Map<Kind, brave.Span.Kind> KINDS;
@@ -125,6 +127,23 @@ public class SpanImpl implements Span {
         return this;
     }
 
+    @Override
+    public Span tag(String key, Supplier<String> value) {
+        if (!isSampled()) {
+            return this;
+        }
+        return tag(key, value.get());
+    }
+
+    @Override
+    public Span tags(Consumer<Span> tagger) {
+        if (isSampled()) {
+            tagger.accept(this);
+        }
+        return this;
+    }
+
+
     @Override
     public Span annotate(String value) {
         span.annotate(value);
@@ -136,6 +155,11 @@ public class SpanImpl implements Span {
         return span.isNoop();
     }
 
+    @Override
+    public boolean isSampled() {
+        return !span.isNoop() && Boolean.TRUE.equals(span.context().sampled());
+    }
+
     @Override
     public Span start() {
         span.start();
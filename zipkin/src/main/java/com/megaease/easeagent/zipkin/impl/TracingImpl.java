@@ -28,7 +28,9 @@ import com.megaease.easeagent.plugin.api.context.RequestContext;
 import com.megaease.easeagent.plugin.api.trace.*;
 import com.megaease.easeagent.plugin.bridge.NoOpContext;
 import com.megaease.easeagent.plugin.bridge.NoOpTracer;
+import com.megaease.easeagent.zipkin.TraceIdSampler;
 import com.megaease.easeagent.zipkin.impl.message.MessagingTracingImpl;
+import com.megaease.easeagent.zipkin.propagation.HeaderCodec;
 
 import javax.annotation.Nonnull;
 import java.util.List;
@@ -46,27 +48,54 @@ public class TracingImpl implements ITracing {
 
     private final MessagingTracing<MessagingRequest> messagingTracing;
     private final List<String> propagationKeys;
+    private final TraceIdSampler traceIdSampler;
 
     private TracingImpl(@Nonnull Supplier<InitializeContext> supplier,
-                        @Nonnull brave.Tracing tracing) {
+                        @Nonnull brave.Tracing tracing,
+                        TraceIdSampler traceIdSampler,
+                        HeaderCodec headerCodec) {
         this.supplier = supplier;
+        this.traceIdSampler = traceIdSampler;
         this.tracing = tracing;
         this.tracer = tracing.tracer();
-        this.propagationKeys = tracing.propagation().keys();
-        Propagation<String> propagation = tracing.propagation();
+        if (headerCodec != null) {
+            this.propagationKeys = headerCodec.keys();
+            this.defaultZipkinInjector = headerCodec;
+            this.clientZipkinInjector = headerCodec;
+            this.defaultZipkinExtractor = headerCodec;
+        } else {
+            this.propagationKeys = tracing.propagation().keys();
+            Propagation<String> propagation = tracing.propagation();
 
-        this.defaultZipkinInjector = propagation.injector(Request::setHeader);
-        this.clientZipkinInjector = propagation.injector(new RemoteSetterImpl<>(brave.Span.Kind.CLIENT));
-        this.defaultZipkinExtractor = propagation.extractor(Request::header);
+            this.defaultZipkinInjector = propagation.injector(Request::setHeader);
+            this.clientZipkinInjector = propagation.injector(new RemoteSetterImpl<>(brave.Span.Kind.CLIENT));
+            this.defaultZipkinExtractor = propagation.extractor(Request::header);
+        }
         this.messagingTracing = MessagingTracingImpl.build(tracing);
     }
 
     public static ITracing build(Supplier<InitializeContext> supplier, brave.Tracing tracing) {
+        return build(supplier, tracing, null);
+    }
+
+    /**
+     * @param traceIdSampler not null when sampled by trace id, decides the extracted contexts without sampled flag
+     */
+    public static ITracing build(Supplier<InitializeContext> supplier, brave.Tracing tracing, TraceIdSampler traceIdSampler) {
+        return build(supplier, tracing, traceIdSampler, null);
+    }
+
+    /**
+     * @param traceIdSampler not null when sampled by trace id, decides the extracted contexts without sampled flag
+     * @param headerCodec    not null when the http headers are extracted and injected by it instead of the brave propagation
+     */
+    public static ITracing build(Supplier<InitializeContext> supplier, brave.Tracing tracing,
+                                 TraceIdSampler traceIdSampler, HeaderCodec headerCodec) {
         if (tracing == null) {
             return NoOpTracer.NO_OP_TRACING;
         }
 
-        return new TracingImpl(supplier, tracing);
+        return new TracingImpl(supplier, tracing, traceIdSampler, headerCodec);
     }
 
     @Override
@@ -168,7 +197,10 @@ public class TracingImpl implements ITracing {
         brave.Span span;
         if (maybeParent == null) {
             TraceContextOrSamplingFlags extracted = defaultZipkinExtractor.extract(request);
-            span = extracted.context() != null
+            if (traceIdSampler != null) {
+                extracted = traceIdSampler.decide(extracted);
+            }
+            span = extracted.context() != null && HeaderCodec.joinable(extracted.context())
                 ? tracer().joinSpan(extracted.context())
                 : tracer().nextSpan(extracted);
         } else { // If we have a span in scope assume headers were cleared before
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.metrics;
+
+import brave.Span;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfigImpl;
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfigRegistry;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetricRegistry;
+import com.megaease.easeagent.plugin.api.metric.name.Tags;
+import com.megaease.easeagent.plugin.api.middleware.MiddlewareConstants;
+import com.megaease.easeagent.plugin.tools.metrics.ServerMetric;
+import com.megaease.easeagent.plugin.tools.trace.TraceConst;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate, errors and duration derived from the finished spans, one pass over the span instead of a metric
+ * interceptor per plugin timing the same call again.
+ * <p>
+ * The metrics are grouped by the category of the span: its {@code component.type} tag, "http-request" for
+ * the http server spans, the lower case kind for the other spans with kind, "local" for the rest.
+ * The metric key is the span name, "{method} {route}" for the http server spans, names beyond maxNames
+ * of a category are counted as "other". They are exported by plugin.observability.spanMetrics.metric,
+ * the span is passed as the exemplar of its duration.
+ * <p>
+ * With unsampled, brave records the spans of the unsampled traces locally so every call is counted,
+ * those spans stop at this handler and are never reported, so it must be the first handler.
+ * A plugin drops its own metric interceptors by plugin.observability.{namespace}.metric.spanDerived=true.
+ */
+public class SpanMetricsHandler extends SpanHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpanMetricsHandler.class);
+
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_SPAN_METRICS, "enabled");
+    public static final String UNSAMPLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_SPAN_METRICS, "unsampled");
+    public static final String MAX_NAMES_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_SPAN_METRICS, "maxNames");
+
+    static final String HTTP_REQUEST = "http-request";
+    static final String LOCAL = "local";
+    static final String OTHER = "other";
+    static final String UNKNOWN = "unknown";
+
+    private final boolean unsampled;
+    private final int maxNames;
+    private final Collector collector;
+    private final ConcurrentHashMap<String, Set<String>> names = new ConcurrentHashMap<>();
+
+    public SpanMetricsHandler(Config config) {
+        this(config.getBoolean(UNSAMPLED_KEY, true), config.getInt(MAX_NAMES_KEY, 1000), new MetricCollector());
+    }
+
+    SpanMetricsHandler(boolean unsampled, int maxNames, Collector collector) {
+        this.unsampled = unsampled;
+        this.maxNames = Math.max(1, maxNames);
+        this.collector = collector;
+    }
+
+    @Override
+    public boolean alwaysSampleLocal() {
+        return unsampled;
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause == Cause.FINISHED && span.startTimestamp() != 0L && span.finishTimestamp() != 0L) {
+            try {
+                String category = category(span);
+                // an unsampled trace is never reported, so it can't be an exemplar
+                boolean sampled = Boolean.TRUE.equals(context.sampled());
+                collector.collect(category, name(category, span.name()),
+                    span.finishTimestamp() - span.startTimestamp(), isError(span),
+                    sampled ? span.traceId() : null, sampled ? span.id() : null);
+            } catch (Throwable e) {
+                LOGGER.warn("collect metrics of span {} fail: {}", span.id(), e.getMessage());
+            }
+        }
+        // the spans recorded only for the metrics stop here
+        return !Boolean.FALSE.equals(context.sampled());
+    }
+
+    static String category(MutableSpan span) {
+        String type = span.tag(MiddlewareConstants.TYPE_TAG_NAME);
+        if (type != null) {
+            return type;
+        }
+        Span.Kind kind = span.kind();
+        if (kind == null) {
+            return LOCAL;
+        }
+        if (kind == Span.Kind.SERVER && span.tag(TraceConst.HTTP_TAG_METHOD) != null) {
+            return HTTP_REQUEST;
+        }
+        return kind.name().toLowerCase(Locale.ROOT);
+    }
+
+    static boolean isError(MutableSpan span) {
+        if (span.error() != null || span.tag(TraceConst.HTTP_TAG_ERROR) != null) {
+            return true;
+        }
+        String status = span.tag(TraceConst.HTTP_TAG_STATUS_CODE);
+        return status != null && status.length() == 3 && status.charAt(0) >= '4';
+    }
+
+    private String name(String category, String name) {
+        if (name == null) {
+            name = UNKNOWN;
+        }
+        Set<String> known = names.computeIfAbsent(category, k -> ConcurrentHashMap.newKeySet());
+        if (known.contains(name)) {
+            return name;
+        }
+        if (known.size() >= maxNames) {
+            return OTHER;
+        }
+        known.add(name);
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "SpanMetricsHandler(unsampled: " + unsampled + ", maxNames: " + maxNames + ")";
+    }
+
+    interface Collector {
+        void collect(String category, String name, long durationMicros, boolean error, String traceId, String spanId);
+    }
+
+    /**
+     * one {@link ServerMetric} per category, created on the first span after the metric registry supplier is ready
+     */
+    static class MetricCollector implements Collector {
+        private final ConcurrentHashMap<String, ServerMetric> metrics = new ConcurrentHashMap<>();
+        private volatile AutoRefreshPluginConfigImpl config;
+
+        @Override
+        public void collect(String category, String name, long durationMicros, boolean error, String traceId, String spanId) {
+            if (config == null) {
+                config = AutoRefreshPluginConfigRegistry.getOrCreate("observability", "spanMetrics", "metric");
+            }
+            final AutoRefreshPluginConfigImpl cfg = config;
+            if (!cfg.enabled()) {
+                return;
+            }
+            ServerMetric metric = metrics.computeIfAbsent(category, k -> ServiceMetricRegistry.getOrCreate(cfg,
+                new Tags("application", k, HTTP_REQUEST.equals(k) ? "url" : "resource"), ServerMetric.SERVICE_METRIC_SUPPLIER));
+            metric.collectMetric(name, Duration.of(durationMicros, ChronoUnit.MICROS), error, traceId, spanId);
+        }
+    }
+}
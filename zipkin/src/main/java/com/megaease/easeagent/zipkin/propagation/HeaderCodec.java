@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.propagation;
+
+import brave.propagation.SamplingFlags;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.api.trace.Request;
+
+import java.util.*;
+
+/**
+ * Extract and inject B3 single, B3 multi and W3C traceparent headers without brave's {@code Propagation}.
+ * <p>
+ * The ids are parsed straight from the header values by index, no substring or intermediate String,
+ * and the single-line headers are written in a thread local char buffer, so the only allocation of an
+ * injection is the header value itself. The trace and span id strings are cached by the {@link TraceContext}.
+ * <p>
+ * Extraction tries "b3", then "X-B3-*", then "traceparent", the first valid one wins.
+ * Injection writes the configured formats, B3 multi by default as brave does.
+ * A server joins the span of a B3 context, and starts a child span of a traceparent context.
+ * Baggage isn't carried, so it is only used when the propagation has no baggage fields.
+ */
+public class HeaderCodec implements TraceContext.Injector<Request>, TraceContext.Extractor<Request> {
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_PROPAGATION, "fastCodec");
+    public static final String INJECT_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_PROPAGATION, "inject");
+
+    static final String B3 = "b3";
+    static final String TRACE_ID = "X-B3-TraceId";
+    static final String SPAN_ID = "X-B3-SpanId";
+    static final String PARENT_SPAN_ID = "X-B3-ParentSpanId";
+    static final String SAMPLED = "X-B3-Sampled";
+    static final String FLAGS = "X-B3-Flags";
+    static final String TRACEPARENT = "traceparent";
+
+    private static final List<String> KEYS = Collections.unmodifiableList(
+        Arrays.asList(B3, TRACE_ID, SPAN_ID, PARENT_SPAN_ID, SAMPLED, FLAGS, TRACEPARENT));
+
+    // b3: {32 trace id}-{16 span id}-{1 sampling state}-{16 parent id}
+    private static final int B3_MAX_LENGTH = 32 + 1 + 16 + 1 + 1 + 1 + 16;
+    // traceparent: {2 version}-{32 trace id}-{16 parent id}-{2 flags}
+    private static final int TRACEPARENT_LENGTH = 2 + 1 + 32 + 1 + 16 + 1 + 2;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[B3_MAX_LENGTH]);
+
+    public enum Format {
+        B3_MULTI, B3_SINGLE, W3C;
+
+        static Format of(String name) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "b3single":
+                    return B3_SINGLE;
+                case "w3c":
+                    return W3C;
+                case "b3multi":
+                default:
+                    return B3_MULTI;
+            }
+        }
+    }
+
+    /**
+     * marks the contexts extracted from traceparent, W3C doesn't share the span id between client and server
+     */
+    enum Origin {
+        W3C
+    }
+
+    private final boolean b3Multi;
+    private final boolean b3Single;
+    private final boolean w3c;
+
+    public HeaderCodec(Collection<Format> injectFormats) {
+        this.b3Multi = injectFormats.isEmpty() || injectFormats.contains(Format.B3_MULTI);
+        this.b3Single = injectFormats.contains(Format.B3_SINGLE);
+        this.w3c = injectFormats.contains(Format.W3C);
+    }
+
+    /**
+     * @param injectFormats comma separated: b3multi, b3single, w3c
+     */
+    public static HeaderCodec of(String injectFormats) {
+        EnumSet<Format> formats = EnumSet.noneOf(Format.class);
+        if (injectFormats != null) {
+            for (String name : injectFormats.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    formats.add(Format.of(name));
+                }
+            }
+        }
+        return new HeaderCodec(formats);
+    }
+
+    /**
+     * @return false when the server must start a child span of the extracted context instead of joining it
+     */
+    public static boolean joinable(TraceContext extracted) {
+        return !extracted.extra().contains(Origin.W3C);
+    }
+
+    public List<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    public void inject(TraceContext context, Request request) {
+        if (b3Multi) {
+            request.setHeader(TRACE_ID, context.traceIdString());
+            request.setHeader(SPAN_ID, context.spanIdString());
+            if (context.parentIdAsLong() != 0L) {
+                request.setHeader(PARENT_SPAN_ID, context.parentIdString());
+            }
+            if (context.debug()) {
+                request.setHeader(FLAGS, "1");
+            } else if (context.sampled() != null) {
+                request.setHeader(SAMPLED, context.sampled() ? "1" : "0");
+            }
+        }
+        if (b3Single) {
+            request.setHeader(B3, writeB3(context));
+        }
+        if (w3c) {
+            request.setHeader(TRACEPARENT, writeTraceparent(context));
+        }
+    }
+
+    @Override
+    public TraceContextOrSamplingFlags extract(Request request) {
+        String b3 = request.header(B3);
+        if (b3 != null) {
+            TraceContextOrSamplingFlags extracted = parseB3(b3);
+            if (extracted != null) {
+                return extracted;
+            }
+        }
+        TraceContextOrSamplingFlags extracted = parseB3Multi(request);
+        if (extracted != null) {
+            return extracted;
+        }
+        String traceparent = request.header(TRACEPARENT);
+        if (traceparent != null) {
+            extracted = parseTraceparent(traceparent);
+            if (extracted != null) {
+                return extracted;
+            }
+        }
+        return TraceContextOrSamplingFlags.EMPTY;
+    }
+
+    static String writeB3(TraceContext context) {
+        char[] buf = BUFFER.get();
+        int pos = writeTraceId(context, buf, 0, false);
+        buf[pos++] = '-';
+        pos = writeHex(context.spanId(), buf, pos);
+        char state = context.debug() ? 'd' : context.sampled() == null ? 0 : context.sampled() ? '1' : '0';
+        if (state != 0) {
+            buf[pos++] = '-';
+            buf[pos++] = state;
+            if (context.parentIdAsLong() != 0L) {
+                buf[pos++] = '-';
+                pos = writeHex(context.parentIdAsLong(), buf, pos);
+            }
+        }
+        return new String(buf, 0, pos);
+    }
+
+    static String writeTraceparent(TraceContext context) {
+        char[] buf = BUFFER.get();
+        buf[0] = '0';
+        buf[1] = '0';
+        buf[2] = '-';
+        int pos = writeTraceId(context, buf, 3, true);
+        buf[pos++] = '-';
+        pos = writeHex(context.spanId(), buf, pos);
+        buf[pos++] = '-';
+        buf[pos++] = '0';
+        buf[pos++] = Boolean.TRUE.equals(context.sampled()) ? '1' : '0';
+        return new String(buf, 0, pos);
+    }
+
+    /**
+     * @return null when the header is malformed
+     */
+    static TraceContextOrSamplingFlags parseB3(CharSequence value) {
+        int length = value.length();
+        if (length == 1) {
+            SamplingFlags flags = samplingState(value.charAt(0));
+            return flags == null ? null : TraceContextOrSamplingFlags.create(flags);
+        }
+        int traceIdLength;
+        if (length >= 33 && value.charAt(16) == '-') {
+            traceIdLength = 16;
+        } else if (length >= 49 && value.charAt(32) == '-') {
+            traceIdLength = 32;
+        } else {
+            return null;
+        }
+        int pos = traceIdLength + 1;
+        if (length != pos + 16 && (length < pos + 18 || value.charAt(pos + 16) != '-')) {
+            return null;
+        }
+        TraceContext.Builder builder = TraceContext.newBuilder();
+        if (!traceId(builder, value, 0, traceIdLength)) {
+            return null;
+        }
+        long spanId = parseHex(value, pos, pos + 16);
+        if (spanId == 0L) {
+            return null;
+        }
+        builder.spanId(spanId);
+        pos += 16;
+        if (pos < length) {
+            pos++;
+            char state = value.charAt(pos++);
+            if (state == 'd') {
+                builder.debug(true);
+            } else if (state == '1' || state == '0') {
+                builder.sampled(state == '1');
+            } else {
+                return null;
+            }
+            if (pos < length) {
+                if (length != pos + 17 || value.charAt(pos) != '-') {
+                    return null;
+                }
+                long parentId = parseHex(value, pos + 1, length);
+                if (parentId == 0L) {
+                    return null;
+                }
+                builder.parentId(parentId);
+            }
+        }
+        return TraceContextOrSamplingFlags.create(builder.build());
+    }
+
+    /**
+     * @return null when there is no X-B3-* header or they are malformed
+     */
+    static TraceContextOrSamplingFlags parseB3Multi(Request request) {
+        String sampledValue = request.header(SAMPLED);
+        String flags = request.header(FLAGS);
+        boolean debug = flags != null && isChar(flags, '1');
+        Boolean sampled = null;
+        if (sampledValue != null) {
+            if (isChar(sampledValue, '1') || sampledValue.equalsIgnoreCase("true")) {
+                sampled = true;
+            } else if (isChar(sampledValue, '0') || sampledValue.equalsIgnoreCase("false")) {
+                sampled = false;
+            }
+        }
+        String traceId = request.header(TRACE_ID);
+        if (traceId == null) {
+            if (debug) {
+                return TraceContextOrSamplingFlags.create(SamplingFlags.DEBUG);
+            } else if (sampled != null) {
+                return TraceContextOrSamplingFlags.create(sampled ? SamplingFlags.SAMPLED : SamplingFlags.NOT_SAMPLED);
+            }
+            return null;
+        }
+        String spanId = request.header(SPAN_ID);
+        if (spanId == null || spanId.length() != 16 || (traceId.length() != 16 && traceId.length() != 32)) {
+            return null;
+        }
+        TraceContext.Builder builder = TraceContext.newBuilder();
+        if (!traceId(builder, traceId, 0, traceId.length())) {
+            return null;
+        }
+        long id = parseHex(spanId, 0, 16);
+        if (id == 0L) {
+            return null;
+        }
+        builder.spanId(id);
+        String parentId = request.header(PARENT_SPAN_ID);
+        if (parentId != null) {
+            long parent = parentId.length() == 16 ? parseHex(parentId, 0, 16) : 0L;
+            if (parent == 0L) {
+                return null;
+            }
+            builder.parentId(parent);
+        }
+        if (debug) {
+            builder.debug(true);
+        } else if (sampled != null) {
+            builder.sampled(sampled.booleanValue());
+        }
+        return TraceContextOrSamplingFlags.create(builder.build());
+    }
+
+    /**
+     * @return null when the header is malformed
+     */
+    static TraceContextOrSamplingFlags parseTraceparent(CharSequence value) {
+        int length = value.length();
+        if (length < TRACEPARENT_LENGTH || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return null;
+        }
+        char v0 = value.charAt(0);
+        char v1 = value.charAt(1);
+        if (v0 == '0' && v1 == '0') {
+            if (length != TRACEPARENT_LENGTH) {
+                return null;
+            }
+        } else if ((v0 == 'f' && v1 == 'f') || hex(v0) < 0 || hex(v1) < 0
+            || (length > TRACEPARENT_LENGTH && value.charAt(TRACEPARENT_LENGTH) != '-')) {
+            // an unknown later version must still start with the fields of version 00
+            return null;
+        }
+        TraceContext.Builder builder = TraceContext.newBuilder();
+        if (!traceId(builder, value, 3, 35)) {
+            return null;
+        }
+        long spanId = parseHex(value, 36, 52);
+        if (spanId == 0L) {
+            return null;
+        }
+        int flags = hex(value.charAt(54));
+        if (hex(value.charAt(53)) < 0 || flags < 0) {
+            return null;
+        }
+        TraceContext context = builder.spanId(spanId)
+            .sampled((flags & 1) == 1)
+            .addExtra(Origin.W3C)
+            .build();
+        return TraceContextOrSamplingFlags.create(context);
+    }
+
+    private static SamplingFlags samplingState(char state) {
+        switch (state) {
+            case '1':
+                return SamplingFlags.SAMPLED;
+            case '0':
+                return SamplingFlags.NOT_SAMPLED;
+            case 'd':
+                return SamplingFlags.DEBUG;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean traceId(TraceContext.Builder builder, CharSequence value, int begin, int end) {
+        long high = 0L;
+        if (end - begin == 32) {
+            high = parseHex(value, begin, begin + 16);
+            if (high == 0L && !isZeros(value, begin, begin + 16)) {
+                return false;
+            }
+            begin += 16;
+        }
+        long low = parseHex(value, begin, end);
+        if (low == 0L && high == 0L) {
+            return false;
+        }
+        if (low == 0L && !isZeros(value, begin, end)) {
+            return false;
+        }
+        builder.traceIdHigh(high).traceId(low);
+        return true;
+    }
+
+    /**
+     * @return the value of the lower hex in [begin, end), 0 when it isn't lower hex
+     */
+    static long parseHex(CharSequence value, int begin, int end) {
+        if (end - begin > 16 || end > value.length()) {
+            return 0L;
+        }
+        long result = 0L;
+        for (int i = begin; i < end; i++) {
+            int digit = hex(value.charAt(i));
+            if (digit < 0) {
+                return 0L;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    private static boolean isZeros(CharSequence value, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            if (value.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isChar(String value, char c) {
+        return value.length() == 1 && value.charAt(0) == c;
+    }
+
+    private static int writeTraceId(TraceContext context, char[] buf, int pos, boolean always128) {
+        if (always128 || context.traceIdHigh() != 0L) {
+            pos = writeHex(context.traceIdHigh(), buf, pos);
+        }
+        return writeHex(context.traceId(), buf, pos);
+    }
+
+    private static int writeHex(long v, char[] buf, int pos) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buf[pos++] = HEX[(int) (v >>> shift) & 0xf];
+        }
+        return pos;
+    }
+
+    @Override
+    public String toString() {
+        return "HeaderCodec(b3Multi: " + b3Multi + ", b3Single: " + b3Single + ", w3c: " + w3c + ")";
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.tail;
+
+import com.megaease.easeagent.config.ConfigUtils;
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+import com.megaease.easeagent.plugin.api.config.ChangeItem;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.config.ConfigConst;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.metric.SelfMetrics;
+import zipkin2.reporter.Reporter;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tail-based sampling between the span converter and the agent report.
+ * <p>
+ * Finished spans are held per trace id until the local root span of the trace finishes, then the
+ * whole trace is reported only when one of its spans has error, the root is slower than the threshold
+ * of its endpoint(the span name), or the trace id falls in the baseline rate. Otherwise the trace is dropped.
+ * <p>
+ * The buffer is bounded by the number of spans and by a time window: when full the oldest trace is
+ * evicted, a trace whose root doesn't finish in the window is expired, both decide on the spans they have.
+ * Spans arriving after their trace is decided follow the decision.
+ * The counters of {@link #getStats()} are exported as the gauge "tailSampling" of plugin.observability.tailSampling.metric.
+ * The local root is the span without parent or a SERVER/CONSUMER span, the first one finished decides.
+ */
+public class TailSamplingReporter implements Reporter<ReportSpan>, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TailSamplingReporter.class);
+
+    public static final String ENABLED_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_TAIL_SAMPLING, "enabled");
+    public static final String WINDOW_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_TAIL_SAMPLING, "window");
+    public static final String MAX_SPANS_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_TAIL_SAMPLING, "maxSpans");
+    public static final String BASELINE_RATE_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_TAIL_SAMPLING, "baselineRate");
+    public static final String SLOW_THRESHOLD_KEY = ConfigConst.join(ConfigConst.Observability.TRACE_TAIL_SAMPLING, "slowThreshold");
+
+    private static final int BASELINE_PRECISION = 10000;
+    private static final int MAX_DECISIONS = 10000;
+
+    private final Reporter<ReportSpan> delegate;
+    private final long windowNanos;
+    private final int maxSpans;
+    private final ConcurrentHashMap<String, Trace> traces = new ConcurrentHashMap<>();
+    // traces in order of creation, entries of decided traces are skipped
+    private final ConcurrentLinkedQueue<Trace> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedSpans = new AtomicInteger();
+    // decisions of recent traces, for the spans finished after the local root
+    private final Map<String, Boolean> decisions = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_DECISIONS;
+        }
+    });
+    private final ScheduledExecutorService sweeper;
+    private volatile boolean exported = false;
+
+    private volatile int baseline;
+    private volatile long slowThresholdMicros;
+    private volatile Map<String, Long> endpointThresholdMicros = Collections.emptyMap();
+
+    private final LongAdder keptErrorTraces = new LongAdder();
+    private final LongAdder keptSlowTraces = new LongAdder();
+    private final LongAdder keptBaselineTraces = new LongAdder();
+    private final LongAdder droppedTraces = new LongAdder();
+    private final LongAdder droppedSpans = new LongAdder();
+    private final LongAdder evictedTraces = new LongAdder();
+    private final LongAdder evictedSpans = new LongAdder();
+    private final LongAdder expiredTraces = new LongAdder();
+    private final LongAdder lateSpans = new LongAdder();
+
+    public TailSamplingReporter(Reporter<ReportSpan> delegate, Config config) {
+        this(delegate, config, true);
+    }
+
+    TailSamplingReporter(Reporter<ReportSpan> delegate, Config config, boolean startSweeper) {
+        this.delegate = delegate;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getLong(WINDOW_KEY, 10000)));
+        this.maxSpans = Math.max(1, config.getInt(MAX_SPANS_KEY, 10000));
+        ConfigUtils.bindProp(BASELINE_RATE_KEY, config, Config::getDouble,
+            rate -> this.baseline = (int) (Math.max(0, Math.min(1, rate)) * BASELINE_PRECISION), 0.01d);
+        ConfigUtils.bindProp(SLOW_THRESHOLD_KEY, config, Config::getLong,
+            millis -> this.slowThresholdMicros = TimeUnit.MILLISECONDS.toMicros(millis), 1000L);
+        this.endpointThresholdMicros = endpointThresholds(config);
+        config.addChangeListener(list -> {
+            for (ChangeItem item : list) {
+                if (item.getFullName().startsWith(SLOW_THRESHOLD_KEY + ConfigConst.DELIMITER)) {
+                    this.endpointThresholdMicros = endpointThresholds(config);
+                    return;
+                }
+            }
+        });
+        if (startSweeper) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "easeagent-tail-sampling");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(100), windowNanos / 2);
+            this.sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * per endpoint thresholds in ms: observability.tracings.tailSampling.slowThreshold.{span name}={ms}
+     */
+    private static Map<String, Long> endpointThresholds(Config config) {
+        String prefix = SLOW_THRESHOLD_KEY + ConfigConst.DELIMITER;
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : config.getConfigs().entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+            try {
+                result.put(entry.getKey().substring(prefix.length()),
+                    TimeUnit.MILLISECONDS.toMicros(Long.parseLong(entry.getValue().trim())));
+            } catch (NumberFormatException e) {
+                LOGGER.warn("invalid slow threshold {}={}", entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void report(ReportSpan span) {
+        String traceId = span.traceId();
+        Boolean decision = decisions.get(traceId);
+        if (decision != null) {
+            lateSpans.increment();
+            emit(Collections.singletonList(span), decision);
+            return;
+        }
+        if (isLocalRoot(span)) {
+            // closed at once, not in the order to sweep
+            Trace trace = traces.computeIfAbsent(traceId, id -> new Trace(id, System.nanoTime()));
+            // decided before leaving the map: a span arriving meanwhile finds either the trace or the decision
+            trace.close(span);
+            traces.remove(traceId, trace);
+            return;
+        }
+        Trace trace = traces.computeIfAbsent(traceId, this::newTrace);
+        Boolean decided = trace.add(span);
+        if (decided != null) {
+            // decided by other thread between get and add
+            lateSpans.increment();
+            emit(Collections.singletonList(span), decided);
+            return;
+        }
+        if (bufferedSpans.incrementAndGet() > maxSpans) {
+            evictOldest();
+        }
+    }
+
+    private Trace newTrace(String traceId) {
+        Trace created = new Trace(traceId, System.nanoTime());
+        order.offer(created);
+        return created;
+    }
+
+    static boolean isLocalRoot(ReportSpan span) {
+        if (span.parentId() == null) {
+            return true;
+        }
+        String kind = span.kind();
+        return "SERVER".equals(kind) || "CONSUMER".equals(kind);
+    }
+
+    private void evictOldest() {
+        Trace trace;
+        while ((trace = order.poll()) != null) {
+            int released = trace.close(null);
+            traces.remove(trace.traceId, trace);
+            if (released >= 0) {
+                evictedTraces.increment();
+                evictedSpans.add(released);
+                return;
+            }
+        }
+    }
+
+    void sweep() {
+        try {
+            if (!exported) {
+                exported = SelfMetrics.exportGauge("tailSampling", "tail-sampling", "tailSampling",
+                    () -> new HashMap<>(getStats()));
+            }
+            long now = System.nanoTime();
+            Trace trace;
+            while ((trace = order.peek()) != null && now - trace.createNanos >= windowNanos) {
+                order.poll();
+                if (trace.close(null) >= 0) {
+                    expiredTraces.increment();
+                }
+                traces.remove(trace.traceId, trace);
+            }
+        } catch (Throwable e) {
+            LOGGER.warn("tail sampling sweep fail: {}", e.getMessage());
+        }
+    }
+
+    private boolean decide(List<ReportSpan> spans, ReportSpan root) {
+        long duration = 0;
+        for (ReportSpan span : spans) {
+            if (span.hasError()) {
+                keptErrorTraces.increment();
+                return true;
+            }
+            duration = Math.max(duration, span.duration());
+        }
+        if (root != null) {
+            duration = root.duration();
+        }
+        Long threshold = root == null || root.name() == null ? null : endpointThresholdMicros.get(root.name());
+        if (duration > (threshold == null ? slowThresholdMicros : threshold)) {
+            keptSlowTraces.increment();
+            return true;
+        }
+        if (inBaseline(spans.get(0).traceId())) {
+            keptBaselineTraces.increment();
+            return true;
+        }
+        droppedTraces.increment();
+        return false;
+    }
+
+    /**
+     * decided by trace id, so all services sampling the same rate keep the same traces
+     */
+    private boolean inBaseline(String traceId) {
+        int rate = this.baseline;
+        if (rate <= 0) {
+            return false;
+        }
+        long id;
+        try {
+            id = Long.parseUnsignedLong(traceId.substring(Math.max(0, traceId.length() - 16)), 16);
+        } catch (RuntimeException e) {
+            id = traceId.hashCode();
+        }
+        return (id & Long.MAX_VALUE) % BASELINE_PRECISION < rate;
+    }
+
+    private void emit(List<ReportSpan> spans, boolean keep) {
+        if (!keep) {
+            droppedSpans.add(spans.size());
+            return;
+        }
+        for (ReportSpan span : spans) {
+            delegate.report(span);
+        }
+    }
+
+    public int getBufferedSpans() {
+        return bufferedSpans.get();
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("bufferedTraces", (long) traces.size());
+        stats.put("bufferedSpans", (long) bufferedSpans.get());
+        stats.put("keptErrorTraces", keptErrorTraces.sum());
+        stats.put("keptSlowTraces", keptSlowTraces.sum());
+        stats.put("keptBaselineTraces", keptBaselineTraces.sum());
+        stats.put("droppedTraces", droppedTraces.sum());
+        stats.put("droppedSpans", droppedSpans.sum());
+        stats.put("evictedTraces", evictedTraces.sum());
+        stats.put("evictedSpans", evictedSpans.sum());
+        stats.put("expiredTraces", expiredTraces.sum());
+        stats.put("lateSpans", lateSpans.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * spans of a trace, closed once when the trace is decided
+     */
+    class Trace {
+        final String traceId;
+        final long createNanos;
+        private List<ReportSpan> spans = new ArrayList<>();
+        private Boolean decision;
+
+        Trace(String traceId, long createNanos) {
+            this.traceId = traceId;
+            this.createNanos = createNanos;
+        }
+
+        /**
+         * @return null when the span is buffered, otherwise the decision of the trace
+         */
+        synchronized Boolean add(ReportSpan span) {
+            if (decision == null) {
+                spans.add(span);
+            }
+            return decision;
+        }
+
+        /**
+         * decide and emit the trace, root is null when evicted or expired
+         *
+         * @return the number of buffered spans released, -1 when the trace is already decided
+         */
+        synchronized int close(ReportSpan root) {
+            if (decision != null) {
+                if (root != null) {
+                    lateSpans.increment();
+                    emit(Collections.singletonList(root), decision);
+                }
+                return -1;
+            }
+            List<ReportSpan> all = spans;
+            int buffered = all.size();
+            if (root != null) {
+                all.add(root);
+            }
+            if (all.isEmpty()) {
+                return 0;
+            }
+            bufferedSpans.addAndGet(-buffered);
+            spans = Collections.emptyList();
+            decision = decide(all, root);
+            decisions.put(traceId, decision);
+            emit(all, decision);
+            return buffered;
+        }
+    }
+}
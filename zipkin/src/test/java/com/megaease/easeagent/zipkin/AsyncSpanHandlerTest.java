@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AsyncSpanHandlerTest {
+    private static final TraceContext CONTEXT = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+
+    private static SpanHandler recorder(List<String> records, String name, boolean next) {
+        return new SpanHandler() {
+            @Override
+            public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                records.add(name + ":" + span.name() + ":" + Thread.currentThread().getName());
+                return next;
+            }
+        };
+    }
+
+    private static MutableSpan span(String name) {
+        MutableSpan span = new MutableSpan(CONTEXT, null);
+        span.name(name);
+        return span;
+    }
+
+    @Test
+    public void handOff() {
+        List<String> records = new ArrayList<>();
+        AsyncSpanHandler handler = new AsyncSpanHandler(10, false,
+            recorder(records, "tags", true), recorder(records, "convert", true));
+        handler.end(CONTEXT, span("a"), SpanHandler.Cause.FINISHED);
+        handler.end(CONTEXT, span("b"), SpanHandler.Cause.FINISHED);
+        assertEquals(0, records.size());
+        assertEquals(2, handler.getQueued());
+
+        String thread = Thread.currentThread().getName();
+        assertEquals(2, handler.drain());
+        assertEquals(0, handler.getQueued());
+        assertEquals("tags:a:" + thread, records.get(0));
+        assertEquals("convert:a:" + thread, records.get(1));
+        assertEquals("tags:b:" + thread, records.get(2));
+        assertEquals("convert:b:" + thread, records.get(3));
+    }
+
+    @Test
+    public void stopWhenHandlerDrops() {
+        List<String> records = new ArrayList<>();
+        AsyncSpanHandler handler = new AsyncSpanHandler(10, false,
+            recorder(records, "drop", false), recorder(records, "convert", true));
+        handler.end(CONTEXT, span("a"), SpanHandler.Cause.FINISHED);
+        handler.drain();
+        assertEquals(1, records.size());
+    }
+
+    @Test
+    public void dropWhenFull() {
+        List<String> records = new ArrayList<>();
+        AsyncSpanHandler handler = new AsyncSpanHandler(2, false, recorder(records, "convert", true));
+        for (int i = 0; i < 5; i++) {
+            handler.end(CONTEXT, span("s" + i), SpanHandler.Cause.FINISHED);
+        }
+        assertEquals(2, handler.getQueued());
+        assertEquals(3, handler.getDropped());
+        assertEquals(2, handler.drain());
+
+        handler.close();
+        handler.end(CONTEXT, span("closed"), SpanHandler.Cause.FINISHED);
+        assertEquals(4, handler.getDropped());
+    }
+
+    @Test
+    public void worker() throws InterruptedException {
+        List<String> records = Collections.synchronizedList(new ArrayList<>());
+        AsyncSpanHandler handler = new AsyncSpanHandler(10, recorder(records, "convert", true));
+        handler.end(CONTEXT, span("a"), SpanHandler.Cause.FINISHED);
+        for (int i = 0; i < 100 && records.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        handler.close();
+        assertEquals(0, handler.getQueued());
+        assertEquals("convert:a:easeagent-span-handoff", records.get(0));
+    }
+
+    @Test
+    public void idleWorkerBlocks() throws Exception {
+        List<String> records = Collections.synchronizedList(new ArrayList<>());
+        AsyncSpanHandler handler = new AsyncSpanHandler(10, recorder(records, "convert", true));
+        Thread worker = (Thread) AgentFieldReflectAccessor.getFieldValue(handler, "worker");
+        // parked without a timeout, not woken up periodically
+        for (int i = 0; i < 100 && worker.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, worker.getState());
+
+        for (int round = 0; round < 3; round++) {
+            handler.end(CONTEXT, span("s" + round), SpanHandler.Cause.FINISHED);
+            for (int i = 0; i < 100 && records.size() <= round; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(round + 1, records.size());
+        }
+        handler.close();
+        worker.join(1000);
+        assertFalse(worker.isAlive());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin;
+
+import brave.baggage.BaggagePropagation;
+import brave.baggage.BaggagePropagationConfig;
+import brave.propagation.B3Propagation;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TraceIdSamplerTest {
+    private static final Propagation<String> PROPAGATION = BaggagePropagation.newFactoryBuilder(B3Propagation.FACTORY)
+        .add(BaggagePropagationConfig.SingleBaggageField.remote(TraceIdSampler.THRESHOLD_FIELD))
+        .build().get();
+
+    private TraceContextOrSamplingFlags extract(long traceId, String threshold) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-B3-TraceId", String.format("%016x", traceId));
+        headers.put("X-B3-SpanId", String.format("%016x", traceId));
+        if (threshold != null) {
+            headers.put(TraceIdSampler.THRESHOLD_FIELD.name(), threshold);
+        }
+        TraceContext.Extractor<Map<String, String>> extractor = PROPAGATION.extractor(Map::get);
+        return extractor.extract(headers);
+    }
+
+    @Test
+    public void isSampled() {
+        TraceIdSampler sampler = new TraceIdSampler(0.5f, 0);
+        assertEquals(5000, sampler.getThreshold());
+        assertTrue(sampler.isSampled(4999));
+        assertFalse(sampler.isSampled(5000));
+        assertTrue(sampler.isSampled(10000));
+        assertEquals(sampler.isSampled(-123456789L), sampler.isSampled(-123456789L));
+
+        sampler.setRate(1.0f);
+        assertTrue(sampler.isSampled(9999));
+        sampler.setRate(0.0f);
+        assertFalse(sampler.isSampled(0));
+        sampler.setRate(2.0f);
+        assertEquals(TraceIdSampler.PRECISION, sampler.getThreshold());
+    }
+
+    @Test
+    public void lowerThresholdIsSubset() {
+        TraceIdSampler high = new TraceIdSampler(0.3f, 0);
+        TraceIdSampler low = new TraceIdSampler(0.1f, 0);
+        long traceId = 0x5DEECE66DL;
+        for (int i = 0; i < 10000; i++) {
+            traceId = traceId * 6364136223846793005L + 1442695040888963407L;
+            if (low.isSampled(traceId)) {
+                assertTrue(high.isSampled(traceId));
+            }
+        }
+    }
+
+    @Test
+    public void decide() {
+        TraceIdSampler sampler = new TraceIdSampler(1.0f, 0);
+        TraceContextOrSamplingFlags extracted = extract(1234, "2000");
+        assertNull(extracted.sampled());
+        TraceContextOrSamplingFlags decided = sampler.decide(extracted);
+        assertEquals(Boolean.FALSE, decided.sampled());
+        assertEquals(Boolean.TRUE, sampler.decide(extract(1999, "2000")).sampled());
+
+        TraceContextOrSamplingFlags noThreshold = extract(1234, null);
+        assertSame(noThreshold, sampler.decide(noThreshold));
+        assertNull(sampler.decide(noThreshold).sampled());
+
+        TraceContextOrSamplingFlags sampled = extracted.sampled(true);
+        assertSame(sampled, sampler.decide(sampled));
+    }
+
+    @Test
+    public void parseThreshold() {
+        assertEquals(-1, TraceIdSampler.parseThreshold(null));
+        assertEquals(-1, TraceIdSampler.parseThreshold("abc"));
+        assertEquals(0, TraceIdSampler.parseThreshold("-5"));
+        assertEquals(TraceIdSampler.PRECISION, TraceIdSampler.parseThreshold("20000"));
+        assertEquals(300, TraceIdSampler.parseThreshold("300"));
+    }
+}
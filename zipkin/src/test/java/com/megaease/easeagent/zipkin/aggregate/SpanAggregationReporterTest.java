@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.aggregate;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.plugin.api.middleware.MiddlewareConstants;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import org.junit.Test;
+import zipkin2.Span;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SpanAggregationReporterTest {
+    private static final String TRACE_ID = "0000000000000001";
+    private static final String PARENT_ID = "0000000000000001";
+
+    private static ReportSpan span(long id, String parentId, String name, String type, long timestamp, long duration) {
+        ReportSpanBuilder builder = ReportSpanBuilder.newBuilder()
+            .traceId(TRACE_ID)
+            .id(id)
+            .parentId(parentId)
+            .name(name)
+            .kind(Span.Kind.CLIENT)
+            .timestamp(timestamp)
+            .duration(duration);
+        if (type != null) {
+            builder.putTag(MiddlewareConstants.TYPE_TAG_NAME, type);
+        }
+        return builder.build();
+    }
+
+    private static ReportSpan query(long id, long timestamp, long duration) {
+        return span(id, PARENT_ID, "executeQuery", MiddlewareConstants.TYPE_DATABASE, timestamp, duration);
+    }
+
+    private static ReportSpan parent() {
+        return ReportSpanBuilder.newBuilder().traceId(TRACE_ID).id(PARENT_ID).name("get /users")
+            .kind(Span.Kind.SERVER).timestamp(1L).duration(10000L).build();
+    }
+
+    private static SpanAggregationReporter reporter(List<ReportSpan> reported, List<String> nPlusOnes) {
+        Map<String, String> source = new HashMap<>();
+        source.put(SpanAggregationReporter.EXEMPLARS_KEY, "2");
+        source.put(SpanAggregationReporter.N_PLUS_ONE_THRESHOLD_KEY, "4");
+        return new SpanAggregationReporter(reported::add, new Configs(source),
+            (type, name, count) -> nPlusOnes.add(type + ":" + name + ":" + count), false);
+    }
+
+    @Test
+    public void aggregate() {
+        List<ReportSpan> reported = new ArrayList<>();
+        List<String> nPlusOnes = new ArrayList<>();
+        SpanAggregationReporter reporter = reporter(reported, nPlusOnes);
+        for (int i = 0; i < 5; i++) {
+            reporter.report(query(2 + i, 100 + i * 100, 10 + i));
+        }
+        assertEquals(2, reported.size());
+        reporter.report(parent());
+        assertEquals(4, reported.size());
+
+        ReportSpan aggregate = reported.get(2);
+        assertEquals("0000000000000004", aggregate.id());
+        assertEquals(PARENT_ID, aggregate.parentId());
+        assertEquals("5", aggregate.tag(SpanAggregationReporter.TAG_COUNT));
+        assertEquals("60", aggregate.tag(SpanAggregationReporter.TAG_TOTAL));
+        assertEquals("10", aggregate.tag(SpanAggregationReporter.TAG_MIN));
+        assertEquals("14", aggregate.tag(SpanAggregationReporter.TAG_MAX));
+        assertEquals(300L, aggregate.timestamp());
+        assertEquals(214L, aggregate.duration());
+        assertEquals(MiddlewareConstants.TYPE_DATABASE, aggregate.tag(MiddlewareConstants.TYPE_TAG_NAME));
+        assertEquals(PARENT_ID, reported.get(3).id());
+        assertEquals(1, nPlusOnes.size());
+        assertEquals("database:executequery:5", nPlusOnes.get(0));
+        assertEquals(0L, (long) reporter.getStats().get("groups"));
+    }
+
+    @Test
+    public void breakRun() {
+        List<ReportSpan> reported = new ArrayList<>();
+        List<String> nPlusOnes = new ArrayList<>();
+        SpanAggregationReporter reporter = reporter(reported, nPlusOnes);
+        for (int i = 0; i < 3; i++) {
+            reporter.report(query(2 + i, 100, 10));
+        }
+        assertEquals(2, reported.size());
+        reporter.report(span(10, PARENT_ID, "get", MiddlewareConstants.TYPE_REDIS, 500, 10));
+        assertEquals(4, reported.size());
+        assertEquals("3", reported.get(2).tag(SpanAggregationReporter.TAG_COUNT));
+        assertEquals("000000000000000a", reported.get(3).id());
+
+        reporter.report(span(11, PARENT_ID, "local", null, 600, 10));
+        assertEquals(5, reported.size());
+        assertEquals(0, nPlusOnes.size());
+    }
+
+    @Test
+    public void keepErrorAndOtherParents() {
+        List<ReportSpan> reported = new ArrayList<>();
+        SpanAggregationReporter reporter = reporter(reported, new ArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            reporter.report(span(2 + i, "000000000000000a", "executeQuery", MiddlewareConstants.TYPE_DATABASE, 100, 10));
+            reporter.report(span(20 + i, "000000000000000b", "executeQuery", MiddlewareConstants.TYPE_DATABASE, 100, 10));
+        }
+        assertEquals(4, reported.size());
+        ReportSpan error = ReportSpanBuilder.newBuilder().traceId(TRACE_ID).id(30L).parentId("000000000000000a")
+            .name("executeQuery").putTag(MiddlewareConstants.TYPE_TAG_NAME, MiddlewareConstants.TYPE_DATABASE)
+            .putTag("error", "fail").build();
+        reporter.report(error);
+        assertEquals(6, reported.size());
+        assertSame(error, reported.get(5));
+        reporter.sweep();
+        assertEquals(6, reported.size());
+        reporter.close();
+        assertEquals(7, reported.size());
+    }
+
+    @Test
+    public void typeSettings() {
+        List<ReportSpan> reported = new ArrayList<>();
+        Map<String, String> source = new HashMap<>();
+        source.put(SpanAggregationReporter.TYPES_KEY, "database");
+        source.put("observability.tracings.aggregation.database.enabled", "false");
+        SpanAggregationReporter reporter = new SpanAggregationReporter(reported::add, new Configs(source),
+            (type, name, count) -> {
+            }, false);
+        for (int i = 0; i < 5; i++) {
+            reporter.report(query(2 + i, 100, 10));
+        }
+        assertEquals(5, reported.size());
+    }
+}
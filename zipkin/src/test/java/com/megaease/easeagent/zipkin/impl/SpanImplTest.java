@@ -20,13 +20,16 @@ package com.megaease.easeagent.zipkin.impl;
 import brave.TracerTestUtils;
 import brave.Tracing;
 import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
 import brave.propagation.CurrentTraceContext;
 import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
 import com.megaease.easeagent.mock.report.MockAtomicReferenceReportSpanReport;
 import com.megaease.easeagent.mock.report.MockReport;
 import com.megaease.easeagent.plugin.api.trace.Request;
 import com.megaease.easeagent.plugin.api.trace.Scope;
 import com.megaease.easeagent.plugin.api.trace.Span;
+import com.megaease.easeagent.plugin.bridge.NoOpTracer;
 import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import com.megaease.easeagent.zipkin.TracingProviderImplMock;
@@ -34,6 +37,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 
 public class SpanImplTest {
@@ -131,6 +136,54 @@ public class SpanImplTest {
         assertEquals(value1, state.tag(tagName));
     }
 
+    @Test
+    public void lazyTag() {
+        AtomicInteger calls = new AtomicInteger();
+        assertTrue(span.isSampled());
+        span.tag("tag2", () -> "value" + calls.incrementAndGet());
+        assertEquals("value1", state.tag("tag2"));
+        span.tags(s -> s.tag("tag3", "value3").tag("tag4", "value4"));
+        assertEquals("value3", state.tag("tag3"));
+        assertEquals("value4", state.tag("tag4"));
+
+        Span noop = SpanImpl.build(tracing, null, false, injector);
+        noop.tag("tag2", () -> "value" + calls.incrementAndGet());
+        noop.tags(s -> calls.incrementAndGet());
+        NoOpTracer.NO_OP_SPAN.tag("tag2", () -> "value" + calls.incrementAndGet());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void lazyTagUnsampled() {
+        AtomicInteger calls = new AtomicInteger();
+        Tracing local = Tracing.newBuilder()
+            .sampler(Sampler.NEVER_SAMPLE)
+            .addSpanHandler(new SpanHandler() {
+                @Override
+                public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                    return true;
+                }
+
+                @Override
+                public boolean alwaysSampleLocal() {
+                    return true;
+                }
+            })
+            .build();
+        try {
+            brave.Span unsampled = local.tracer().newTrace();
+            Span span = SpanImpl.build(local, unsampled, false, local.propagation().injector(Request::setHeader));
+            assertFalse(span.isNoop());
+            assertFalse(span.isSampled());
+            assertFalse(unsampled.context().sampled());
+            span.tag("tag2", () -> "value" + calls.incrementAndGet());
+            span.tags(s -> calls.incrementAndGet());
+            assertEquals(0, calls.get());
+        } finally {
+            local.close();
+        }
+    }
+
     @Test
     public void annotate() {
         brave.Span bSpanA = tracing.tracer().nextSpan();
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.metrics;
+
+import brave.Span;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import com.megaease.easeagent.plugin.api.middleware.MiddlewareConstants;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SpanMetricsHandlerTest {
+    private static final TraceContext SAMPLED = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(true).build();
+    private static final TraceContext UNSAMPLED = TraceContext.newBuilder().traceId(1L).spanId(3L).sampled(false).build();
+
+    private static MutableSpan span(String name, Span.Kind kind, long duration) {
+        MutableSpan span = new MutableSpan(SAMPLED, null);
+        span.name(name);
+        span.kind(kind);
+        span.startTimestamp(1000L);
+        span.finishTimestamp(1000L + duration);
+        return span;
+    }
+
+    @Test
+    public void collect() {
+        List<String> records = new ArrayList<>();
+        SpanMetricsHandler handler = new SpanMetricsHandler(true, 100,
+            (category, name, duration, error, traceId, spanId) -> records.add(category + "|" + name + "|" + duration + "|" + error));
+
+        MutableSpan http = span("GET /users", Span.Kind.SERVER, 1500);
+        http.tag("http.method", "GET");
+        http.tag("http.status_code", "500");
+        MutableSpan db = span("executeQuery", Span.Kind.CLIENT, 20);
+        db.tag(MiddlewareConstants.TYPE_TAG_NAME, MiddlewareConstants.TYPE_DATABASE);
+        MutableSpan client = span("GET", Span.Kind.CLIENT, 30);
+        client.error(new RuntimeException("fail"));
+        MutableSpan local = span("compute", null, 40);
+
+        assertTrue(handler.end(SAMPLED, http, SpanHandler.Cause.FINISHED));
+        assertTrue(handler.end(SAMPLED, db, SpanHandler.Cause.FINISHED));
+        assertTrue(handler.end(SAMPLED, client, SpanHandler.Cause.FINISHED));
+        assertTrue(handler.end(SAMPLED, local, SpanHandler.Cause.FINISHED));
+        assertTrue(handler.end(SAMPLED, span("abandoned", null, 50), SpanHandler.Cause.ABANDONED));
+
+        assertEquals(4, records.size());
+        assertEquals("http-request|GET /users|1500|true", records.get(0));
+        assertEquals("database|executeQuery|20|false", records.get(1));
+        assertEquals("client|GET|30|true", records.get(2));
+        assertEquals("local|compute|40|false", records.get(3));
+    }
+
+    @Test
+    public void unsampledStopHere() {
+        List<String> records = new ArrayList<>();
+        SpanMetricsHandler handler = new SpanMetricsHandler(true, 100,
+            (category, name, duration, error, traceId, spanId) -> records.add(name + "|" + traceId + "|" + spanId));
+        assertTrue(handler.alwaysSampleLocal());
+        MutableSpan unsampled = new MutableSpan(UNSAMPLED, null);
+        unsampled.name("a");
+        unsampled.startTimestamp(1000L);
+        unsampled.finishTimestamp(1001L);
+        assertFalse(handler.end(UNSAMPLED, unsampled, SpanHandler.Cause.FINISHED));
+        assertTrue(handler.end(SAMPLED, span("b", null, 1), SpanHandler.Cause.FINISHED));
+        assertEquals(2, records.size());
+        // unsampled spans are never reported, so they must not be linked as exemplars
+        assertEquals("a|null|null", records.get(0));
+        assertEquals("b|" + SAMPLED.traceIdString() + "|" + SAMPLED.spanIdString(), records.get(1));
+
+        assertFalse(new SpanMetricsHandler(false, 100, (category, name, duration, error, traceId, spanId) -> {
+        }).alwaysSampleLocal());
+    }
+
+    @Test
+    public void maxNames() {
+        List<String> records = new ArrayList<>();
+        SpanMetricsHandler handler = new SpanMetricsHandler(true, 2,
+            (category, name, duration, error, traceId, spanId) -> records.add(name));
+        handler.end(SAMPLED, span("a", null, 1), SpanHandler.Cause.FINISHED);
+        handler.end(SAMPLED, span("b", null, 1), SpanHandler.Cause.FINISHED);
+        handler.end(SAMPLED, span("c", null, 1), SpanHandler.Cause.FINISHED);
+        handler.end(SAMPLED, span("a", null, 1), SpanHandler.Cause.FINISHED);
+        handler.end(SAMPLED, span("c", Span.Kind.CLIENT, 1), SpanHandler.Cause.FINISHED);
+        assertEquals("a", records.get(0));
+        assertEquals("b", records.get(1));
+        assertEquals(SpanMetricsHandler.OTHER, records.get(2));
+        assertEquals("a", records.get(3));
+        assertEquals("c", records.get(4));
+    }
+
+    @Test
+    public void unsampledTraces() {
+        List<String> collected = new ArrayList<>();
+        List<String> reported = new ArrayList<>();
+        Tracing tracing = Tracing.newBuilder()
+            .sampler(Sampler.NEVER_SAMPLE)
+            .addSpanHandler(new SpanMetricsHandler(true, 100,
+                (category, name, duration, error, traceId, spanId) -> collected.add(name)))
+            .addSpanHandler(new SpanHandler() {
+                @Override
+                public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                    reported.add(span.name());
+                    return true;
+                }
+            })
+            .build();
+        try {
+            Span span = tracing.tracer().newTrace().name("unsampled").start();
+            assertFalse(span.isNoop());
+            span.finish();
+        } finally {
+            tracing.close();
+        }
+        assertEquals(1, collected.size());
+        assertEquals("unsampled", collected.get(0));
+        assertEquals(0, reported.size());
+    }
+}
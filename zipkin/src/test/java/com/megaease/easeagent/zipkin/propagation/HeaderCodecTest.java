@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.propagation;
+
+import brave.propagation.B3Propagation;
+import brave.propagation.B3SingleFormat;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import com.megaease.easeagent.plugin.api.trace.Request;
+import com.megaease.easeagent.zipkin.impl.RequestMock;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+public class HeaderCodecTest {
+    private static final Propagation<String> B3 = B3Propagation.FACTORY.get();
+    private static final TraceContext CONTEXT = TraceContext.newBuilder()
+        .traceIdHigh(0x463ac35c9f6413adL).traceId(0x48485a3953bb6124L)
+        .spanId(0xa2fb4a1d1a96d312L).parentId(0x0020000000000001L)
+        .sampled(true).build();
+
+    @Test
+    public void extractB3Multi() {
+        RequestMock request = new RequestMock();
+        B3.<Request>injector(Request::setHeader).inject(CONTEXT, request);
+        TraceContextOrSamplingFlags extracted = HeaderCodec.of(null).extract(request);
+        assertEquals(CONTEXT, extracted.context());
+        assertTrue(extracted.context().sampled());
+        assertTrue(HeaderCodec.joinable(extracted.context()));
+    }
+
+    @Test
+    public void injectB3Multi() {
+        RequestMock request = new RequestMock();
+        HeaderCodec.of("b3multi").inject(CONTEXT, request);
+        assertEquals("463ac35c9f6413ad48485a3953bb6124", request.header(HeaderCodec.TRACE_ID));
+        assertEquals("a2fb4a1d1a96d312", request.header(HeaderCodec.SPAN_ID));
+        assertEquals("0020000000000001", request.header(HeaderCodec.PARENT_SPAN_ID));
+        assertEquals("1", request.header(HeaderCodec.SAMPLED));
+        assertNull(request.header(HeaderCodec.B3));
+        assertEquals(CONTEXT, B3.<Request>extractor(Request::header).extract(request).context());
+    }
+
+    @Test
+    public void b3Single() {
+        String header = B3SingleFormat.writeB3SingleFormat(CONTEXT);
+        assertEquals(header, HeaderCodec.writeB3(CONTEXT));
+        assertEquals(CONTEXT, HeaderCodec.parseB3(header).context());
+
+        TraceContext debug = CONTEXT.toBuilder().traceIdHigh(0L).parentId(0L).debug(true).build();
+        assertEquals("48485a3953bb6124-a2fb4a1d1a96d312-d", HeaderCodec.writeB3(debug));
+        assertEquals(debug, HeaderCodec.parseB3("48485a3953bb6124-a2fb4a1d1a96d312-d").context());
+
+        TraceContext unknown = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+        assertEquals("0000000000000001-0000000000000002", HeaderCodec.writeB3(unknown));
+        assertNull(HeaderCodec.parseB3("0000000000000001-0000000000000002").context().sampled());
+
+        assertEquals(Boolean.FALSE, HeaderCodec.parseB3("0").sampled());
+        assertTrue(HeaderCodec.parseB3("d").samplingFlags().debug());
+
+        RequestMock request = new RequestMock();
+        HeaderCodec.of("b3single").inject(CONTEXT, request);
+        assertEquals(header, request.header(HeaderCodec.B3));
+        assertNull(request.header(HeaderCodec.TRACE_ID));
+    }
+
+    @Test
+    public void malformed() {
+        assertNull(HeaderCodec.parseB3("x"));
+        assertNull(HeaderCodec.parseB3("0000000000000000-0000000000000002-1"));
+        assertNull(HeaderCodec.parseB3("0000000000000001-0000000000000000-1"));
+        assertNull(HeaderCodec.parseB3("000000000000000G-0000000000000002-1"));
+        assertNull(HeaderCodec.parseB3("0000000000000001-0000000000000002-x"));
+        assertNull(HeaderCodec.parseB3("0000000000000001-0000000000000002-1-00000000000003"));
+        assertNull(HeaderCodec.parseB3("0000000000000001-00000000000000021"));
+        assertNull(HeaderCodec.parseTraceparent("00-00000000000000000000000000000000-0000000000000002-01"));
+        assertNull(HeaderCodec.parseTraceparent("ff-00000000000000000000000000000001-0000000000000002-01"));
+        assertNull(HeaderCodec.parseTraceparent("00-00000000000000000000000000000001-0000000000000002-01-extra"));
+        assertNull(HeaderCodec.parseTraceparent("00-0000000000000000000000000000001-0000000000000002-01"));
+
+        RequestMock request = new RequestMock();
+        request.setHeader(HeaderCodec.B3, "broken");
+        request.setHeader(HeaderCodec.TRACE_ID, "0000000000000001");
+        request.setHeader(HeaderCodec.SPAN_ID, "broken");
+        assertSame(TraceContextOrSamplingFlags.EMPTY, HeaderCodec.of(null).extract(request));
+    }
+
+    @Test
+    public void w3c() {
+        String header = "00-463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-01";
+        TraceContext extracted = HeaderCodec.parseTraceparent(header).context();
+        assertEquals(CONTEXT.traceIdHigh(), extracted.traceIdHigh());
+        assertEquals(CONTEXT.traceId(), extracted.traceId());
+        assertEquals(CONTEXT.spanId(), extracted.spanId());
+        assertTrue(extracted.sampled());
+        assertFalse(HeaderCodec.joinable(extracted));
+        assertFalse(HeaderCodec.parseTraceparent("00-463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-00").context().sampled());
+        assertNotNull(HeaderCodec.parseTraceparent("01-463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-01-future"));
+
+        assertEquals(header, HeaderCodec.writeTraceparent(CONTEXT));
+        TraceContext id64 = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+        assertEquals("00-00000000000000000000000000000001-0000000000000002-00", HeaderCodec.writeTraceparent(id64));
+
+        RequestMock request = new RequestMock();
+        new HeaderCodec(EnumSet.of(HeaderCodec.Format.W3C)).inject(CONTEXT, request);
+        assertEquals(header, request.header(HeaderCodec.TRACEPARENT));
+        assertNull(request.header(HeaderCodec.TRACE_ID));
+        assertEquals(CONTEXT.spanId(), HeaderCodec.of(null).extract(request).context().spanId());
+    }
+
+    @Test
+    public void b3First() {
+        RequestMock request = new RequestMock();
+        request.setHeader(HeaderCodec.TRACEPARENT, "00-00000000000000000000000000000009-0000000000000009-01");
+        request.setHeader(HeaderCodec.B3, "0000000000000001-0000000000000002-1");
+        assertEquals(2L, HeaderCodec.of(null).extract(request).context().spanId());
+    }
+}
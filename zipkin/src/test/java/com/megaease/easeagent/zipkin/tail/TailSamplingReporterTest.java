@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2022, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.zipkin.tail;
+
+import com.megaease.easeagent.config.Configs;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import org.junit.Test;
+import zipkin2.Span;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class TailSamplingReporterTest {
+    private static final String TRACE_ID = "0000000000000001";
+
+    private static ReportSpan span(String id, String parentId, Span.Kind kind, long durationMicros, boolean error) {
+        ReportSpanBuilder builder = ReportSpanBuilder.newBuilder()
+            .traceId(TRACE_ID)
+            .id(id)
+            .parentId(parentId)
+            .name("get /test")
+            .timestamp(1L)
+            .duration(durationMicros);
+        if (kind != null) {
+            builder.kind(kind);
+        }
+        if (error) {
+            builder.putTag("error", "fail");
+        }
+        return builder.build();
+    }
+
+    private static TailSamplingReporter reporter(List<ReportSpan> reported, Map<String, String> extra) {
+        Map<String, String> source = new HashMap<>();
+        source.put(TailSamplingReporter.BASELINE_RATE_KEY, "0");
+        source.put(TailSamplingReporter.SLOW_THRESHOLD_KEY, "100");
+        source.put(TailSamplingReporter.MAX_SPANS_KEY, "2");
+        source.putAll(extra);
+        return new TailSamplingReporter(reported::add, new Configs(source), false);
+    }
+
+    @Test
+    public void dropFastTrace() {
+        List<ReportSpan> reported = new ArrayList<>();
+        TailSamplingReporter reporter = reporter(reported, new HashMap<>());
+        reporter.report(span("0000000000000002", "0000000000000001", Span.Kind.CLIENT, 1000, false));
+        assertEquals(1, reporter.getBufferedSpans());
+        reporter.report(span("0000000000000001", null, Span.Kind.SERVER, 2000, false));
+        assertEquals(0, reported.size());
+        assertEquals(0, reporter.getBufferedSpans());
+        assertEquals(2L, (long) reporter.getStats().get("droppedSpans"));
+
+        // late span follows the decision
+        reporter.report(span("0000000000000003", "0000000000000001", Span.Kind.CLIENT, 1000, false));
+        assertEquals(0, reported.size());
+        assertEquals(1L, (long) reporter.getStats().get("lateSpans"));
+    }
+
+    @Test
+    public void keepErrorAndSlowTrace() {
+        List<ReportSpan> reported = new ArrayList<>();
+        TailSamplingReporter reporter = reporter(reported, new HashMap<>());
+        reporter.report(span("0000000000000002", "0000000000000001", Span.Kind.CLIENT, 1000, true));
+        reporter.report(span("0000000000000001", null, Span.Kind.SERVER, 2000, false));
+        assertEquals(2, reported.size());
+        assertEquals(1L, (long) reporter.getStats().get("keptErrorTraces"));
+
+        reported.clear();
+        reporter = reporter(reported, new HashMap<>());
+        reporter.report(span("0000000000000001", null, Span.Kind.SERVER, 200000, false));
+        assertEquals(1, reported.size());
+        assertEquals(1L, (long) reporter.getStats().get("keptSlowTraces"));
+    }
+
+    @Test
+    public void endpointThreshold() {
+        List<ReportSpan> reported = new ArrayList<>();
+        Map<String, String> extra = new HashMap<>();
+        extra.put(TailSamplingReporter.SLOW_THRESHOLD_KEY + ".get /test", "500");
+        TailSamplingReporter reporter = reporter(reported, extra);
+        reporter.report(span("0000000000000001", null, Span.Kind.SERVER, 200000, false));
+        assertEquals(0, reported.size());
+    }
+
+    @Test
+    public void baseline() {
+        List<ReportSpan> reported = new ArrayList<>();
+        Map<String, String> extra = new HashMap<>();
+        extra.put(TailSamplingReporter.BASELINE_RATE_KEY, "1");
+        TailSamplingReporter reporter = reporter(reported, extra);
+        reporter.report(span("0000000000000001", null, Span.Kind.SERVER, 10, false));
+        assertEquals(1, reported.size());
+        assertEquals(1L, (long) reporter.getStats().get("keptBaselineTraces"));
+    }
+
+    @Test
+    public void evictWhenFull() {
+        List<ReportSpan> reported = new ArrayList<>();
+        TailSamplingReporter reporter = reporter(reported, new HashMap<>());
+        reporter.report(span("0000000000000002", "0000000000000001", Span.Kind.CLIENT, 10, true));
+        reporter.report(span("0000000000000003", "0000000000000001", Span.Kind.CLIENT, 10, false));
+        reporter.report(span("0000000000000004", "0000000000000001", Span.Kind.CLIENT, 10, false));
+        // over maxSpans, the trace is evicted and decided on the spans it has
+        assertEquals(0, reporter.getBufferedSpans());
+        assertEquals(1L, (long) reporter.getStats().get("evictedTraces"));
+        assertEquals(3L, (long) reporter.getStats().get("evictedSpans"));
+        assertEquals(3, reported.size());
+    }
+
+    private static boolean sweeperAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && "easeagent-tail-sampling".equals(thread.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void childRacingRoot() throws InterruptedException {
+        List<ReportSpan> reported = new ArrayList<>();
+        Map<String, String> extra = new HashMap<>();
+        extra.put(TailSamplingReporter.MAX_SPANS_KEY, "100000");
+        TailSamplingReporter reporter = reporter(reported, extra);
+        int count = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread children = new Thread(() -> {
+            await(start);
+            for (int i = 1; i <= count; i++) {
+                reporter.report(ReportSpanBuilder.newBuilder().traceId(0L, i).id(i + count).parentId(i)
+                    .kind(Span.Kind.CLIENT).name("select").timestamp(1L).duration(1L).build());
+            }
+        });
+        Thread roots = new Thread(() -> {
+            await(start);
+            for (int i = 1; i <= count; i++) {
+                reporter.report(ReportSpanBuilder.newBuilder().traceId(0L, i).id(i)
+                    .kind(Span.Kind.SERVER).name("get /test").timestamp(1L).duration(1L).build());
+            }
+        });
+        children.start();
+        roots.start();
+        start.countDown();
+        children.join();
+        roots.join();
+        // every child is buffered with its root or follows the decision, none starts a trace of its own
+        assertEquals(0L, (long) reporter.getStats().get("bufferedTraces"));
+        assertEquals(0, reporter.getBufferedSpans());
+        assertEquals((long) count, (long) reporter.getStats().get("droppedTraces"));
+        assertEquals(count * 2L, (long) reporter.getStats().get("droppedSpans"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void closeStopsSweeper() throws InterruptedException {
+        Map<String, String> source = new HashMap<>();
+        source.put(TailSamplingReporter.WINDOW_KEY, "200");
+        TailSamplingReporter reporter = new TailSamplingReporter(span -> {
+        }, new Configs(source));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!sweeperAlive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(sweeperAlive());
+        reporter.close();
+        while (sweeperAlive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(sweeperAlive());
+    }
+}